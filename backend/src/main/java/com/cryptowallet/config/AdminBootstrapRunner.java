@@ -3,6 +3,7 @@ package com.cryptowallet.config;
 import com.cryptowallet.entity.User;
 import com.cryptowallet.repository.UserRepository;
 import com.cryptowallet.security.CryptoService;
+import com.cryptowallet.service.StatsRollups;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -36,6 +37,7 @@ public class AdminBootstrapRunner {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final CryptoService cryptoService;
+    private final StatsRollups rollups;
 
     @Value("${admin.bootstrap.username:admin}")
     private String bootstrapUsername;
@@ -85,6 +87,7 @@ public class AdminBootstrapRunner {
                 .build();
 
         userRepository.save(admin);
+        rollups.userAdded(true);
         log.info("AdminBootstrapRunner: bootstrapped initial ADMIN user username={} email={}",
                 bootstrapUsername, bootstrapEmail);
     }
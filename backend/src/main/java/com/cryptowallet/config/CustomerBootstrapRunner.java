@@ -3,6 +3,7 @@ package com.cryptowallet.config;
 import com.cryptowallet.entity.User;
 import com.cryptowallet.repository.UserRepository;
 import com.cryptowallet.security.CryptoService;
+import com.cryptowallet.service.StatsRollups;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,6 +32,7 @@ public class CustomerBootstrapRunner {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final CryptoService cryptoService;
+    private final StatsRollups rollups;
 
     @Value("${customer.bootstrap.username:customer}")
     private String bootstrapUsername;
@@ -75,6 +77,7 @@ public class CustomerBootstrapRunner {
                 .build();
 
         userRepository.save(customer);
+        rollups.userAdded(true);
         log.info("CustomerBootstrapRunner: bootstrapped seeded customer username={} email={}",
                 bootstrapUsername, bootstrapEmail);
     }
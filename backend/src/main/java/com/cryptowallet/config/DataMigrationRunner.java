@@ -1,5 +1,6 @@
 package com.cryptowallet.config;
 
+import com.cryptowallet.service.StatsRollups;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +16,8 @@ import java.util.Map;
  * (fresh DB or already-migrated environments). See {@code docs/architecture/MIGRATIONS.md}.
  *
  * <p>Uses {@link JdbcTemplate} directly to avoid JPA caching issues with a table that's
- * being dropped. Tested under both H2 (in-memory) and Postgres.
+ * being dropped, and so reports each copied user to {@link StatsRollups} itself. Tested under
+ * both H2 (in-memory) and Postgres.
  */
 @Component
 @RequiredArgsConstructor
@@ -23,6 +25,7 @@ import java.util.Map;
 public class DataMigrationRunner {
 
     private final JdbcTemplate jdbcTemplate;
+    private final StatsRollups rollups;
 
     @PostConstruct
     public void migrateAdminsIntoUsers() {
@@ -71,6 +74,10 @@ public class DataMigrationRunner {
                     row.get("last_login"),
                     row.get("created_at"),
                     row.get("updated_at"));
+            jdbcTemplate.query("SELECT CAST(created_at AS DATE), active FROM users WHERE username = ?",
+                    rs -> {
+                        rollups.userAdded(rs.getDate(1).toLocalDate(), rs.getBoolean(2));
+                    }, username);
             copied++;
         }
 
@@ -0,0 +1,38 @@
+package com.cryptowallet.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-time schema delta for HD wallets: {@code wallets.private_key} becomes nullable (HD wallets
+ * store only {@code derivation_index}). {@code ddl-auto: update} adds the new columns but never
+ * relaxes an existing NOT NULL, so databases created before HD mode need this ALTER. No-op on
+ * fresh schemas. See {@code docs/architecture/MIGRATIONS.md}.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class HdWalletSchemaRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void relaxPrivateKeyNotNull() {
+        List<String> nullable = jdbcTemplate.queryForList(
+                "SELECT is_nullable FROM information_schema.columns "
+                        + "WHERE LOWER(table_name) = 'wallets' AND LOWER(column_name) = 'private_key'",
+                String.class);
+        if (nullable.isEmpty() || !"NO".equalsIgnoreCase(nullable.get(0))) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE wallets ALTER COLUMN private_key DROP NOT NULL");
+        log.info("HdWalletSchemaRunner: wallets.private_key is now nullable for HD wallets.");
+    }
+}
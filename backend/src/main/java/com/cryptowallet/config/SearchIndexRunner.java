@@ -0,0 +1,84 @@
+package com.cryptowallet.config;
+
+import com.cryptowallet.repository.SqlDialect;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds the Postgres {@code pg_trgm} GIN indexes admin search ({@code AdminSearch}) matches
+ * substrings on: one over {@code LOWER(column)} per searched column. {@code ddl-auto} cannot
+ * express operator-class expression indexes, so they are created here, {@code CONCURRENTLY} and
+ * on a background thread after startup — on large tables a build takes a while, and writes and
+ * boot must not wait for it; search scans until it finishes. An index left invalid by an
+ * interrupted build is dropped and rebuilt; valid ones are skipped. No-op on H2. See
+ * {@code docs/architecture/MIGRATIONS.md}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexRunner {
+
+    record TrigramIndex(String name, String table, String column) {
+    }
+
+    static final List<TrigramIndex> INDEXES = List.of(
+            new TrigramIndex("idx_users_username_trgm", "users", "username"),
+            new TrigramIndex("idx_users_email_trgm", "users", "email"),
+            new TrigramIndex("idx_users_first_name_trgm", "users", "first_name"),
+            new TrigramIndex("idx_users_last_name_trgm", "users", "last_name"),
+            new TrigramIndex("idx_wallets_address_trgm", "wallets", "address"),
+            new TrigramIndex("idx_transactions_tx_hash_trgm", "transactions", "tx_hash"),
+            new TrigramIndex("idx_transactions_from_address_trgm", "transactions", "from_address"),
+            new TrigramIndex("idx_transactions_to_address_trgm", "transactions", "to_address"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!dialect.isPostgres()) {
+            return;
+        }
+        Thread builder = new Thread(this::buildIndexes, "search-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    void buildIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (DataAccessException e) {
+            log.warn("SearchIndexRunner: pg_trgm unavailable, admin search will scan: {}", e.getMessage());
+            return;
+        }
+        for (TrigramIndex index : INDEXES) {
+            try {
+                build(index);
+            } catch (DataAccessException e) {
+                log.warn("SearchIndexRunner: building {} failed: {}", index.name(), e.getMessage());
+            }
+        }
+    }
+
+    private void build(TrigramIndex index) {
+        List<Boolean> valid = jdbcTemplate.queryForList("SELECT i.indisvalid FROM pg_class c "
+                + "JOIN pg_index i ON i.indexrelid = c.oid WHERE c.relname = ?", Boolean.class, index.name());
+        if (!valid.isEmpty() && valid.get(0)) {
+            return;
+        }
+        if (!valid.isEmpty()) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.name());
+        }
+        long started = System.currentTimeMillis();
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index.name() + " ON " + index.table()
+                + " USING gin (LOWER(" + index.column() + ") gin_trgm_ops)");
+        log.info("SearchIndexRunner: built {} in {} ms", index.name(), System.currentTimeMillis() - started);
+    }
+}
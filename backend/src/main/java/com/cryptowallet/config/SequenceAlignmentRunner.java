@@ -0,0 +1,66 @@
+package com.cryptowallet.config;
+
+import com.cryptowallet.repository.SqlDialect;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps Hibernate id sequences ahead of ids already in their table. Tables that moved from
+ * IDENTITY to a pooled sequence (so inserts can be JDBC-batched) get a brand-new sequence from
+ * {@code ddl-auto: update}, starting at 1 under rows issued by the old IDENTITY column; this
+ * restarts it past {@code MAX(id)} plus one allocation block. Never moves a sequence backwards,
+ * so other nodes' cached blocks stay valid. No-op on fresh schemas. See
+ * {@code docs/architecture/MIGRATIONS.md}.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceAlignmentRunner {
+
+    /** Table, sequence and {@code allocationSize} of every sequence-allocated entity. */
+    record SequencedTable(String table, String sequence, int allocationSize) {
+    }
+
+    static final List<SequencedTable> TABLES = List.of(
+            new SequencedTable("wallets", "wallets_seq", 50));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    @PostConstruct
+    public void alignSequences() {
+        TABLES.forEach(this::align);
+    }
+
+    void align(SequencedTable target) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + target.table(), Long.class);
+        if (maxId == null) {
+            return;
+        }
+        long floor = maxId + target.allocationSize();
+        Long next = nextValue(target.sequence());
+        if (next == null || next >= floor) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + target.sequence() + " RESTART WITH " + floor);
+        log.info("SequenceAlignmentRunner: {} restarted at {} (was {}, MAX({}.id) = {})",
+                target.sequence(), floor, next, target.table(), maxId);
+    }
+
+    /** Value the next {@code nextval} will return, without consuming it; null if the sequence is missing. */
+    private Long nextValue(String sequence) {
+        List<Long> next = dialect.isPostgres()
+                ? jdbcTemplate.queryForList("SELECT COALESCE(last_value + increment_by, start_value) "
+                        + "FROM pg_sequences WHERE sequencename = ?", Long.class, sequence)
+                : jdbcTemplate.queryForList("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES "
+                        + "WHERE LOWER(SEQUENCE_NAME) = ?", Long.class, sequence);
+        return next.isEmpty() ? null : next.get(0);
+    }
+}
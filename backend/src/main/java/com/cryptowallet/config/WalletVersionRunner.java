@@ -0,0 +1,31 @@
+package com.cryptowallet.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time backfill for {@code wallets.version}: {@code ddl-auto: update} adds the column as NULL
+ * on existing rows, which Spring Data reads as "new entity" and the {@code version + 1} balance
+ * UPDATEs leave NULL. Sets them to 0. No-op once every row has a version. See
+ * {@code docs/architecture/MIGRATIONS.md}.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class WalletVersionRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void backfillVersions() {
+        int updated = jdbcTemplate.update("UPDATE wallets SET version = 0 WHERE version IS NULL");
+        if (updated > 0) {
+            log.info("WalletVersionRunner: initialised version on {} wallet(s)", updated);
+        }
+    }
+}
@@ -100,16 +100,13 @@ public class AdminController {
     public ResponseEntity<Page<UserDto>> searchAdmins(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-
-        Sort sort = sortDir.equalsIgnoreCase("desc") ?
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(defaultValue = "10") int size) {
 
-        Page<UserDto> admins = userService.searchByRole(User.Role.ADMIN, query, pageable);
-        return ResponseEntity.ok(admins);
+        try {
+            return ResponseEntity.ok(userService.searchByRole(User.Role.ADMIN, query, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/role/{role}")
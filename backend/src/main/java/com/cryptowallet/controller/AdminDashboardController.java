@@ -3,6 +3,7 @@ package com.cryptowallet.controller;
 import com.cryptowallet.dto.*;
 import com.cryptowallet.entity.Transaction;
 import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.AdminAnalyticsService;
 import com.cryptowallet.service.AdminStatsService;
 import com.cryptowallet.service.TransactionService;
 import com.cryptowallet.service.UserService;
@@ -17,10 +18,11 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/admin/dashboard")
@@ -30,6 +32,7 @@ import java.util.Optional;
 public class AdminDashboardController {
     
     private final AdminStatsService adminStatsService;
+    private final AdminAnalyticsService adminAnalyticsService;
     private final UserService userService;
     private final WalletService walletService;
     private final TransactionService transactionService;
@@ -61,16 +64,13 @@ public class AdminDashboardController {
     public ResponseEntity<Page<UserDto>> searchUsers(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(defaultValue = "10") int size) {
         
-        // Implementation would need to be added to UserService
-        return ResponseEntity.ok(Page.empty(pageable));
+        try {
+            return ResponseEntity.ok(userService.searchUsers(query, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PutMapping("/users/{id}/toggle-status")
@@ -112,16 +112,13 @@ public class AdminDashboardController {
     public ResponseEntity<Page<WalletDto>> searchWallets(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(defaultValue = "10") int size) {
         
-        // Implementation would need to be added to WalletService
-        return ResponseEntity.ok(Page.empty(pageable));
+        try {
+            return ResponseEntity.ok(walletService.searchWallets(query, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PutMapping("/wallets/{id}/toggle-status")
@@ -155,6 +152,17 @@ public class AdminDashboardController {
         }
     }
     
+    @PostMapping("/wallets/refresh-balances")
+    public ResponseEntity<Map<String, Integer>> refreshWalletBalances(@RequestBody List<Long> walletIds) {
+        try {
+            int refreshed = walletService.refreshWalletBalances(walletIds);
+            return ResponseEntity.ok(Map.of("requested", walletIds.size(), "refreshed", refreshed));
+        } catch (RuntimeException e) {
+            log.error("Wallet balance refresh failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     // Transaction Management Endpoints
     @GetMapping("/transactions")
     public ResponseEntity<Page<TransactionDto>> getAllTransactions(
@@ -177,16 +185,13 @@ public class AdminDashboardController {
     public ResponseEntity<Page<TransactionDto>> searchTransactions(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(defaultValue = "10") int size) {
         
-        // Implementation would need to be added to TransactionService
-        return ResponseEntity.ok(Page.empty(pageable));
+        try {
+            return ResponseEntity.ok(transactionService.searchTransactions(query, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/transactions/pending")
@@ -200,32 +205,19 @@ public class AdminDashboardController {
     }
     
     // Analytics Endpoints
-    @GetMapping("/analytics/users-registered")
-    public ResponseEntity<Long> getUsersRegisteredInPeriod(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        
-        Long count = adminStatsService.getUsersRegisteredInPeriod(start, end);
-        return ResponseEntity.ok(count);
-    }
-    
-    @GetMapping("/analytics/transactions")
-    public ResponseEntity<Long> getTransactionsInPeriod(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        
-        Long count = adminStatsService.getTransactionsInPeriod(start, end);
-        return ResponseEntity.ok(count);
-    }
-    
-    @GetMapping("/analytics/volume")
-    public ResponseEntity<BigDecimal> getVolumeInPeriod(
+    @GetMapping("/analytics/series")
+    public ResponseEntity<AnalyticsSeriesDto> getAnalyticsSeries(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
-            @RequestParam Wallet.CryptoCurrency currency) {
+            @RequestParam(defaultValue = "DAY") AnalyticsSeriesDto.Granularity granularity,
+            @RequestParam(defaultValue = "USERS,TRANSACTIONS,VOLUME") Set<AnalyticsSeriesDto.Metric> metrics,
+            @RequestParam(defaultValue = "BITCOIN,USDT_TRC20") Set<Wallet.CryptoCurrency> currencies) {
         
-        BigDecimal volume = adminStatsService.getVolumeInPeriod(start, end, currency);
-        return ResponseEntity.ok(volume);
+        try {
+            return ResponseEntity.ok(adminAnalyticsService.getSeries(start, end, granularity, metrics, currencies));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     // Utility endpoint for creating sample data
@@ -2,6 +2,7 @@ package com.cryptowallet.controller;
 
 import com.cryptowallet.dto.SendTransactionDto;
 import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.service.IdempotencyKeyMismatchException;
 import com.cryptowallet.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,27 +15,67 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:3000")
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = "X-Next-Cursor")
 public class TransactionController {
     
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
     private final TransactionService transactionService;
     
+    /**
+     * Queue a send; the broadcast happens asynchronously (see TransactionOutboxDispatcher). With
+     * an {@code Idempotency-Key}, a retry returns the transaction the key first created instead
+     * of sending again; reusing a key for a different request is a 422.
+     */
     @PostMapping("/send")
-    public ResponseEntity<TransactionDto> sendTransaction(@Valid @RequestBody SendTransactionDto sendDto) {
-        TransactionDto transaction = transactionService.sendTransaction(sendDto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
+    public ResponseEntity<TransactionDto> sendTransaction(
+            @Valid @RequestBody SendTransactionDto sendDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            TransactionDto transaction = transactionService.sendTransaction(sendDto, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(transaction);
+        } catch (IdempotencyKeyMismatchException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
+    /**
+     * Newest first, {@code limit} per page (at most {@link TransactionService#MAX_PAGE_SIZE}).
+     * When there is more, the {@code X-Next-Cursor} header carries the {@code cursor} of the next page.
+     */
     @GetMapping("/wallet/{walletId}")
-    public ResponseEntity<List<TransactionDto>> getWalletTransactions(@PathVariable Long walletId) {
-        List<TransactionDto> transactions = transactionService.getWalletTransactions(walletId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<List<TransactionDto>> getWalletTransactions(
+            @PathVariable Long walletId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return page(transactionService.getWalletTransactions(walletId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
+    /** Like {@link #getWalletTransactions}, across all of the user's wallets. */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<TransactionDto>> getUserTransactions(@PathVariable Long userId) {
-        List<TransactionDto> transactions = transactionService.getUserTransactions(userId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<List<TransactionDto>> getUserTransactions(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return page(transactionService.getUserTransactions(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity<List<TransactionDto>> page(TransactionService.HistoryPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR, page.nextCursor());
+        }
+        return response.body(page.transactions());
     }
     
     @GetMapping("/hash/{txHash}")
@@ -1,5 +1,6 @@
 package com.cryptowallet.controller;
 
+import com.cryptowallet.dto.BulkWalletProvisionDto;
 import com.cryptowallet.dto.WalletCreationDto;
 import com.cryptowallet.dto.WalletDto;
 import com.cryptowallet.service.WalletService;
@@ -16,7 +17,7 @@ import java.util.List;
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class WalletController {
-    
+
     private final WalletService walletService;
     
     @PostMapping("/user/{userId}")
@@ -26,6 +27,18 @@ public class WalletController {
         return ResponseEntity.status(HttpStatus.CREATED).body(wallet);
     }
     
+    /**
+     * Provision wallets for many users in one transaction and return them once it has committed.
+     * The response is a plain array: nothing is sent before the commit, so a rolled-back batch
+     * never reaches the client as partial output. Its size is bounded by
+     * {@code app.wallet.bulk.max-wallets}.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<WalletDto>> provisionWallets(@Valid @RequestBody BulkWalletProvisionDto request) {
+        List<WalletDto> wallets = walletService.provisionWallets(request.getItems());
+        return ResponseEntity.status(HttpStatus.CREATED).body(wallets);
+    }
+    
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<WalletDto>> getUserWallets(@PathVariable Long userId) {
         List<WalletDto> wallets = walletService.getUserWallets(userId);
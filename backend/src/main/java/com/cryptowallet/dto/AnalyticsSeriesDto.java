@@ -0,0 +1,45 @@
+package com.cryptowallet.dto;
+
+import com.cryptowallet.entity.Wallet;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Admin analytics: one value per bucket for each requested metric (and currency). */
+@Data
+@Builder
+public class AnalyticsSeriesDto {
+    private Granularity granularity;
+    /** Bucket start times, oldest first. */
+    private List<LocalDateTime> buckets;
+    private List<Series> series;
+
+    @Data
+    @Builder
+    public static class Series {
+        private Metric metric;
+        /** Null for {@link Metric#USERS}. */
+        private Wallet.CryptoCurrency currency;
+        /** One per bucket, in bucket order. */
+        private List<BigDecimal> values;
+    }
+
+    public enum Granularity {
+        HOUR,
+        DAY,
+        /** ISO weeks, starting Monday. */
+        WEEK
+    }
+
+    public enum Metric {
+        /** Users registered. */
+        USERS,
+        /** Transactions created, any status. */
+        TRANSACTIONS,
+        /** Summed amount of confirmed transactions. */
+        VOLUME
+    }
+}
@@ -0,0 +1,38 @@
+package com.cryptowallet.dto;
+
+import com.cryptowallet.entity.Wallet;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+public class BulkWalletProvisionDto {
+
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<Item> items;
+
+    /** {@code count} wallets of {@code currency} for one user. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @NotNull(message = "User id is required")
+        private Long userId;
+
+        @NotNull(message = "Currency is required")
+        private Wallet.CryptoCurrency currency;
+
+        @Min(value = 1, message = "Count must be at least 1")
+        @Max(value = 1000, message = "Count must be at most 1000")
+        private int count = 1;
+    }
+}
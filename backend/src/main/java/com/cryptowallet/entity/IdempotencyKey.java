@@ -0,0 +1,42 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Client-supplied {@code Idempotency-Key} of a send and the transaction it created. Inserted in
+ * the send's own transaction, so a key exists iff its send committed. Written and purged by
+ * {@code IdempotencyKeys} over JDBC — this mapping exists for the schema.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idem_key", length = 128)
+    private String idempotencyKey;
+
+    /** SHA-256 of the request body; a replay with a different body is rejected. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
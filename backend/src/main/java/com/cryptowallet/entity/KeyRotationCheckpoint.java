@@ -0,0 +1,52 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one {@code KeyRotationJob} worker: the id range it owns in {@code tableName}
+ * and the last id it has re-encrypted up to. A restarted job resumes from {@code lastId}.
+ */
+@Entity
+@Table(name = "key_rotation_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyRotationCheckpoint {
+
+    /** {@code <table>:v<keyVersion>:<worker>}. */
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(name = "table_name", nullable = false)
+    private String tableName;
+
+    /** KEK version rows are being rotated to. */
+    @Column(name = "key_version", nullable = false)
+    private Integer keyVersion;
+
+    /** Exclusive lower bound once rows have been processed; inclusive {@code rangeEnd}. */
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "range_end", nullable = false)
+    private Long rangeEnd;
+
+    @Column(name = "rows_rewritten", nullable = false)
+    private Long rowsRewritten;
+
+    @Column(nullable = false)
+    private Boolean completed;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
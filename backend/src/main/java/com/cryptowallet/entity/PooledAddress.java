@@ -0,0 +1,45 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-generated, not-yet-assigned key pair. Filled in the background by
+ * {@code AddressPool} and deleted when a wallet claims it. Owned by JDBC code — this
+ * mapping exists for the schema.
+ */
+@Entity
+@Table(name = "address_pool", indexes = {
+        @Index(name = "idx_address_pool_currency_id", columnList = "currency, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PooledAddress {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Wallet.CryptoCurrency currency;
+
+    @Column(unique = true, nullable = false)
+    private String address;
+
+    /** Already-encrypted {@code SealedPrivateKey} ciphertext, copied verbatim into {@code wallets.private_key}. */
+    @Column(name = "private_key", nullable = false, length = 1024)
+    private String privateKey;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
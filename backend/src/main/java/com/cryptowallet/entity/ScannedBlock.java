@@ -0,0 +1,43 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A block the block scanner has processed, per currency. The highest row is the scanner's cursor;
+ * the rows below it (the last {@code reorg-window} blocks) are what a reorg is matched against to
+ * find the fork point. Owned by JDBC code in {@code BlockScanner} — this mapping exists for the
+ * schema.
+ */
+@Entity
+@Table(name = "scanned_blocks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_scanned_blocks_currency_height", columnNames = {"currency", "height"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScannedBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Wallet.CryptoCurrency currency;
+
+    @Column(nullable = false)
+    private Long height;
+
+    @Column(nullable = false, length = 128)
+    private String hash;
+
+    @Column(name = "scanned_at", nullable = false)
+    private LocalDateTime scannedAt;
+}
@@ -0,0 +1,65 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One shard of an admin statistics counter: how many users, wallets or transactions were created
+ * on {@code bucketDay}, per currency and status, and (for transactions) their summed amount. A
+ * counter is the sum of its shards. Owned by JDBC code in {@code StatsRollups} — this mapping
+ * exists for the schema.
+ */
+@Entity
+@Table(name = "stats_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stats_rollups_key",
+                columnNames = {"metric", "currency", "status", "bucket_day", "shard"})
+}, indexes = {
+        // Per-day reads over a range of days (admin analytics).
+        @Index(name = "idx_stats_rollups_day", columnList = "bucket_day")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Metric metric;
+
+    /** Currency name, or {@code NONE} for users. */
+    @Column(nullable = false, length = 16)
+    private String currency;
+
+    /** Transaction status, ACTIVE/INACTIVE for users, {@code NONE} for wallets. */
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "bucket_day", nullable = false)
+    private LocalDate bucketDay;
+
+    @Column(nullable = false)
+    private Integer shard;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(precision = 38, scale = 8, nullable = false)
+    private BigDecimal amount;
+
+    public enum Metric {
+        USERS,
+        WALLETS,
+        TRANSACTIONS
+    }
+}
@@ -11,7 +11,17 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // History pages: keyset on (created_at, id), newest first, per wallet.
+        @Index(name = "idx_transactions_wallet_created", columnList = "wallet_id, created_at DESC, id DESC"),
+        // Hourly admin analytics buckets (daily and weekly ones come from stats_rollups).
+        @Index(name = "idx_transactions_created", columnList = "created_at"),
+        // Admin search: a whole address finds its transactions without a trigram scan.
+        @Index(name = "idx_transactions_from_address", columnList = "from_address"),
+        @Index(name = "idx_transactions_to_address", columnList = "to_address"),
+        // ConfirmationTracker re-reads the BROADCAST rows before every scanned block.
+        @Index(name = "idx_transactions_status", columnList = "status")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,59 @@
+package com.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A PENDING send waiting to be signed and broadcast. Written in the same transaction as its
+ * {@link Transaction} and deleted once {@code TransactionOutboxDispatcher} has moved that
+ * transaction to BROADCAST or FAILED. {@code lockedUntil} is the dispatcher's lease: an entry
+ * whose lease has lapsed (dispatcher died mid-flight) is picked up again.
+ *
+ * The {@code signed*} columns are written, and committed, before the first broadcast. From then on
+ * the send has one txid: a later claim looks it up on chain and re-broadcasts the same bytes
+ * rather than signing a second payment.
+ */
+@Entity
+@Table(name = "transaction_outbox", indexes = {
+        @Index(name = "idx_transaction_outbox_locked_until", columnList = "locked_until, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", unique = true, nullable = false)
+    private Long transactionId;
+
+    /** Times a dispatcher has claimed this entry. */
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "signed_tx_hash")
+    private String signedTxHash;
+
+    @Column(name = "signed_payload", length = 100000)
+    private String signedPayload;
+
+    @Column(name = "signed_fee", precision = 20, scale = 8)
+    private BigDecimal signedFee;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -13,7 +13,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // Hourly admin analytics buckets (daily and weekly ones come from stats_rollups).
+        @Index(name = "idx_users_created", columnList = "created_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -58,6 +61,13 @@ public class User {
     @Column(name = "wrapped_dek", length = 512)
     private String wrappedDek;
 
+    /**
+     * BIP39 entropy for HD wallets, encrypted under this user's DEK (not the KEK, so KEK
+     * rotation never touches it). Created on the first HD wallet. See {@code HdKeyService}.
+     */
+    @Column(name = "hd_seed", length = 512)
+    private String hdSeed;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     private List<Wallet> wallets = new ArrayList<>();
 
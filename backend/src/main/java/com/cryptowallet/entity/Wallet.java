@@ -1,13 +1,16 @@
 package com.cryptowallet.entity;
 
-import com.cryptowallet.security.EncryptedStringConverter;
+import com.cryptowallet.security.SealedPrivateKey;
+import com.cryptowallet.security.SealedPrivateKeyConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Mutability;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.descriptor.java.Immutability;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -15,28 +18,44 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "wallets")
+@Table(name = "wallets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wallets_user_currency_derivation",
+                columnNames = {"user_id", "currency", "derivation_index"})
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Wallet {
     
+    /**
+     * Sequence-allocated (pooled optimizer, 50 ids per round trip) rather than IDENTITY, so bulk
+     * inserts can be JDBC-batched. {@code SequenceAlignmentRunner} keeps the sequence ahead of
+     * ids issued under the old IDENTITY column.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallets_seq")
+    @SequenceGenerator(name = "wallets_seq", sequenceName = "wallets_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
     private String address;
     
     /**
-     * Wallet signing key — encrypted-at-rest via {@link EncryptedStringConverter}
-     * (AES-256-GCM, app-DEK derived from the KEK). Column widened to hold the
+     * Wallet signing key — encrypted-at-rest (AES-256-GCM, app-DEK derived from the KEK)
+     * and kept sealed on the entity: loads never decrypt, only
+     * {@link SealedPrivateKey#reveal} does, at signing time. Column widened to hold the
      * base64url IV||ciphertext||tag payload. See SECURITY.md.
+     * Null for HD wallets, whose key is re-derived from the owner's seed at signing time.
      */
-    @Convert(converter = EncryptedStringConverter.class)
-    @Column(name = "private_key", nullable = false, length = 1024)
-    private String privateKey;
+    @Convert(converter = SealedPrivateKeyConverter.class)
+    @Mutability(Immutability.class)
+    @Column(name = "private_key", length = 1024)
+    private SealedPrivateKey privateKey;
+
+    /** BIP44 address index under the owner's HD seed; null for random-key wallets. */
+    @Column(name = "derivation_index")
+    private Integer derivationIndex;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -45,6 +64,10 @@ public class Wallet {
     @Column(precision = 20, scale = 8)
     private BigDecimal balance = BigDecimal.ZERO;
     
+    /** Last time {@code balance} was read from the chain; {@code BalanceRefresher} skips fresh wallets. */
+    @Column(name = "balance_refreshed_at")
+    private LocalDateTime balanceRefreshedAt;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -54,6 +77,14 @@ public class Wallet {
     
     private Boolean active = true;
     
+    /**
+     * Optimistic lock. Balance and status changes go through the guarded UPDATEs in
+     * {@code WalletRepository}, which bump it too, so a stale entity flushed afterwards fails
+     * instead of overwriting them.
+     */
+    @Version
+    private Long version;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
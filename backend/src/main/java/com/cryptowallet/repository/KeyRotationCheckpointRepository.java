@@ -0,0 +1,13 @@
+package com.cryptowallet.repository;
+
+import com.cryptowallet.entity.KeyRotationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface KeyRotationCheckpointRepository extends JpaRepository<KeyRotationCheckpoint, String> {
+    List<KeyRotationCheckpoint> findByTableNameAndKeyVersionOrderById(String tableName, Integer keyVersion);
+    void deleteByTableNameAndKeyVersion(String tableName, Integer keyVersion);
+}
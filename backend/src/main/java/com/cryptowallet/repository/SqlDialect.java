@@ -0,0 +1,30 @@
+package com.cryptowallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which database the hand-written JDBC paths are talking to (Postgres in prod, H2 in dev/tests),
+ * for the few statements whose single-round-trip form differs between the two.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlDialect {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public boolean isPostgres() {
+        Boolean detected = postgres;
+        if (detected == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            detected = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = detected;
+        }
+        return detected;
+    }
+}
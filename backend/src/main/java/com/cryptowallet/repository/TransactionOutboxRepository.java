@@ -0,0 +1,12 @@
+package com.cryptowallet.repository;
+
+import com.cryptowallet.entity.TransactionOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TransactionOutboxRepository extends JpaRepository<TransactionOutbox, Long> {
+    Optional<TransactionOutbox> findByTransactionId(Long transactionId);
+}
@@ -1,20 +1,31 @@
 package com.cryptowallet.repository;
 
 import com.cryptowallet.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /** Row lock serialising per-user allocations (HD seed creation, derivation indexes). */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<User> findWithLockById(Long id);
+
+    /** Which of {@code ids} exist — one query, without loading (or eager-fetching) the users. */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
     Optional<User> findByEmail(String email);
     Optional<User> findByEmailIgnoreCase(String email);
     boolean existsByUsername(String username);
@@ -23,7 +34,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Admin panel queries
     long countByActiveTrue();
     long countByCreatedAtAfter(LocalDateTime date);
-    long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
 
     Page<User> findByActiveTrue(Pageable pageable);
     Page<User> findByActiveFalse(Pageable pageable);
@@ -40,18 +50,4 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = :role AND u.lastLogin >= :since")
     long countByRoleAndLastLoginSince(@Param("role") User.Role role, @Param("since") LocalDateTime since);
-
-    @Query("SELECT u FROM User u WHERE " +
-           "LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%'))")
-    Page<User> searchUsers(@Param("search") String search, Pageable pageable);
-
-    @Query("SELECT u FROM User u WHERE u.role = :role AND u.active = true AND " +
-           "(LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<User> searchByRole(@Param("role") User.Role role, @Param("search") String search, Pageable pageable);
 }
@@ -4,10 +4,12 @@ import com.cryptowallet.entity.Wallet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -16,8 +18,46 @@ import java.util.Optional;
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     List<Wallet> findByUserId(Long userId);
     List<Wallet> findByUserIdAndCurrency(Long userId, Wallet.CryptoCurrency currency);
+
+    @Query("SELECT w.id FROM Wallet w WHERE w.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT MAX(w.derivationIndex) FROM Wallet w WHERE w.user.id = :userId AND w.currency = :currency")
+    Integer findMaxDerivationIndex(@Param("userId") Long userId, @Param("currency") Wallet.CryptoCurrency currency);
     Optional<Wallet> findByAddress(String address);
     List<Wallet> findByActiveTrue();
+
+    // Balance writes: single guarded UPDATEs, so concurrent writers can't lose each other's changes.
+    // They bypass the persistence context — re-read the wallet afterwards, don't save a loaded copy.
+
+    /** Debit {@code amount} only if the balance covers it; returns 0 (nothing changed) otherwise. */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.version = w.version + 1, " +
+           "w.updatedAt = LOCAL DATETIME WHERE w.id = :id AND w.balance >= :amount")
+    int debitIfSufficient(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /** Add {@code delta} (negative to charge) to the balance. */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :delta, w.version = w.version + 1, " +
+           "w.updatedAt = LOCAL DATETIME WHERE w.id = :id")
+    int adjustBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    /** Replace the balance, e.g. with the on-chain value. */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = :balance, w.version = w.version + 1, " +
+           "w.updatedAt = LOCAL DATETIME WHERE w.id = :id")
+    int overwriteBalance(@Param("id") Long id, @Param("balance") BigDecimal balance);
+
+    /** {@link #overwriteBalance} with a value just read from the chain; stamps {@code balanceRefreshedAt}. */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.balance = :balance, w.balanceRefreshedAt = LOCAL DATETIME, " +
+           "w.version = w.version + 1, w.updatedAt = LOCAL DATETIME WHERE w.id = :id")
+    int recordChainBalance(@Param("id") Long id, @Param("balance") BigDecimal balance);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Wallet w SET w.active = false, w.version = w.version + 1, " +
+           "w.updatedAt = LOCAL DATETIME WHERE w.id = :id")
+    int deactivate(@Param("id") Long id);
     
     // Admin panel queries
     long countByCurrency(Wallet.CryptoCurrency currency);
@@ -27,10 +67,4 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Page<Wallet> findAll(Pageable pageable);
     Page<Wallet> findByCurrency(Wallet.CryptoCurrency currency, Pageable pageable);
     Page<Wallet> findByActiveTrue(Pageable pageable);
-    
-    @Query("SELECT w FROM Wallet w JOIN w.user u WHERE " +
-           "LOWER(w.address) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%'))")
-    Page<Wallet> searchWallets(@Param("search") String search, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.cryptowallet.security;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * AES-256-GCM engine behind {@link CryptoService}.
+ *
+ * The JCE provider is resolved once at construction and each thread keeps its own
+ * {@link Cipher} (GCM ciphers are stateful and not thread-safe), so the hot path never
+ * goes through {@code Cipher.getInstance}. Encrypt writes IV and ciphertext||tag into a
+ * single preallocated buffer; decrypt reads IV and ciphertext straight out of the decoded
+ * payload by offset/length.
+ *
+ * Wire format is unchanged: base64url( IV(12) || ciphertext || tag(16) ), no padding.
+ */
+final class AesGcmEngine {
+
+    static final int IV_LEN = 12;
+    static final int TAG_LEN = 16;
+    private static final String CIPHER_TRANSFORM = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = TAG_LEN * 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom secureRandom;
+    private final ThreadLocal<Cipher> ciphers;
+
+    AesGcmEngine(SecureRandom secureRandom) {
+        this.secureRandom = secureRandom;
+        Provider provider = resolveProvider();
+        this.ciphers = ThreadLocal.withInitial(() -> newCipher(provider));
+    }
+
+    String encrypt(SecretKey key, byte[] plaintext, byte[] aad) {
+        try {
+            byte[] iv = new byte[IV_LEN];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            if (aad != null) cipher.updateAAD(aad);
+            byte[] out = new byte[IV_LEN + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(iv, 0, out, 0, IV_LEN);
+            cipher.doFinal(plaintext, 0, plaintext.length, out, IV_LEN);
+            return ENCODER.encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM encrypt failed", e);
+        }
+    }
+
+    byte[] decrypt(SecretKey key, String payload, byte[] aad) {
+        try {
+            byte[] in = DECODER.decode(payload);
+            if (in.length < IV_LEN + TAG_LEN) {
+                throw new IllegalArgumentException("payload too short");
+            }
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, in, 0, IV_LEN));
+            if (aad != null) cipher.updateAAD(aad);
+            return cipher.doFinal(in, IV_LEN, in.length - IV_LEN);
+        } catch (GeneralSecurityException e) {
+            // Wrap as runtime so AEADBadTagException propagates as a clear failure.
+            throw new IllegalStateException("AES-GCM decrypt failed: " + e.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Provider resolveProvider() {
+        try {
+            return Cipher.getInstance(CIPHER_TRANSFORM).getProvider();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(CIPHER_TRANSFORM + " unavailable", e);
+        }
+    }
+
+    private static Cipher newCipher(Provider provider) {
+        try {
+            return Cipher.getInstance(CIPHER_TRANSFORM, provider);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(CIPHER_TRANSFORM + " unavailable from " + provider.getName(), e);
+        }
+    }
+}
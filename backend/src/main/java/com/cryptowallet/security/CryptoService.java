@@ -2,13 +2,12 @@ package com.cryptowallet.security;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
@@ -16,6 +15,8 @@ import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -25,41 +26,124 @@ import java.util.Set;
  * In staging/h2 profiles a deterministic dev fallback is used so the JAR boots
  * unattended — a loud WARN is logged. In prod the missing env var is fatal.
  *
- * Per-record payload format: base64url( IV(12) || ciphertext || tag(16) ).
+ * KEKs are versioned ({@code app.security.kek-version}); previous KEKs stay loaded from
+ * {@code app.security.retired-keks} ("version:base64,...") so rows written under them remain
+ * readable while {@link KeyRotationJob} re-encrypts them under the current version.
+ *
+ * KEK-bound payload format: k{version}.base64url( IV(12) || ciphertext || tag(16) ).
+ * Unprefixed payloads predate versioning and are read as version 1. Per-user DEK payloads
+ * ({@code encryptWithDek}) don't depend on the KEK and stay unprefixed.
  * Per-call IV via SecureRandom — never reused for a given key.
+ * Cipher work is delegated to {@link AesGcmEngine} (per-thread Cipher reuse, no payload copies).
  */
 @Component
 @Slf4j
 public class CryptoService {
 
-    private static final String CIPHER_TRANSFORM = "AES/GCM/NoPadding";
     private static final String KEY_ALGO = "AES";
-    private static final int IV_LEN = 12;
-    private static final int TAG_BITS = 128;
     private static final int DEK_BYTES = 32;
     private static final Set<String> PROD_PROFILES = Set.of("prod", "production");
+    /** Version assumed for payloads written before the {@code k{n}.} prefix existed. */
+    static final int LEGACY_KEY_VERSION = 1;
+    private static final char VERSION_PREFIX = 'k';
+    private static final char VERSION_SEPARATOR = '.';
 
     private final SecureRandom secureRandom = new SecureRandom();
+    private final AesGcmEngine engine = new AesGcmEngine(secureRandom);
     private final Environment environment;
     private final String configuredKekBase64;
+    private final int configuredKekVersion;
+    private final String retiredKeks;
+
+    /** Immutable after {@link #init()}. */
+    private final Map<Integer, KeyVersion> keyring = new HashMap<>();
+    private KeyVersion current;
 
-    private SecretKey kek;
-    private SecretKey appDek;
+    public CryptoService(Environment environment, String configuredKekBase64) {
+        this(environment, configuredKekBase64, LEGACY_KEY_VERSION, "");
+    }
 
+    @Autowired
     public CryptoService(Environment environment,
-                         @Value("${app.security.kek:}") String configuredKekBase64) {
+                         @Value("${app.security.kek:}") String configuredKekBase64,
+                         @Value("${app.security.kek-version:1}") int configuredKekVersion,
+                         @Value("${app.security.retired-keks:}") String retiredKeks) {
+        if (configuredKekVersion < 1) {
+            throw new IllegalStateException("app.security.kek-version must be >= 1");
+        }
         this.environment = environment;
         this.configuredKekBase64 = configuredKekBase64;
+        this.configuredKekVersion = configuredKekVersion;
+        this.retiredKeks = retiredKeks;
     }
 
     @PostConstruct
     void init() {
-        byte[] kekBytes = resolveKekBytes();
-        this.kek = new SecretKeySpec(kekBytes, KEY_ALGO);
+        current = register(configuredKekVersion, resolveKekBytes());
+        if (retiredKeks != null && !retiredKeks.isBlank()) {
+            for (String entry : retiredKeks.split(",")) {
+                int colon = entry.indexOf(':');
+                if (colon < 1) {
+                    throw new IllegalStateException("app.security.retired-keks entries must be version:base64");
+                }
+                int version = Integer.parseInt(entry.substring(0, colon).trim());
+                if (keyring.containsKey(version)) {
+                    throw new IllegalStateException("KEK version " + version + " configured more than once");
+                }
+                register(version, decodeKek(entry.substring(colon + 1)));
+            }
+            log.info("KEK v{} active; retired versions {} kept readable until rotation completes",
+                    current.version(), keyring.keySet().stream().filter(v -> v != current.version()).sorted().toList());
+        }
+    }
+
+    private KeyVersion register(int version, byte[] kekBytes) {
         // Deterministic per-deployment app-DEK derived from KEK (SHA-256 domain-separated).
         // Used by the JPA converter where row-level user context isn't available at fetch time.
-        this.appDek = new SecretKeySpec(deriveAppDek(kekBytes), KEY_ALGO);
+        KeyVersion kv = new KeyVersion(version,
+                new SecretKeySpec(kekBytes, KEY_ALGO),
+                new SecretKeySpec(deriveAppDek(kekBytes), KEY_ALGO));
         Arrays.fill(kekBytes, (byte) 0);
+        keyring.put(version, kv);
+        return kv;
+    }
+
+    /** Version new payloads are written under. */
+    public int currentKeyVersion() {
+        return current.version();
+    }
+
+    /** True while retired KEKs are still loaded, i.e. old-version rows may exist. */
+    public boolean hasRetiredKeys() {
+        return keyring.size() > 1;
+    }
+
+    /** KEK version a payload was written under — a prefix parse, no crypto. */
+    public static int keyVersionOf(String payload) {
+        int dot = versionSeparatorIndex(payload);
+        return dot < 0 ? LEGACY_KEY_VERSION : Integer.parseInt(payload, 1, dot, 10);
+    }
+
+    /** Re-encrypt an app-DEK payload under the current KEK version. No-op if already current. */
+    public String reencrypt(String payload) {
+        if (payload == null || keyVersionOf(payload) == current.version()) return payload;
+        byte[] plaintext = decryptWithAppDek(payload);
+        try {
+            return versioned(current, encryptWith(current.appDek(), plaintext, null));
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /** Re-wrap a per-user DEK under the current KEK. The DEK itself (and its ciphertexts) is unchanged. */
+    public String rewrapDek(String wrappedBase64) {
+        if (wrappedBase64 == null || keyVersionOf(wrappedBase64) == current.version()) return wrappedBase64;
+        byte[] dek = unwrapDek(wrappedBase64);
+        try {
+            return wrapDek(dek);
+        } finally {
+            Arrays.fill(dek, (byte) 0);
+        }
     }
 
     /** Generate a fresh 256-bit DEK (caller is responsible for wrapping/storage). */
@@ -74,83 +158,104 @@ public class CryptoService {
         if (dek == null || dek.length != DEK_BYTES) {
             throw new IllegalArgumentException("DEK must be " + DEK_BYTES + " bytes");
         }
-        return encryptWith(kek, dek, null);
+        return versioned(current, encryptWith(current.kek(), dek, null));
     }
 
-    /** Unwrap a stored wrapped-DEK using the master KEK. */
+    /** Unwrap a stored wrapped-DEK using the KEK version it was wrapped under. */
     public byte[] unwrapDek(String wrappedBase64) {
-        return decryptWithRaw(kek, wrappedBase64, null);
+        return decryptWithRaw(keyFor(wrappedBase64).kek(), unversioned(wrappedBase64), null);
     }
 
     /** App-level encrypt — used by the JPA converter. */
     public String encrypt(String plaintext) {
         if (plaintext == null) return null;
-        return encryptWith(appDek, plaintext.getBytes(StandardCharsets.UTF_8), null);
+        return versioned(current, encryptWith(current.appDek(), plaintext.getBytes(StandardCharsets.UTF_8), null));
     }
 
     /** App-level decrypt — used by the JPA converter. */
     public String decrypt(String payload) {
         if (payload == null) return null;
-        return new String(decryptWithRaw(appDek, payload, null), StandardCharsets.UTF_8);
+        return new String(decryptWithAppDek(payload), StandardCharsets.UTF_8);
+    }
+
+    /** App-level decrypt to raw bytes so callers can wipe the plaintext (see {@link SealedPrivateKey}). */
+    public byte[] decryptBytes(String payload) {
+        return decryptWithAppDek(payload);
     }
 
     /** Per-user encrypt with a previously-unwrapped DEK. AAD optional. */
     public String encryptWithDek(byte[] dek, String plaintext, byte[] aad) {
-        SecretKey k = new SecretKeySpec(dek, KEY_ALGO);
-        return encryptWith(k, plaintext.getBytes(StandardCharsets.UTF_8), aad);
+        return encryptWithDek(new SecretKeySpec(dek, KEY_ALGO), plaintext, aad);
     }
 
     /** Per-user decrypt with a previously-unwrapped DEK. AAD optional but must match. */
     public String decryptWithDek(byte[] dek, String payload, byte[] aad) {
-        SecretKey k = new SecretKeySpec(dek, KEY_ALGO);
-        return new String(decryptWithRaw(k, payload, aad), StandardCharsets.UTF_8);
+        return decryptWithDek(new SecretKeySpec(dek, KEY_ALGO), payload, aad);
+    }
+
+    /** Per-user encrypt with a cached DEK key object (see {@link DekCache#withDek}). */
+    public String encryptWithDek(SecretKey dek, String plaintext, byte[] aad) {
+        return encryptWith(dek, plaintext.getBytes(StandardCharsets.UTF_8), aad);
+    }
+
+    /** Per-user decrypt with a cached DEK key object (see {@link DekCache#withDek}). */
+    public String decryptWithDek(SecretKey dek, String payload, byte[] aad) {
+        return new String(decryptWithRaw(dek, payload, aad), StandardCharsets.UTF_8);
+    }
+
+    /** Per-user encrypt of raw bytes (e.g. an HD seed) so the caller can wipe its buffer. */
+    public String encryptBytesWithDek(SecretKey dek, byte[] plaintext, byte[] aad) {
+        return encryptWith(dek, plaintext, aad);
+    }
+
+    /** Per-user decrypt to raw bytes; caller zeroes the result when done. */
+    public byte[] decryptBytesWithDek(SecretKey dek, String payload, byte[] aad) {
+        return decryptWithRaw(dek, payload, aad);
     }
 
     private String encryptWith(SecretKey key, byte[] plaintext, byte[] aad) {
-        try {
-            byte[] iv = new byte[IV_LEN];
-            secureRandom.nextBytes(iv);
-            Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORM);
-            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
-            if (aad != null) cipher.updateAAD(aad);
-            byte[] ctAndTag = cipher.doFinal(plaintext);
-            byte[] out = new byte[IV_LEN + ctAndTag.length];
-            System.arraycopy(iv, 0, out, 0, IV_LEN);
-            System.arraycopy(ctAndTag, 0, out, IV_LEN, ctAndTag.length);
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
-        } catch (GeneralSecurityException e) {
-            throw new IllegalStateException("AES-GCM encrypt failed", e);
-        }
+        return engine.encrypt(key, plaintext, aad);
     }
 
     private byte[] decryptWithRaw(SecretKey key, String payload, byte[] aad) {
-        try {
-            byte[] in = Base64.getUrlDecoder().decode(payload);
-            if (in.length < IV_LEN + 16) {
-                throw new IllegalArgumentException("payload too short");
-            }
-            byte[] iv = Arrays.copyOfRange(in, 0, IV_LEN);
-            byte[] ctAndTag = Arrays.copyOfRange(in, IV_LEN, in.length);
-            Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORM);
-            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
-            if (aad != null) cipher.updateAAD(aad);
-            return cipher.doFinal(ctAndTag);
-        } catch (GeneralSecurityException e) {
-            // Wrap as runtime so AEADBadTagException propagates as a clear failure.
-            throw new IllegalStateException("AES-GCM decrypt failed: " + e.getClass().getSimpleName(), e);
+        return engine.decrypt(key, payload, aad);
+    }
+
+    private byte[] decryptWithAppDek(String payload) {
+        return decryptWithRaw(keyFor(payload).appDek(), unversioned(payload), null);
+    }
+
+    private KeyVersion keyFor(String payload) {
+        int version = keyVersionOf(payload);
+        KeyVersion kv = keyring.get(version);
+        if (kv == null) {
+            throw new IllegalStateException("No KEK loaded for key version " + version
+                    + " — add it to app.security.retired-keks");
         }
+        return kv;
+    }
+
+    private static String versioned(KeyVersion kv, String payload) {
+        return VERSION_PREFIX + Integer.toString(kv.version()) + VERSION_SEPARATOR + payload;
+    }
+
+    private static String unversioned(String payload) {
+        int dot = versionSeparatorIndex(payload);
+        return dot < 0 ? payload : payload.substring(dot + 1);
+    }
+
+    /** '.' is outside the base64url alphabet, so it can only appear as the version separator. */
+    private static int versionSeparatorIndex(String payload) {
+        if (payload.isEmpty() || payload.charAt(0) != VERSION_PREFIX) return -1;
+        int dot = payload.indexOf(VERSION_SEPARATOR);
+        return dot > 1 ? dot : -1;
     }
 
     private byte[] resolveKekBytes() {
         String env = System.getenv("CRYPTOWALL_KEK_BASE64");
         String configured = (env != null && !env.isBlank()) ? env : configuredKekBase64;
         if (configured != null && !configured.isBlank()) {
-            byte[] decoded = Base64.getDecoder().decode(configured.trim());
-            if (decoded.length != DEK_BYTES) {
-                throw new IllegalStateException(
-                    "CRYPTOWALL_KEK_BASE64 must decode to " + DEK_BYTES + " bytes, got " + decoded.length);
-            }
-            return decoded;
+            return decodeKek(configured);
         }
         if (isProdProfile()) {
             throw new IllegalStateException(
@@ -162,6 +267,15 @@ public class CryptoService {
         return devFallbackKek();
     }
 
+    private static byte[] decodeKek(String base64) {
+        byte[] decoded = Base64.getDecoder().decode(base64.trim());
+        if (decoded.length != DEK_BYTES) {
+            throw new IllegalStateException(
+                "CRYPTOWALL_KEK_BASE64 must decode to " + DEK_BYTES + " bytes, got " + decoded.length);
+        }
+        return decoded;
+    }
+
     private boolean isProdProfile() {
         for (String p : environment.getActiveProfiles()) {
             if (PROD_PROFILES.contains(p)) return true;
@@ -188,4 +302,7 @@ public class CryptoService {
             throw new IllegalStateException("SHA-256 unavailable", e);
         }
     }
+
+    private record KeyVersion(int version, SecretKey kek, SecretKey appDek) {
+    }
 }
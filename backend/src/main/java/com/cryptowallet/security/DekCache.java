@@ -0,0 +1,233 @@
+package com.cryptowallet.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of unwrapped per-user DEKs, keyed by user id.
+ *
+ * Saves the KEK unwrap ({@link CryptoService#unwrapDek}) on every per-user crypto call and
+ * keeps one {@link DekKey} per user so {@code encryptWithDek}/{@code decryptWithDek} don't
+ * rebuild a key object each time. Entries expire after {@code idle-ttl} without access and
+ * the least-recently-used entry is dropped beyond {@code max-size}. Evicted key bytes are
+ * zeroed — deferred until the last in-flight {@link #withDek} caller releases the key.
+ *
+ * Hit/miss/eviction counters are published to Micrometer under {@code cryptowallet.dek.cache.*}.
+ */
+@Component
+public class DekCache implements MeterBinder {
+
+    private final CryptoService cryptoService;
+    private final int maxSize;
+    private final Duration idleTtl;
+    private final Clock clock;
+
+    /** Access-ordered: iteration starts at the least-recently-used entry. Guarded by {@code this}. */
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ScheduledExecutorService sweeper;
+
+    @Autowired
+    public DekCache(CryptoService cryptoService,
+                    @Value("${app.security.dek-cache.max-size:10000}") int maxSize,
+                    @Value("${app.security.dek-cache.idle-ttl:10m}") Duration idleTtl) {
+        this(cryptoService, maxSize, idleTtl, Clock.systemUTC());
+    }
+
+    DekCache(CryptoService cryptoService, int maxSize, Duration idleTtl, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("app.security.dek-cache.max-size must be >= 1");
+        }
+        this.cryptoService = cryptoService;
+        this.maxSize = maxSize;
+        this.idleTtl = idleTtl;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void startSweeper() {
+        long periodMillis = Math.max(1000, idleTtl.toMillis() / 2);
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dek-cache-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleAtFixedRate(this::evictExpired, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) sweeper.shutdownNow();
+        invalidateAll();
+    }
+
+    /**
+     * Run {@code action} with the user's DEK, unwrapping {@code wrappedDek} under the KEK on a miss.
+     * The key is only valid inside the callback — don't let it escape.
+     */
+    public <T> T withDek(Long userId, String wrappedDek, Function<SecretKey, T> action) {
+        Entry entry = acquire(userId, wrappedDek);
+        try {
+            return action.apply(entry.key);
+        } finally {
+            entry.release();
+        }
+    }
+
+    /** Drop (and zero) a user's cached DEK, e.g. after their wrapped DEK changes. */
+    public void invalidate(Long userId) {
+        Entry removed;
+        synchronized (this) {
+            removed = entries.remove(userId);
+        }
+        if (removed != null) retire(removed);
+    }
+
+    public void invalidateAll() {
+        List<Entry> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        removed.forEach(this::retire);
+    }
+
+    /** Remove entries idle for longer than the TTL. Runs on the sweeper; callable directly from tests. */
+    void evictExpired() {
+        long now = clock.millis();
+        List<Entry> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                // Access order: the first non-expired entry means the rest are fresher.
+                if (now - entry.lastAccessMillis < idleTtl.toMillis()) break;
+                it.remove();
+                expired.add(entry);
+            }
+        }
+        expired.forEach(this::retire);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cryptowallet.dek.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Per-user DEK lookups served from cache")
+                .register(registry);
+        FunctionCounter.builder("cryptowallet.dek.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Per-user DEK lookups that required a KEK unwrap")
+                .register(registry);
+        FunctionCounter.builder("cryptowallet.dek.cache.evictions", evictions, LongAdder::sum)
+                .description("Cached DEKs evicted (size, idle TTL or explicit) and zeroed")
+                .register(registry);
+        Gauge.builder("cryptowallet.dek.cache.size", this, DekCache::size)
+                .description("Unwrapped DEKs currently held in memory")
+                .register(registry);
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Entry acquire(Long userId, String wrappedDek) {
+        synchronized (this) {
+            Entry cached = entries.get(userId);
+            if (cached != null && cached.wrappedDek.equals(wrappedDek)
+                    && clock.millis() - cached.lastAccessMillis < idleTtl.toMillis()) {
+                hits.increment();
+                cached.lastAccessMillis = clock.millis();
+                cached.retain();
+                return cached;
+            }
+        }
+
+        // Unwrap outside the lock; a racing miss for the same user just replaces the entry.
+        misses.increment();
+        Entry fresh = new Entry(wrappedDek, new DekKey(cryptoService.unwrapDek(wrappedDek)), clock.millis());
+        fresh.retain();
+        List<Entry> displaced = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(userId, fresh);
+            if (previous != null) displaced.add(previous);
+            Iterator<Entry> it = entries.values().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                displaced.add(it.next());
+                it.remove();
+            }
+        }
+        displaced.forEach(this::retire);
+        return fresh;
+    }
+
+    private void retire(Entry entry) {
+        evictions.increment();
+        entry.evict();
+    }
+
+    private static final class Entry {
+        private final String wrappedDek;
+        private final DekKey key;
+        private long lastAccessMillis;
+        private int inFlight;
+        private boolean evicted;
+
+        Entry(String wrappedDek, DekKey key, long now) {
+            this.wrappedDek = wrappedDek;
+            this.key = key;
+            this.lastAccessMillis = now;
+        }
+
+        synchronized void retain() {
+            inFlight++;
+        }
+
+        synchronized void release() {
+            inFlight--;
+            if (evicted && inFlight == 0) key.destroy();
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            if (inFlight == 0) key.destroy();
+        }
+    }
+
+}
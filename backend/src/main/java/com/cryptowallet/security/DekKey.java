@@ -0,0 +1,53 @@
+package com.cryptowallet.security;
+
+import javax.crypto.SecretKey;
+import java.util.Arrays;
+
+/**
+ * Unwrapped per-user DEK as a reusable, destroyable {@link SecretKey}.
+ *
+ * Owns its key bytes (no defensive copy into a {@code SecretKeySpec} that can't be wiped),
+ * so {@link #destroy()} really zeroes the material. Use after destroy fails loudly instead
+ * of silently encrypting under an all-zero key.
+ */
+final class DekKey implements SecretKey {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] material;
+    private volatile boolean destroyed;
+
+    /** Takes ownership of {@code material}; the caller must not reuse the array. */
+    DekKey(byte[] material) {
+        this.material = material;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "AES";
+    }
+
+    @Override
+    public String getFormat() {
+        return "RAW";
+    }
+
+    @Override
+    public byte[] getEncoded() {
+        if (destroyed) {
+            throw new IllegalStateException("DEK has been destroyed");
+        }
+        return material.clone();
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(material, (byte) 0);
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+}
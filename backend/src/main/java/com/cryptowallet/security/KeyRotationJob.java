@@ -0,0 +1,297 @@
+package com.cryptowallet.security;
+
+import com.cryptowallet.entity.KeyRotationCheckpoint;
+import com.cryptowallet.repository.KeyRotationCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-encrypts {@code wallets.private_key}, {@code address_pool.private_key} and
+ * {@code users.wrapped_dek} under the current KEK version after a rotation (see SECURITY.md §3).
+ *
+ * <p>Each table's id range is split across {@code app.security.rotation.workers} workers. A
+ * worker streams its range in keyset order ({@code id > lastId ORDER BY id LIMIT chunk-size}),
+ * re-encrypts rows still on an older version and writes them back with one JDBC batch per
+ * chunk. The batch and the worker's {@link KeyRotationCheckpoint} commit together, so a
+ * restarted job resumes where it stopped. Updates are compare-and-set on the old payload, so a
+ * concurrent write to the same row wins instead of being clobbered. Row rewrites across all
+ * workers are capped at {@code app.security.rotation.max-rows-per-second} to leave headroom
+ * for the OLTP path.
+ *
+ * <p>Starts on {@link ApplicationReadyEvent} whenever retired KEKs are configured. Old-version
+ * payloads stay readable throughout; once the job logs completion the retired KEKs can go.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeyRotationJob {
+
+    /** Rows rewritten back to an old version mid-run (e.g. a stale entity flush) trigger a rescan. */
+    private static final int MAX_PASSES = 3;
+
+    private final CryptoService cryptoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KeyRotationCheckpointRepository checkpointRepository;
+
+    @Value("${app.security.rotation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.security.rotation.workers:2}")
+    private int workers;
+
+    @Value("${app.security.rotation.chunk-size:500}")
+    private int chunkSize;
+
+    /** 0 = unthrottled. */
+    @Value("${app.security.rotation.max-rows-per-second:2000}")
+    private int maxRowsPerSecond;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    enum Target {
+        WALLETS("wallets", "private_key"),
+        ADDRESS_POOL("address_pool", "private_key"),
+        USERS("users", "wrapped_dek");
+
+        final String table;
+        final String column;
+
+        Target(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        String rotate(CryptoService cryptoService, String payload) {
+            return this == USERS ? cryptoService.rewrapDek(payload) : cryptoService.reencrypt(payload);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIfRetiredKeysLoaded() {
+        if (!enabled || !cryptoService.hasRetiredKeys()) {
+            return;
+        }
+        Thread.ofPlatform().daemon().name("kek-rotation").start(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("KeyRotationJob: aborted — progress is checkpointed, restart to resume", e);
+            }
+        });
+    }
+
+    /**
+     * Rotate every table to the current KEK version, blocking until done. Safe to re-run:
+     * resumes from checkpoints and skips rows already on the current version.
+     *
+     * @return rows rewritten by this run
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("KeyRotationJob: already running — ignoring start request");
+            return 0;
+        }
+        try {
+            int version = cryptoService.currentKeyVersion();
+            RateLimiter limiter = new RateLimiter(maxRowsPerSecond);
+            long total = 0;
+            for (Target target : Target.values()) {
+                total += rotateTable(target, version, limiter);
+            }
+            log.info("KeyRotationJob: every row is on KEK v{} ({} rewritten this run) — "
+                    + "retired KEKs can now be removed from app.security.retired-keks", version, total);
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long rotateTable(Target target, int version, RateLimiter limiter) {
+        long rewritten = 0;
+        for (int pass = 1; ; pass++) {
+            rewritten += runWorkers(target, planFor(target, version), limiter);
+            long stale = countStale(target, version);
+            if (stale == 0) {
+                log.info("KeyRotationJob: {}.{} on KEK v{} ({} rewritten)", target.table, target.column, version, rewritten);
+                return rewritten;
+            }
+            if (pass == MAX_PASSES) {
+                throw new IllegalStateException(stale + " " + target.table + " rows still not on KEK v" + version
+                        + " after " + MAX_PASSES + " passes");
+            }
+            log.warn("KeyRotationJob: {} {} rows were written under an old KEK during pass {} — rescanning",
+                    stale, target.table, pass);
+            transactionTemplate.executeWithoutResult(
+                    status -> checkpointRepository.deleteByTableNameAndKeyVersion(target.table, version));
+        }
+    }
+
+    /** Existing checkpoints (resume) or a fresh split of the table's id range across workers. */
+    private List<KeyRotationCheckpoint> planFor(Target target, int version) {
+        List<KeyRotationCheckpoint> existing =
+                checkpointRepository.findByTableNameAndKeyVersionOrderById(target.table, version);
+        if (!existing.isEmpty()) {
+            return existing;
+        }
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS lo, MAX(id) AS hi FROM " + target.table);
+        if (bounds.get("lo") == null) {
+            return List.of();
+        }
+        long lo = ((Number) bounds.get("lo")).longValue();
+        long hi = ((Number) bounds.get("hi")).longValue();
+        int parts = (int) Math.max(1, Math.min(workers, hi - lo + 1));
+        long span = (hi - lo + parts) / parts;
+
+        List<KeyRotationCheckpoint> plan = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            long start = lo + i * span;
+            plan.add(KeyRotationCheckpoint.builder()
+                    .id(target.table + ":v" + version + ":" + i)
+                    .tableName(target.table)
+                    .keyVersion(version)
+                    .lastId(start - 1)
+                    .rangeEnd(i == parts - 1 ? hi : start + span - 1)
+                    .rowsRewritten(0L)
+                    .completed(false)
+                    .build());
+        }
+        return transactionTemplate.execute(status -> checkpointRepository.saveAll(plan));
+    }
+
+    private long runWorkers(Target target, List<KeyRotationCheckpoint> plan, RateLimiter limiter) {
+        List<KeyRotationCheckpoint> pending = plan.stream().filter(cp -> !cp.getCompleted()).toList();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(pending.size(),
+                Thread.ofPlatform().daemon().name("kek-rotation-" + target.table + "-", 0).factory());
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (KeyRotationCheckpoint checkpoint : pending) {
+                results.add(pool.submit(() -> rotateRange(target, checkpoint, limiter)));
+            }
+            long rewritten = 0;
+            for (Future<Long> result : results) {
+                rewritten += result.get();
+            }
+            return rewritten;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("KEK rotation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("KEK rotation worker failed on " + target.table, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long rotateRange(Target target, KeyRotationCheckpoint checkpoint, RateLimiter limiter) {
+        String select = "SELECT id, " + target.column + " FROM " + target.table
+                + " WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+        String update = "UPDATE " + target.table + " SET " + target.column + " = ? WHERE id = ? AND "
+                + target.column + " = ?";
+        long rewritten = 0;
+        while (true) {
+            List<StoredValue> rows = jdbcTemplate.query(select,
+                    (rs, i) -> new StoredValue(rs.getLong(1), rs.getString(2)),
+                    checkpoint.getLastId(), checkpoint.getRangeEnd(), chunkSize);
+            if (rows.isEmpty()) {
+                checkpoint.setCompleted(true);
+                transactionTemplate.executeWithoutResult(status -> checkpointRepository.save(checkpoint));
+                return rewritten;
+            }
+
+            List<StoredValue> stale = rows.stream()
+                    .filter(row -> row.value() != null
+                            && CryptoService.keyVersionOf(row.value()) != checkpoint.getKeyVersion())
+                    .toList();
+            limiter.acquire(stale.size());
+            List<Object[]> batch = stale.stream()
+                    .map(row -> new Object[]{target.rotate(cryptoService, row.value()), row.id(), row.value()})
+                    .toList();
+            long chunkEnd = rows.get(rows.size() - 1).id();
+
+            int updated = transactionTemplate.execute(status -> {
+                int count = batch.isEmpty() ? 0 : Arrays.stream(jdbcTemplate.batchUpdate(update, batch))
+                        .map(c -> c == Statement.SUCCESS_NO_INFO ? 1 : Math.max(c, 0))
+                        .sum();
+                checkpoint.setLastId(chunkEnd);
+                checkpoint.setRowsRewritten(checkpoint.getRowsRewritten() + count);
+                checkpointRepository.save(checkpoint);
+                return count;
+            });
+            rewritten += updated;
+            log.debug("KeyRotationJob: {} up to id {} ({} rewritten in chunk)", target.table, chunkEnd, updated);
+        }
+    }
+
+    /**
+     * Rows whose {@link CryptoService#keyVersionOf} is not {@code version} — the same test
+     * {@link #rotateRange} applies per row. A payload without the {@code k<version>.} prefix has
+     * no '.' (outside base64url) and reads as the legacy version, so it is only stale when that
+     * isn't the target.
+     */
+    private long countStale(Target target, int version) {
+        String sql = "SELECT COUNT(*) FROM " + target.table + " WHERE " + target.column + " IS NOT NULL AND "
+                + target.column + " NOT LIKE ?";
+        if (version == CryptoService.LEGACY_KEY_VERSION) {
+            sql += " AND " + target.column + " LIKE '%.%'";
+        }
+        Long stale = jdbcTemplate.queryForObject(sql, Long.class, "k" + version + ".%");
+        return stale == null ? 0 : stale;
+    }
+
+    private record StoredValue(long id, String value) {
+    }
+
+    /** Shared pacing across workers: each acquire reserves the next free slot at the configured rate. */
+    static final class RateLimiter {
+        private final long nanosPerPermit;
+        private long nextFreeNanos = System.nanoTime();
+
+        RateLimiter(int permitsPerSecond) {
+            this.nanosPerPermit = permitsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        }
+
+        void acquire(int permits) {
+            if (nanosPerPermit == 0 || permits == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + permits * nanosPerPermit;
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("KEK rotation interrupted", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.cryptowallet.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Wallet signing key held as its at-rest ciphertext (app-DEK, see {@link CryptoService}).
+ *
+ * Loading a wallet never decrypts: {@link SealedPrivateKeyConverter} only wraps the column
+ * value. Plaintext exists solely for the duration of {@link #reveal}, and the decrypted
+ * buffer is zeroed when the callback returns. Provider SPIs take the key as a
+ * {@link String}; that transient copy can't be wiped and is left to the GC.
+ *
+ * Immutable; equality is by ciphertext so Hibernate dirty-checking stays cheap.
+ */
+public final class SealedPrivateKey {
+
+    private final String ciphertext;
+
+    private SealedPrivateKey(String ciphertext) {
+        this.ciphertext = Objects.requireNonNull(ciphertext, "ciphertext");
+    }
+
+    /** Encrypt a freshly generated plaintext key under the app-DEK. */
+    public static SealedPrivateKey seal(String plaintext) {
+        Objects.requireNonNull(plaintext, "plaintext");
+        return new SealedPrivateKey(CryptoServiceBridge.required().encrypt(plaintext));
+    }
+
+    /** Wrap an already-encrypted payload (DB column, pre-generated pool entry). No crypto. */
+    public static SealedPrivateKey ofCiphertext(String ciphertext) {
+        return new SealedPrivateKey(ciphertext);
+    }
+
+    public String ciphertext() {
+        return ciphertext;
+    }
+
+    /** Decrypt, hand the plaintext to {@code signer}, then wipe the decrypted bytes. */
+    public <T> T reveal(Function<String, T> signer) {
+        byte[] plaintext = CryptoServiceBridge.required().decryptBytes(ciphertext);
+        try {
+            return signer.apply(new String(plaintext, StandardCharsets.UTF_8));
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SealedPrivateKey other && ciphertext.equals(other.ciphertext));
+    }
+
+    @Override
+    public int hashCode() {
+        return ciphertext.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SealedPrivateKey[***]";
+    }
+}
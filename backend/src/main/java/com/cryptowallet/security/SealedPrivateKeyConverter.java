@@ -0,0 +1,25 @@
+package com.cryptowallet.security;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps an encrypted key column to a {@link SealedPrivateKey} without decrypting it.
+ *
+ * Unlike {@link EncryptedStringConverter}, reads and writes are pure wrapping — the AES-GCM
+ * work happens in {@link SealedPrivateKey#seal} (once, at key creation) and
+ * {@link SealedPrivateKey#reveal} (only when signing).
+ */
+@Converter(autoApply = false)
+public class SealedPrivateKeyConverter implements AttributeConverter<SealedPrivateKey, String> {
+
+    @Override
+    public String convertToDatabaseColumn(SealedPrivateKey attribute) {
+        return attribute == null ? null : attribute.ciphertext();
+    }
+
+    @Override
+    public SealedPrivateKey convertToEntityAttribute(String dbData) {
+        return dbData == null ? null : SealedPrivateKey.ofCiphertext(dbData);
+    }
+}
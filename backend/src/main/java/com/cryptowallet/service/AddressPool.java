@@ -0,0 +1,252 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.SqlDialect;
+import com.cryptowallet.security.CryptoService;
+import com.cryptowallet.security.SealedPrivateKey;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import com.cryptowallet.service.crypto.KeyPair;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-currency pool of pre-generated, already-sealed key pairs ({@code address_pool}).
+ *
+ * A background filler tops each currency up to {@code high-watermark} whenever it drops below
+ * {@code low-watermark}, so key generation and sealing stay off the signup request thread.
+ * {@link #claim} hands out one entry (or a bulk batch) with a single DELETE … RETURNING round trip
+ * inside the caller's transaction — if the wallet insert rolls back, so does the claim. An empty pool
+ * returns {@link Optional#empty()} and the caller falls back to inline generation.
+ *
+ * Metrics: {@code cryptowallet.address.pool.depth} (gauge), {@code .generated} (counter — refill
+ * rate) and {@code .claim} (timer, {@code result=hit|empty}), all tagged by currency.
+ */
+@Service
+@Slf4j
+public class AddressPool {
+
+    private final CryptoProviderRegistry providers;
+    private final CryptoService cryptoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SqlDialect dialect;
+    private final boolean enabled;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final int batchSize;
+    private final Duration checkInterval;
+
+    private final Map<Wallet.CryptoCurrency, AtomicLong> depth = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> generated = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Timer> claimHit = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Timer> claimEmpty = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final AtomicBoolean refillQueued = new AtomicBoolean();
+
+    private ScheduledExecutorService filler;
+
+    public AddressPool(CryptoProviderRegistry providers,
+                       CryptoService cryptoService,
+                       JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       SqlDialect dialect,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.wallet.address-pool.enabled:true}") boolean enabled,
+                       @Value("${app.wallet.address-pool.low-watermark:50}") int lowWatermark,
+                       @Value("${app.wallet.address-pool.high-watermark:200}") int highWatermark,
+                       @Value("${app.wallet.address-pool.batch-size:50}") int batchSize,
+                       @Value("${app.wallet.address-pool.check-interval:5s}") Duration checkInterval) {
+        if (lowWatermark < 0 || highWatermark < lowWatermark || batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "app.wallet.address-pool requires 0 <= low-watermark <= high-watermark and batch-size >= 1");
+        }
+        this.providers = providers;
+        this.cryptoService = cryptoService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dialect = dialect;
+        this.enabled = enabled;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.batchSize = batchSize;
+        this.checkInterval = checkInterval;
+
+        for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+            AtomicLong d = new AtomicLong();
+            depth.put(currency, d);
+            Gauge.builder("cryptowallet.address.pool.depth", d, AtomicLong::get)
+                    .tag("currency", currency.name())
+                    .description("Pre-generated key pairs waiting to be claimed")
+                    .register(meterRegistry);
+            generated.put(currency, Counter.builder("cryptowallet.address.pool.generated")
+                    .tag("currency", currency.name())
+                    .description("Key pairs generated by the background filler")
+                    .register(meterRegistry));
+            claimHit.put(currency, claimTimer(meterRegistry, currency, "hit"));
+            claimEmpty.put(currency, claimTimer(meterRegistry, currency, "empty"));
+        }
+    }
+
+    private static Timer claimTimer(MeterRegistry registry, Wallet.CryptoCurrency currency, String result) {
+        return Timer.builder("cryptowallet.address.pool.claim")
+                .tag("currency", currency.name())
+                .tag("result", result)
+                .description("Latency of claiming a pooled key pair")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /** Sealed key pair taken from the pool. */
+    public record ClaimedAddress(String address, SealedPrivateKey privateKey) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFiller() {
+        if (!enabled) {
+            log.info("AddressPool: disabled — wallets generate keys inline");
+            return;
+        }
+        filler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "address-pool-filler");
+            t.setDaemon(true);
+            return t;
+        });
+        filler.scheduleWithFixedDelay(this::topUp, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (filler != null) filler.shutdownNow();
+    }
+
+    /** Take one pre-generated key pair for {@code currency}, or empty if the pool has run dry. */
+    @Transactional
+    public Optional<ClaimedAddress> claim(Wallet.CryptoCurrency currency) {
+        return claim(currency, 1).stream().findFirst();
+    }
+
+    /**
+     * Take up to {@code count} pre-generated key pairs for {@code currency} in one round trip
+     * (bulk provisioning). Returns fewer — possibly none — when the pool runs short; the caller
+     * generates the remainder inline.
+     */
+    @Transactional
+    public List<ClaimedAddress> claim(Wallet.CryptoCurrency currency, int count) {
+        if (!enabled || count < 1) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<ClaimedAddress> claimed = jdbcTemplate.query(claimSql(),
+                (rs, i) -> new ClaimedAddress(rs.getString(1), SealedPrivateKey.ofCiphertext(rs.getString(2))),
+                currency.name(), count);
+        long elapsed = System.nanoTime() - start;
+
+        if (claimed.size() < count) {
+            claimEmpty.get(currency).record(elapsed, TimeUnit.NANOSECONDS);
+            log.warn("AddressPool: {} pool short by {} — generating inline", currency, count - claimed.size());
+            depth.get(currency).addAndGet(-claimed.size());
+            requestRefill();
+            return claimed;
+        }
+        claimHit.get(currency).record(elapsed, TimeUnit.NANOSECONDS);
+        if (depth.get(currency).addAndGet(-count) < lowWatermark) {
+            requestRefill();
+        }
+        return claimed;
+    }
+
+    private String claimSql() {
+        if (dialect.isPostgres()) {
+            // SKIP LOCKED: concurrent signups take different rows instead of queueing on one.
+            return "DELETE FROM address_pool WHERE id IN ("
+                    + "SELECT id FROM address_pool WHERE currency = ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) "
+                    + "RETURNING address, private_key";
+        }
+        return "SELECT address, private_key FROM OLD TABLE (DELETE FROM address_pool WHERE id IN ("
+                + "SELECT id FROM address_pool WHERE currency = ? ORDER BY id LIMIT ?))";
+    }
+
+    private void requestRefill() {
+        if (filler != null && refillQueued.compareAndSet(false, true)) {
+            filler.execute(() -> {
+                refillQueued.set(false);
+                topUp();
+            });
+        }
+    }
+
+    /** Resync depth from the table and refill every currency below the low watermark. */
+    void topUp() {
+        try {
+            syncDepth();
+            for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+                long current = depth.get(currency).get();
+                if (current < lowWatermark) {
+                    refill(currency, (int) (highWatermark - current));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("AddressPool: refill failed, retrying in {}: {}", checkInterval, e.getMessage());
+        }
+    }
+
+    /** Generate and insert {@code count} key pairs, one JDBC batch per {@code batch-size}. */
+    int refill(Wallet.CryptoCurrency currency, int count) {
+        int inserted = 0;
+        while (inserted < count) {
+            int n = Math.min(batchSize, count - inserted);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> batch = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                KeyPair keyPair = providers.get(currency).generateAddress();
+                batch.add(new Object[]{currency.name(), keyPair.getAddress(),
+                        cryptoService.encrypt(keyPair.getPrivateKey()), now});
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "INSERT INTO address_pool (currency, address, private_key, created_at) VALUES (?, ?, ?, ?)",
+                    batch));
+            inserted += n;
+            depth.get(currency).addAndGet(n);
+            generated.get(currency).increment(n);
+        }
+        log.debug("AddressPool: added {} {} key pairs (depth {})", inserted, currency, depth.get(currency).get());
+        return inserted;
+    }
+
+    private void syncDepth() {
+        Map<Wallet.CryptoCurrency, Long> counts = new EnumMap<>(Wallet.CryptoCurrency.class);
+        jdbcTemplate.query("SELECT currency, COUNT(*) FROM address_pool GROUP BY currency",
+                rs -> {
+                    counts.put(Wallet.CryptoCurrency.valueOf(rs.getString(1)), rs.getLong(2));
+                });
+        depth.forEach((currency, d) -> d.set(counts.getOrDefault(currency, 0L)));
+    }
+
+    long depth(Wallet.CryptoCurrency currency) {
+        return depth.get(currency).get();
+    }
+}
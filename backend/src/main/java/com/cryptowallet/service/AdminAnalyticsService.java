@@ -0,0 +1,305 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.AnalyticsSeriesDto;
+import com.cryptowallet.dto.AnalyticsSeriesDto.Granularity;
+import com.cryptowallet.dto.AnalyticsSeriesDto.Metric;
+import com.cryptowallet.entity.StatsRollup;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admin analytics time series: users registered, transactions created and confirmed volume per
+ * hour, day or ISO week, for several metrics and currencies in one response.
+ *
+ * Figures are cached per bucket. A bucket that has ended is computed once and then served from
+ * the cache until {@link StatsRollups} reports a committed change to one of its days (a status
+ * move or delete can reach back into history), or for {@code cache-ttl} at most: those reports
+ * are in-process events, so a change committed on another node only reaches this node's cache
+ * when the bucket expires. The bucket still open is always recomputed. The
+ * buckets a request misses are computed together by one grouped query — over {@code stats_rollups}
+ * for days and weeks, over the base tables (by their {@code created_at} index) for hours. The
+ * cache holds at most {@code cache-size} buckets and is cleared when full.
+ *
+ * Metrics: {@code cryptowallet.admin.analytics.buckets} (counter, tagged source=cache|query).
+ */
+@Service
+public class AdminAnalyticsService {
+
+    private record BucketKey(Granularity granularity, LocalDateTime start) {
+    }
+
+    /** One bucket's figures. A {@code loading} instance marks a bucket a request is computing. */
+    private static final class Figures {
+
+        final boolean loading;
+        /** When a cached bucket stops being served; set as it goes into the cache. */
+        Instant expiresAt;
+        long users;
+        final Map<Wallet.CryptoCurrency, Long> transactions = new EnumMap<>(Wallet.CryptoCurrency.class);
+        final Map<Wallet.CryptoCurrency, BigDecimal> volume = new EnumMap<>(Wallet.CryptoCurrency.class);
+
+        Figures(boolean loading) {
+            this.loading = loading;
+        }
+
+        BigDecimal value(Metric metric, Wallet.CryptoCurrency currency) {
+            return switch (metric) {
+                case USERS -> BigDecimal.valueOf(users);
+                case TRANSACTIONS -> BigDecimal.valueOf(transactions.getOrDefault(currency, 0L));
+                case VOLUME -> volume.getOrDefault(currency, BigDecimal.ZERO);
+            };
+        }
+    }
+
+    private final StatsRollups rollups;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxBuckets;
+    private final int cacheSize;
+    private final Duration cacheTtl;
+    private final Clock clock;
+    private final Counter cachedBuckets;
+    private final Counter queriedBuckets;
+
+    private final ConcurrentHashMap<BucketKey, Figures> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdminAnalyticsService(StatsRollups rollups,
+                                 JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.admin.analytics.max-buckets:2000}") int maxBuckets,
+                                 @Value("${app.admin.analytics.cache-size:20000}") int cacheSize,
+                                 @Value("${app.admin.analytics.cache-ttl:5m}") Duration cacheTtl) {
+        this(rollups, jdbcTemplate, meterRegistry, maxBuckets, cacheSize, cacheTtl, Clock.systemDefaultZone());
+    }
+
+    AdminAnalyticsService(StatsRollups rollups, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int maxBuckets,
+                          int cacheSize, Duration cacheTtl, Clock clock) {
+        if (maxBuckets < 1 || cacheSize < 1 || cacheTtl.isNegative() || cacheTtl.isZero()) {
+            throw new IllegalArgumentException(
+                    "app.admin.analytics requires max-buckets >= 1, cache-size >= 1 and a positive cache-ttl");
+        }
+        this.rollups = rollups;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBuckets = maxBuckets;
+        this.cacheSize = cacheSize;
+        this.cacheTtl = cacheTtl;
+        this.clock = clock;
+        this.cachedBuckets = Counter.builder("cryptowallet.admin.analytics.buckets")
+                .description("Analytics buckets served, by where their figures came from")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.queriedBuckets = Counter.builder("cryptowallet.admin.analytics.buckets")
+                .description("Analytics buckets served, by where their figures came from")
+                .tag("source", "query")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@code metrics} for every bucket from the one holding {@code start} to the one holding
+     * {@code end}; TRANSACTIONS and VOLUME get a series per currency in {@code currencies}.
+     *
+     * @throws IllegalArgumentException if {@code end} is before {@code start} or the range spans
+     *                                  more than {@code max-buckets} buckets
+     */
+    public AnalyticsSeriesDto getSeries(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                        Set<Metric> metrics, Set<Wallet.CryptoCurrency> currencies) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("end is before start");
+        }
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (LocalDateTime bucket = floor(granularity, start); !bucket.isAfter(end); bucket = next(granularity, bucket)) {
+            if (buckets.size() == maxBuckets) {
+                throw new IllegalArgumentException("range spans more than " + maxBuckets + " " + granularity + " buckets");
+            }
+            buckets.add(bucket);
+        }
+
+        Map<LocalDateTime, Figures> figures = figures(granularity, buckets);
+
+        List<AnalyticsSeriesDto.Series> series = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            if (!metrics.contains(metric)) {
+                continue;
+            }
+            if (metric == Metric.USERS) {
+                series.add(series(metric, null, buckets, figures));
+                continue;
+            }
+            for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+                if (currencies.contains(currency)) {
+                    series.add(series(metric, currency, buckets, figures));
+                }
+            }
+        }
+        return AnalyticsSeriesDto.builder()
+                .granularity(granularity)
+                .buckets(buckets)
+                .series(series)
+                .build();
+    }
+
+    private static AnalyticsSeriesDto.Series series(Metric metric, Wallet.CryptoCurrency currency,
+                                                    List<LocalDateTime> buckets, Map<LocalDateTime, Figures> figures) {
+        List<BigDecimal> values = new ArrayList<>(buckets.size());
+        buckets.forEach(bucket -> values.add(figures.get(bucket).value(metric, currency)));
+        return AnalyticsSeriesDto.Series.builder().metric(metric).currency(currency).values(values).build();
+    }
+
+    /**
+     * Figures for every bucket: unexpired cached ones as they are, the rest from one query over the
+     * span of the misses. Each closed missed bucket is claimed in the cache with a loading marker before
+     * the query and filled only if that marker is still there afterwards — a change committed in
+     * the meantime evicts it, and the possibly stale result is then served but not kept.
+     */
+    private Map<LocalDateTime, Figures> figures(Granularity granularity, List<LocalDateTime> buckets) {
+        Instant instant = clock.instant();
+        LocalDateTime now = LocalDateTime.ofInstant(instant, clock.getZone());
+        Map<LocalDateTime, Figures> figures = new HashMap<>();
+        List<LocalDateTime> missed = new ArrayList<>();
+        Map<BucketKey, Figures> claimed = new HashMap<>();
+        for (LocalDateTime bucket : buckets) {
+            BucketKey key = new BucketKey(granularity, bucket);
+            Figures cached = cache.get(key);
+            if (cached != null && !cached.loading && instant.isBefore(cached.expiresAt)) {
+                figures.put(bucket, cached);
+                continue;
+            }
+            missed.add(bucket);
+            if ((cached == null || !cached.loading) && !next(granularity, bucket).isAfter(now)) {
+                Figures marker = new Figures(true);
+                if (cache.size() >= cacheSize) {
+                    cache.clear();
+                }
+                if (cached == null ? cache.putIfAbsent(key, marker) == null : cache.replace(key, cached, marker)) {
+                    claimed.put(key, marker);
+                }
+            }
+        }
+        cachedBuckets.increment(buckets.size() - missed.size());
+        if (missed.isEmpty()) {
+            return figures;
+        }
+        queriedBuckets.increment(missed.size());
+        try {
+            Map<LocalDateTime, Figures> queried = query(granularity, missed.get(0),
+                    next(granularity, missed.get(missed.size() - 1)));
+            for (LocalDateTime bucket : missed) {
+                Figures computed = queried.computeIfAbsent(bucket, b -> new Figures(false));
+                figures.put(bucket, computed);
+                Figures marker = claimed.get(new BucketKey(granularity, bucket));
+                if (marker != null) {
+                    computed.expiresAt = instant.plus(cacheTtl);
+                    cache.replace(new BucketKey(granularity, bucket), marker, computed);
+                }
+            }
+        } finally {
+            claimed.forEach(cache::remove); // markers left by a failed query; filled ones no longer match
+        }
+        return figures;
+    }
+
+    /** Figures of every bucket in {@code [from, to)} that has any, keyed by bucket start. */
+    private Map<LocalDateTime, Figures> query(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, Figures> figures = new HashMap<>();
+        if (granularity == Granularity.HOUR) {
+            jdbcTemplate.query("SELECT 'USERS', NULL, DATE_TRUNC('HOUR', created_at), COUNT(*), 0 FROM users "
+                            + "WHERE created_at >= ? AND created_at < ? GROUP BY DATE_TRUNC('HOUR', created_at) "
+                            + "UNION ALL SELECT 'TRANSACTIONS', w.currency, DATE_TRUNC('HOUR', t.created_at), COUNT(*), "
+                            + "COALESCE(SUM(CASE WHEN t.status = 'CONFIRMED' THEN t.amount END), 0) "
+                            + "FROM transactions t JOIN wallets w ON w.id = t.wallet_id "
+                            + "WHERE t.created_at >= ? AND t.created_at < ? "
+                            + "GROUP BY w.currency, DATE_TRUNC('HOUR', t.created_at)",
+                    rs -> {
+                        Figures bucket = figures.computeIfAbsent(rs.getTimestamp(3).toLocalDateTime(),
+                                b -> new Figures(false));
+                        if (rs.getString(2) == null) {
+                            bucket.users += rs.getLong(4);
+                        } else {
+                            Wallet.CryptoCurrency currency = Wallet.CryptoCurrency.valueOf(rs.getString(2));
+                            bucket.transactions.merge(currency, rs.getLong(4), Long::sum);
+                            bucket.volume.merge(currency, rs.getBigDecimal(5), BigDecimal::add);
+                        }
+                    },
+                    Timestamp.valueOf(from), Timestamp.valueOf(to), Timestamp.valueOf(from), Timestamp.valueOf(to));
+            return figures;
+        }
+        rollups.perDay(from.toLocalDate(), to.toLocalDate()).forEach((key, counter) -> {
+            if (key.metric() == StatsRollup.Metric.WALLETS) {
+                return;
+            }
+            Figures bucket = figures.computeIfAbsent(floor(granularity, key.day().atStartOfDay()),
+                    b -> new Figures(false));
+            if (key.metric() == StatsRollup.Metric.USERS) {
+                bucket.users += counter.count();
+                return;
+            }
+            Wallet.CryptoCurrency currency = Wallet.CryptoCurrency.valueOf(key.currency());
+            bucket.transactions.merge(currency, counter.count(), Long::sum);
+            if (Transaction.TransactionStatus.CONFIRMED.name().equals(key.status())) {
+                bucket.volume.merge(currency, counter.amount(), BigDecimal::add);
+            }
+        });
+        return figures;
+    }
+
+    /**
+     * Evict the cached buckets covering the changed days: per day its 24 hours, the day and its
+     * week. Runs in the committing thread, so it stays a handful of map removals.
+     */
+    @EventListener
+    public void onRollupsChanged(StatsRollups.Changed changed) {
+        if (changed.days() == null) {
+            cache.clear();
+            return;
+        }
+        for (LocalDate day : changed.days()) {
+            LocalDateTime midnight = day.atStartOfDay();
+            for (int hour = 0; hour < 24; hour++) {
+                cache.remove(new BucketKey(Granularity.HOUR, midnight.plusHours(hour)));
+            }
+            cache.remove(new BucketKey(Granularity.DAY, midnight));
+            cache.remove(new BucketKey(Granularity.WEEK, floor(Granularity.WEEK, midnight)));
+        }
+    }
+
+    private static LocalDateTime floor(Granularity granularity, LocalDateTime time) {
+        return switch (granularity) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.toLocalDate().atStartOfDay();
+            case WEEK -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+        };
+    }
+
+    private static LocalDateTime next(Granularity granularity, LocalDateTime bucket) {
+        return switch (granularity) {
+            case HOUR -> bucket.plusHours(1);
+            case DAY -> bucket.plusDays(1);
+            case WEEK -> bucket.plusWeeks(1);
+        };
+    }
+}
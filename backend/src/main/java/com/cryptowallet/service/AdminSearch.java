@@ -0,0 +1,190 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Admin search over users, wallets and transactions, ranked and bounded.
+ *
+ * A term that is a whole address or tx hash is answered from the unique/btree indexes on those
+ * columns. Anything else is a case-insensitive substring match, which on Postgres runs on the
+ * {@code pg_trgm} GIN indexes {@code SearchIndexRunner} builds over {@code LOWER(column)} (H2 has
+ * no trigram indexes and scans; the SQL and the results are the same). A substring search reads
+ * the newest {@code max-candidates} rows per rank — an exact match on any searched column, then a
+ * prefix match, then the rest, as three ordered queries, each capped and stopping once the cap is
+ * filled — and pages through the best {@code max-candidates} of those, so its results are
+ * deterministic and its cost is bounded by the cap rather than by the table. Terms need at least
+ * {@value #MIN_TERM_LENGTH} characters, the shortest a trigram index can narrow.
+ *
+ * Metrics: {@code cryptowallet.admin.search} (timer, tagged target=users|wallets|transactions).
+ */
+@Service
+public class AdminSearch {
+
+    public static final int MIN_TERM_LENGTH = 3;
+
+    /** One page of matching ids, in rank order, and how many matched (at most {@code max-candidates}). */
+    public record Hits(List<Long> ids, long total) {
+    }
+
+    /** A matching row and its rank (lower first). */
+    private record Candidate(long id, int rank) {
+
+        static final Comparator<Candidate> ORDER = Comparator.comparingInt(Candidate::rank)
+                .thenComparing(Comparator.comparingLong(Candidate::id).reversed());
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxCandidates;
+    private final Timer userTimer;
+    private final Timer walletTimer;
+    private final Timer transactionTimer;
+
+    public AdminSearch(JdbcTemplate jdbcTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.admin.search.max-candidates:500}") int maxCandidates) {
+        if (maxCandidates < 1) {
+            throw new IllegalArgumentException("app.admin.search requires max-candidates >= 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxCandidates = maxCandidates;
+        this.userTimer = timer(meterRegistry, "users");
+        this.walletTimer = timer(meterRegistry, "wallets");
+        this.transactionTimer = timer(meterRegistry, "transactions");
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String target) {
+        return Timer.builder("cryptowallet.admin.search")
+                .description("Time to find and rank one admin search page")
+                .tag("target", target)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /** Users by username, email, first or last name; with a {@code role}, only active users of it. */
+    public Hits users(String query, User.Role role, Pageable pageable) {
+        String term = term(query);
+        return userTimer.record(() -> page(pageable, ranked(match -> {
+            String value = match.value(term);
+            String sql = "SELECT id FROM users WHERE (" + match.on("username") + " OR " + match.on("email")
+                    + " OR " + match.on("first_name") + " OR " + match.on("last_name") + ")";
+            List<Object> args = new ArrayList<>(List.of(value, value, value, value));
+            if (role != null) {
+                sql += " AND role = ? AND active = TRUE";
+                args.add(role.name());
+            }
+            args.add(maxCandidates);
+            return jdbcTemplate.queryForList(sql + " ORDER BY id DESC LIMIT ?", Long.class, args.toArray());
+        })));
+    }
+
+    /** Wallets by address, or by their owner's username or email. */
+    public Hits wallets(String query, Pageable pageable) {
+        String term = term(query);
+        return walletTimer.record(() -> page(pageable, () -> {
+            List<Candidate> exact = jdbcTemplate.query("SELECT id FROM wallets WHERE address = ?",
+                    (rs, i) -> new Candidate(rs.getLong(1), 0), term);
+            if (!exact.isEmpty()) {
+                return exact;
+            }
+            // Two capped arms rather than one OR across the join, so each can use its own indexes.
+            return ranked(match -> {
+                String value = match.value(term);
+                return jdbcTemplate.queryForList("SELECT id FROM wallets WHERE id IN ("
+                                + "(SELECT id FROM wallets WHERE " + match.on("address") + " ORDER BY id DESC LIMIT ?) "
+                                + "UNION (SELECT m.id FROM wallets m JOIN users o ON o.id = m.user_id WHERE "
+                                + match.on("o.username") + " OR " + match.on("o.email") + " ORDER BY m.id DESC LIMIT ?)) "
+                                + "ORDER BY id DESC LIMIT ?",
+                        Long.class, value, maxCandidates, value, value, maxCandidates, maxCandidates);
+            }).get();
+        }));
+    }
+
+    /** Transactions by tx hash, or from/to address; a whole hash or address matches exactly. */
+    public Hits transactions(String query, Pageable pageable) {
+        String term = term(query);
+        return transactionTimer.record(() -> page(pageable, () -> {
+            List<Candidate> exact = jdbcTemplate.query("SELECT id FROM transactions "
+                            + "WHERE tx_hash = ? OR from_address = ? OR to_address = ? ORDER BY id DESC LIMIT ?",
+                    (rs, i) -> new Candidate(rs.getLong(1), 0), term, term, term, maxCandidates);
+            if (!exact.isEmpty()) {
+                return exact;
+            }
+            return ranked(match -> {
+                String value = match.value(term);
+                return jdbcTemplate.queryForList("SELECT id FROM transactions WHERE " + match.on("tx_hash") + " OR "
+                                + match.on("from_address") + " OR " + match.on("to_address") + " ORDER BY id DESC LIMIT ?",
+                        Long.class, value, value, value, maxCandidates);
+            }).get();
+        }));
+    }
+
+    /**
+     * Run {@code arm} once per {@link Match}, best first, each returning at most {@code max-candidates}
+     * ids newest first, and rank every id by the first arm that returned it. Stops once that many are
+     * ranked: each arm's newest rows are then exactly the ones that can make the cut.
+     */
+    private Supplier<List<Candidate>> ranked(Function<Match, List<Long>> arm) {
+        return () -> {
+            Map<Long, Candidate> candidates = new LinkedHashMap<>();
+            for (Match match : Match.values()) {
+                if (candidates.size() >= maxCandidates) {
+                    break;
+                }
+                arm.apply(match).forEach(id -> candidates.putIfAbsent(id, new Candidate(id, match.ordinal())));
+            }
+            return new ArrayList<>(candidates.values());
+        };
+    }
+
+    private Hits page(Pageable pageable, Supplier<List<Candidate>> search) {
+        List<Candidate> candidates = new ArrayList<>(search.get());
+        candidates.sort(Candidate.ORDER);
+        if (candidates.size() > maxCandidates) {
+            candidates = candidates.subList(0, maxCandidates);
+        }
+        int from = (int) Math.min(pageable.getOffset(), candidates.size());
+        int to = Math.min(from + pageable.getPageSize(), candidates.size());
+        return new Hits(candidates.subList(from, to).stream().map(Candidate::id).toList(), candidates.size());
+    }
+
+    private static String term(String query) {
+        String term = query == null ? "" : query.trim();
+        if (term.length() < MIN_TERM_LENGTH) {
+            throw new IllegalArgumentException("search terms need at least " + MIN_TERM_LENGTH + " characters");
+        }
+        return term;
+    }
+
+    /** How a lower-cased column matches the term, in rank order; LIKE wildcards in the term are escaped. */
+    private enum Match {
+        EXACT, PREFIX, SUBSTRING;
+
+        String on(String column) {
+            return "LOWER(" + column + ")" + (this == EXACT ? " = ?" : " LIKE ?");
+        }
+
+        String value(String term) {
+            String lower = term.toLowerCase(Locale.ROOT);
+            if (this == EXACT) {
+                return lower;
+            }
+            String escaped = lower.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            return this == PREFIX ? escaped + "%" : "%" + escaped + "%";
+        }
+    }
+}
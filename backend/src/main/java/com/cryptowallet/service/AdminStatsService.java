@@ -3,64 +3,173 @@ package com.cryptowallet.service;
 import com.cryptowallet.dto.SystemStatsDto;
 import com.cryptowallet.entity.Transaction;
 import com.cryptowallet.entity.Wallet;
-import com.cryptowallet.repository.TransactionRepository;
-import com.cryptowallet.repository.UserRepository;
-import com.cryptowallet.repository.WalletRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Admin dashboard figures.
+ *
+ * Figures come from the per-day counters {@link StatsRollups} maintains, never from a scan of
+ * {@code users} or {@code transactions}. {@link #getSystemStatistics()} is served from a snapshot
+ * at most {@code cache-ttl} old, taken with one grouped read of the rollups. An expired snapshot
+ * is still returned while a single background refresh replaces it, so a dashboard request only
+ * ever waits on the very first computation, and concurrent viewers share that one. Figures over
+ * time are {@link AdminAnalyticsService}'s.
+ *
+ * Metrics: {@code cryptowallet.admin.stats.refresh} (timer).
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-@Transactional(readOnly = true)
 public class AdminStatsService {
-    
-    private final UserRepository userRepository;
-    private final WalletRepository walletRepository;
-    private final TransactionRepository transactionRepository;
-    
-    public SystemStatsDto getSystemStatistics() {
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        
-        return SystemStatsDto.builder()
-                .totalUsers(userRepository.count())
-                .activeUsers(userRepository.countByActiveTrue())
-                .totalWallets(walletRepository.count())
-                .bitcoinWallets(walletRepository.countByCurrency(Wallet.CryptoCurrency.BITCOIN))
-                .usdtWallets(walletRepository.countByCurrency(Wallet.CryptoCurrency.USDT_TRC20))
-                .totalTransactions(transactionRepository.count())
-                .pendingTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.PENDING))
-                .confirmedTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.CONFIRMED))
-                .failedTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.FAILED))
-                .totalBitcoinVolume(getTotalVolumeByWalletCurrency(Wallet.CryptoCurrency.BITCOIN))
-                .totalUsdtVolume(getTotalVolumeByWalletCurrency(Wallet.CryptoCurrency.USDT_TRC20))
-                .usersRegisteredToday(userRepository.countByCreatedAtAfter(startOfDay))
-                .transactionsToday(transactionRepository.countByCreatedAtAfter(startOfDay))
-                .lastUpdated(LocalDateTime.now())
-                .build();
+
+    private final StatsRollups rollups;
+    private final Duration cacheTtl;
+    private final Clock clock;
+    private final Timer refreshTimer;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "admin-stats-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record Snapshot(SystemStatsDto stats, long computedAtMillis) {
+    }
+
+    private volatile Snapshot current;
+    private final AtomicReference<CompletableFuture<SystemStatsDto>> refreshing = new AtomicReference<>();
+
+    @Autowired
+    public AdminStatsService(StatsRollups rollups,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.admin.stats.cache-ttl:30s}") Duration cacheTtl) {
+        this(rollups, meterRegistry, cacheTtl, Clock.systemDefaultZone());
     }
-    
-    private BigDecimal getTotalVolumeByWalletCurrency(Wallet.CryptoCurrency currency) {
-        return transactionRepository.sumAmountByWalletCurrencyAndStatus(
-                currency, Transaction.TransactionStatus.CONFIRMED);
+
+    AdminStatsService(StatsRollups rollups, MeterRegistry meterRegistry, Duration cacheTtl, Clock clock) {
+        if (cacheTtl.isNegative()) {
+            throw new IllegalArgumentException("app.admin.stats requires a non-negative cache-ttl");
+        }
+        this.rollups = rollups;
+        this.cacheTtl = cacheTtl;
+        this.clock = clock;
+        this.refreshTimer = Timer.builder("cryptowallet.admin.stats.refresh")
+                .description("Time to compute the admin statistics snapshot")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
     }
-    
-    public Long getUsersRegisteredInPeriod(LocalDateTime start, LocalDateTime end) {
-        return userRepository.countByCreatedAtBetween(start, end);
+
+    /** No transaction: the caller may wait on the refresher, which needs its own connection. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SystemStatsDto getSystemStatistics() {
+        Snapshot snapshot = current;
+        if (snapshot != null && clock.millis() - snapshot.computedAtMillis() < cacheTtl.toMillis()) {
+            return snapshot.stats();
+        }
+        CompletableFuture<SystemStatsDto> refresh = refresh();
+        if (snapshot != null) {
+            return snapshot.stats(); // stale while the refresh runs
+        }
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
-    
-    public Long getTransactionsInPeriod(LocalDateTime start, LocalDateTime end) {
-        return transactionRepository.countByCreatedAtBetween(start, end);
+
+    /** The running refresh, or a new one on the refresher thread. */
+    private CompletableFuture<SystemStatsDto> refresh() {
+        CompletableFuture<SystemStatsDto> mine = new CompletableFuture<>();
+        CompletableFuture<SystemStatsDto> running = refreshing.compareAndExchange(null, mine);
+        if (running != null) {
+            return running;
+        }
+        refresher.execute(() -> {
+            try {
+                SystemStatsDto stats = refreshTimer.record(this::computeStatistics);
+                current = new Snapshot(stats, clock.millis());
+                mine.complete(stats);
+            } catch (RuntimeException e) {
+                log.warn("AdminStatsService: statistics refresh failed: {}", e.getMessage());
+                mine.completeExceptionally(e);
+            } finally {
+                refreshing.set(null);
+            }
+        });
+        return mine;
     }
-    
-    public BigDecimal getVolumeInPeriod(LocalDateTime start, LocalDateTime end, Wallet.CryptoCurrency currency) {
-        return transactionRepository.sumAmountByCreatedAtBetweenAndWalletCurrencyAndStatus(
-                start, end, currency, Transaction.TransactionStatus.CONFIRMED);
+
+    /** Every figure from the {@link StatsRollups} totals: one grouped read of O(days) rows. */
+    SystemStatsDto computeStatistics() {
+        long[] users = new long[3]; // total, active, today
+        Map<Wallet.CryptoCurrency, Long> wallets = new EnumMap<>(Wallet.CryptoCurrency.class);
+        Map<Transaction.TransactionStatus, Long> byStatus = new EnumMap<>(Transaction.TransactionStatus.class);
+        Map<Wallet.CryptoCurrency, BigDecimal> confirmedVolume = new EnumMap<>(Wallet.CryptoCurrency.class);
+        long[] transactions = new long[2]; // total, today
+        for (StatsRollups.Total total : rollups.totals(LocalDate.now(clock))) {
+            long count = total.all().count();
+            switch (total.metric()) {
+                case USERS -> {
+                    users[0] += count;
+                    users[1] += StatsRollups.ACTIVE.equals(total.status()) ? count : 0;
+                    users[2] += total.today();
+                }
+                case WALLETS -> wallets.merge(Wallet.CryptoCurrency.valueOf(total.currency()), count, Long::sum);
+                case TRANSACTIONS -> {
+                    Transaction.TransactionStatus status = Transaction.TransactionStatus.valueOf(total.status());
+                    byStatus.merge(status, count, Long::sum);
+                    if (status == Transaction.TransactionStatus.CONFIRMED) {
+                        confirmedVolume.merge(Wallet.CryptoCurrency.valueOf(total.currency()), total.all().amount(),
+                                BigDecimal::add);
+                    }
+                    transactions[0] += count;
+                    transactions[1] += total.today();
+                }
+            }
+        }
+
+        return SystemStatsDto.builder()
+                .totalUsers(users[0])
+                .activeUsers(users[1])
+                .totalWallets(wallets.values().stream().mapToLong(Long::longValue).sum())
+                .bitcoinWallets(wallets.getOrDefault(Wallet.CryptoCurrency.BITCOIN, 0L))
+                .usdtWallets(wallets.getOrDefault(Wallet.CryptoCurrency.USDT_TRC20, 0L))
+                .totalTransactions(transactions[0])
+                .pendingTransactions(byStatus.getOrDefault(Transaction.TransactionStatus.PENDING, 0L))
+                .confirmedTransactions(byStatus.getOrDefault(Transaction.TransactionStatus.CONFIRMED, 0L))
+                .failedTransactions(byStatus.getOrDefault(Transaction.TransactionStatus.FAILED, 0L))
+                .totalBitcoinVolume(confirmedVolume.getOrDefault(Wallet.CryptoCurrency.BITCOIN, BigDecimal.ZERO))
+                .totalUsdtVolume(confirmedVolume.getOrDefault(Wallet.CryptoCurrency.USDT_TRC20, BigDecimal.ZERO))
+                .usersRegisteredToday(users[2])
+                .transactionsToday(transactions[1])
+                .lastUpdated(LocalDateTime.now(clock))
+                .build();
     }
-}
\ No newline at end of file
+}
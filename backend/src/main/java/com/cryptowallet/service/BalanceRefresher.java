@@ -0,0 +1,257 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically re-reads active wallets' balances from the chain.
+ *
+ * Each sweep walks active wallets not refreshed within {@code freshness} in keyset chunks of
+ * {@code chunk-size} (by id, so rows inserted or refreshed mid-sweep don't shift the window). A
+ * chunk's addresses go to {@link CryptoProviderRegistry#getBalances} once per currency, the
+ * currencies in parallel, each with at most {@code concurrency-per-currency} backend round trips
+ * in flight so one slow node can't starve the other. Results are written back with one JDBC
+ * batch per chunk: changed balances guarded by {@code Wallet.version} (a wallet that was debited
+ * or credited since it was read is left for the next sweep rather than overwritten), unchanged
+ * ones only get {@code balance_refreshed_at}. Failed lookups are left stale and retried next sweep.
+ *
+ * The chain figure is only the wallet's balance when nothing is in flight, so a wallet with a
+ * PENDING or BROADCAST send is skipped until it settles: a queued send is already debited here but
+ * not yet on chain (overwriting would hand the reservation back), and a broadcast one may or may
+ * not be mined yet. And the refresher only owns balances the block scanner doesn't: with
+ * {@code app.chain-scanner.enabled}, currencies whose provider supports block scanning are
+ * credited deposit by deposit by {@link BlockScanner} and never swept, or a deposit already in the
+ * chain figure would be credited a second time by the ingestor.
+ *
+ * Off by default ({@code app.wallet.balance-refresh.enabled}) — the providers are still
+ * placeholders. Metrics: {@code cryptowallet.balance.refresh.wallets} (counter, tagged by
+ * currency and {@code result=changed|unchanged|conflict|failed|in-flight}), {@code .sweep} (timer) and
+ * {@code .rate} (gauge — wallets per second over the last sweep).
+ */
+@Service
+@Slf4j
+public class BalanceRefresher {
+
+    private final CryptoProviderRegistry providers;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean scannerEnabled;
+    private final Duration interval;
+    private final Duration freshness;
+    private final int chunkSize;
+    private final int concurrencyPerCurrency;
+    private final Timer sweepTimer;
+    private final AtomicLong lastRate = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    /** One wallet as read at the start of its chunk. */
+    private record Snapshot(Long id, Wallet.CryptoCurrency currency, String address, BigDecimal balance, Long version) {
+    }
+
+    public BalanceRefresher(CryptoProviderRegistry providers,
+                            JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.wallet.balance-refresh.enabled:false}") boolean enabled,
+                            @Value("${app.chain-scanner.enabled:false}") boolean scannerEnabled,
+                            @Value("${app.wallet.balance-refresh.interval:5m}") Duration interval,
+                            @Value("${app.wallet.balance-refresh.freshness:10m}") Duration freshness,
+                            @Value("${app.wallet.balance-refresh.chunk-size:500}") int chunkSize,
+                            @Value("${app.wallet.balance-refresh.concurrency-per-currency:16}") int concurrencyPerCurrency) {
+        if (chunkSize < 1 || concurrencyPerCurrency < 1) {
+            throw new IllegalArgumentException(
+                    "app.wallet.balance-refresh requires chunk-size and concurrency-per-currency >= 1");
+        }
+        this.providers = providers;
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.scannerEnabled = scannerEnabled;
+        this.interval = interval;
+        this.freshness = freshness;
+        this.chunkSize = chunkSize;
+        this.concurrencyPerCurrency = concurrencyPerCurrency;
+        this.sweepTimer = Timer.builder("cryptowallet.balance.refresh.sweep")
+                .description("End-to-end time of one balance refresh sweep")
+                .register(meterRegistry);
+        Gauge.builder("cryptowallet.balance.refresh.rate", lastRate, AtomicLong::get)
+                .description("Wallets refreshed per second during the last sweep")
+                .register(meterRegistry);
+    }
+
+    private Counter walletCounter(Wallet.CryptoCurrency currency, String result) {
+        return Counter.builder("cryptowallet.balance.refresh.wallets")
+                .tag("currency", currency.name())
+                .tag("result", result)
+                .description("Wallets visited by the balance refresher")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("BalanceRefresher: disabled — balances refresh only on request");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "balance-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshStale();
+            } catch (RuntimeException e) {
+                log.warn("BalanceRefresher: sweep failed, retrying in {}: {}", interval, e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * Run one sweep on the calling thread (the scheduler's, or a test's).
+     *
+     * @return wallets whose balance was read successfully
+     */
+    public int refreshStale() {
+        long start = System.nanoTime();
+        Timestamp staleBefore = Timestamp.valueOf(LocalDateTime.now().minus(freshness));
+        List<String> swept = providers.currencies().stream()
+                .filter(currency -> !(scannerEnabled && providers.get(currency).supportsBlockScanning()))
+                .map(Enum::name)
+                .toList();
+        if (swept.isEmpty()) {
+            return 0;
+        }
+        String sql = "SELECT id, currency, address, balance, version FROM wallets "
+                + "WHERE active = TRUE AND id > ? AND currency IN (" + placeholders(swept.size()) + ") "
+                + "AND (balance_refreshed_at IS NULL OR balance_refreshed_at < ?) ORDER BY id LIMIT ?";
+        int refreshed = 0;
+        long afterId = 0;
+        try (ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Snapshot> chunk;
+            do {
+                List<Object> args = new ArrayList<>();
+                args.add(afterId);
+                args.addAll(swept);
+                args.add(staleBefore);
+                args.add(chunkSize);
+                chunk = jdbcTemplate.query(sql,
+                        (rs, i) -> new Snapshot(rs.getLong(1), Wallet.CryptoCurrency.valueOf(rs.getString(2)),
+                                rs.getString(3), rs.getBigDecimal(4), rs.getLong(5)),
+                        args.toArray());
+                if (!chunk.isEmpty()) {
+                    refreshed += refreshChunk(chunk, calls);
+                    afterId = chunk.get(chunk.size() - 1).id();
+                }
+            } while (chunk.size() == chunkSize);
+        }
+        long elapsed = System.nanoTime() - start;
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastRate.set(elapsed == 0 ? 0 : refreshed * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        log.debug("BalanceRefresher: refreshed {} wallet(s) in {} ms", refreshed, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return refreshed;
+    }
+
+    private int refreshChunk(List<Snapshot> chunk, ExecutorService calls) {
+        // Read after the snapshot: a send queued since then bumps the version and fails the guard.
+        Set<Long> inFlight = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT wallet_id FROM transactions WHERE type = 'SEND' "
+                        + "AND status IN ('PENDING', 'BROADCAST') AND wallet_id IN (" + placeholders(chunk.size()) + ")",
+                Long.class, chunk.stream().map(Snapshot::id).toArray()));
+        chunk.stream().filter(wallet -> inFlight.contains(wallet.id()))
+                .forEach(wallet -> walletCounter(wallet.currency(), "in-flight").increment());
+        List<Snapshot> settled = chunk.stream().filter(wallet -> !inFlight.contains(wallet.id())).toList();
+
+        // One batched lookup per currency, currencies in parallel.
+        Map<Wallet.CryptoCurrency, Future<Map<String, BigDecimal>>> lookups = new EnumMap<>(Wallet.CryptoCurrency.class);
+        settled.stream()
+                .collect(Collectors.groupingBy(Snapshot::currency,
+                        () -> new EnumMap<>(Wallet.CryptoCurrency.class),
+                        Collectors.mapping(Snapshot::address, Collectors.toList())))
+                .forEach((currency, addresses) -> lookups.put(currency,
+                        calls.submit(() -> providers.getBalances(currency, addresses, concurrencyPerCurrency))));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Snapshot> changedWallets = new ArrayList<>();
+        List<Object[]> changed = new ArrayList<>();
+        List<Object[]> unchanged = new ArrayList<>();
+        for (Snapshot wallet : settled) {
+            BigDecimal balance = await(lookups.get(wallet.currency())).get(wallet.address());
+            if (balance == null) {
+                walletCounter(wallet.currency(), "failed").increment();
+            } else if (wallet.balance() != null && balance.compareTo(wallet.balance()) == 0) {
+                unchanged.add(new Object[]{now, wallet.id()});
+                walletCounter(wallet.currency(), "unchanged").increment();
+            } else {
+                changedWallets.add(wallet);
+                changed.add(new Object[]{balance, now, now, wallet.id(), wallet.version()});
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            int[] rows = jdbcTemplate.batchUpdate(
+                    "UPDATE wallets SET balance = ?, balance_refreshed_at = ?, updated_at = ?, version = version + 1 "
+                            + "WHERE id = ? AND version = ?", changed);
+            for (int i = 0; i < rows.length; i++) {
+                walletCounter(changedWallets.get(i).currency(), rows[i] == 0 ? "conflict" : "changed").increment();
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE wallets SET balance_refreshed_at = ? WHERE id = ?", unchanged);
+        }
+        return changed.size() + unchanged.size();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static Map<String, BigDecimal> await(Future<Map<String, BigDecimal>> lookup) {
+        try {
+            return lookup.get();
+        } catch (ExecutionException e) {
+            log.warn("BalanceRefresher: balance lookup failed: {}", e.getCause().getMessage());
+            return Map.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during balance refresh", e);
+        }
+    }
+}
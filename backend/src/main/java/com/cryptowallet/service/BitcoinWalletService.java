@@ -3,23 +3,42 @@ package com.cryptowallet.service;
 import com.cryptowallet.entity.Wallet;
 import com.cryptowallet.service.crypto.CryptoProvider;
 import com.cryptowallet.service.crypto.KeyPair;
+import com.cryptowallet.service.crypto.SignedTransaction;
 import com.cryptowallet.service.crypto.TransactionResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.*;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicHierarchy;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.crypto.HDPath;
 import org.bitcoinj.params.TestNet3Params;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
+@Profile("!sim")
 @RequiredArgsConstructor
 @Slf4j
 public class BitcoinWalletService implements CryptoProvider {
 
     private final NetworkParameters params = TestNet3Params.get();
 
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // BIP44 external chain of account 0 for coin type 1 (testnet, matching TestNet3Params)
+    private static final HDPath EXTERNAL_CHAIN_PATH = HDPath.parsePath("M/44H/1H/0H/0");
+
     @Override
     public Wallet.CryptoCurrency supportedCurrency() {
         return Wallet.CryptoCurrency.BITCOIN;
@@ -28,15 +47,14 @@ public class BitcoinWalletService implements CryptoProvider {
     @Override
     public KeyPair generateAddress() {
         try {
-            ECKey key = new ECKey(new SecureRandom());
-            // Simplified address generation for demo purposes
-            String address = "bc1q" + key.getPublicKeyAsHex().substring(0, 32);
+            ECKey key = new ECKey(secureRandom);
+            String address = addressOf(key);
 
             KeyPair keyPair = new KeyPair();
             keyPair.setAddress(address);
             keyPair.setPrivateKey(key.getPrivateKeyAsWiF(params));
 
-            log.info("Generated Bitcoin key pair: {}", address);
+            log.debug("Generated Bitcoin key pair: {}", address);
             return keyPair;
 
         } catch (Exception e) {
@@ -45,6 +63,31 @@ public class BitcoinWalletService implements CryptoProvider {
         }
     }
 
+    @Override
+    public List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        DeterministicKey chain = externalChain(seed);
+        List<String> addresses = new ArrayList<>(count);
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            addresses.add(addressOf(HDKeyDerivation.deriveChildKey(chain, new ChildNumber(i, false))));
+        }
+        return addresses;
+    }
+
+    @Override
+    public String derivePrivateKey(byte[] seed, int index) {
+        DeterministicKey key = HDKeyDerivation.deriveChildKey(externalChain(seed), new ChildNumber(index, false));
+        return key.getPrivateKeyAsWiF(params);
+    }
+
+    private static DeterministicKey externalChain(byte[] seed) {
+        return new DeterministicHierarchy(HDKeyDerivation.createMasterPrivateKey(seed)).get(EXTERNAL_CHAIN_PATH, false, true);
+    }
+
+    // Simplified address generation for demo purposes
+    private static String addressOf(ECKey key) {
+        return "bc1q" + key.getPublicKeyAsHex().substring(0, 32);
+    }
+
     @Override
     public BigDecimal getBalance(String address) {
         try {
@@ -63,28 +106,55 @@ public class BitcoinWalletService implements CryptoProvider {
         }
     }
 
+    // Electrum-protocol servers accept a JSON-RPC batch of blockchain.scripthash.get_balance
+    // calls (and blockchain.info's multiaddr takes up to 100 addresses), so one round trip
+    // covers a whole batch.
     @Override
-    public TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+    public int balanceBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        // Placeholder: in a real application, send one batched request for all addresses
+        log.info("Getting Bitcoin balances for {} addresses", addresses.size());
+
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (String address : addresses) {
+            balances.put(address, BigDecimal.valueOf(Math.random() * 0.1));
+        }
+        return balances;
+    }
+
+    @Override
+    public SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount) {
         try {
             // This is a placeholder implementation
             // In a real application, you would:
             // 1. Create a transaction using bitcoinj
             // 2. Sign it with the private key
-            // 3. Broadcast it to the Bitcoin network
+            // 3. Return its txid and serialized bytes
 
-            log.info("Sending Bitcoin transaction: {} BTC to {}", amount, toAddress);
+            log.info("Signing Bitcoin transaction: {} BTC to {}", amount, toAddress);
 
             // Placeholder implementation
-            TransactionResult result = new TransactionResult();
-            result.setTxHash("bitcoin_tx_" + System.currentTimeMillis());
-            result.setFee(BigDecimal.valueOf(0.0001)); // Standard Bitcoin fee
-
-            log.info("Bitcoin transaction sent: {}", result.getTxHash());
-            return result;
+            String txHash = "bitcoin_tx_" + UUID.randomUUID(); // unique under concurrent dispatch
+            return new SignedTransaction(txHash, txHash, BigDecimal.valueOf(0.0001)); // Standard Bitcoin fee
 
         } catch (Exception e) {
-            log.error("Failed to send Bitcoin transaction: {}", e.getMessage());
-            throw new RuntimeException("Failed to send Bitcoin transaction", e);
+            log.error("Failed to sign Bitcoin transaction: {}", e.getMessage());
+            throw new RuntimeException("Failed to sign Bitcoin transaction", e);
         }
     }
+
+    @Override
+    public TransactionResult broadcastTransaction(SignedTransaction signed) {
+        // Placeholder: a real implementation would push signed.payload() to a Bitcoin node
+        TransactionResult result = new TransactionResult();
+        result.setTxHash(signed.txHash());
+        result.setFee(signed.fee());
+
+        log.info("Bitcoin transaction sent: {}", result.getTxHash());
+        return result;
+    }
 }
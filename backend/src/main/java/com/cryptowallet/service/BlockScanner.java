@@ -0,0 +1,326 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.IncomingTransferIngestor.IncomingTransfer;
+import com.cryptowallet.service.crypto.ChainBlock;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows each chain whose provider supports block scanning and credits deposits to our wallets.
+ *
+ * Per currency, the highest {@code scanned_blocks} row is the cursor (height and hash of the last
+ * block processed). Every poll first has {@link WatchedAddresses} catch up with wallets created
+ * since its last read — on any node — and {@link ConfirmationTracker} reconcile its sends with the
+ * BROADCAST rows, then reads up to {@code max-blocks-per-poll} blocks past the cursor, matches
+ * each block's outputs against it (a map lookup per output), credits the matches through
+ * {@link IncomingTransferIngestor} and records the block, all in one transaction per block. A block whose parent hash isn't the cursor's hash means the chain reorganised: the scanner
+ * walks the last {@code reorg-window} recorded blocks back to the newest one still on the chain,
+ * reverses every deposit recorded above it (balances debited, RECEIVE rows deleted) and resumes
+ * from there on the next poll. The debit is guarded like every balance write: a wallet that has
+ * already spent the deposit is taken to 0, never below, and the shortfall is logged and counted.
+ * A reorg deeper than the window stops the currency with an error. Each block (and each rollback)
+ * also advances {@link ConfirmationTracker} in the same transaction.
+ *
+ * With no cursor yet, scanning starts {@code initial-depth} blocks below the current tip. Off by
+ * default ({@code app.chain-scanner.enabled}); the {@code sim} profile turns it on against the
+ * simulated chains. Metrics, tagged by currency: {@code cryptowallet.scanner.blocks},
+ * {@code .deposits}, {@code .reorgs} and {@code .shortfalls} (counters), {@code .lag} (gauge —
+ * blocks behind the tip) and {@code .rate} (gauge — blocks per second during the last poll).
+ */
+@Service
+@Slf4j
+public class BlockScanner {
+
+    /** Last block processed on one chain. */
+    public record Cursor(long height, String hash) {
+    }
+
+    /** One wallet's deposits above a fork point, summed for the rollback. */
+    private record Reversal(Long walletId, BigDecimal amount, int deposits) {
+    }
+
+    private final CryptoProviderRegistry providers;
+    private final WatchedAddresses watched;
+    private final IncomingTransferIngestor incomingTransfers;
+    private final ConfirmationTracker confirmations;
+    private final StatsRollups rollups;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final int maxBlocksPerPoll;
+    private final int reorgWindow;
+    private final int initialDepth;
+
+    private final Map<Wallet.CryptoCurrency, Counter> blocks = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> deposits = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> reorgs = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> shortfalls = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, AtomicLong> lag = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, AtomicLong> rate = new EnumMap<>(Wallet.CryptoCurrency.class);
+
+    private ScheduledExecutorService scheduler;
+
+    public BlockScanner(CryptoProviderRegistry providers,
+                        WatchedAddresses watched,
+                        IncomingTransferIngestor incomingTransfers,
+                        ConfirmationTracker confirmations,
+                        StatsRollups rollups,
+                        JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.chain-scanner.enabled:false}") boolean enabled,
+                        @Value("${app.chain-scanner.poll-interval:2s}") Duration pollInterval,
+                        @Value("${app.chain-scanner.max-blocks-per-poll:100}") int maxBlocksPerPoll,
+                        @Value("${app.chain-scanner.reorg-window:100}") int reorgWindow,
+                        @Value("${app.chain-scanner.initial-depth:0}") int initialDepth) {
+        if (maxBlocksPerPoll < 1 || reorgWindow < 1 || initialDepth < 0) {
+            throw new IllegalArgumentException("app.chain-scanner requires max-blocks-per-poll and reorg-window >= 1 "
+                    + "and initial-depth >= 0");
+        }
+        this.providers = providers;
+        this.watched = watched;
+        this.incomingTransfers = incomingTransfers;
+        this.confirmations = confirmations;
+        this.rollups = rollups;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.maxBlocksPerPoll = maxBlocksPerPoll;
+        this.reorgWindow = reorgWindow;
+        this.initialDepth = initialDepth;
+
+        for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+            blocks.put(currency, counter(meterRegistry, "cryptowallet.scanner.blocks", currency, "Blocks scanned"));
+            deposits.put(currency, counter(meterRegistry, "cryptowallet.scanner.deposits", currency,
+                    "Deposits to our wallets found by the block scanner"));
+            reorgs.put(currency, counter(meterRegistry, "cryptowallet.scanner.reorgs", currency,
+                    "Chain reorganisations rolled back"));
+            shortfalls.put(currency, counter(meterRegistry, "cryptowallet.scanner.shortfalls", currency,
+                    "Wallets that had spent more of a rolled-back deposit than they held"));
+            lag.put(currency, gauge(meterRegistry, "cryptowallet.scanner.lag", currency,
+                    "Blocks between the chain tip and the scanner cursor"));
+            rate.put(currency, gauge(meterRegistry, "cryptowallet.scanner.rate", currency,
+                    "Blocks scanned per second during the last poll"));
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, Wallet.CryptoCurrency currency,
+                                   String description) {
+        return Counter.builder(name).tag("currency", currency.name()).description(description).register(registry);
+    }
+
+    private static AtomicLong gauge(MeterRegistry registry, String name, Wallet.CryptoCurrency currency,
+                                    String description) {
+        AtomicLong value = new AtomicLong();
+        Gauge.builder(name, value, AtomicLong::get)
+                .tag("currency", currency.name())
+                .description(description)
+                .register(registry);
+        return value;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("BlockScanner: disabled — deposits are not discovered");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "block-scanner");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollAll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void pollAll() {
+        for (Wallet.CryptoCurrency currency : providers.currencies()) {
+            if (!providers.get(currency).supportsBlockScanning()) {
+                continue;
+            }
+            try {
+                scan(currency);
+            } catch (RuntimeException e) {
+                log.warn("BlockScanner: {} poll failed, retrying in {}: {}", currency, pollInterval, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One poll of {@code currency} on the calling thread (the scheduler's, or a test's).
+     *
+     * @return blocks processed; a detected reorg ends the poll early
+     */
+    public int scan(Wallet.CryptoCurrency currency) {
+        CryptoProvider chain = providers.get(currency);
+        long start = System.nanoTime();
+        watched.catchUp();
+        confirmations.reconcile(currency);
+        long tip = chain.chainHeight();
+        Optional<Cursor> cursor = cursor(currency);
+        long next = cursor.map(c -> c.height() + 1).orElse(Math.max(1, tip - initialDepth));
+        long last = Math.min(tip, next + maxBlocksPerPoll - 1);
+
+        String parentHash = cursor.map(Cursor::hash).orElse(null);
+        long scannedTo = next - 1;
+        int processed = 0;
+        for (long height = next; height <= last; height++) {
+            ChainBlock block = chain.getBlock(height);
+            if (parentHash != null && !parentHash.equals(block.parentHash())) {
+                scannedTo = rollBack(currency, chain, height - 1);
+                break;
+            }
+            apply(currency, block);
+            parentHash = block.hash();
+            scannedTo = height;
+            processed++;
+        }
+
+        lag.get(currency).set(Math.max(0, tip - scannedTo));
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        rate.get(currency).set(processed * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        return processed;
+    }
+
+    /** Credit the block's deposits, advance pending sends and the cursor, in one transaction. */
+    private void apply(Wallet.CryptoCurrency currency, ChainBlock block) {
+        List<IncomingTransfer> matched = new ArrayList<>();
+        for (ChainBlock.Transfer transfer : block.transfers()) {
+            if (watched.walletId(currency, transfer.toAddress()) != null) {
+                matched.add(new IncomingTransfer(transfer.txHash(), transfer.fromAddress(), transfer.toAddress(),
+                        transfer.amount(), block.height()));
+            }
+        }
+        int credited = transactionTemplate.execute(status -> {
+            int n = matched.isEmpty() ? 0 : incomingTransfers.ingest(matched).credited();
+            jdbcTemplate.update("INSERT INTO scanned_blocks (currency, height, hash, scanned_at) VALUES (?, ?, ?, ?)",
+                    currency.name(), block.height(), block.hash(), Timestamp.valueOf(LocalDateTime.now()));
+            jdbcTemplate.update("DELETE FROM scanned_blocks WHERE currency = ? AND height <= ?",
+                    currency.name(), block.height() - reorgWindow);
+            confirmations.onBlock(currency, block);
+            return n;
+        });
+        blocks.get(currency).increment();
+        deposits.get(currency).increment(credited);
+    }
+
+    /**
+     * Find the newest recorded block at or below {@code fromHeight} that is still on the chain and
+     * undo everything scanned above it.
+     *
+     * @return the fork height the cursor now points at
+     */
+    private long rollBack(Wallet.CryptoCurrency currency, CryptoProvider chain, long fromHeight) {
+        List<Cursor> recorded = jdbcTemplate.query(
+                "SELECT height, hash FROM scanned_blocks WHERE currency = ? AND height <= ? ORDER BY height DESC",
+                (rs, i) -> new Cursor(rs.getLong(1), rs.getString(2)), currency.name(), fromHeight);
+        Cursor fork = null;
+        for (Cursor candidate : recorded) {
+            if (chain.getBlock(candidate.height()).hash().equals(candidate.hash())) {
+                fork = candidate;
+                break;
+            }
+        }
+        if (fork == null) {
+            throw new IllegalStateException(currency + " reorg below block " + fromHeight
+                    + " is deeper than reorg-window (" + reorgWindow + "); scanning stopped");
+        }
+
+        long forkHeight = fork.height();
+        Map<Long, BigDecimal> overdrawn = new TreeMap<>();
+        int reverted = transactionTemplate.execute(status -> {
+            // Every RECEIVE in the orphaned range, whoever ingested it: its block is no longer on the chain.
+            List<Reversal> reversals = jdbcTemplate.query("SELECT t.wallet_id, SUM(t.amount), COUNT(*) "
+                            + "FROM transactions t JOIN wallets w ON w.id = t.wallet_id WHERE w.currency = ? "
+                            + "AND t.type = 'RECEIVE' AND t.block_number > ? AND t.block_number <= ? "
+                            + "GROUP BY t.wallet_id ORDER BY t.wallet_id",
+                    (rs, i) -> new Reversal(rs.getLong(1), rs.getBigDecimal(2), rs.getInt(3)),
+                    currency.name(), forkHeight, fromHeight);
+            if (!reversals.isEmpty()) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                int[] debited = jdbcTemplate.batchUpdate("UPDATE wallets SET balance = balance - ?, "
+                        + "version = version + 1, updated_at = ? WHERE id = ? AND balance >= ?", reversals.stream()
+                        .map(r -> new Object[]{r.amount(), now, r.walletId(), r.amount()})
+                        .toList());
+                for (int i = 0; i < debited.length; i++) {
+                    if (debited[i] == 0) {
+                        // Already spent: take what is left and report the rest rather than go negative.
+                        Reversal reversal = reversals.get(i);
+                        BigDecimal balance = jdbcTemplate.queryForObject(
+                                "SELECT balance FROM wallets WHERE id = ? FOR UPDATE", BigDecimal.class,
+                                reversal.walletId());
+                        jdbcTemplate.update("UPDATE wallets SET balance = 0, version = version + 1, updated_at = ? "
+                                + "WHERE id = ?", now, reversal.walletId());
+                        overdrawn.put(reversal.walletId(), reversal.amount().subtract(balance));
+                    }
+                }
+            }
+            jdbcTemplate.query("SELECT t.status, CAST(t.created_at AS DATE), COUNT(*), SUM(t.amount) "
+                            + "FROM transactions t JOIN wallets w ON w.id = t.wallet_id WHERE w.currency = ? "
+                            + "AND t.type = 'RECEIVE' AND t.block_number > ? AND t.block_number <= ? "
+                            + "GROUP BY t.status, CAST(t.created_at AS DATE)",
+                    rs -> {
+                        rollups.transactionsRemoved(currency, Transaction.TransactionStatus.valueOf(rs.getString(1)),
+                                rs.getDate(2).toLocalDate(), rs.getLong(3), rs.getBigDecimal(4));
+                    },
+                    currency.name(), forkHeight, fromHeight);
+            jdbcTemplate.update("DELETE FROM transactions WHERE type = 'RECEIVE' AND block_number > ? "
+                            + "AND block_number <= ? AND wallet_id IN (SELECT id FROM wallets WHERE currency = ?)",
+                    forkHeight, fromHeight, currency.name());
+            jdbcTemplate.update("DELETE FROM scanned_blocks WHERE currency = ? AND height > ?",
+                    currency.name(), forkHeight);
+            confirmations.onRollback(currency, forkHeight);
+            return reversals.stream().mapToInt(Reversal::deposits).sum();
+        });
+        reorgs.get(currency).increment();
+        overdrawn.forEach((walletId, shortfall) -> {
+            shortfalls.get(currency).increment();
+            log.error("BlockScanner: {} reorg reverted deposits wallet {} had already spent — balance set to 0, "
+                    + "{} short", currency, walletId, shortfall);
+        });
+        log.warn("BlockScanner: {} reorg — rolled back blocks {}..{}, {} deposit(s) reverted",
+                currency, forkHeight + 1, fromHeight, reverted);
+        return forkHeight;
+    }
+
+    /** Last block processed for {@code currency}, or empty before the first scan. */
+    public Optional<Cursor> cursor(Wallet.CryptoCurrency currency) {
+        return jdbcTemplate.query("SELECT height, hash FROM scanned_blocks WHERE currency = ? ORDER BY height DESC LIMIT 1",
+                (rs, i) -> new Cursor(rs.getLong(1), rs.getString(2)), currency.name()).stream().findFirst();
+    }
+}
@@ -0,0 +1,165 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight front for on-demand balance lookups (the user and admin refresh endpoints).
+ *
+ * Concurrent lookups of the same address join one in-flight provider call and all get its result
+ * (or its exception); a successful result is then served from memory for {@code cache-ttl} to
+ * absorb refresh bursts. Only the caller that actually hit the node is told so
+ * ({@link Lookup#fromNode()}), which lets {@link WalletService} write the balance once per call
+ * rather than once per request.
+ *
+ * Metrics: {@code cryptowallet.balance.lookup} (counter, {@code result=called|joined|cached}) and
+ * {@code cryptowallet.balance.lookup.coalesce.ratio} (gauge — share of lookups that didn't reach
+ * the node).
+ */
+@Component
+public class CoalescingBalanceLookup {
+
+    private final CryptoProviderRegistry providers;
+    private final Duration cacheTtl;
+    private final int cacheSize;
+    private final Clock clock;
+
+    private final Map<String, CompletableFuture<BigDecimal>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Cached> recent = new ConcurrentHashMap<>();
+    private final Counter called;
+    private final Counter joined;
+    private final Counter cached;
+
+    private record Cached(BigDecimal balance, long expiresAtMillis) {
+    }
+
+    /** A balance and whether this caller's own provider call produced it. */
+    public record Lookup(BigDecimal balance, boolean fromNode) {
+    }
+
+    @Autowired
+    public CoalescingBalanceLookup(CryptoProviderRegistry providers,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.wallet.balance-lookup.cache-ttl:2s}") Duration cacheTtl,
+                                   @Value("${app.wallet.balance-lookup.cache-size:10000}") int cacheSize) {
+        this(providers, meterRegistry, cacheTtl, cacheSize, Clock.systemUTC());
+    }
+
+    CoalescingBalanceLookup(CryptoProviderRegistry providers, MeterRegistry meterRegistry,
+                            Duration cacheTtl, int cacheSize, Clock clock) {
+        if (cacheSize < 1 || cacheTtl.isNegative()) {
+            throw new IllegalArgumentException(
+                    "app.wallet.balance-lookup requires cache-size >= 1 and a non-negative cache-ttl");
+        }
+        this.providers = providers;
+        this.cacheTtl = cacheTtl;
+        this.cacheSize = cacheSize;
+        this.clock = clock;
+        Counter calledCounter = lookupCounter(meterRegistry, "called");
+        Counter joinedCounter = lookupCounter(meterRegistry, "joined");
+        Counter cachedCounter = lookupCounter(meterRegistry, "cached");
+        this.called = calledCounter;
+        this.joined = joinedCounter;
+        this.cached = cachedCounter;
+        // Reads the counters, not this instance, so nothing escapes the constructor.
+        Gauge.builder("cryptowallet.balance.lookup.coalesce.ratio",
+                        () -> coalesceRatio(calledCounter, joinedCounter, cachedCounter))
+                .description("Share of balance lookups answered without a node call")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("cryptowallet.balance.lookup")
+                .tag("result", result)
+                .description("On-demand balance lookups by how they were answered")
+                .register(registry);
+    }
+
+    double coalesceRatio() {
+        return coalesceRatio(called, joined, cached);
+    }
+
+    private static double coalesceRatio(Counter called, Counter joined, Counter cached) {
+        double saved = joined.count() + cached.count();
+        double total = saved + called.count();
+        return total == 0 ? 0 : saved / total;
+    }
+
+    public Lookup getBalance(Wallet.CryptoCurrency currency, String address) {
+        String key = currency.name() + ":" + address;
+        Cached hit = recent.get(key);
+        if (hit != null && hit.expiresAtMillis() > clock.millis()) {
+            cached.increment();
+            return new Lookup(hit.balance(), false);
+        }
+
+        CompletableFuture<BigDecimal> mine = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            joined.increment();
+            return new Lookup(await(leader), false);
+        }
+        called.increment();
+        try {
+            BigDecimal balance = fetch(currency, address);
+            remember(key, balance);
+            mine.complete(balance);
+            return new Lookup(balance, true);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** One address needs no batching: a plain {@code getBalance}, so the provider can hedge it. */
+    private BigDecimal fetch(Wallet.CryptoCurrency currency, String address) {
+        BigDecimal balance;
+        try {
+            balance = providers.get(currency).getBalance(address);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Balance lookup failed", e);
+        }
+        if (balance == null) {
+            throw new RuntimeException("Balance lookup failed");
+        }
+        return balance;
+    }
+
+    private void remember(String key, BigDecimal balance) {
+        long now = clock.millis();
+        if (recent.size() >= cacheSize) {
+            recent.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+            if (recent.size() >= cacheSize) {
+                recent.clear(); // a burst wider than the cache: start over rather than scan for the oldest
+            }
+        }
+        recent.put(key, new Cached(balance, now + cacheTtl.toMillis()));
+    }
+
+    private static BigDecimal await(CompletableFuture<BigDecimal> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Transaction.TransactionStatus;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.ChainBlock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Follows BROADCAST sends to CONFIRMED or FAILED as {@link BlockScanner} walks each chain.
+ *
+ * Sends are held in memory per currency. {@link BlockScanner} calls {@link #reconcile} once at the
+ * start of every poll, which matches the set to the currency's BROADCAST rows in
+ * {@code transactions} — one indexed read per poll, however many blocks it then scans — so sends
+ * broadcast or settled on other nodes are followed from the next poll; the {@link Broadcast} event
+ * {@link TransactionOutboxDispatcher} publishes adds local sends in between. On every scanned block,
+ * inside the scanner's transaction for that block, a send whose hash is in the block is marked
+ * included at that height, and every included send's confirmations are recomputed as
+ * {@code height - included + 1} — no per-transaction node call or query. A send reaching
+ * {@code required} confirmations becomes CONFIRMED; one still not in any block {@code drop-after}
+ * blocks after tracking began (restarted on reboot) is taken as dropped and becomes FAILED, its
+ * amount and fee refunded. Transitions are checked by {@link TransactionStateMachine}. All of a
+ * block's changes go out as one JDBC batch guarded by {@code status = 'BROADCAST'}, plus one
+ * balance batch when something was dropped; the in-memory state follows after commit. When
+ * scanners on several nodes process the same block, the unique {@code (currency, height)} on
+ * {@code scanned_blocks} lets only one of their transactions commit, so each send settles once.
+ *
+ * A rolled-back block un-includes the sends in it (confirmations back to 0). CONFIRMED is
+ * terminal, so {@code required} should exceed any reorg the chain is expected to have. Metrics,
+ * tagged by currency: {@code cryptowallet.confirmations.tracked} (gauge) and
+ * {@code cryptowallet.confirmations.settled} (counter, {@code result=confirmed|failed}).
+ */
+@Service
+@Slf4j
+public class ConfirmationTracker {
+
+    private static final String UPDATE_SQL = "UPDATE transactions SET status = ?, block_number = ?, confirmations = ? "
+            + "WHERE id = ? AND status = 'BROADCAST'";
+
+    /** Published by {@link TransactionOutboxDispatcher} when a send is broadcast; tracked after commit. */
+    public record Broadcast(Long transactionId, Long walletId, Wallet.CryptoCurrency currency, String txHash,
+                            BigDecimal amount, BigDecimal fee, LocalDateTime createdAt) {
+    }
+
+    /**
+     * One send being followed. {@code includedAt} is null until it is seen in a block; {@code since}
+     * is the height tracking began, null until the first block after that. {@code amount} and
+     * {@code createdAt} place it in {@link StatsRollups}.
+     */
+    private record Tracked(Long transactionId, Long walletId, String txHash, BigDecimal amount, BigDecimal refund,
+                           LocalDateTime createdAt, Long includedAt, Long since, int confirmations) {
+
+        Tracked with(Long includedAt, Long since, int confirmations) {
+            return new Tracked(transactionId, walletId, txHash, amount, refund, createdAt, includedAt, since,
+                    confirmations);
+        }
+    }
+
+    /** A tracked send's state after a block, and the status it moves to. */
+    private record Change(Tracked next, TransactionStatus status) {
+    }
+
+    /** Per-currency state; guarded by its own monitor. */
+    private static final class Chain {
+        final int required;
+        final int dropAfter;
+        final Map<String, Tracked> byHash = new HashMap<>();
+        /** Our outgoing hashes in recent blocks: a send recorded after its block was scanned still finds it. */
+        final Map<String, Long> recentOutgoing = new HashMap<>();
+        long height;
+
+        Chain(int required, int dropAfter) {
+            this.required = required;
+            this.dropAfter = dropAfter;
+        }
+    }
+
+    private final WatchedAddresses watched;
+    private final TransactionStateMachine stateMachine;
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsRollups rollups;
+    private final Map<Wallet.CryptoCurrency, Chain> chains = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> confirmed = new EnumMap<>(Wallet.CryptoCurrency.class);
+    private final Map<Wallet.CryptoCurrency, Counter> failed = new EnumMap<>(Wallet.CryptoCurrency.class);
+
+    public ConfirmationTracker(WatchedAddresses watched,
+                               TransactionStateMachine stateMachine,
+                               JdbcTemplate jdbcTemplate,
+                               StatsRollups rollups,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.confirmations.bitcoin.required:6}") int bitcoinRequired,
+                               @Value("${app.confirmations.bitcoin.drop-after:1008}") int bitcoinDropAfter,
+                               @Value("${app.confirmations.tron.required:19}") int tronRequired,
+                               @Value("${app.confirmations.tron.drop-after:28800}") int tronDropAfter) {
+        if (bitcoinRequired < 1 || tronRequired < 1 || bitcoinDropAfter < 1 || tronDropAfter < 1) {
+            throw new IllegalArgumentException("app.confirmations requires required and drop-after >= 1");
+        }
+        this.watched = watched;
+        this.stateMachine = stateMachine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollups = rollups;
+        chains.put(Wallet.CryptoCurrency.BITCOIN, new Chain(bitcoinRequired, bitcoinDropAfter));
+        chains.put(Wallet.CryptoCurrency.USDT_TRC20, new Chain(tronRequired, tronDropAfter));
+
+        for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+            Chain chain = chains.get(currency);
+            Gauge.builder("cryptowallet.confirmations.tracked", chain, c -> {
+                        synchronized (c) {
+                            return c.byHash.size();
+                        }
+                    })
+                    .tag("currency", currency.name())
+                    .description("BROADCAST sends awaiting confirmation")
+                    .register(meterRegistry);
+            confirmed.put(currency, settledCounter(meterRegistry, currency, "confirmed"));
+            failed.put(currency, settledCounter(meterRegistry, currency, "failed"));
+        }
+    }
+
+    private static Counter settledCounter(MeterRegistry registry, Wallet.CryptoCurrency currency, String result) {
+        return Counter.builder("cryptowallet.confirmations.settled")
+                .tag("currency", currency.name())
+                .tag("result", result)
+                .description("Broadcast sends settled by the confirmation tracker")
+                .register(registry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBroadcast(Broadcast event) {
+        Chain chain = chains.get(event.currency());
+        synchronized (chain) {
+            chain.byHash.putIfAbsent(event.txHash(), new Tracked(event.transactionId(), event.walletId(),
+                    event.txHash(), event.amount(), event.amount().add(event.fee()), event.createdAt(),
+                    chain.recentOutgoing.get(event.txHash()), chain.height == 0 ? null : chain.height, 0));
+        }
+    }
+
+    /** BROADCAST sends tracked for {@code currency}. */
+    public int size(Wallet.CryptoCurrency currency) {
+        Chain chain = chains.get(currency);
+        synchronized (chain) {
+            return chain.byHash.size();
+        }
+    }
+
+    /**
+     * Advance {@code currency}'s sends to {@code block}. Must run inside the transaction that
+     * records the block; memory is updated once it commits.
+     *
+     * @return sends settled (CONFIRMED or FAILED)
+     */
+    public int onBlock(Wallet.CryptoCurrency currency, ChainBlock block) {
+        Chain chain = chains.get(currency);
+        long height = block.height();
+        Map<String, Long> outgoing = new HashMap<>();
+        List<Change> changes = new ArrayList<>();
+        synchronized (chain) {
+            for (ChainBlock.Transfer transfer : block.transfers()) {
+                if (chain.byHash.containsKey(transfer.txHash())
+                        || watched.walletId(currency, transfer.fromAddress()) != null) {
+                    outgoing.put(transfer.txHash(), height);
+                }
+            }
+            for (Tracked tracked : chain.byHash.values()) {
+                Long includedAt = tracked.includedAt() != null ? tracked.includedAt() : outgoing.get(tracked.txHash());
+                Long since = tracked.since() != null ? tracked.since() : Long.valueOf(height);
+                int confirmations = includedAt == null ? 0 : (int) (height - includedAt + 1);
+                TransactionStatus status = TransactionStatus.BROADCAST;
+                if (confirmations >= chain.required) {
+                    status = TransactionStatus.CONFIRMED;
+                } else if (includedAt == null && height - since >= chain.dropAfter) {
+                    status = TransactionStatus.FAILED;
+                }
+                Tracked next = tracked.with(includedAt, since, confirmations);
+                if (status != TransactionStatus.BROADCAST || !next.equals(tracked)) {
+                    changes.add(new Change(next, status));
+                }
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            if (change.status() != TransactionStatus.BROADCAST) {
+                stateMachine.checkTransition(TransactionStatus.BROADCAST, change.status());
+            }
+            Tracked next = change.next();
+            rows.add(new Object[]{change.status().name(), next.includedAt(), next.confirmations(), next.transactionId()});
+        }
+        int[] updated = rows.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+
+        // A row another writer already moved out of BROADCAST is just dropped from memory.
+        List<Change> settled = new ArrayList<>();
+        List<Change> gone = new ArrayList<>();
+        Map<Long, BigDecimal> refunds = new TreeMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            if (updated[i] == 0) {
+                gone.add(change);
+            } else if (change.status() != TransactionStatus.BROADCAST) {
+                settled.add(change);
+                rollups.transactionMoved(currency, change.next().createdAt(), TransactionStatus.BROADCAST,
+                        change.status(), change.next().amount());
+                if (change.status() == TransactionStatus.FAILED) {
+                    refunds.merge(change.next().walletId(), change.next().refund(), BigDecimal::add);
+                }
+            }
+        }
+        if (!refunds.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate("UPDATE wallets SET balance = balance + ?, version = version + 1, "
+                    + "updated_at = ? WHERE id = ?", refunds.entrySet().stream()
+                    .map(e -> new Object[]{e.getValue(), now, e.getKey()})
+                    .toList());
+        }
+
+        afterCommit(() -> {
+            synchronized (chain) {
+                changes.forEach(change -> chain.byHash.replace(change.next().txHash(), change.next()));
+                settled.forEach(change -> chain.byHash.remove(change.next().txHash()));
+                gone.forEach(change -> chain.byHash.remove(change.next().txHash()));
+                chain.recentOutgoing.putAll(outgoing);
+                chain.recentOutgoing.values().removeIf(h -> h <= height - chain.dropAfter);
+                chain.height = height;
+            }
+            for (Change change : settled) {
+                if (change.status() == TransactionStatus.CONFIRMED) {
+                    confirmed.get(currency).increment();
+                } else {
+                    failed.get(currency).increment();
+                    log.warn("ConfirmationTracker: {} send {} not mined within {} blocks — FAILED, {} refunded",
+                            currency, change.next().txHash(), chain.dropAfter, change.next().refund());
+                }
+            }
+        });
+        return settled.size();
+    }
+
+    /**
+     * Un-include sends mined above {@code forkHeight}. Must run inside the scanner's rollback
+     * transaction; memory is updated once it commits.
+     */
+    public void onRollback(Wallet.CryptoCurrency currency, long forkHeight) {
+        Chain chain = chains.get(currency);
+        List<Tracked> reset = new ArrayList<>();
+        synchronized (chain) {
+            for (Tracked tracked : chain.byHash.values()) {
+                if (tracked.includedAt() != null && tracked.includedAt() > forkHeight) {
+                    reset.add(tracked.with(null, tracked.since(), 0));
+                }
+            }
+        }
+        if (!reset.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, reset.stream()
+                    .map(t -> new Object[]{TransactionStatus.BROADCAST.name(), null, 0, t.transactionId()})
+                    .toList());
+        }
+        afterCommit(() -> {
+            synchronized (chain) {
+                reset.forEach(t -> chain.byHash.replace(t.txHash(), t));
+                chain.recentOutgoing.values().removeIf(h -> h > forkHeight);
+                chain.height = Math.min(chain.height, forkHeight);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Match {@code currency}'s tracked sends to its BROADCAST rows: add the ones this node hasn't
+     * seen (broadcast elsewhere, or before a restart) and drop the ones no longer BROADCAST
+     * (settled elsewhere). Tracked sends keep their in-memory state. Called by {@link BlockScanner}
+     * before each poll's blocks, outside their transactions.
+     */
+    public void reconcile(Wallet.CryptoCurrency currency) {
+        Map<String, Tracked> broadcast = new HashMap<>();
+        jdbcTemplate.query("SELECT t.id, t.wallet_id, t.tx_hash, t.amount, t.fee, t.block_number, t.confirmations, "
+                        + "t.created_at FROM transactions t JOIN wallets w ON w.id = t.wallet_id "
+                        + "WHERE t.status = 'BROADCAST' AND w.currency = ?",
+                rs -> {
+                    BigDecimal fee = rs.getBigDecimal(5);
+                    long blockNumber = rs.getLong(6);
+                    Long includedAt = rs.wasNull() ? null : blockNumber;
+                    broadcast.put(rs.getString(3), new Tracked(rs.getLong(1), rs.getLong(2), rs.getString(3),
+                            rs.getBigDecimal(4), rs.getBigDecimal(4).add(fee == null ? BigDecimal.ZERO : fee),
+                            rs.getTimestamp(8).toLocalDateTime(), includedAt, null, rs.getInt(7)));
+                },
+                currency.name());
+        Chain chain = chains.get(currency);
+        synchronized (chain) {
+            chain.byHash.keySet().retainAll(broadcast.keySet());
+            broadcast.forEach(chain.byHash::putIfAbsent);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.security.CryptoService;
+import com.cryptowallet.security.DekCache;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.web3j.crypto.MnemonicUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * HD (BIP32/BIP44) key material for wallets that store only a derivation index.
+ *
+ * Each user gets one 256-bit BIP39 entropy ({@code users.hd_seed}), encrypted under their
+ * per-user DEK via {@link DekCache} and bound to the user id through AAD. Providers derive
+ * addresses and signing keys from it on their own coin-type path, so one seed serves every
+ * currency. The decrypted entropy is zeroed as soon as it has been stretched.
+ *
+ * The BIP39 stretch (PBKDF2, 2048 rounds of HMAC-SHA512) dominates a derivation, so the stretched
+ * seed is kept per user for {@code seed-cache-ttl} after it is computed (at most
+ * {@code seed-cache-size} users): a bulk provision across currencies, or an outbox batch signing
+ * for one user, stretches once. Expired entries are dropped and zeroed on the next lookup; a
+ * changed {@code users.hd_seed} misses the cache.
+ */
+@Service
+@Slf4j
+@Transactional
+public class HdKeyService {
+
+    private static final int ENTROPY_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final CryptoService cryptoService;
+    private final DekCache dekCache;
+    private final CryptoProviderRegistry providers;
+    private final UserRepository userRepository;
+    private final Duration seedCacheTtl;
+    private final int seedCacheSize;
+    private final Clock clock;
+
+    /** Insertion-ordered, so expired entries are at the head. Guarded by {@code this}. */
+    private final LinkedHashMap<Long, CachedSeed> seeds = new LinkedHashMap<>();
+
+    private record CachedSeed(String sealed, byte[] seed, long expiresAtMillis) {
+    }
+
+    @Autowired
+    public HdKeyService(CryptoService cryptoService,
+                        DekCache dekCache,
+                        CryptoProviderRegistry providers,
+                        UserRepository userRepository,
+                        @Value("${app.wallet.hd.seed-cache-ttl:60s}") Duration seedCacheTtl,
+                        @Value("${app.wallet.hd.seed-cache-size:1000}") int seedCacheSize) {
+        this(cryptoService, dekCache, providers, userRepository, seedCacheTtl, seedCacheSize, Clock.systemUTC());
+    }
+
+    HdKeyService(CryptoService cryptoService, DekCache dekCache, CryptoProviderRegistry providers,
+                 UserRepository userRepository, Duration seedCacheTtl, int seedCacheSize, Clock clock) {
+        if (seedCacheSize < 0) {
+            throw new IllegalArgumentException("app.wallet.hd.seed-cache-size must be >= 0");
+        }
+        this.cryptoService = cryptoService;
+        this.dekCache = dekCache;
+        this.providers = providers;
+        this.userRepository = userRepository;
+        this.seedCacheTtl = seedCacheTtl;
+        this.seedCacheSize = seedCacheSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Derive {@code count} consecutive addresses from {@code fromIndex}, creating the user's
+     * seed on first use. The caller must hold the user's row lock
+     * ({@link UserRepository#findWithLockById}) so concurrent calls don't allocate twice.
+     */
+    public List<String> deriveAddresses(User user, Wallet.CryptoCurrency currency, int fromIndex, int count) {
+        ensureSeed(user);
+        return withSeed(user, seed -> providers.get(currency).deriveAddresses(seed, fromIndex, count));
+    }
+
+    /**
+     * Run {@code action} with the wallet's signing key: re-derived from the owner's seed for HD
+     * wallets, unsealed via {@link com.cryptowallet.security.SealedPrivateKey#reveal} otherwise.
+     * Needs no database access (HD wallets must have their user loaded), so it joins a caller's
+     * transaction but never opens one — the outbox dispatcher broadcasts from inside
+     * {@code action} without holding a connection.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public <T> T withSigningKey(Wallet wallet, Function<String, T> action) {
+        if (wallet.getDerivationIndex() == null) {
+            return wallet.getPrivateKey().reveal(action);
+        }
+        String privateKey = withSeed(wallet.getUser(), seed ->
+                providers.get(wallet.getCurrency()).derivePrivateKey(seed, wallet.getDerivationIndex()));
+        return action.apply(privateKey);
+    }
+
+    private void ensureSeed(User user) {
+        if (user.getHdSeed() != null) {
+            return;
+        }
+        if (user.getWrappedDek() == null) {
+            // Accounts created before per-user DEKs existed.
+            byte[] dek = cryptoService.generateDek();
+            user.setWrappedDek(cryptoService.wrapDek(dek));
+            Arrays.fill(dek, (byte) 0);
+        }
+        byte[] entropy = new byte[ENTROPY_BYTES];
+        secureRandom.nextBytes(entropy);
+        try {
+            String sealed = dekCache.withDek(user.getId(), user.getWrappedDek(),
+                    dek -> cryptoService.encryptBytesWithDek(dek, entropy, seedAad(user)));
+            user.setHdSeed(sealed);
+        } finally {
+            Arrays.fill(entropy, (byte) 0);
+        }
+        userRepository.save(user);
+        log.info("Created HD seed for user {}", user.getId());
+    }
+
+    /** Run {@code action} with the user's BIP39 seed (the stretched entropy); the copy it gets is zeroed afterwards. */
+    private <T> T withSeed(User user, Function<byte[], T> action) {
+        if (user.getHdSeed() == null) {
+            throw new IllegalStateException("User " + user.getId() + " has no HD seed");
+        }
+        byte[] seed = cachedSeed(user);
+        if (seed == null) {
+            seed = stretch(user);
+        }
+        try {
+            return action.apply(seed);
+        } finally {
+            Arrays.fill(seed, (byte) 0);
+        }
+    }
+
+    /** A copy of the user's cached seed, or null. Copied under the lock so eviction can't zero it mid-read. */
+    private synchronized byte[] cachedSeed(User user) {
+        evictExpired();
+        CachedSeed cached = seeds.get(user.getId());
+        return cached != null && cached.sealed().equals(user.getHdSeed()) ? cached.seed().clone() : null;
+    }
+
+    private byte[] stretch(User user) {
+        byte[] entropy = dekCache.withDek(user.getId(), user.getWrappedDek(),
+                dek -> cryptoService.decryptBytesWithDek(dek, user.getHdSeed(), seedAad(user)));
+        byte[] seed;
+        try {
+            seed = MnemonicUtils.generateSeed(MnemonicUtils.generateMnemonic(entropy), "");
+        } finally {
+            Arrays.fill(entropy, (byte) 0);
+        }
+        if (seedCacheSize > 0) {
+            cache(user, seed.clone());
+        }
+        return seed;
+    }
+
+    private synchronized void cache(User user, byte[] seed) {
+        if (seeds.size() >= seedCacheSize && !seeds.containsKey(user.getId())) {
+            seeds.values().forEach(entry -> Arrays.fill(entry.seed(), (byte) 0));
+            seeds.clear();
+        }
+        CachedSeed previous = seeds.remove(user.getId());
+        if (previous != null) {
+            Arrays.fill(previous.seed(), (byte) 0);
+        }
+        seeds.put(user.getId(), new CachedSeed(user.getHdSeed(), seed, clock.millis() + seedCacheTtl.toMillis()));
+    }
+
+    private void evictExpired() {
+        long now = clock.millis();
+        Iterator<CachedSeed> it = seeds.values().iterator();
+        while (it.hasNext()) {
+            CachedSeed entry = it.next();
+            if (entry.expiresAtMillis() > now) {
+                break;
+            }
+            Arrays.fill(entry.seed(), (byte) 0);
+            it.remove();
+        }
+    }
+
+    private static byte[] seedAad(User user) {
+        return ("user:" + user.getId() + ":hd-seed").getBytes(StandardCharsets.UTF_8);
+    }
+}
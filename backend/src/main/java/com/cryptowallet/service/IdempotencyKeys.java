@@ -0,0 +1,234 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedupe store for {@code Idempotency-Key} on sends: the {@code idempotency_keys} table plus a
+ * bounded in-memory cache of recently committed keys.
+ *
+ * A retry that lands on the node that served the original is answered from the cache without a
+ * query. Anything else falls through to the send itself, which inserts the key row in its own
+ * transaction: a primary-key conflict there means the key is already taken (including by a
+ * concurrent retry), and {@link #find} resolves it from the table. Keys expire after {@code ttl}; a background sweeper deletes them in batches of
+ * {@code purge-batch-size}, one statement per batch.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeys {
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final int cacheSize;
+    private final Duration purgeInterval;
+    private final int purgeBatchSize;
+    private final Clock clock;
+
+    /** Access-ordered LRU; guarded by {@code this}. */
+    private final LinkedHashMap<String, Entry> recent;
+
+    private ScheduledExecutorService sweeper;
+
+    private record Entry(String requestHash, Long transactionId, long expiresAtMillis) {
+    }
+
+    @Autowired
+    public IdempotencyKeys(JdbcTemplate jdbcTemplate,
+                           @Value("${app.transactions.idempotency.ttl:24h}") Duration ttl,
+                           @Value("${app.transactions.idempotency.cache-size:100000}") int cacheSize,
+                           @Value("${app.transactions.idempotency.purge-interval:1m}") Duration purgeInterval,
+                           @Value("${app.transactions.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this(jdbcTemplate, ttl, cacheSize, purgeInterval, purgeBatchSize, Clock.systemDefaultZone());
+    }
+
+    IdempotencyKeys(JdbcTemplate jdbcTemplate, Duration ttl, int cacheSize, Duration purgeInterval,
+                    int purgeBatchSize, Clock clock) {
+        if (cacheSize < 1 || purgeBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    "app.transactions.idempotency requires cache-size and purge-batch-size >= 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.cacheSize = cacheSize;
+        this.purgeInterval = purgeInterval;
+        this.purgeBatchSize = purgeBatchSize;
+        this.clock = clock;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyKeys.this.cacheSize;
+            }
+        };
+    }
+
+    @PostConstruct
+    void startSweeper() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-key-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMillis = purgeInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                purgeExpired();
+            } catch (RuntimeException e) {
+                log.warn("IdempotencyKeys: purge failed, retrying in {}: {}", purgeInterval, e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    /** Reject keys the column can't hold; blank means "no key". */
+    public static void validate(String key) {
+        if (key != null && key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    /** SHA-256 over the fields that define a send, so a key can't be reused for a different one. */
+    public static String fingerprint(SendTransactionDto send) {
+        String canonical = send.getWalletId() + "\n" + send.getToAddress() + "\n"
+                + send.getAmount().stripTrailingZeros().toPlainString() + "\n"
+                + (send.getMemo() == null ? "" : send.getMemo());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Cache-only lookup for the hot path: never queries. Throws
+     * {@link IdempotencyKeyMismatchException} if the key belongs to a different request.
+     */
+    public Optional<Long> findRecent(String key, String requestHash) {
+        Entry entry;
+        synchronized (this) {
+            entry = recent.get(key);
+            if (entry != null && entry.expiresAtMillis() <= clock.millis()) {
+                recent.remove(key);
+                entry = null;
+            }
+        }
+        return entry == null ? Optional.empty() : Optional.of(verified(key, requestHash, entry));
+    }
+
+    /**
+     * Cache, then the table. A key that has expired but not yet been purged still counts — it
+     * can't be re-recorded until the sweeper removes it.
+     */
+    public Optional<Long> find(String key, String requestHash) {
+        Optional<Long> cached = findRecent(key, requestHash);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        List<Entry> stored = jdbcTemplate.query(
+                "SELECT request_hash, transaction_id, expires_at FROM idempotency_keys WHERE idem_key = ?",
+                (rs, i) -> new Entry(rs.getString(1), rs.getLong(2), rs.getTimestamp(3).getTime()),
+                key);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        remember(key, stored.get(0));
+        return Optional.of(verified(key, requestHash, stored.get(0)));
+    }
+
+    private static Long verified(String key, String requestHash, Entry entry) {
+        if (!entry.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyMismatchException(
+                    "Idempotency-Key " + key + " was already used for a different request");
+        }
+        return entry.transactionId();
+    }
+
+    /**
+     * Record {@code key} inside the caller's transaction. Throws
+     * {@link org.springframework.dao.DuplicateKeyException} if the key is already taken; the
+     * cache is only updated once the transaction commits.
+     */
+    public void record(String key, String requestHash, Long transactionId) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime expiresAt = now.plus(ttl);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (idem_key, request_hash, transaction_id, created_at, expires_at) "
+                        + "VALUES (?, ?, ?, ?, ?)",
+                key, requestHash, transactionId, Timestamp.valueOf(now), Timestamp.valueOf(expiresAt));
+
+        Entry entry = new Entry(requestHash, transactionId, Timestamp.valueOf(expiresAt).getTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(key, entry);
+                }
+            });
+        } else {
+            remember(key, entry);
+        }
+    }
+
+    private synchronized void remember(String key, Entry entry) {
+        recent.put(key, entry);
+    }
+
+    /**
+     * Delete expired keys, {@code purge-batch-size} rows per statement, until none are left.
+     * Runs on the sweeper; callable directly from tests.
+     *
+     * @return rows deleted
+     */
+    int purgeExpired() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idem_key IN ("
+                    + "SELECT idem_key FROM idempotency_keys WHERE expires_at < ? ORDER BY expires_at LIMIT ?)",
+                    now, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        synchronized (this) {
+            recent.values().removeIf(entry -> entry.expiresAtMillis() <= clock.millis());
+        }
+        if (total > 0) {
+            log.debug("IdempotencyKeys: purged {} expired key(s)", total);
+        }
+        return total;
+    }
+
+    /** Drop every cached key (the table is untouched), e.g. to simulate another node. */
+    synchronized void clearRecent() {
+        recent.clear();
+    }
+}
@@ -0,0 +1,209 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.SqlDialect;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Credits a block's worth of incoming transfers in a fixed number of round trips, whatever the
+ * block size: one {@code IN} query (per {@code in-chunk-size} keys) to drop tx hashes already
+ * recorded, one to resolve destination addresses to wallets, one JDBC batch inserting the RECEIVE
+ * rows, and one batch adding each wallet's summed credit to its balance (plus the
+ * {@link StatsRollups} counters, per currency, at commit).
+ *
+ * Replays are no-ops. Besides the up-front dedupe, the insert itself skips a tx hash that is
+ * already there ({@code ON CONFLICT DO NOTHING} on Postgres, {@code NOT EXISTS} on H2), and only
+ * rows that were actually inserted are credited — so a concurrent replay of the same block credits
+ * each transfer once (on H2 the loser may instead hit the unique constraint and roll back;
+ * retrying it is a no-op). Balance updates go in ascending wallet id order, so two batches touching the
+ * same wallets can't deadlock each other.
+ *
+ * Transfers to addresses that aren't ours are ignored. Metrics:
+ * {@code cryptowallet.ingest.transfers} (counter, {@code result=credited|duplicate|unmatched}) and
+ * {@code cryptowallet.ingest.batch} (timer).
+ */
+@Service
+@Slf4j
+public class IncomingTransferIngestor {
+
+    /** One on-chain transfer to (possibly) one of our addresses. */
+    public record IncomingTransfer(String txHash, String fromAddress, String toAddress, BigDecimal amount,
+                                   Long blockNumber) {
+    }
+
+    /** What a batch did: transfers credited, skipped as already recorded, and not addressed to a wallet. */
+    public record IngestResult(int credited, int duplicates, int unmatched) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+    private final StatsRollups rollups;
+    private final int inChunkSize;
+    private final Counter credited;
+    private final Counter duplicates;
+    private final Counter unmatched;
+    private final Timer batchTimer;
+
+    public IncomingTransferIngestor(JdbcTemplate jdbcTemplate,
+                                    SqlDialect dialect,
+                                    StatsRollups rollups,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.transactions.ingest.in-chunk-size:1000}") int inChunkSize) {
+        if (inChunkSize < 1) {
+            throw new IllegalArgumentException("app.transactions.ingest requires in-chunk-size >= 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.rollups = rollups;
+        this.inChunkSize = inChunkSize;
+        this.credited = transferCounter(meterRegistry, "credited");
+        this.duplicates = transferCounter(meterRegistry, "duplicate");
+        this.unmatched = transferCounter(meterRegistry, "unmatched");
+        this.batchTimer = Timer.builder("cryptowallet.ingest.batch")
+                .description("Time to ingest one batch of incoming transfers")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Counter transferCounter(MeterRegistry registry, String result) {
+        return Counter.builder("cryptowallet.ingest.transfers")
+                .tag("result", result)
+                .description("Incoming transfers seen by the ingestion pipeline")
+                .register(registry);
+    }
+
+    /** Record and credit {@code transfers}; safe to call again with the same (or an overlapping) batch. */
+    @Transactional
+    public IngestResult ingest(Collection<IncomingTransfer> transfers) {
+        long start = System.nanoTime();
+        Map<String, IncomingTransfer> byHash = new LinkedHashMap<>();
+        for (IncomingTransfer transfer : transfers) {
+            byHash.putIfAbsent(transfer.txHash(), transfer);
+        }
+        int duplicateCount = transfers.size() - byHash.size();
+
+        Set<String> recorded = new HashSet<>();
+        inChunks(byHash.keySet(), chunk -> recorded.addAll(jdbcTemplate.queryForList(
+                "SELECT tx_hash FROM transactions WHERE tx_hash IN (" + placeholders(chunk.size()) + ")",
+                String.class, chunk.toArray())));
+        duplicateCount += recorded.size();
+        byHash.keySet().removeAll(recorded);
+
+        Map<String, Long> walletByAddress = new HashMap<>();
+        Map<Long, Wallet.CryptoCurrency> currencyByWallet = new HashMap<>();
+        Set<String> addresses = new HashSet<>();
+        byHash.values().forEach(transfer -> addresses.add(transfer.toAddress()));
+        inChunks(addresses, chunk -> jdbcTemplate.query(
+                "SELECT id, address, currency FROM wallets WHERE address IN (" + placeholders(chunk.size()) + ")",
+                rs -> {
+                    walletByAddress.put(rs.getString(2), rs.getLong(1));
+                    currencyByWallet.put(rs.getLong(1), Wallet.CryptoCurrency.valueOf(rs.getString(3)));
+                }, chunk.toArray()));
+
+        List<IncomingTransfer> matched = new ArrayList<>();
+        for (IncomingTransfer transfer : byHash.values()) {
+            if (walletByAddress.containsKey(transfer.toAddress())) {
+                matched.add(transfer);
+            }
+        }
+        int unmatchedCount = byHash.size() - matched.size();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        boolean postgres = dialect.isPostgres();
+        List<Object[]> rows = new ArrayList<>(matched.size());
+        for (IncomingTransfer transfer : matched) {
+            List<Object> row = new ArrayList<>(List.of(transfer.txHash(), transfer.fromAddress(),
+                    transfer.toAddress(), transfer.amount(), Transaction.TransactionType.RECEIVE.name(),
+                    Transaction.TransactionStatus.CONFIRMED.name(), walletByAddress.get(transfer.toAddress())));
+            row.add(transfer.blockNumber());
+            row.add(now);
+            if (!postgres) {
+                row.add(transfer.txHash());
+            }
+            rows.add(row.toArray());
+        }
+        int[] inserted = rows.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(insertSql(postgres), rows);
+
+        // Ascending wallet id: a fixed lock order across concurrent batches.
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        Map<Wallet.CryptoCurrency, StatsRollups.Counter> perCurrency = new EnumMap<>(Wallet.CryptoCurrency.class);
+        int creditedCount = 0;
+        for (int i = 0; i < matched.size(); i++) {
+            if (inserted[i] == 0) {
+                duplicateCount++;
+                continue;
+            }
+            IncomingTransfer transfer = matched.get(i);
+            Long walletId = walletByAddress.get(transfer.toAddress());
+            deltas.merge(walletId, transfer.amount(), BigDecimal::add);
+            perCurrency.merge(currencyByWallet.get(walletId), new StatsRollups.Counter(1, transfer.amount()),
+                    StatsRollups.Counter::plus);
+            creditedCount++;
+        }
+        if (!deltas.isEmpty()) {
+            List<Object[]> updates = new ArrayList<>(deltas.size());
+            deltas.forEach((walletId, delta) -> updates.add(new Object[]{delta, now, walletId}));
+            jdbcTemplate.batchUpdate("UPDATE wallets SET balance = balance + ?, version = version + 1, updated_at = ? "
+                    + "WHERE id = ?", updates);
+        }
+        perCurrency.forEach((currency, counter) -> rollups.transactionsAdded(currency,
+                Transaction.TransactionStatus.CONFIRMED, counter.count(), counter.amount()));
+
+        credited.increment(creditedCount);
+        duplicates.increment(duplicateCount);
+        unmatched.increment(unmatchedCount);
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (creditedCount > 0) {
+            log.info("IncomingTransferIngestor: credited {} transfer(s) to {} wallet(s) ({} duplicate, {} unmatched)",
+                    creditedCount, deltas.size(), duplicateCount, unmatchedCount);
+        }
+        return new IngestResult(creditedCount, duplicateCount, unmatchedCount);
+    }
+
+    /** Insert that skips an already-recorded tx hash; H2 rows carry the hash a second time for NOT EXISTS. */
+    private static String insertSql(boolean postgres) {
+        String columns = "INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                + "wallet_id, block_number, created_at) ";
+        if (postgres) {
+            return columns + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (tx_hash) DO NOTHING";
+        }
+        return columns + "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? FROM DUAL "
+                + "WHERE NOT EXISTS (SELECT 1 FROM transactions WHERE tx_hash = ?)";
+    }
+
+    private void inChunks(Collection<String> keys, Consumer<List<String>> action) {
+        List<String> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += inChunkSize) {
+            action.accept(all.subList(from, Math.min(all.size(), from + inChunkSize)));
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
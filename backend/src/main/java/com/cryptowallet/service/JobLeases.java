@@ -0,0 +1,42 @@
+package com.cryptowallet.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Leases in {@code job_leases}, so a job scheduled on every node runs on one of them per period.
+ * A claim is a compare-and-set on {@code locked_until}, like the outbox's; the first claim of a
+ * name inserts its row, and of two nodes racing to do so the primary key lets one through.
+ */
+@Component
+public class JobLeases {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobLeases(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Take {@code name} for {@code period} unless another claim of it hasn't expired yet. Call outside a transaction. */
+    public boolean tryAcquire(String name, Duration period) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp leaseEnd = Timestamp.valueOf(LocalDateTime.now().plus(period));
+        if (jdbcTemplate.update("UPDATE job_leases SET locked_until = ? WHERE name = ? AND locked_until < ?",
+                leaseEnd, name, now) == 1) {
+            return true;
+        }
+        if (!jdbcTemplate.queryForList("SELECT name FROM job_leases WHERE name = ?", String.class, name).isEmpty()) {
+            return false;
+        }
+        try {
+            return jdbcTemplate.update("INSERT INTO job_leases (name, locked_until) VALUES (?, ?)", name, leaseEnd) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
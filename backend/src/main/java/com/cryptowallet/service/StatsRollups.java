@@ -0,0 +1,402 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.StatsRollup;
+import com.cryptowallet.entity.Transaction.TransactionStatus;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.SqlDialect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incrementally maintained counters behind the admin statistics ({@code stats_rollups}): users,
+ * wallets and transactions created per day, by currency and status, plus transaction volume.
+ *
+ * Every writer of those tables reports what it changed — an insert, a status move, a delete —
+ * and the deltas are collected per DB transaction and written just before it commits, as one
+ * batch of upserts (in key order) into one randomly picked of {@code shards} rows per counter.
+ * So the rollups commit or roll back with the change they count, a commit holds the counter rows
+ * only briefly, and concurrent commits mostly land on different shards instead of queueing on one
+ * hot row. Reads sum the shards: O(days × keys) rows, however large the base tables are.
+ *
+ * {@link #rebuild()} reconciles the rollups with the base tables without blocking writers: it reads
+ * both from one REPEATABLE READ snapshot — where every commit's base rows and its deltas are either
+ * both visible or neither — and then upserts the difference as one more delta, which commutes with
+ * whatever writers add meanwhile. It runs at startup when the table is empty and every
+ * {@code reconcile-interval}, on whichever node holds the {@code stats-rollup-reconcile} lease
+ * ({@link JobLeases}) for that period, and folds in rows written behind this class's back (manual
+ * SQL, test fixtures). After a commit (or a rebuild) a {@link Changed} event names the days whose
+ * counters moved, for caches built on top of them.
+ *
+ * Metrics: {@code cryptowallet.stats.rollup.rebuild} (timer).
+ */
+@Service
+@Slf4j
+public class StatsRollups {
+
+    /** Dimension value where a metric has no currency or status. */
+    public static final String NONE = "NONE";
+    public static final String ACTIVE = "ACTIVE";
+    public static final String INACTIVE = "INACTIVE";
+
+    private static final String COLUMNS = "metric, currency, status, bucket_day, shard, row_count, amount";
+    private static final String LEASE = "stats-rollup-reconcile";
+
+    /** One counter on one day. */
+    public record Key(StatsRollup.Metric metric, String currency, String status, LocalDate day) {
+
+        static final Comparator<Key> ORDER = Comparator.comparing(Key::metric).thenComparing(Key::currency)
+                .thenComparing(Key::status).thenComparing(Key::day);
+    }
+
+    /** A row count and amount; also a delta. */
+    public record Counter(long count, BigDecimal amount) {
+
+        public static final Counter ZERO = new Counter(0, BigDecimal.ZERO);
+
+        public Counter plus(Counter other) {
+            return new Counter(count + other.count, amount.add(other.amount));
+        }
+
+        public Counter negate() {
+            return new Counter(-count, amount.negate());
+        }
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+    }
+
+    /** A counter summed over every day, and over {@code today} alone. */
+    public record Total(StatsRollup.Metric metric, String currency, String status, Counter all, long today) {
+    }
+
+    /** Published once counters of {@code days} have changed and committed; null days means every day. */
+    public record Changed(Set<LocalDate> days) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshot;
+    private final JobLeases leases;
+    private final SqlDialect dialect;
+    private final ApplicationEventPublisher events;
+    private final int shards;
+    private final Duration reconcileInterval;
+    private final Timer rebuildTimer;
+
+    private ScheduledExecutorService reconciler;
+
+    public StatsRollups(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        JobLeases leases,
+                        SqlDialect dialect,
+                        ApplicationEventPublisher events,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.admin.stats.rollup.shards:8}") int shards,
+                        @Value("${app.admin.stats.rollup.reconcile-interval:24h}") Duration reconcileInterval) {
+        if (shards < 1 || reconcileInterval.isNegative()) {
+            throw new IllegalArgumentException(
+                    "app.admin.stats.rollup requires shards >= 1 and a non-negative reconcile-interval");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshot = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot.setReadOnly(true);
+        this.leases = leases;
+        this.dialect = dialect;
+        this.events = events;
+        this.shards = shards;
+        this.reconcileInterval = reconcileInterval;
+        this.rebuildTimer = Timer.builder("cryptowallet.stats.rollup.rebuild")
+                .description("Time to rebuild the statistics rollups from the base tables")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuild now if the table is empty (first start), then every {@code reconcile-interval} (0 = never),
+     * each time only if this node wins the lease for half an interval — so the nodes don't run it
+     * together, and one that dies mid-run is covered by the next period's winner.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        boolean empty = jdbcTemplate.queryForList("SELECT id FROM stats_rollups LIMIT 1", Long.class).isEmpty();
+        if (!empty && reconcileInterval.isZero()) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-rollup-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        Duration leasePeriod = reconcileInterval.isZero() ? Duration.ofMinutes(10) : reconcileInterval.dividedBy(2);
+        Runnable reconcile = () -> {
+            try {
+                if (leases.tryAcquire(LEASE, leasePeriod)) {
+                    rebuild();
+                }
+            } catch (RuntimeException e) {
+                log.warn("StatsRollups: rebuild failed: {}", e.getMessage());
+            }
+        };
+        if (reconcileInterval.isZero()) {
+            reconciler.execute(reconcile);
+        } else {
+            long periodMillis = reconcileInterval.toMillis();
+            reconciler.scheduleWithFixedDelay(reconcile, empty ? 0 : periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    public void userAdded(boolean active) {
+        userAdded(LocalDate.now(), active);
+    }
+
+    /** A user created on {@code createdOn} rather than today — one copied in by a migration. */
+    public void userAdded(LocalDate createdOn, boolean active) {
+        add(StatsRollup.Metric.USERS, NONE, userStatus(active), createdOn, 1, BigDecimal.ZERO);
+    }
+
+    public void userStatusChanged(LocalDateTime createdAt, boolean wasActive, boolean active) {
+        if (wasActive != active) {
+            LocalDate day = createdAt.toLocalDate();
+            add(StatsRollup.Metric.USERS, NONE, userStatus(wasActive), day, -1, BigDecimal.ZERO);
+            add(StatsRollup.Metric.USERS, NONE, userStatus(active), day, 1, BigDecimal.ZERO);
+        }
+    }
+
+    /** Before deleting user {@code userId}: take back the user and the wallets and transactions it cascades to. */
+    public void userRemoved(Long userId) {
+        jdbcTemplate.query("SELECT active, CAST(created_at AS DATE) FROM users WHERE id = ?",
+                rs -> {
+                    add(StatsRollup.Metric.USERS, NONE, userStatus(rs.getBoolean(1)), rs.getDate(2).toLocalDate(),
+                            -1, BigDecimal.ZERO);
+                }, userId);
+        jdbcTemplate.query("SELECT currency, CAST(created_at AS DATE), COUNT(*) FROM wallets WHERE user_id = ? "
+                        + "GROUP BY currency, CAST(created_at AS DATE)",
+                rs -> {
+                    add(StatsRollup.Metric.WALLETS, rs.getString(1), NONE, rs.getDate(2).toLocalDate(),
+                            -rs.getLong(3), BigDecimal.ZERO);
+                }, userId);
+        jdbcTemplate.query("SELECT w.currency, t.status, CAST(t.created_at AS DATE), COUNT(*), SUM(t.amount) "
+                        + "FROM transactions t JOIN wallets w ON w.id = t.wallet_id WHERE w.user_id = ? "
+                        + "GROUP BY w.currency, t.status, CAST(t.created_at AS DATE)",
+                rs -> {
+                    add(StatsRollup.Metric.TRANSACTIONS, rs.getString(1), rs.getString(2), rs.getDate(3).toLocalDate(),
+                            -rs.getLong(4), rs.getBigDecimal(5).negate());
+                }, userId);
+    }
+
+    public void walletsAdded(Collection<Wallet> wallets) {
+        LocalDate today = LocalDate.now();
+        wallets.forEach(wallet -> add(StatsRollup.Metric.WALLETS, wallet.getCurrency().name(), NONE, today, 1,
+                BigDecimal.ZERO));
+    }
+
+    public void transactionAdded(Wallet.CryptoCurrency currency, TransactionStatus status, BigDecimal amount) {
+        transactionsAdded(currency, status, 1, amount);
+    }
+
+    /** {@code count} transactions created today, {@code amount} between them. */
+    public void transactionsAdded(Wallet.CryptoCurrency currency, TransactionStatus status, long count,
+                                  BigDecimal amount) {
+        add(StatsRollup.Metric.TRANSACTIONS, currency.name(), status.name(), LocalDate.now(), count, amount);
+    }
+
+    public void transactionMoved(Wallet.CryptoCurrency currency, LocalDateTime createdAt, TransactionStatus from,
+                                 TransactionStatus to, BigDecimal amount) {
+        if (from != to) {
+            LocalDate day = createdAt.toLocalDate();
+            add(StatsRollup.Metric.TRANSACTIONS, currency.name(), from.name(), day, -1, amount.negate());
+            add(StatsRollup.Metric.TRANSACTIONS, currency.name(), to.name(), day, 1, amount);
+        }
+    }
+
+    public void transactionsRemoved(Wallet.CryptoCurrency currency, TransactionStatus status, LocalDate createdOn,
+                                    long count, BigDecimal amount) {
+        add(StatsRollup.Metric.TRANSACTIONS, currency.name(), status.name(), createdOn, -count, amount.negate());
+    }
+
+    private static String userStatus(boolean active) {
+        return active ? ACTIVE : INACTIVE;
+    }
+
+    /** Every counter, shards summed, over all days and over {@code today}. */
+    public List<Total> totals(LocalDate today) {
+        return jdbcTemplate.query("SELECT metric, currency, status, SUM(row_count), SUM(amount), "
+                        + "SUM(CASE WHEN bucket_day = ? THEN row_count ELSE 0 END) FROM stats_rollups "
+                        + "GROUP BY metric, currency, status",
+                (rs, i) -> new Total(StatsRollup.Metric.valueOf(rs.getString(1)), rs.getString(2), rs.getString(3),
+                        new Counter(rs.getLong(4), rs.getBigDecimal(5)), rs.getLong(6)),
+                Date.valueOf(today));
+    }
+
+    /** Every counter on each day in {@code [from, to)}, shards summed. */
+    public Map<Key, Counter> perDay(LocalDate from, LocalDate to) {
+        Map<Key, Counter> counters = new TreeMap<>(Key.ORDER);
+        jdbcTemplate.query("SELECT metric, currency, status, bucket_day, SUM(row_count), SUM(amount) FROM stats_rollups "
+                        + "WHERE bucket_day >= ? AND bucket_day < ? GROUP BY metric, currency, status, bucket_day",
+                rs -> {
+                    counters.put(new Key(StatsRollup.Metric.valueOf(rs.getString(1)), rs.getString(2), rs.getString(3),
+                            rs.getDate(4).toLocalDate()), new Counter(rs.getLong(5), rs.getBigDecimal(6)));
+                }, Date.valueOf(from), Date.valueOf(to));
+        return counters;
+    }
+
+    /**
+     * Bring every rollup in line with {@code users}, {@code wallets} and {@code transactions}: diff
+     * the two in one snapshot, then upsert the difference like any other delta. Writers are never
+     * blocked; running it on two nodes at once would apply the difference twice (see {@link #start()}).
+     */
+    public synchronized void rebuild() {
+        rebuildTimer.record(() -> {
+            Map<Key, Counter> correction = snapshot.execute(status -> correction());
+            if (!correction.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> write(correction));
+                Set<LocalDate> days = new HashSet<>();
+                correction.keySet().forEach(key -> days.add(key.day()));
+                events.publishEvent(new Changed(days));
+            }
+            jdbcTemplate.update("DELETE FROM stats_rollups WHERE row_count = 0 AND amount = 0");
+            log.info("StatsRollups: reconciled with the base tables, {} counters corrected", correction.size());
+        });
+    }
+
+    /** What the base tables count minus what the rollups hold, per counter; zero differences left out. */
+    private Map<Key, Counter> correction() {
+        Map<Key, Counter> correction = new TreeMap<>(Key.ORDER);
+        String userStatus = "CASE WHEN active = TRUE THEN '" + ACTIVE + "' ELSE '" + INACTIVE + "' END";
+        collect(correction, false, "SELECT 'USERS', '" + NONE + "', " + userStatus + ", CAST(created_at AS DATE), "
+                + "COUNT(*), 0 FROM users GROUP BY " + userStatus + ", CAST(created_at AS DATE)");
+        collect(correction, false, "SELECT 'WALLETS', currency, '" + NONE + "', CAST(created_at AS DATE), COUNT(*), 0 "
+                + "FROM wallets GROUP BY currency, CAST(created_at AS DATE)");
+        collect(correction, false, "SELECT 'TRANSACTIONS', w.currency, t.status, CAST(t.created_at AS DATE), COUNT(*), "
+                + "SUM(t.amount) FROM transactions t JOIN wallets w ON w.id = t.wallet_id "
+                + "GROUP BY w.currency, t.status, CAST(t.created_at AS DATE)");
+        collect(correction, true, "SELECT metric, currency, status, bucket_day, SUM(row_count), SUM(amount) "
+                + "FROM stats_rollups GROUP BY metric, currency, status, bucket_day");
+        correction.values().removeIf(Counter::isZero);
+        return correction;
+    }
+
+    private void collect(Map<Key, Counter> into, boolean subtract, String sql) {
+        jdbcTemplate.query(sql, rs -> {
+            Key key = new Key(StatsRollup.Metric.valueOf(rs.getString(1)), rs.getString(2), rs.getString(3),
+                    rs.getDate(4).toLocalDate());
+            Counter counter = new Counter(rs.getLong(5), rs.getBigDecimal(6));
+            into.merge(key, subtract ? counter.negate() : counter, Counter::plus);
+        });
+    }
+
+    /** Queue a delta on the current transaction, written just before it commits; immediately without one. */
+    private void add(StatsRollup.Metric metric, String currency, String status, LocalDate day, long count,
+                     BigDecimal amount) {
+        Key key = new Key(metric, currency, status, day);
+        Counter delta = new Counter(count, amount);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(Map.of(key, delta));
+            events.publishEvent(new Changed(Set.of(day)));
+            return;
+        }
+        Pending pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Pending mine && mine.owner() == this) {
+                pending = mine;
+            }
+        }
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.deltas.merge(key, delta, Counter::plus);
+    }
+
+    /** Deltas queued on one transaction. */
+    private final class Pending implements TransactionSynchronization {
+
+        final Map<Key, Counter> deltas = new TreeMap<>(Key.ORDER);
+
+        StatsRollups owner() {
+            return StatsRollups.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            write(deltas);
+        }
+
+        @Override
+        public void afterCommit() {
+            Set<LocalDate> days = new HashSet<>();
+            deltas.keySet().forEach(key -> days.add(key.day()));
+            events.publishEvent(new Changed(days));
+        }
+    }
+
+    /** Upsert {@code deltas} into one shard, in key order so concurrent writers lock rows in the same order. */
+    private void write(Map<Key, Counter> deltas) {
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            if (delta.count() != 0 || delta.amount().signum() != 0) {
+                rows.add(new Object[]{key.metric().name(), key.currency(), key.status(), Date.valueOf(key.day()),
+                        shard, delta.count(), delta.amount()});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(upsertSql(dialect.isPostgres()), rows);
+        }
+    }
+
+    private static String upsertSql(boolean postgres) {
+        if (postgres) {
+            return "INSERT INTO stats_rollups (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (metric, currency, status, bucket_day, shard) DO UPDATE SET "
+                    + "row_count = stats_rollups.row_count + EXCLUDED.row_count, "
+                    + "amount = stats_rollups.amount + EXCLUDED.amount";
+        }
+        return "MERGE INTO stats_rollups r USING (SELECT CAST(? AS VARCHAR(16)) metric, CAST(? AS VARCHAR(16)) currency, "
+                + "CAST(? AS VARCHAR(16)) status, CAST(? AS DATE) bucket_day, CAST(? AS INT) shard, "
+                + "CAST(? AS BIGINT) row_count, CAST(? AS DECIMAL(38, 8)) amount) d "
+                + "ON r.metric = d.metric AND r.currency = d.currency AND r.status = d.status "
+                + "AND r.bucket_day = d.bucket_day AND r.shard = d.shard "
+                + "WHEN MATCHED THEN UPDATE SET row_count = r.row_count + d.row_count, amount = r.amount + d.amount "
+                + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (d.metric, d.currency, d.status, "
+                + "d.bucket_day, d.shard, d.row_count, d.amount)";
+    }
+}
@@ -0,0 +1,468 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.TransactionOutbox;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.TransactionOutboxRepository;
+import com.cryptowallet.repository.TransactionRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import com.cryptowallet.service.crypto.ProviderRejectedException;
+import com.cryptowallet.service.crypto.SignedTransaction;
+import com.cryptowallet.service.crypto.TransactionPresence;
+import com.cryptowallet.service.crypto.TransactionResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broadcasts queued sends from {@code transaction_outbox}, outside any DB transaction.
+ *
+ * {@link TransactionService#sendTransaction} only persists a PENDING {@link Transaction} (with
+ * the amount reserved) plus an outbox entry, then returns. This dispatcher claims due entries
+ * with a lease, and for each one: loads the wallet in a short read transaction, signs with no
+ * connection held, commits the signed txid and bytes to the entry, broadcasts, then records the
+ * outcome in a last short transaction — PENDING → BROADCAST (fee charged) or PENDING → FAILED
+ * (amount refunded) via {@link TransactionStateMachine} — and deletes the entry. Connection hold
+ * time is therefore independent of node latency. Broadcast sends are handed to
+ * {@link ConfirmationTracker}.
+ *
+ * Broadcasts run on virtual threads, at most {@code app.transactions.outbox.concurrency} at a
+ * time. The poller wakes on every committed enqueue and otherwise every {@code poll-interval}.
+ * An entry is re-claimed when its lease lapses (dispatcher died, broadcast outlived the lease,
+ * write-back failed). Because the txid was committed before the first broadcast, a re-claim never
+ * signs a second payment: it asks the node for the txid ({@link CryptoProvider#findTransaction})
+ * and records it as BROADCAST if seen, otherwise re-broadcasts the same signed bytes. A send is
+ * only refunded when it was never signed, or when the node reports the txid as not seen. After
+ * {@code max-attempts} claims it stops broadcasting; a send the node can't vouch for either way
+ * stays PENDING, logged for manual reconciliation. A provider call refused before it reached the
+ * node (open circuit, full bulkhead — {@link ProviderRejectedException}) doesn't count: the claim's
+ * attempt is handed back and the entry is retried after {@code poll-interval}.
+ *
+ * Metrics: {@code cryptowallet.outbox.broadcast} (timer, {@code result=broadcast|failed}) and
+ * {@code cryptowallet.outbox.in.flight} (gauge).
+ */
+@Service
+@Slf4j
+public class TransactionOutboxDispatcher {
+
+    /** Published by {@link TransactionService} when a send is queued; wakes the poller after commit. */
+    public record Enqueued(Long transactionId) {
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionOutboxRepository outboxRepository;
+    private final CryptoProviderRegistry providers;
+    private final HdKeyService hdKeys;
+    private final TransactionStateMachine stateMachine;
+    private final WalletLocks walletLocks;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher events;
+    private final StatsRollups rollups;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    private final Semaphore permits;
+    private final Timer broadcastOk;
+    private final Timer broadcastFailed;
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+
+    public TransactionOutboxDispatcher(TransactionRepository transactionRepository,
+                                       WalletRepository walletRepository,
+                                       TransactionOutboxRepository outboxRepository,
+                                       CryptoProviderRegistry providers,
+                                       HdKeyService hdKeys,
+                                       TransactionStateMachine stateMachine,
+                                       WalletLocks walletLocks,
+                                       JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       ApplicationEventPublisher events,
+                                       StatsRollups rollups,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.transactions.outbox.enabled:true}") boolean enabled,
+                                       @Value("${app.transactions.outbox.concurrency:32}") int concurrency,
+                                       @Value("${app.transactions.outbox.batch-size:100}") int batchSize,
+                                       @Value("${app.transactions.outbox.poll-interval:1s}") Duration pollInterval,
+                                       @Value("${app.transactions.outbox.lease:2m}") Duration lease,
+                                       @Value("${app.transactions.outbox.max-attempts:3}") int maxAttempts) {
+        if (concurrency < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException(
+                    "app.transactions.outbox requires concurrency, batch-size and max-attempts >= 1");
+        }
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.outboxRepository = outboxRepository;
+        this.providers = providers;
+        this.hdKeys = hdKeys;
+        this.stateMachine = stateMachine;
+        this.walletLocks = walletLocks;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.events = events;
+        this.rollups = rollups;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.permits = new Semaphore(concurrency);
+
+        this.broadcastOk = broadcastTimer(meterRegistry, "broadcast");
+        this.broadcastFailed = broadcastTimer(meterRegistry, "failed");
+        Gauge.builder("cryptowallet.outbox.in.flight", permits, p -> concurrency - p.availablePermits())
+                .description("Outbox broadcasts currently running")
+                .register(meterRegistry);
+    }
+
+    private static Timer broadcastTimer(MeterRegistry registry, String result) {
+        return Timer.builder("cryptowallet.outbox.broadcast")
+                .tag("result", result)
+                .description("Sign-and-broadcast latency of queued sends")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /** Sign-time snapshot of a queued send, detached from any persistence context. {@code signed} is null until signed. */
+    private record QueuedSend(Long outboxId, int attempts, Long transactionId, Wallet wallet,
+                              String toAddress, BigDecimal amount, SignedTransaction signed) {
+
+        QueuedSend withSigned(SignedTransaction signed) {
+            return new QueuedSend(outboxId, attempts, transactionId, wallet, toAddress, amount, signed);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("TransactionOutboxDispatcher: disabled — queued sends stay PENDING");
+            return;
+        }
+        workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-broadcast-", 0).factory());
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (poller != null) poller.shutdownNow();
+        if (workers != null) workers.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEnqueued(Enqueued event) {
+        requestPoll();
+    }
+
+    /**
+     * Claim and dispatch every due entry on the calling thread, blocking until done. For tests
+     * and manual drains; the background poller never calls it.
+     *
+     * @return entries dispatched
+     */
+    public int dispatchDue() {
+        int dispatched = 0;
+        List<Long> claimed;
+        do {
+            claimed = claimDue(batchSize);
+            claimed.forEach(this::dispatch);
+            dispatched += claimed.size();
+        } while (claimed.size() == batchSize);
+        return dispatched;
+    }
+
+    private void requestPoll() {
+        if (poller != null && pollQueued.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                pollQueued.set(false);
+                poll();
+            });
+        }
+    }
+
+    /** Hand due entries to virtual threads while broadcast permits are free. Runs on the poller only. */
+    private void poll() {
+        try {
+            while (true) {
+                int limit = Math.min(permits.availablePermits(), batchSize);
+                if (limit == 0) {
+                    return; // a finishing broadcast requests the next poll
+                }
+                List<Long> claimed = claimDue(limit);
+                for (Long outboxId : claimed) {
+                    permits.acquireUninterruptibly();
+                    workers.execute(() -> {
+                        try {
+                            dispatch(outboxId);
+                        } catch (RuntimeException e) {
+                            log.error("TransactionOutboxDispatcher: entry {} failed, retrying after its lease", outboxId, e);
+                        } finally {
+                            permits.release();
+                            requestPoll();
+                        }
+                    });
+                }
+                if (claimed.size() < limit) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("TransactionOutboxDispatcher: poll failed, retrying in {}: {}", pollInterval, e.getMessage());
+        }
+    }
+
+    /** Lease up to {@code limit} due entries; a compare-and-set per row keeps concurrent nodes apart. */
+    private List<Long> claimDue(int limit) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp leaseEnd = Timestamp.valueOf(LocalDateTime.now().plus(lease));
+        List<Long> due = jdbcTemplate.queryForList(
+                "SELECT id FROM transaction_outbox WHERE locked_until IS NULL OR locked_until < ? ORDER BY id LIMIT ?",
+                Long.class, now, limit);
+        return due.stream()
+                .filter(id -> jdbcTemplate.update(
+                        "UPDATE transaction_outbox SET locked_until = ?, attempts = attempts + 1 "
+                                + "WHERE id = ? AND (locked_until IS NULL OR locked_until < ?)",
+                        leaseEnd, id, now) == 1)
+                .toList();
+    }
+
+    private void dispatch(Long outboxId) {
+        QueuedSend send = transactionTemplate.execute(status -> load(outboxId));
+        if (send == null) {
+            return;
+        }
+        try {
+            dispatch(send);
+        } catch (ProviderRejectedException e) {
+            defer(send, e);
+        }
+    }
+
+    private void dispatch(QueuedSend send) {
+        CryptoProvider provider = providers.get(send.wallet().getCurrency());
+        if (send.signed() == null) {
+            if (send.attempts() > maxAttempts) {
+                log.error("TransactionOutboxDispatcher: transaction {} could not be signed in {} attempts — marking FAILED",
+                        send.transactionId(), maxAttempts);
+                settle(send, null);
+                return;
+            }
+            // No transaction here: signing holds no DB connection.
+            QueuedSend unsigned = send;
+            SignedTransaction signed;
+            try {
+                signed = hdKeys.withSigningKey(unsigned.wallet(), privateKey ->
+                        provider.signTransaction(privateKey, unsigned.toAddress(), unsigned.amount()));
+            } catch (RuntimeException e) {
+                // Never signed, so nothing can have reached the chain.
+                log.error("Failed to sign transaction {}: {}", send.transactionId(), e.getMessage());
+                settle(send, null);
+                return;
+            }
+            send = markSigned(send, signed);
+        } else {
+            TransactionPresence presence = lookUp(provider, send);
+            if (presence == TransactionPresence.SEEN) {
+                settle(send, result(send.signed()));
+                return;
+            }
+            if (send.attempts() > maxAttempts) {
+                if (presence == TransactionPresence.NOT_SEEN) {
+                    log.error("TransactionOutboxDispatcher: transaction {} ({}) not on chain after {} dispatch attempts — "
+                            + "marking FAILED", send.transactionId(), send.signed().txHash(), maxAttempts);
+                    settle(send, null);
+                } else {
+                    log.error("TransactionOutboxDispatcher: transaction {} ({}) unconfirmed after {} dispatch attempts "
+                                    + "and the node can't say whether it has it — leaving PENDING; reconcile against the chain",
+                            send.transactionId(), send.signed().txHash(), maxAttempts);
+                }
+                return;
+            }
+        }
+        broadcast(provider, send);
+    }
+
+    /** Broadcast the committed signed bytes and record the outcome; re-claims re-send the same transaction. */
+    private void broadcast(CryptoProvider provider, QueuedSend send) {
+        long start = System.nanoTime();
+        TransactionResult result;
+        try {
+            result = provider.broadcastTransaction(send.signed());
+            broadcastOk.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (ProviderRejectedException e) {
+            throw e; // never left this node
+        } catch (RuntimeException e) {
+            broadcastFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("Failed to send transaction {} ({}): {}", send.transactionId(), send.signed().txHash(), e.getMessage());
+            // The request may still have reached the node: only refund once it says the txid isn't there.
+            TransactionPresence presence;
+            try {
+                presence = lookUp(provider, send);
+            } catch (ProviderRejectedException rejected) {
+                presence = TransactionPresence.UNKNOWN; // this claim did broadcast, so it keeps its attempt
+            }
+            if (presence == TransactionPresence.SEEN) {
+                settle(send, result(send.signed()));
+            } else if (presence == TransactionPresence.NOT_SEEN) {
+                settle(send, null);
+            }
+            return; // UNKNOWN: retried after the lease
+        }
+
+        try {
+            settle(send, result);
+        } catch (RuntimeException e) {
+            log.error("TransactionOutboxDispatcher: transaction {} was broadcast as {} but recording it failed — "
+                    + "it will be looked up on chain after its lease", send.transactionId(), result.getTxHash());
+            throw e;
+        }
+    }
+
+    /**
+     * Commit the signed transaction to the entry before anything is broadcast. If another claim got
+     * there first (this one outlived its lease), its signature wins and this one is discarded unsent.
+     */
+    private QueuedSend markSigned(QueuedSend send, SignedTransaction signed) {
+        int updated = jdbcTemplate.update("UPDATE transaction_outbox SET signed_tx_hash = ?, signed_payload = ?, "
+                        + "signed_fee = ? WHERE id = ? AND signed_tx_hash IS NULL",
+                signed.txHash(), signed.payload(), signed.fee(), send.outboxId());
+        if (updated == 1) {
+            return send.withSigned(signed);
+        }
+        SignedTransaction winner = jdbcTemplate.query(
+                "SELECT signed_tx_hash, signed_payload, signed_fee FROM transaction_outbox WHERE id = ?",
+                rs -> rs.next() ? new SignedTransaction(rs.getString(1), rs.getString(2), rs.getBigDecimal(3)) : null,
+                send.outboxId());
+        if (winner == null) {
+            throw new IllegalStateException("Outbox entry " + send.outboxId() + " was settled while being signed");
+        }
+        return send.withSigned(winner);
+    }
+
+    /** Whether the node has the signed txid; UNKNOWN if it can't say. A refused call is rethrown. */
+    private TransactionPresence lookUp(CryptoProvider provider, QueuedSend send) {
+        try {
+            return provider.findTransaction(send.signed().txHash());
+        } catch (ProviderRejectedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("TransactionOutboxDispatcher: could not look up {} for transaction {}: {}",
+                    send.signed().txHash(), send.transactionId(), e.getMessage());
+            return TransactionPresence.UNKNOWN;
+        }
+    }
+
+    /**
+     * The provider refused before reaching the node, so this claim did nothing: hand back its
+     * attempt and release the lease for a retry after {@code poll-interval} rather than {@code lease}.
+     */
+    private void defer(QueuedSend send, ProviderRejectedException e) {
+        log.warn("TransactionOutboxDispatcher: transaction {} not attempted, retrying in {}: {}",
+                send.transactionId(), pollInterval, e.getMessage());
+        jdbcTemplate.update("UPDATE transaction_outbox SET attempts = attempts - 1, locked_until = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plus(pollInterval)), send.outboxId());
+    }
+
+    private static TransactionResult result(SignedTransaction signed) {
+        TransactionResult result = new TransactionResult();
+        result.setTxHash(signed.txHash());
+        result.setFee(signed.fee());
+        return result;
+    }
+
+    private QueuedSend load(Long outboxId) {
+        TransactionOutbox entry = outboxRepository.findById(outboxId).orElse(null);
+        if (entry == null) {
+            return null;
+        }
+        Transaction transaction = transactionRepository.findById(entry.getTransactionId()).orElse(null);
+        if (transaction == null || transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+            outboxRepository.delete(entry); // already settled by an earlier attempt
+            return null;
+        }
+        Wallet wallet = walletRepository.findById(transaction.getWallet().getId())
+                .orElseThrow(() -> new RuntimeException("Wallet not found"));
+        if (wallet.getDerivationIndex() != null) {
+            Hibernate.initialize(wallet.getUser()); // HD keys are re-derived from the owner's seed
+        }
+        SignedTransaction signed = entry.getSignedTxHash() == null ? null
+                : new SignedTransaction(entry.getSignedTxHash(), entry.getSignedPayload(), entry.getSignedFee());
+        return new QueuedSend(outboxId, entry.getAttempts(), transaction.getId(), wallet,
+                transaction.getToAddress(), transaction.getAmount(), signed);
+    }
+
+    private void settle(QueuedSend send, TransactionResult result) {
+        walletLocks.withLock(send.wallet().getId(), () -> {
+            transactionTemplate.executeWithoutResult(status -> record(send, result));
+            return null;
+        });
+    }
+
+    /** Settle the send: BROADCAST and charge the fee, or FAILED and refund the reserved amount. */
+    private void record(QueuedSend send, TransactionResult result) {
+        outboxRepository.deleteById(send.outboxId());
+        Transaction transaction = transactionRepository.findById(send.transactionId())
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+            return;
+        }
+        Wallet wallet = send.wallet();
+        Transaction.TransactionStatus settled;
+
+        if (result != null) {
+            BigDecimal fee = result.getFee() == null ? BigDecimal.ZERO : result.getFee();
+            transaction.setTxHash(result.getTxHash());
+            transaction.setFee(fee);
+            settled = Transaction.TransactionStatus.BROADCAST;
+            stateMachine.transition(transaction, settled);
+            walletRepository.adjustBalance(wallet.getId(), fee.negate());
+            events.publishEvent(new ConfirmationTracker.Broadcast(transaction.getId(), wallet.getId(),
+                    wallet.getCurrency(), result.getTxHash(), transaction.getAmount(), fee, transaction.getCreatedAt()));
+            log.info("Transaction sent successfully: {} from {} to {}",
+                    result.getTxHash(), wallet.getAddress(), transaction.getToAddress());
+        } else {
+            settled = Transaction.TransactionStatus.FAILED;
+            stateMachine.transition(transaction, settled);
+            walletRepository.adjustBalance(wallet.getId(), transaction.getAmount());
+        }
+        rollups.transactionMoved(wallet.getCurrency(), transaction.getCreatedAt(), Transaction.TransactionStatus.PENDING,
+                settled, transaction.getAmount());
+        transactionRepository.save(transaction);
+    }
+}
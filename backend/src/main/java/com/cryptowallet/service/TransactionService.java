@@ -3,21 +3,37 @@ package com.cryptowallet.service;
 import com.cryptowallet.dto.SendTransactionDto;
 import com.cryptowallet.dto.TransactionDto;
 import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.TransactionOutbox;
 import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.TransactionOutboxRepository;
 import com.cryptowallet.repository.TransactionRepository;
 import com.cryptowallet.repository.WalletRepository;
-import com.cryptowallet.service.crypto.CryptoProviderRegistry;
-import com.cryptowallet.service.crypto.TransactionResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,20 +42,117 @@ import java.util.stream.Collectors;
 @Transactional
 public class TransactionService {
     
+    /** {@code tx_hash} prefix of sends the dispatcher has not broadcast yet. */
+    public static final String PENDING_TX_HASH_PREFIX = "pending-";
+
+    /** Largest history page served; bigger requested limits are clamped. */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Comparator<Transaction> NEWEST_FIRST =
+            Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId).reversed();
+
+    /** One page of history, newest first, and the cursor of the next one (null on the last page). */
+    public record HistoryPage(List<TransactionDto> transactions, String nextCursor) {
+    }
+
+    /** Opaque page cursor: the (createdAt, id) of the last row served, base64url-encoded. */
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+        static HistoryCursor of(Transaction last) {
+            return new HistoryCursor(last.getCreatedAt(), last.getId());
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "/" + id).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split("/");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Malformed cursor");
+                }
+                return new HistoryCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+    }
+
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
-    private final CryptoProviderRegistry providers;
+    private final TransactionOutboxRepository outboxRepository;
     private final TransactionStateMachine stateMachine;
+    private final ApplicationEventPublisher events;
+    private final IdempotencyKeys idempotencyKeys;
+    private final WalletLocks walletLocks;
+    private final IncomingTransferIngestor incomingTransfers;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsRollups rollups;
+    private final AdminSearch search;
 
+    /**
+     * Queue a send: persists it as PENDING with the amount reserved on the wallet, plus a
+     * {@code transaction_outbox} entry, and returns without touching the node.
+     * {@link TransactionOutboxDispatcher} signs and broadcasts it after commit and moves it to
+     * BROADCAST (charging the fee) or FAILED (refunding the amount).
+     */
     public TransactionDto sendTransaction(SendTransactionDto sendDto) {
+        return queueSend(sendDto, null, null);
+    }
+
+    /**
+     * {@link #sendTransaction(SendTransactionDto)} deduplicated on a client {@code Idempotency-Key}:
+     * a replay returns the transaction the key first created and queues nothing. Runs its own
+     * transaction so a key conflict (a concurrent retry committing first) can be resolved after
+     * the rollback, under the wallet's {@link WalletLocks} stripe so concurrent sends from one
+     * wallet queue in memory rather than on its row lock.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionDto sendTransaction(SendTransactionDto sendDto, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return walletLocks.withLock(sendDto.getWalletId(),
+                    () -> transactionTemplate.execute(status -> queueSend(sendDto, null, null)));
+        }
+        IdempotencyKeys.validate(idempotencyKey);
+        String fingerprint = IdempotencyKeys.fingerprint(sendDto);
+
+        Optional<Long> recent = idempotencyKeys.findRecent(idempotencyKey, fingerprint);
+        if (recent.isPresent()) {
+            return replay(recent.get());
+        }
+        try {
+            return walletLocks.withLock(sendDto.getWalletId(),
+                    () -> transactionTemplate.execute(status -> queueSend(sendDto, idempotencyKey, fingerprint)));
+        } catch (DuplicateKeyException e) {
+            Long original = idempotencyKeys.find(idempotencyKey, fingerprint).orElseThrow(() -> e);
+            return replay(original);
+        }
+    }
+
+    private TransactionDto replay(Long transactionId) {
+        log.info("Idempotent replay of transaction {}", transactionId);
+        return transactionRepository.findById(transactionId)
+                .map(this::convertToDto)
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+    }
+
+    private TransactionDto queueSend(SendTransactionDto sendDto, String idempotencyKey, String fingerprint) {
         Wallet wallet = walletRepository.findById(sendDto.getWalletId())
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
 
-        if (wallet.getBalance().compareTo(sendDto.getAmount()) < 0) {
+        // Check-and-reserve in one statement: two sends can't both spend the same balance.
+        if (walletRepository.debitIfSufficient(wallet.getId(), sendDto.getAmount()) == 0) {
             throw new RuntimeException("Insufficient balance");
         }
 
-        Transaction transaction = Transaction.builder()
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                // Placeholder until the node returns the real hash (tx_hash is NOT NULL UNIQUE).
+                .txHash(PENDING_TX_HASH_PREFIX + UUID.randomUUID())
                 .fromAddress(wallet.getAddress())
                 .toAddress(sendDto.getToAddress())
                 .amount(sendDto.getAmount())
@@ -47,63 +160,70 @@ public class TransactionService {
                 .status(Transaction.TransactionStatus.PENDING)
                 .wallet(wallet)
                 .memo(sendDto.getMemo())
-                .build();
-
-        try {
-            TransactionResult result = providers.get(wallet.getCurrency()).sendTransaction(
-                    wallet.getPrivateKey(),
-                    sendDto.getToAddress(),
-                    sendDto.getAmount()
-            );
-            String txHash = result.getTxHash();
-            BigDecimal fee = result.getFee();
-
-            transaction.setTxHash(txHash);
-            transaction.setFee(fee);
-
-            Transaction savedTransaction = transactionRepository.save(transaction);
-
-            stateMachine.transition(savedTransaction, Transaction.TransactionStatus.BROADCAST);
-            savedTransaction = transactionRepository.save(savedTransaction);
-
-            // Update wallet balance
-            BigDecimal newBalance = wallet.getBalance()
-                    .subtract(sendDto.getAmount())
-                    .subtract(fee);
-            wallet.setBalance(newBalance);
-            walletRepository.save(wallet);
-
-            log.info("Transaction sent successfully: {} from {} to {}",
-                    txHash, wallet.getAddress(), sendDto.getToAddress());
-
-            return convertToDto(savedTransaction);
-
-        } catch (Exception e) {
-            log.error("Failed to send transaction: {}", e.getMessage());
-            if (transaction.getTxHash() == null) {
-                transaction.setTxHash("failed-" + System.nanoTime() + "-" + wallet.getId());
-            }
-            if (transaction.getId() == null) {
-                transaction = transactionRepository.save(transaction);
-            }
-            stateMachine.transition(transaction, Transaction.TransactionStatus.FAILED);
-            transactionRepository.save(transaction);
-            throw new RuntimeException("Failed to send transaction: " + e.getMessage());
+                .build());
+        rollups.transactionAdded(wallet.getCurrency(), Transaction.TransactionStatus.PENDING, sendDto.getAmount());
+        if (idempotencyKey != null) {
+            idempotencyKeys.record(idempotencyKey, fingerprint, transaction.getId());
         }
+
+        outboxRepository.save(TransactionOutbox.builder()
+                .transactionId(transaction.getId())
+                .attempts(0)
+                .build());
+        events.publishEvent(new TransactionOutboxDispatcher.Enqueued(transaction.getId()));
+
+        log.info("Transaction {} queued for broadcast from {} to {}",
+                transaction.getId(), wallet.getAddress(), sendDto.getToAddress());
+        return convertToDto(transaction);
     }
     
+    /**
+     * One page of a wallet's history, newest first. {@code cursor} is the previous page's
+     * {@link HistoryPage#nextCursor()} (null for the first page); each page is one index range
+     * read of {@code limit + 1} rows, however deep it is.
+     *
+     * @throws IllegalArgumentException on a malformed cursor or a non-positive limit
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDto> getWalletTransactions(Long walletId) {
-        return transactionRepository.findByWalletIdOrderByCreatedAtDesc(walletId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public HistoryPage getWalletTransactions(Long walletId, String cursor, int limit) {
+        int size = pageSize(limit);
+        return page(walletPage(walletId, HistoryCursor.decode(cursor), size + 1), size);
     }
-    
+
+    /**
+     * {@link #getWalletTransactions} across all of a user's wallets: the next {@code limit + 1}
+     * rows of each wallet, merged. Cost grows with the user's wallet count, not with depth.
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDto> getUserTransactions(Long userId) {
-        return transactionRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public HistoryPage getUserTransactions(Long userId, String cursor, int limit) {
+        int size = pageSize(limit);
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        List<Transaction> merged = new ArrayList<>();
+        for (Long walletId : walletRepository.findIdsByUserId(userId)) {
+            merged.addAll(walletPage(walletId, after, size + 1));
+        }
+        merged.sort(NEWEST_FIRST);
+        return page(merged.subList(0, Math.min(merged.size(), size + 1)), size);
+    }
+
+    private static int pageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private List<Transaction> walletPage(Long walletId, HistoryCursor after, int limit) {
+        return after == null
+                ? transactionRepository.findByWalletIdOrderByCreatedAtDescIdDesc(walletId, Limit.of(limit))
+                : transactionRepository.findByWalletIdBefore(walletId, after.createdAt(), after.id(), Limit.of(limit));
+    }
+
+    /** {@code rows} holds up to {@code size + 1} rows; the extra one only says there is a next page. */
+    private HistoryPage page(List<Transaction> rows, int size) {
+        List<TransactionDto> transactions = rows.stream().limit(size).map(this::convertToDto).toList();
+        String next = rows.size() > size ? HistoryCursor.of(rows.get(size - 1)).encode() : null;
+        return new HistoryPage(transactions, next);
     }
     
     @Transactional(readOnly = true)
@@ -117,7 +237,10 @@ public class TransactionService {
         Transaction transaction = transactionRepository.findByTxHash(txHash)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
+        Transaction.TransactionStatus previous = transaction.getStatus();
         stateMachine.transition(transaction, status);
+        rollups.transactionMoved(transaction.getWallet().getCurrency(), transaction.getCreatedAt(), previous, status,
+                transaction.getAmount());
         transaction.setBlockNumber(blockNumber);
         transaction.setConfirmations(confirmations);
 
@@ -126,43 +249,28 @@ public class TransactionService {
         log.info("Transaction status updated: {} - Status: {}", txHash, status);
     }
     
-    public void processIncomingTransaction(String txHash, String toAddress, BigDecimal amount, 
-                                         String fromAddress, Long blockNumber) {
-        // Check if transaction already exists
-        if (transactionRepository.findByTxHash(txHash).isPresent()) {
-            return;
-        }
-        
-        Wallet wallet = walletRepository.findByAddress(toAddress)
-                .orElse(null);
-        
-        if (wallet != null) {
-            Transaction transaction = Transaction.builder()
-                    .txHash(txHash)
-                    .fromAddress(fromAddress)
-                    .toAddress(toAddress)
-                    .amount(amount)
-                    .type(Transaction.TransactionType.RECEIVE)
-                    .status(Transaction.TransactionStatus.CONFIRMED)
-                    .wallet(wallet)
-                    .blockNumber(blockNumber)
-                    .build();
-            
-            transactionRepository.save(transaction);
-            
-            // Update wallet balance
-            BigDecimal newBalance = wallet.getBalance().add(amount);
-            wallet.setBalance(newBalance);
-            walletRepository.save(wallet);
-            
-            log.info("Incoming transaction processed: {} to {}", txHash, toAddress);
-        }
+    /** Credit one incoming transfer; see {@link IncomingTransferIngestor} for blocks of them. */
+    public void processIncomingTransaction(String txHash, String toAddress, BigDecimal amount,
+                                           String fromAddress, Long blockNumber) {
+        incomingTransfers.ingest(List.of(
+                new IncomingTransferIngestor.IncomingTransfer(txHash, fromAddress, toAddress, amount, blockNumber)));
     }
-    
+
     public Page<TransactionDto> getAllTransactionsPaged(Pageable pageable) {
         Page<Transaction> transactions = transactionRepository.findAll(pageable);
         return transactions.map(this::convertToDto);
     }
+
+    /** Ranked by {@link AdminSearch}; the pageable's sort is ignored. */
+    @Transactional(readOnly = true)
+    public Page<TransactionDto> searchTransactions(String query, Pageable pageable) {
+        AdminSearch.Hits hits = search.transactions(query, pageable);
+        Map<Long, Transaction> transactions = transactionRepository.findAllById(hits.ids()).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        List<TransactionDto> page = hits.ids().stream().map(transactions::get).filter(Objects::nonNull)
+                .map(this::convertToDto).toList();
+        return new PageImpl<>(page, pageable, hits.total());
+    }
     
     // Create sample transactions for testing
     @Transactional
@@ -222,9 +330,10 @@ public class TransactionService {
                 .memo("Pending transaction")
                 .build();
         
-        transactionRepository.save(tx1);
-        transactionRepository.save(tx2);
-        transactionRepository.save(tx3);
+        for (Transaction tx : List.of(tx1, tx2, tx3)) {
+            transactionRepository.save(tx);
+            rollups.transactionAdded(tx.getWallet().getCurrency(), tx.getStatus(), tx.getAmount());
+        }
         
         log.info("Created sample transactions for testing");
     }
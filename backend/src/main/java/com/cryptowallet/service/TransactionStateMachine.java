@@ -35,7 +35,15 @@ public class TransactionStateMachine {
      * {@link IllegalTransactionStateException} on illegal input.
      */
     public void transition(Transaction tx, TransactionStatus next) {
-        TransactionStatus current = tx.getStatus();
+        checkTransition(tx.getStatus(), next);
+        tx.setStatus(next);
+    }
+
+    /**
+     * Validate {@code current -> next} without an entity, for callers that write the status with
+     * SQL (batched updates guarded by {@code WHERE status = current}).
+     */
+    public void checkTransition(TransactionStatus current, TransactionStatus next) {
         if (current == null) {
             throw new IllegalTransactionStateException(
                 "Cannot transition transaction with null status; use a builder for the initial state");
@@ -48,7 +56,6 @@ public class TransactionStateMachine {
             throw new IllegalTransactionStateException(
                 "Illegal transition: " + current + " -> " + next + " (terminal or not permitted)");
         }
-        tx.setStatus(next);
     }
 
     /**
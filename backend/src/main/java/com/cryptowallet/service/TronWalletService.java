@@ -3,18 +3,28 @@ package com.cryptowallet.service;
 import com.cryptowallet.entity.Wallet;
 import com.cryptowallet.service.crypto.CryptoProvider;
 import com.cryptowallet.service.crypto.KeyPair;
+import com.cryptowallet.service.crypto.SignedTransaction;
 import com.cryptowallet.service.crypto.TransactionResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.web3j.crypto.Bip32ECKeyPair;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.utils.Numeric;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
+@Profile("!sim")
 @RequiredArgsConstructor
 @Slf4j
 public class TronWalletService implements CryptoProvider {
@@ -22,6 +32,17 @@ public class TronWalletService implements CryptoProvider {
     // USDT TRC-20 contract address on Tron
     private static final String USDT_CONTRACT_ADDRESS = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
 
+    // secp256k1 group order n — private keys must lie in [1, n-1]
+    private static final BigInteger CURVE_ORDER =
+            new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // BIP44 m/44'/195'/0'/0 — Tron coin type 195, account 0, external chain
+    private static final int[] EXTERNAL_CHAIN_PATH = {
+            44 | Bip32ECKeyPair.HARDENED_BIT, 195 | Bip32ECKeyPair.HARDENED_BIT, Bip32ECKeyPair.HARDENED_BIT, 0
+    };
+
     @Override
     public Wallet.CryptoCurrency supportedCurrency() {
         return Wallet.CryptoCurrency.USDT_TRC20;
@@ -30,12 +51,10 @@ public class TronWalletService implements CryptoProvider {
     @Override
     public KeyPair generateAddress() {
         try {
-            SecureRandom secureRandom = new SecureRandom();
             BigInteger privateKeyBigInt = new BigInteger(256, secureRandom);
 
             // Ensure the private key is valid
-            while (privateKeyBigInt.equals(BigInteger.ZERO) ||
-                   privateKeyBigInt.compareTo(new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16)) >= 0) {
+            while (privateKeyBigInt.signum() == 0 || privateKeyBigInt.compareTo(CURVE_ORDER) >= 0) {
                 privateKeyBigInt = new BigInteger(256, secureRandom);
             }
 
@@ -49,7 +68,7 @@ public class TronWalletService implements CryptoProvider {
             tronKeyPair.setAddress(address);
             tronKeyPair.setPrivateKey(privateKey);
 
-            log.info("Generated Tron key pair: {}", address);
+            log.debug("Generated Tron key pair: {}", address);
             return tronKeyPair;
 
         } catch (Exception e) {
@@ -58,6 +77,26 @@ public class TronWalletService implements CryptoProvider {
         }
     }
 
+    @Override
+    public List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        Bip32ECKeyPair chain = externalChain(seed);
+        List<String> addresses = new ArrayList<>(count);
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            addresses.add(generateTronAddress(Bip32ECKeyPair.deriveKeyPair(chain, new int[]{i})));
+        }
+        return addresses;
+    }
+
+    @Override
+    public String derivePrivateKey(byte[] seed, int index) {
+        Bip32ECKeyPair key = Bip32ECKeyPair.deriveKeyPair(externalChain(seed), new int[]{index});
+        return Numeric.toHexStringWithPrefix(key.getPrivateKey());
+    }
+
+    private static Bip32ECKeyPair externalChain(byte[] seed) {
+        return Bip32ECKeyPair.deriveKeyPair(Bip32ECKeyPair.generateKeyPair(seed), EXTERNAL_CHAIN_PATH);
+    }
+
     private String generateTronAddress(ECKeyPair keyPair) {
         try {
             // This is a simplified implementation
@@ -91,31 +130,57 @@ public class TronWalletService implements CryptoProvider {
         }
     }
 
+    // A Multicall contract's aggregate() wraps many TRC-20 balanceOf calls into one
+    // triggerconstantcontract request; 100 keeps it well under the energy limit.
     @Override
-    public TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+    public int balanceBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        // Placeholder: in a real application, call Multicall aggregate(balanceOf(...)) once
+        log.info("Getting USDT balances for {} Tron addresses", addresses.size());
+
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (String address : addresses) {
+            balances.put(address, BigDecimal.valueOf(Math.random() * 1000));
+        }
+        return balances;
+    }
+
+    @Override
+    public SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount) {
         try {
             // This is a placeholder implementation
             // In a real application, you would:
             // 1. Create a TRC-20 transfer transaction
             // 2. Sign it with the private key
-            // 3. Broadcast it to the Tron network
+            // 3. Return its txid and serialized bytes
 
-            log.info("Sending USDT TRC-20 transaction: {} USDT to {}", amount, toAddress);
+            log.info("Signing USDT TRC-20 transaction: {} USDT to {}", amount, toAddress);
 
             // Placeholder implementation
-            TransactionResult result = new TransactionResult();
-            result.setTxHash("tron_tx_" + System.currentTimeMillis());
-            result.setFee(BigDecimal.valueOf(1.0)); // Standard TRX fee for TRC-20 transactions
-
-            log.info("USDT TRC-20 transaction sent: {}", result.getTxHash());
-            return result;
+            String txHash = "tron_tx_" + UUID.randomUUID(); // unique under concurrent dispatch
+            return new SignedTransaction(txHash, txHash, BigDecimal.valueOf(1.0)); // Standard TRX fee for TRC-20 transactions
 
         } catch (Exception e) {
-            log.error("Failed to send USDT transaction: {}", e.getMessage());
-            throw new RuntimeException("Failed to send USDT transaction", e);
+            log.error("Failed to sign USDT transaction: {}", e.getMessage());
+            throw new RuntimeException("Failed to sign USDT transaction", e);
         }
     }
 
+    @Override
+    public TransactionResult broadcastTransaction(SignedTransaction signed) {
+        // Placeholder: a real implementation would push signed.payload() to a Tron node
+        TransactionResult result = new TransactionResult();
+        result.setTxHash(signed.txHash());
+        result.setFee(signed.fee());
+
+        log.info("USDT TRC-20 transaction sent: {}", result.getTxHash());
+        return result;
+    }
+
     public BigDecimal getTrxBalance(String address) {
         try {
             // This is a placeholder implementation
@@ -8,6 +8,7 @@ import com.cryptowallet.security.CryptoService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -15,7 +16,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +31,8 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final CryptoService cryptoService;
+    private final StatsRollups rollups;
+    private final AdminSearch search;
 
     public UserDto registerUser(UserRegistrationDto registrationDto) {
         return registerUserWithRole(registrationDto, User.Role.USER);
@@ -58,6 +64,7 @@ public class UserService {
                 .build();
 
         User savedUser = userRepository.save(user);
+        rollups.userAdded(true);
         log.info("User registered successfully: {} with role: {}", savedUser.getUsername(), savedUser.getRole());
 
         return convertToDto(savedUser);
@@ -99,15 +106,28 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    /** Ranked by {@link AdminSearch}; the pageable's sort is ignored. */
     @Transactional(readOnly = true)
-    public Page<UserDto> searchByRole(User.Role role, String search, Pageable pageable) {
-        return userRepository.searchByRole(role, search, pageable).map(this::convertToDto);
+    public Page<UserDto> searchUsers(String query, Pageable pageable) {
+        return searchByRole(null, query, pageable);
+    }
+
+    /** Active users of {@code role} (any user when null), ranked by {@link AdminSearch}. */
+    @Transactional(readOnly = true)
+    public Page<UserDto> searchByRole(User.Role role, String query, Pageable pageable) {
+        AdminSearch.Hits hits = search.users(query, role, pageable);
+        Map<Long, User> users = userRepository.findAllById(hits.ids()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<UserDto> page = hits.ids().stream().map(users::get).filter(Objects::nonNull)
+                .map(this::convertToDto).toList();
+        return new PageImpl<>(page, pageable, hits.total());
     }
 
     public UserDto updateUser(Long id, UserDto userDto) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        boolean wasActive = Boolean.TRUE.equals(user.getActive());
         user.setFirstName(userDto.getFirstName());
         user.setLastName(userDto.getLastName());
         user.setEmail(userDto.getEmail());
@@ -117,6 +137,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        rollups.userStatusChanged(user.getCreatedAt(), wasActive, Boolean.TRUE.equals(user.getActive()));
         log.info("User updated successfully: {}", updatedUser.getUsername());
 
         return convertToDto(updatedUser);
@@ -125,8 +146,10 @@ public class UserService {
     public void deactivateUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        boolean wasActive = Boolean.TRUE.equals(user.getActive());
         user.setActive(false);
         userRepository.save(user);
+        rollups.userStatusChanged(user.getCreatedAt(), wasActive, false);
         log.info("User deactivated: {}", user.getUsername());
     }
 
@@ -135,6 +158,7 @@ public class UserService {
             throw new RuntimeException("User not found");
         }
 
+        rollups.userRemoved(id); // before the cascade takes the wallets and transactions with it
         userRepository.deleteById(id);
         log.info("User deleted successfully with id: {}", id);
     }
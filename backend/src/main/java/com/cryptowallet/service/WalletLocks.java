@@ -0,0 +1,55 @@
+package com.cryptowallet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks keyed by wallet id. Work that reads and then writes one wallet's
+ * balance (queueing a send, settling a broadcast) runs under its wallet's stripe, so concurrent
+ * requests for a hot wallet queue here instead of on its database row lock — they hold no
+ * connection while waiting. Correctness doesn't depend on it: the balance UPDATEs in
+ * {@code WalletRepository} are guarded and {@code Wallet.version} catches stale writes, which is
+ * what keeps other nodes honest.
+ *
+ * {@code app.wallet.lock-stripes} (rounded up to a power of two) bounds memory; unrelated wallets
+ * that share a stripe just serialize.
+ */
+@Component
+public class WalletLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public WalletLocks(@Value("${app.wallet.lock-stripes:1024}") int stripes) {
+        if (stripes < 1 || stripes > (1 << 20)) {
+            throw new IllegalArgumentException("app.wallet.lock-stripes must be between 1 and 1048576");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /** Run {@code work} holding {@code walletId}'s stripe. Reentrant on the same thread. */
+    public <T> T withLock(Long walletId, Supplier<T> work) {
+        ReentrantLock lock = stripeFor(walletId);
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ReentrantLock stripeFor(Long walletId) {
+        int h = Long.hashCode(walletId);
+        h ^= h >>> 16;
+        return stripes[h & (stripes.length - 1)];
+    }
+}
@@ -1,23 +1,40 @@
 package com.cryptowallet.service;
 
+import com.cryptowallet.dto.BulkWalletProvisionDto;
 import com.cryptowallet.dto.WalletCreationDto;
 import com.cryptowallet.dto.WalletDto;
 import com.cryptowallet.entity.User;
 import com.cryptowallet.entity.Wallet;
 import com.cryptowallet.repository.UserRepository;
 import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.security.SealedPrivateKey;
 import com.cryptowallet.service.crypto.CryptoProviderRegistry;
 import com.cryptowallet.service.crypto.KeyPair;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,16 +46,40 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final UserRepository userRepository;
     private final CryptoProviderRegistry providers;
+    private final AddressPool addressPool;
+    private final HdKeyService hdKeys;
+    private final CoalescingBalanceLookup balanceLookup;
+    private final ApplicationEventPublisher events;
+    private final StatsRollups rollups;
+    private final AdminSearch search;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.wallet.hd.enabled:false}")
+    private boolean hdEnabled;
+
+    @Value("${app.wallet.bulk.max-wallets:10000}")
+    private int bulkMaxWallets;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
 
     public WalletDto createWallet(Long userId, WalletCreationDto creationDto) {
+        if (hdEnabled) {
+            return provisionHdWallets(userId, creationDto.getCurrency(), 1).get(0);
+        }
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        KeyPair keyPair = providers.get(creationDto.getCurrency()).generateAddress();
+        // Pre-generated pair from the pool; inline keygen only when the pool has run dry.
+        AddressPool.ClaimedAddress keyPair = addressPool.claim(creationDto.getCurrency())
+                .orElseGet(() -> generateInline(creationDto.getCurrency()));
 
         Wallet wallet = Wallet.builder()
-                .address(keyPair.getAddress())
-                .privateKey(keyPair.getPrivateKey())
+                .address(keyPair.address())
+                .privateKey(keyPair.privateKey())
                 .currency(creationDto.getCurrency())
                 .balance(BigDecimal.ZERO)
                 .user(user)
@@ -46,10 +87,151 @@ public class WalletService {
                 .build();
         
         Wallet savedWallet = walletRepository.save(wallet);
+        publishAdded(List.of(savedWallet));
         log.info("Wallet created successfully: {} for user: {}", savedWallet.getAddress(), user.getUsername());
         
         return convertToDto(savedWallet);
     }
+
+    /**
+     * Derive the user's next {@code count} HD addresses for {@code currency} in one call and
+     * store them as wallets holding only their derivation index (no private key column).
+     */
+    public List<WalletDto> provisionHdWallets(Long userId, Wallet.CryptoCurrency currency, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be >= 1");
+        }
+        User user = userRepository.findWithLockById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        List<Wallet> saved = walletRepository.saveAll(deriveHdWallets(user, currency, count));
+        publishAdded(saved);
+        return saved.stream().map(this::convertToDto).collect(Collectors.toList());
+    }
+
+    /**
+     * Provision wallets for many users in one transaction (partner onboarding). Users are
+     * existence-checked with a single query and referenced by proxy, keys are claimed from the
+     * address pool per currency in one round trip (or derived per user in HD mode), and the
+     * rows are inserted as JDBC batches — wallet ids come from a pooled sequence, so Hibernate
+     * can batch them. The persistence context is flushed and cleared every batch to keep dirty
+     * checking flat. All or nothing: any failure rolls back every wallet and pool claim.
+     */
+    public List<WalletDto> provisionWallets(List<BulkWalletProvisionDto.Item> items) {
+        int total = items.stream().mapToInt(BulkWalletProvisionDto.Item::getCount).sum();
+        if (total < 1 || total > bulkMaxWallets) {
+            throw new IllegalArgumentException(
+                    "Bulk provisioning accepts 1.." + bulkMaxWallets + " wallets per request, got " + total);
+        }
+        Set<Long> userIds = items.stream()
+                .map(BulkWalletProvisionDto.Item::getUserId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<Long> missing = new TreeSet<>(userIds);
+        userRepository.findExistingIds(userIds).forEach(missing::remove);
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Users not found: " + missing);
+        }
+
+        List<Wallet> wallets = hdEnabled ? bulkHdWallets(items) : bulkPooledWallets(items);
+        List<WalletDto> result = new ArrayList<>(wallets.size());
+        for (int from = 0; from < wallets.size(); from += jdbcBatchSize) {
+            List<Wallet> batch = walletRepository.saveAll(
+                    wallets.subList(from, Math.min(wallets.size(), from + jdbcBatchSize)));
+            entityManager.flush();
+            publishAdded(batch);
+            batch.forEach(wallet -> result.add(convertToDto(wallet)));
+            entityManager.clear();
+        }
+        log.info("Bulk provisioned {} wallet(s) for {} user(s)", result.size(), userIds.size());
+        return result;
+    }
+
+    private List<Wallet> bulkPooledWallets(List<BulkWalletProvisionDto.Item> items) {
+        Map<Wallet.CryptoCurrency, Integer> perCurrency = new EnumMap<>(Wallet.CryptoCurrency.class);
+        items.forEach(item -> perCurrency.merge(item.getCurrency(), item.getCount(), Integer::sum));
+
+        Map<Wallet.CryptoCurrency, Iterator<AddressPool.ClaimedAddress>> keys = new EnumMap<>(Wallet.CryptoCurrency.class);
+        perCurrency.forEach((currency, count) -> {
+            List<AddressPool.ClaimedAddress> claimed = new ArrayList<>(addressPool.claim(currency, count));
+            while (claimed.size() < count) {
+                claimed.add(generateInline(currency));
+            }
+            keys.put(currency, claimed.iterator());
+        });
+
+        List<Wallet> wallets = new ArrayList<>();
+        for (BulkWalletProvisionDto.Item item : items) {
+            User user = userRepository.getReferenceById(item.getUserId());
+            for (int i = 0; i < item.getCount(); i++) {
+                AddressPool.ClaimedAddress keyPair = keys.get(item.getCurrency()).next();
+                wallets.add(Wallet.builder()
+                        .address(keyPair.address())
+                        .privateKey(keyPair.privateKey())
+                        .currency(item.getCurrency())
+                        .balance(BigDecimal.ZERO)
+                        .user(user)
+                        .active(true)
+                        .build());
+            }
+        }
+        return wallets;
+    }
+
+    private List<Wallet> bulkHdWallets(List<BulkWalletProvisionDto.Item> items) {
+        // Users locked in id order so concurrent bulk calls can't deadlock on each other.
+        Map<Long, Map<Wallet.CryptoCurrency, Integer>> perUser = new TreeMap<>();
+        items.forEach(item -> perUser
+                .computeIfAbsent(item.getUserId(), id -> new EnumMap<>(Wallet.CryptoCurrency.class))
+                .merge(item.getCurrency(), item.getCount(), Integer::sum));
+
+        List<Wallet> wallets = new ArrayList<>();
+        perUser.forEach((userId, counts) -> {
+            User user = userRepository.findWithLockById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            counts.forEach((currency, count) -> wallets.addAll(deriveHdWallets(user, currency, count)));
+        });
+        return wallets;
+    }
+
+    /** Unsaved wallets for the user's next {@code count} derivation indexes; caller holds the user lock. */
+    private List<Wallet> deriveHdWallets(User user, Wallet.CryptoCurrency currency, int count) {
+        Integer lastIndex = walletRepository.findMaxDerivationIndex(user.getId(), currency);
+        int fromIndex = lastIndex == null ? 0 : lastIndex + 1;
+        List<String> addresses = hdKeys.deriveAddresses(user, currency, fromIndex, count);
+
+        List<Wallet> wallets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            wallets.add(Wallet.builder()
+                    .address(addresses.get(i))
+                    .derivationIndex(fromIndex + i)
+                    .currency(currency)
+                    .balance(BigDecimal.ZERO)
+                    .user(user)
+                    .active(true)
+                    .build());
+        }
+        log.info("Provisioned {} HD {} wallet(s) for user {} (indexes {}..{})",
+                count, currency, user.getUsername(), fromIndex, fromIndex + count - 1);
+        return wallets;
+    }
+
+    /**
+     * Every new wallet comes through here: count it, and tell {@link WatchedAddresses} to watch its
+     * address once this transaction commits.
+     */
+    private void publishAdded(List<Wallet> wallets) {
+        rollups.walletsAdded(wallets);
+        events.publishEvent(new WatchedAddresses.Added(wallets.stream().map(this::watched).toList()));
+    }
+
+    private WatchedAddresses.Watched watched(Wallet wallet) {
+        return new WatchedAddresses.Watched(wallet.getId(), wallet.getCurrency(), wallet.getAddress());
+    }
+
+    private AddressPool.ClaimedAddress generateInline(Wallet.CryptoCurrency currency) {
+        KeyPair keyPair = providers.get(currency).generateAddress();
+        return new AddressPool.ClaimedAddress(keyPair.getAddress(), SealedPrivateKey.seal(keyPair.getPrivateKey()));
+    }
     
     @Transactional(readOnly = true)
     public List<WalletDto> getUserWallets(Long userId) {
@@ -74,33 +256,67 @@ public class WalletService {
         Wallet wallet = walletRepository.findById(walletId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
         
-        wallet.setBalance(newBalance);
-        Wallet updatedWallet = walletRepository.save(wallet);
+        walletRepository.overwriteBalance(walletId, newBalance);
         
         log.info("Wallet balance updated: {} - New balance: {}", 
-                updatedWallet.getAddress(), newBalance);
+                wallet.getAddress(), newBalance);
         
-        return convertToDto(updatedWallet);
+        WalletDto dto = convertToDto(wallet);
+        dto.setBalance(newBalance);
+        return dto;
     }
     
     public void refreshWalletBalance(Long walletId) {
         Wallet wallet = walletRepository.findById(walletId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
         
-        BigDecimal balance = providers.get(wallet.getCurrency()).getBalance(wallet.getAddress());
+        // Concurrent refreshes of one address share a node call; only its caller writes the result.
+        CoalescingBalanceLookup.Lookup lookup = balanceLookup.getBalance(wallet.getCurrency(), wallet.getAddress());
+        if (!lookup.fromNode()) {
+            return;
+        }
         
-        wallet.setBalance(balance);
-        walletRepository.save(wallet);
+        walletRepository.recordChainBalance(walletId, lookup.balance());
         
-        log.info("Wallet balance refreshed: {} - Balance: {}", wallet.getAddress(), balance);
+        log.info("Wallet balance refreshed: {} - Balance: {}", wallet.getAddress(), lookup.balance());
+    }
+    
+    /**
+     * Refresh many wallets with one batched provider lookup per currency.
+     *
+     * @return wallets whose balance was read and stored; failed lookups are skipped
+     */
+    public int refreshWalletBalances(Collection<Long> walletIds) {
+        if (walletIds.size() > bulkMaxWallets) {
+            throw new RuntimeException("At most " + bulkMaxWallets + " wallets can be refreshed per request");
+        }
+        Map<Wallet.CryptoCurrency, List<Wallet>> byCurrency = walletRepository.findAllById(walletIds).stream()
+                .collect(Collectors.groupingBy(Wallet::getCurrency,
+                        () -> new EnumMap<>(Wallet.CryptoCurrency.class), Collectors.toList()));
+        
+        int refreshed = 0;
+        for (Map.Entry<Wallet.CryptoCurrency, List<Wallet>> group : byCurrency.entrySet()) {
+            Map<String, BigDecimal> balances = providers.getBalances(group.getKey(),
+                    group.getValue().stream().map(Wallet::getAddress).toList());
+            for (Wallet wallet : group.getValue()) {
+                BigDecimal balance = balances.get(wallet.getAddress());
+                if (balance != null) {
+                    walletRepository.recordChainBalance(wallet.getId(), balance);
+                    refreshed++;
+                }
+            }
+        }
+        
+        log.info("Wallet balances refreshed: {} of {} requested", refreshed, walletIds.size());
+        return refreshed;
     }
     
     public void deactivateWallet(Long walletId) {
         Wallet wallet = walletRepository.findById(walletId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found"));
         
-        wallet.setActive(false);
-        walletRepository.save(wallet);
+        walletRepository.deactivate(walletId);
+        events.publishEvent(new WatchedAddresses.Removed(List.of(watched(wallet))));
         
         log.info("Wallet deactivated: {}", wallet.getAddress());
     }
@@ -109,6 +325,17 @@ public class WalletService {
         Page<Wallet> wallets = walletRepository.findAll(pageable);
         return wallets.map(this::convertToDto);
     }
+
+    /** Ranked by {@link AdminSearch}; the pageable's sort is ignored. */
+    @Transactional(readOnly = true)
+    public Page<WalletDto> searchWallets(String query, Pageable pageable) {
+        AdminSearch.Hits hits = search.wallets(query, pageable);
+        Map<Long, Wallet> wallets = walletRepository.findAllById(hits.ids()).stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+        List<WalletDto> page = hits.ids().stream().map(wallets::get).filter(Objects::nonNull)
+                .map(this::convertToDto).toList();
+        return new PageImpl<>(page, pageable, hits.total());
+    }
     
     private WalletDto convertToDto(Wallet wallet) {
         WalletDto dto = new WalletDto();
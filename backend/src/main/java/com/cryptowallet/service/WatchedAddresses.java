@@ -0,0 +1,369 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.index.AddressCodec;
+import com.cryptowallet.service.index.AddressIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Address → wallet id of every active wallet, per currency, so the block scanner can match a
+ * block's outputs in memory instead of with a query per output. Each currency is an
+ * {@link AddressIndex} keyed by the decoded address bytes ({@link AddressCodec}), fronted by a
+ * Bloom filter for the common miss.
+ *
+ * Loaded on first use — from the {@code snapshot-path} file when there is one, otherwise with a
+ * keyset scan of {@code wallets}. A snapshot is caught up with wallets created after it was written
+ * before the first lookup is answered, then fully reconciled (deactivations) in the background —
+ * and kept current by the {@link Added}/{@link Removed} events {@link WalletService} publishes
+ * (applied after commit). Wallets written by anything else (runners, migrations, other nodes) are
+ * picked up by {@link #catchUp()}, which {@link BlockScanner} runs before every poll: a keyset read
+ * of active wallets above the highest id loaded. A full reload every {@code reload-interval} also
+ * drops wallets deactivated elsewhere; it builds fresh indexes off-lock, replays the changes that
+ * arrived meanwhile and swaps them in, then rewrites the snapshot. The snapshot is also written on
+ * shutdown.
+ *
+ * Metrics, tagged by currency: {@code cryptowallet.watched.addresses} and
+ * {@code cryptowallet.watched.bytes} (index heap footprint).
+ */
+@Component
+@Slf4j
+public class WatchedAddresses {
+
+    private static final int LOAD_CHUNK = 10_000;
+    /** Ids below the high-water mark re-read by each catch-up, for inserts that committed out of id order. */
+    private static final int CATCH_UP_OVERLAP = 100;
+
+    /** One watched wallet. */
+    public record Watched(Long walletId, Wallet.CryptoCurrency currency, String address) {
+    }
+
+    /** Wallets created; published by {@link WalletService}, applied after commit. */
+    public record Added(List<Watched> wallets) {
+    }
+
+    /** Wallets deactivated; published by {@link WalletService}, applied after commit. */
+    public record Removed(List<Watched> wallets) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration reloadInterval;
+    private final Path snapshotPath;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Guarded by {@code lock}. */
+    private Map<Wallet.CryptoCurrency, AddressIndex> indexes = emptyIndexes();
+    /** Events applied while a reload is scanning; replayed onto its result. Guarded by {@code lock}. */
+    private List<Consumer<Map<Wallet.CryptoCurrency, AddressIndex>>> journal;
+    /** Highest wallet id read from {@code wallets}. Guarded by {@code lock}. */
+    private long highWater;
+
+    private volatile boolean loaded;
+    private ScheduledExecutorService reloader;
+
+    public WatchedAddresses(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.chain-scanner.watched-reload-interval:10m}") Duration reloadInterval,
+                            @Value("${app.chain-scanner.watched-snapshot-path:}") String snapshotPath) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.reloadInterval = reloadInterval;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+            Gauge.builder("cryptowallet.watched.addresses", this, w -> w.read(currency, AddressIndex::size))
+                    .tag("currency", currency.name())
+                    .description("Active wallet addresses the block scanner matches against")
+                    .register(meterRegistry);
+            Gauge.builder("cryptowallet.watched.bytes", this, w -> w.read(currency, AddressIndex::footprintBytes))
+                    .tag("currency", currency.name())
+                    .description("Heap held by the watched-address index")
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Map<Wallet.CryptoCurrency, AddressIndex> emptyIndexes() {
+        Map<Wallet.CryptoCurrency, AddressIndex> empty = new EnumMap<>(Wallet.CryptoCurrency.class);
+        for (Wallet.CryptoCurrency currency : Wallet.CryptoCurrency.values()) {
+            empty.put(currency, new AddressIndex());
+        }
+        return empty;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (reloader != null) reloader.shutdownNow();
+        if (loaded) {
+            writeSnapshot();
+        }
+    }
+
+    /** Wallet id owning {@code address} on {@code currency}, or null if it isn't one of our active wallets. */
+    public Long walletId(Wallet.CryptoCurrency currency, String address) {
+        if (address == null) {
+            return null;
+        }
+        ensureLoaded();
+        byte[] key = AddressCodec.encode(address);
+        return read(currency, index -> index.get(key));
+    }
+
+    public int size(Wallet.CryptoCurrency currency) {
+        ensureLoaded();
+        return read(currency, AddressIndex::size);
+    }
+
+    private <T> T read(Wallet.CryptoCurrency currency, Function<AddressIndex, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(indexes.get(currency));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAdded(Added event) {
+        apply(target -> event.wallets().forEach(w ->
+                target.get(w.currency()).put(AddressCodec.encode(w.address()), w.walletId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRemoved(Removed event) {
+        apply(target -> event.wallets().forEach(w ->
+                target.get(w.currency()).remove(AddressCodec.encode(w.address()), w.walletId())));
+    }
+
+    private void apply(Consumer<Map<Wallet.CryptoCurrency, AddressIndex>> change) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded && journal == null) {
+                return; // the first load will read it from the table
+            }
+            change.accept(indexes);
+            if (journal != null) {
+                journal.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add active wallets created since the last load or catch-up, by this node or any other.
+     *
+     * @return wallets read (including re-reads of the overlap)
+     */
+    public int catchUp() {
+        ensureLoaded();
+        return readNewer();
+    }
+
+    private int readNewer() {
+        long from;
+        lock.readLock().lock();
+        try {
+            from = Math.max(0, highWater - CATCH_UP_OVERLAP);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int total = 0;
+        List<Watched> chunk;
+        do {
+            chunk = activeAfter(from);
+            if (!chunk.isEmpty()) {
+                List<Watched> wallets = chunk;
+                lock.writeLock().lock();
+                try {
+                    Consumer<Map<Wallet.CryptoCurrency, AddressIndex>> change = target -> wallets.forEach(w ->
+                            target.get(w.currency()).put(AddressCodec.encode(w.address()), w.walletId()));
+                    change.accept(indexes);
+                    if (journal != null) {
+                        journal.add(change);
+                    }
+                    highWater = Math.max(highWater, wallets.get(wallets.size() - 1).walletId());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                from = chunk.get(chunk.size() - 1).walletId();
+            }
+            total += chunk.size();
+        } while (chunk.size() == LOAD_CHUNK);
+        return total;
+    }
+
+    private List<Watched> activeAfter(long lastId) {
+        return jdbcTemplate.query("SELECT id, currency, address FROM wallets WHERE active = TRUE AND id > ? "
+                        + "ORDER BY id LIMIT ?",
+                (rs, i) -> new Watched(rs.getLong(1), Wallet.CryptoCurrency.valueOf(rs.getString(2)), rs.getString(3)),
+                lastId, LOAD_CHUNK);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            boolean fromSnapshot = readSnapshot();
+            if (fromSnapshot) {
+                readNewer(); // wallets created since the snapshot, before anything is looked up
+            } else {
+                reload();
+            }
+            loaded = true;
+            reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "watched-addresses-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            long periodMillis = reloadInterval.toMillis();
+            reloader.scheduleWithFixedDelay(() -> {
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    log.warn("WatchedAddresses: reload failed, retrying in {}: {}", reloadInterval, e.getMessage());
+                }
+            }, fromSnapshot ? 0 : periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rebuild every index from {@code wallets} and swap it in, replaying events applied meanwhile;
+     * then rewrite the snapshot.
+     *
+     * @return active wallets loaded
+     */
+    int reload() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Wallet.CryptoCurrency, AddressIndex> fresh = emptyIndexes();
+        int total = 0;
+        long lastId = 0;
+        try {
+            List<Watched> chunk;
+            do {
+                chunk = activeAfter(lastId);
+                for (Watched wallet : chunk) {
+                    fresh.get(wallet.currency()).put(AddressCodec.encode(wallet.address()), wallet.walletId());
+                    lastId = wallet.walletId();
+                }
+                total += chunk.size();
+            } while (chunk.size() == LOAD_CHUNK);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            journal.forEach(change -> change.accept(fresh));
+            journal = null;
+            indexes = fresh;
+            highWater = Math.max(highWater, lastId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("WatchedAddresses: {} active wallet address(es) loaded", total);
+        writeSnapshot();
+        return total;
+    }
+
+    /** Load the snapshot file into the indexes; false if there is none or it can't be read. */
+    private boolean readSnapshot() {
+        if (snapshotPath == null || !Files.isReadable(snapshotPath)) {
+            return false;
+        }
+        Map<Wallet.CryptoCurrency, AddressIndex> restored = emptyIndexes();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            int currencies = in.readInt();
+            for (int i = 0; i < currencies; i++) {
+                Wallet.CryptoCurrency currency = Wallet.CryptoCurrency.valueOf(in.readUTF());
+                restored.put(currency, AddressIndex.readFrom(in));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("WatchedAddresses: ignoring unreadable snapshot {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            indexes = restored;
+            highWater = restored.values().stream().mapToLong(AddressIndex::maxWalletId).max().orElse(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("WatchedAddresses: restored {} address(es) from {}",
+                restored.values().stream().mapToInt(AddressIndex::size).sum(), snapshotPath);
+        return true;
+    }
+
+    /** Write the indexes to a temp file next to {@code snapshotPath} and move it into place. */
+    private void writeSnapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        try {
+            Path absolute = snapshotPath.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            lock.readLock().lock();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(indexes.size());
+                for (Map.Entry<Wallet.CryptoCurrency, AddressIndex> entry : indexes.entrySet()) {
+                    out.writeUTF(entry.getKey().name());
+                    entry.getValue().writeTo(out);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("WatchedAddresses: could not write snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.cryptowallet.service.crypto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** One block as the block scanner sees it: its place in the chain and the value transfers it carries. */
+public record ChainBlock(long height, String hash, String parentHash, List<Transfer> transfers) {
+
+    public record Transfer(String txHash, String fromAddress, String toAddress, BigDecimal amount) {
+    }
+}
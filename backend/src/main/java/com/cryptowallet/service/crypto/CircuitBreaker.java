@@ -0,0 +1,74 @@
+package com.cryptowallet.service.crypto;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker. CLOSED until {@code failureThreshold} calls fail in a row,
+ * then OPEN (every call rejected) for {@code openDuration}; after that HALF_OPEN lets a single
+ * trial call through — success closes the circuit, failure re-opens it.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /** Whether a call may proceed now; every permitted call must report back once. */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.millis() - openedAtMillis >= openDuration.toMillis()) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /** The permitted call ended without telling us anything about the backend (rejected, interrupted). */
+    synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtMillis = clock.millis();
+            consecutiveFailures = 0;
+        }
+    }
+
+    synchronized State state() {
+        if (state == State.OPEN && clock.millis() - openedAtMillis >= openDuration.toMillis()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+}
@@ -3,6 +3,10 @@ package com.cryptowallet.service.crypto;
 import com.cryptowallet.entity.Wallet;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public interface CryptoProvider {
 
@@ -12,5 +16,78 @@ public interface CryptoProvider {
 
     BigDecimal getBalance(String address);
 
-    TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount);
+    /**
+     * Largest address batch {@link #getBalances} accepts in one backend round trip; 1 (the
+     * default) means the backend has no batch form, so {@link CryptoProviderRegistry#getBalances}
+     * sends one address per call and runs those calls in parallel.
+     */
+    default int balanceBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Balances of up to {@link #balanceBatchSize()} addresses in one round trip, keyed by address.
+     * Addresses the backend couldn't resolve are left out; a failed round trip throws. The default
+     * asks {@link #getBalance} for each in turn. Callers go through
+     * {@link CryptoProviderRegistry#getBalances}, which chunks, parallelizes and drops failed batches.
+     */
+    default Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (String address : addresses) {
+            BigDecimal balance = getBalance(address);
+            if (balance != null) {
+                balances.put(address, balance);
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Sign a transfer without broadcasting it. The txid is known from here on, so the outbox can
+     * record it before the node sees the transaction and a retry re-sends these exact bytes.
+     */
+    SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount);
+
+    /** Broadcast a {@link #signTransaction} result. Re-broadcasting a transaction the node already has is harmless. */
+    TransactionResult broadcastTransaction(SignedTransaction signed);
+
+    /** Sign and broadcast in one step, for callers that don't need the txid up front. */
+    default TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return broadcastTransaction(signTransaction(privateKey, toAddress, amount));
+    }
+
+    /** Whether the node has {@code txHash} in its mempool or chain; {@code UNKNOWN} if the backend can't look it up. */
+    default TransactionPresence findTransaction(String txHash) {
+        return TransactionPresence.UNKNOWN;
+    }
+
+    /**
+     * HD mode: addresses {@code fromIndex .. fromIndex+count-1} on the currency's BIP44 external
+     * chain of the wallet seed ({@code seed} = the 64-byte BIP39 seed, already stretched from the
+     * entropy with no passphrase). The account node is derived once per call, so batches cost one
+     * child derivation per address.
+     */
+    default List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        throw new UnsupportedOperationException(supportedCurrency() + " does not support HD derivation");
+    }
+
+    /** HD mode: signing key for {@code index}, in the same format {@link #generateAddress()} returns. */
+    default String derivePrivateKey(byte[] seed, int index) {
+        throw new UnsupportedOperationException(supportedCurrency() + " does not support HD derivation");
+    }
+
+    /** Whether {@link #chainHeight()} and {@link #getBlock(long)} are implemented (block scanner). */
+    default boolean supportsBlockScanning() {
+        return false;
+    }
+
+    /** Height of the node's best block. */
+    default long chainHeight() {
+        throw new UnsupportedOperationException(supportedCurrency() + " does not support block scanning");
+    }
+
+    /** Block at {@code height} on the node's best chain. */
+    default ChainBlock getBlock(long height) {
+        throw new UnsupportedOperationException(supportedCurrency() + " does not support block scanning");
+    }
 }
@@ -1,18 +1,49 @@
 package com.cryptowallet.service.crypto;
 
 import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.UnaryOperator;
 
 @Component
+@Slf4j
 public class CryptoProviderRegistry {
 
+    /** In-flight balance round trips per {@link #getBalances(Wallet.CryptoCurrency, Collection)} call. */
+    public static final int DEFAULT_BALANCE_PARALLELISM = 16;
+
     private final Map<Wallet.CryptoCurrency, CryptoProvider> providersByCurrency;
 
+    /** Undecorated: callers get the providers as registered. */
     public CryptoProviderRegistry(List<CryptoProvider> providers) {
+        this(providers, UnaryOperator.identity());
+    }
+
+    /**
+     * Each provider wrapped in {@link InstrumentedCryptoProvider} (backend latency and errors), then
+     * in its own {@link ResilientCryptoProvider} (bulkhead, timeout, circuit breaker).
+     */
+    @Autowired
+    public CryptoProviderRegistry(List<CryptoProvider> providers, ProviderResilience resilience,
+                                  MeterRegistry meterRegistry) {
+        this(providers, provider -> resilience.decorate(new InstrumentedCryptoProvider(provider, meterRegistry)));
+    }
+
+    private CryptoProviderRegistry(List<CryptoProvider> providers, UnaryOperator<CryptoProvider> decorator) {
         EnumMap<Wallet.CryptoCurrency, CryptoProvider> map = new EnumMap<>(Wallet.CryptoCurrency.class);
         for (CryptoProvider provider : providers) {
             Wallet.CryptoCurrency currency = provider.supportedCurrency();
@@ -29,9 +60,15 @@ public class CryptoProviderRegistry {
                 throw new IllegalStateException("No CryptoProvider registered for " + currency);
             }
         }
+        map.replaceAll((currency, provider) -> decorator.apply(provider));
         this.providersByCurrency = map;
     }
 
+    /** Currencies with a registered provider. */
+    public Set<Wallet.CryptoCurrency> currencies() {
+        return Collections.unmodifiableSet(providersByCurrency.keySet());
+    }
+
     public CryptoProvider get(Wallet.CryptoCurrency currency) {
         CryptoProvider provider = providersByCurrency.get(currency);
         if (provider == null) {
@@ -39,4 +76,57 @@ public class CryptoProviderRegistry {
         }
         return provider;
     }
+
+    public Map<String, BigDecimal> getBalances(Wallet.CryptoCurrency currency, Collection<String> addresses) {
+        return getBalances(currency, addresses, DEFAULT_BALANCE_PARALLELISM);
+    }
+
+    /**
+     * Balances of {@code addresses}, keyed by address. Split into the provider's
+     * {@link CryptoProvider#balanceBatchSize() batch size} — one {@code getBalances} round trip per
+     * batch (a single address for providers without a batch form) — run on virtual threads, at most {@code parallelism} at a time. A failed round trip is logged and
+     * its addresses are left out of the result.
+     */
+    public Map<String, BigDecimal> getBalances(Wallet.CryptoCurrency currency, Collection<String> addresses,
+                                               int parallelism) {
+        CryptoProvider provider = get(currency);
+        int batchSize = Math.max(1, provider.balanceBatchSize());
+        List<String> distinct = addresses.stream().distinct().toList();
+        Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+        if (distinct.size() <= batchSize) {
+            lookup(provider, distinct, balances); // one round trip: no need for a thread
+            return balances;
+        }
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        try (ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < distinct.size(); from += batchSize) {
+                List<String> batch = distinct.subList(from, Math.min(from + batchSize, distinct.size()));
+                calls.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        lookup(provider, batch, balances);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        return balances;
+    }
+
+    private static void lookup(CryptoProvider provider, List<String> batch, Map<String, BigDecimal> balances) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            provider.getBalances(batch).forEach((address, balance) -> {
+                if (balance != null) {
+                    balances.put(address, balance);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("{} balance lookup for {} address(es) failed: {}",
+                    provider.supportedCurrency(), batch.size(), e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,154 @@
+package com.cryptowallet.service.crypto;
+
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times every backend operation of one provider: {@code generateAddress}, {@code getBalance},
+ * {@code getBalances}, {@code sendTransaction}, {@code broadcastTransaction},
+ * {@code findTransaction}, {@code chainHeight} and {@code getBlock}.
+ * {@link CryptoProviderRegistry} puts it directly around the raw provider, inside
+ * {@link ResilientCryptoProvider}. It therefore measures the
+ * backend itself. Rejections and timeouts are seen only by the caller-side
+ * {@code cryptowallet.provider.call} timer.
+ *
+ * Metrics, tagged by {@code currency} and {@code operation}:
+ * <ul>
+ *   <li>{@code cryptowallet.provider.operation} — timer, tagged {@code outcome=success|error},
+ *       published as a percentile histogram so p99 can be aggregated across instances in
+ *       Prometheus; its count is the throughput;</li>
+ *   <li>{@code cryptowallet.provider.errors} — counter, also tagged by {@code exception}
+ *       (simple class name).</li>
+ * </ul>
+ */
+public class InstrumentedCryptoProvider implements CryptoProvider {
+
+    private static final List<String> OPERATIONS = List.of("generateAddress", "getBalance", "getBalances",
+            "sendTransaction", "broadcastTransaction", "findTransaction", "chainHeight", "getBlock");
+
+    private final CryptoProvider delegate;
+    private final Wallet.CryptoCurrency currency;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    public InstrumentedCryptoProvider(CryptoProvider delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.currency = delegate.supportedCurrency();
+        this.meterRegistry = meterRegistry;
+        for (String operation : OPERATIONS) {
+            for (String outcome : List.of("success", "error")) {
+                timers.put(operation + ":" + outcome, Timer.builder("cryptowallet.provider.operation")
+                        .tag("currency", currency.name())
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .description("Latency of blockchain backend operations")
+                        .publishPercentiles(0.5, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    CryptoProvider delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Wallet.CryptoCurrency supportedCurrency() {
+        return currency;
+    }
+
+    @Override
+    public KeyPair generateAddress() {
+        return timed("generateAddress", delegate::generateAddress);
+    }
+
+    @Override
+    public BigDecimal getBalance(String address) {
+        return timed("getBalance", () -> delegate.getBalance(address));
+    }
+
+    @Override
+    public int balanceBatchSize() {
+        return delegate.balanceBatchSize();
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        return timed("getBalances", () -> delegate.getBalances(addresses));
+    }
+
+    @Override
+    public TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return timed("sendTransaction", () -> delegate.sendTransaction(privateKey, toAddress, amount));
+    }
+
+    @Override
+    public SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return delegate.signTransaction(privateKey, toAddress, amount);
+    }
+
+    @Override
+    public TransactionResult broadcastTransaction(SignedTransaction signed) {
+        return timed("broadcastTransaction", () -> delegate.broadcastTransaction(signed));
+    }
+
+    @Override
+    public TransactionPresence findTransaction(String txHash) {
+        return timed("findTransaction", () -> delegate.findTransaction(txHash));
+    }
+
+    @Override
+    public List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        return delegate.deriveAddresses(seed, fromIndex, count);
+    }
+
+    @Override
+    public String derivePrivateKey(byte[] seed, int index) {
+        return delegate.derivePrivateKey(seed, index);
+    }
+
+    @Override
+    public boolean supportsBlockScanning() {
+        return delegate.supportsBlockScanning();
+    }
+
+    @Override
+    public long chainHeight() {
+        return timed("chainHeight", delegate::chainHeight);
+    }
+
+    @Override
+    public ChainBlock getBlock(long height) {
+        return timed("getBlock", () -> delegate.getBlock(height));
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            timers.get(operation + ":success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            timers.get(operation + ":error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder("cryptowallet.provider.errors")
+                    .tag("currency", currency.name())
+                    .tag("operation", operation)
+                    .tag("exception", e.getClass().getSimpleName())
+                    .description("Failed blockchain backend operations")
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+}
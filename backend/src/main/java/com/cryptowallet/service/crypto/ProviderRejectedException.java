@@ -0,0 +1,12 @@
+package com.cryptowallet.service.crypto;
+
+/**
+ * A provider call was refused before it reached the backend — open circuit or full bulkhead — so
+ * it had no effect. Callers can retry it later as if it had never been made.
+ */
+public class ProviderRejectedException extends ProviderUnavailableException {
+
+    public ProviderRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.cryptowallet.service.crypto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Builds the {@link ResilientCryptoProvider} decorator {@link CryptoProviderRegistry} puts around
+ * each provider, from {@code app.crypto.resilience.*}. Every currency gets the same policy but its
+ * own bulkhead and circuit, so one degraded backend can't slow the others.
+ */
+@Component
+public class ProviderResilience {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxConcurrentCalls;
+    private final int maxConcurrentSends;
+    private final Duration callTimeout;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Duration hedgeDelay;
+
+    public ProviderResilience(MeterRegistry meterRegistry,
+                              @Value("${app.crypto.resilience.enabled:true}") boolean enabled,
+                              @Value("${app.crypto.resilience.max-concurrent-calls:32}") int maxConcurrentCalls,
+                              @Value("${app.crypto.resilience.max-concurrent-sends:16}") int maxConcurrentSends,
+                              @Value("${app.crypto.resilience.call-timeout:10s}") Duration callTimeout,
+                              @Value("${app.crypto.resilience.failure-threshold:5}") int failureThreshold,
+                              @Value("${app.crypto.resilience.open-duration:30s}") Duration openDuration,
+                              @Value("${app.crypto.resilience.hedge-delay:0s}") Duration hedgeDelay) {
+        if (maxConcurrentCalls < 1 || maxConcurrentSends < 1 || failureThreshold < 1 || !callTimeout.isPositive()) {
+            throw new IllegalArgumentException("app.crypto.resilience requires max-concurrent-calls, "
+                    + "max-concurrent-sends and failure-threshold >= 1 and a positive call-timeout");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxConcurrentSends = maxConcurrentSends;
+        this.callTimeout = callTimeout;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    public CryptoProvider decorate(CryptoProvider provider) {
+        if (!enabled) {
+            return provider;
+        }
+        return new ResilientCryptoProvider(provider, maxConcurrentCalls, maxConcurrentSends, callTimeout,
+                failureThreshold, openDuration, hedgeDelay, meterRegistry, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,12 @@
+package com.cryptowallet.service.crypto;
+
+/**
+ * A provider call was not made or not waited for: its circuit is open, its bulkhead is full, or
+ * it ran past the call timeout.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    public ProviderUnavailableException(String message) {
+        super(message);
+    }
+}
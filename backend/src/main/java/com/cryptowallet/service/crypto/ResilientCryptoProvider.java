@@ -0,0 +1,311 @@
+package com.cryptowallet.service.crypto;
+
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps one currency's {@link CryptoProvider} so a sick backend stays contained. Every node call
+ * ({@code getBalance}, {@code getBalances}, {@code sendTransaction}, {@code broadcastTransaction},
+ * {@code findTransaction}, {@code chainHeight}, {@code getBlock}) passes, in order:
+ * <ul>
+ *   <li>a circuit breaker — fails fast with {@link ProviderRejectedException} while open;</li>
+ *   <li>a bulkhead — {@code maxConcurrentCalls} for reads, a separate {@code maxConcurrentSends}
+ *       for sends and broadcasts, so a burst of balance reads can't starve the outbox (or the
+ *       reverse). A full bulkhead rejects immediately ({@link ProviderRejectedException}) instead
+ *       of queueing the caller, so a hung node can hold at most that many threads, and only its
+ *       own currency's;</li>
+ *   <li>a call timeout — the call runs on this currency's own thread pool and the caller stops
+ *       waiting (and interrupts it) after {@code callTimeout}. The bulkhead permit is only
+ *       returned when the call itself ends.</li>
+ * </ul>
+ * Sends and broadcasts get no timeout: a send that is abandoned but still broadcasts would be
+ * recorded as failed and refunded. It only runs on outbox workers, never on request threads.
+ * Balance reads can be hedged: if the first {@code getBalance} hasn't answered after
+ * {@code hedgeDelay}, a second one is issued — only if it can take its own read permit — and the
+ * first successful answer wins; the other leg is cancelled. The read fails only when every leg
+ * issued has failed. This pays off with providers that spread calls over several endpoints.
+ *
+ * Local operations (key generation, HD derivation, signing) pass straight through.
+ *
+ * Metrics, tagged by currency: {@code cryptowallet.provider.call} (timer, tags
+ * {@code operation} and {@code outcome=success|failure|timeout|rejected}),
+ * {@code cryptowallet.provider.circuit.state} (gauge: 0 closed, 1 half-open, 2 open),
+ * {@code cryptowallet.provider.bulkhead.in.use} (gauge, tagged {@code bulkhead=reads|sends}) and
+ * {@code cryptowallet.provider.hedged} (counter).
+ */
+@Slf4j
+public class ResilientCryptoProvider implements CryptoProvider {
+
+    private final CryptoProvider delegate;
+    private final Wallet.CryptoCurrency currency;
+    private final Duration callTimeout;
+    private final Duration hedgeDelay;
+    private final Bulkhead reads;
+    private final Bulkhead sends;
+    private final CircuitBreaker breaker;
+    private final MeterRegistry meterRegistry;
+    private final Counter hedged;
+    private final ExecutorService calls;
+
+    /** One pool of call permits; {@code limit} is kept for the rejection message and the gauge. */
+    private record Bulkhead(String name, Semaphore permits, int limit) {
+
+        Bulkhead(String name, int limit) {
+            this(name, new Semaphore(limit), limit);
+        }
+    }
+
+    public ResilientCryptoProvider(CryptoProvider delegate, int maxConcurrentCalls, int maxConcurrentSends,
+                                   Duration callTimeout, int failureThreshold, Duration openDuration,
+                                   Duration hedgeDelay, MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.currency = delegate.supportedCurrency();
+        this.callTimeout = callTimeout;
+        this.hedgeDelay = hedgeDelay;
+        this.reads = new Bulkhead("reads", maxConcurrentCalls);
+        this.sends = new Bulkhead("sends", maxConcurrentSends);
+        this.breaker = new CircuitBreaker(failureThreshold, openDuration, clock);
+        this.meterRegistry = meterRegistry;
+        // Platform threads, one pool per currency: a call blocked while pinned would otherwise stall
+        // the shared virtual-thread carriers, and with them every other currency. Sized by the bulkheads.
+        AtomicInteger threadIds = new AtomicInteger();
+        this.calls = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "provider-" + currency.name().toLowerCase() + "-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.hedged = Counter.builder("cryptowallet.provider.hedged")
+                .tag("currency", currency.name())
+                .description("Balance reads that issued a hedge request")
+                .register(meterRegistry);
+        Gauge.builder("cryptowallet.provider.circuit.state", breaker, b -> b.state().ordinal())
+                .tag("currency", currency.name())
+                .description("Provider circuit: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        for (Bulkhead bulkhead : List.of(reads, sends)) {
+            Gauge.builder("cryptowallet.provider.bulkhead.in.use", bulkhead.permits(),
+                            p -> bulkhead.limit() - p.availablePermits())
+                    .tag("currency", currency.name())
+                    .tag("bulkhead", bulkhead.name())
+                    .description("Provider calls currently holding a bulkhead permit")
+                    .register(meterRegistry);
+        }
+    }
+
+    CryptoProvider delegate() {
+        return delegate;
+    }
+
+    CircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+
+    @Override
+    public Wallet.CryptoCurrency supportedCurrency() {
+        return currency;
+    }
+
+    @Override
+    public KeyPair generateAddress() {
+        return delegate.generateAddress();
+    }
+
+    @Override
+    public List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        return delegate.deriveAddresses(seed, fromIndex, count);
+    }
+
+    @Override
+    public String derivePrivateKey(byte[] seed, int index) {
+        return delegate.derivePrivateKey(seed, index);
+    }
+
+    @Override
+    public int balanceBatchSize() {
+        return delegate.balanceBatchSize();
+    }
+
+    @Override
+    public BigDecimal getBalance(String address) {
+        if (hedgeDelay.isZero() || hedgeDelay.isNegative()) {
+            return call("getBalance", reads, callTimeout, () -> delegate.getBalance(address));
+        }
+        return call("getBalance", reads, callTimeout, () -> hedgedBalance(address));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        return call("getBalances", reads, callTimeout, () -> delegate.getBalances(addresses));
+    }
+
+    @Override
+    public TransactionResult sendTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return call("sendTransaction", sends, null, () -> delegate.sendTransaction(privateKey, toAddress, amount));
+    }
+
+    @Override
+    public SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        return delegate.signTransaction(privateKey, toAddress, amount);
+    }
+
+    @Override
+    public TransactionResult broadcastTransaction(SignedTransaction signed) {
+        return call("broadcastTransaction", sends, null, () -> delegate.broadcastTransaction(signed));
+    }
+
+    @Override
+    public TransactionPresence findTransaction(String txHash) {
+        return call("findTransaction", reads, callTimeout, () -> delegate.findTransaction(txHash));
+    }
+
+    @Override
+    public boolean supportsBlockScanning() {
+        return delegate.supportsBlockScanning();
+    }
+
+    @Override
+    public long chainHeight() {
+        return call("chainHeight", reads, callTimeout, delegate::chainHeight);
+    }
+
+    @Override
+    public ChainBlock getBlock(long height) {
+        return call("getBlock", reads, callTimeout, () -> delegate.getBlock(height));
+    }
+
+    /**
+     * Runs under the caller's read permit. The hedge leg takes a second permit, or isn't issued
+     * when the bulkhead is full; whichever leg loses is cancelled.
+     */
+    private BigDecimal hedgedBalance(String address) throws Exception {
+        CompletionService<BigDecimal> legs = new ExecutorCompletionService<>(calls);
+        Future<BigDecimal> first = legs.submit(() -> delegate.getBalance(address));
+        Future<BigDecimal> second = null;
+        AtomicBoolean secondClaimed = new AtomicBoolean();
+        try {
+            Future<BigDecimal> answered = legs.poll(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+            if (answered != null) {
+                return answered.get();
+            }
+            if (reads.permits().tryAcquire()) {
+                hedged.increment();
+                second = legs.submit(() -> {
+                    if (!secondClaimed.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        return delegate.getBalance(address);
+                    } finally {
+                        reads.permits().release();
+                    }
+                });
+            }
+            for (int running = second == null ? 1 : 2; ; running--) {
+                try {
+                    return legs.take().get();
+                } catch (ExecutionException e) {
+                    if (running == 1) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            first.cancel(true);
+            if (second != null) {
+                abandon(second, secondClaimed, reads);
+            }
+        }
+    }
+
+    /** Breaker, bulkhead and (unless {@code timeout} is null) timeout around one delegate call. */
+    private <T> T call(String operation, Bulkhead bulkhead, Duration timeout, Callable<T> work) {
+        long start = System.nanoTime();
+        if (!breaker.tryAcquire()) {
+            record(operation, "rejected", start);
+            throw new ProviderRejectedException(currency + " provider circuit is open");
+        }
+        if (!bulkhead.permits().tryAcquire()) {
+            breaker.onIgnored(); // a rejection says nothing about the backend's health
+            record(operation, "rejected", start);
+            throw new ProviderRejectedException(currency + " provider is at its limit of "
+                    + bulkhead.limit() + " concurrent " + bulkhead.name());
+        }
+        // Whoever flips this owns the permit: the call when it starts, or a caller that gave up first.
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> result = calls.submit(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return work.call();
+            } finally {
+                bulkhead.permits().release();
+            }
+        });
+        try {
+            T value = timeout == null ? result.get() : result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            breaker.onSuccess();
+            record(operation, "success", start);
+            return value;
+        } catch (TimeoutException e) {
+            abandon(result, claimed, bulkhead);
+            breaker.onFailure();
+            record(operation, "timeout", start);
+            log.warn("{} provider {} timed out after {}", currency, operation, timeout);
+            throw new ProviderUnavailableException(currency + " provider " + operation + " timed out after " + timeout);
+        } catch (ExecutionException e) {
+            breaker.onFailure();
+            record(operation, "failure", start);
+            Throwable cause = e.getCause() instanceof ExecutionException nested ? nested.getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(currency + " provider " + operation + " failed", cause);
+        } catch (InterruptedException e) {
+            abandon(result, claimed, bulkhead);
+            breaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new ProviderUnavailableException(currency + " provider " + operation + " interrupted");
+        }
+    }
+
+    private static void abandon(Future<?> call, AtomicBoolean claimed, Bulkhead bulkhead) {
+        call.cancel(true);
+        if (claimed.compareAndSet(false, true)) {
+            bulkhead.permits().release(); // never started, so it won't release the permit itself
+        }
+    }
+
+    private void record(String operation, String outcome, long startNanos) {
+        Timer.builder("cryptowallet.provider.call")
+                .tag("currency", currency.name())
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .description("Latency of calls to the blockchain backend")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,11 @@
+package com.cryptowallet.service.crypto;
+
+import java.math.BigDecimal;
+
+/**
+ * A transfer signed but not yet broadcast. {@code txHash} is fixed by the signature, and
+ * {@code payload} is what {@link CryptoProvider#broadcastTransaction} sends (the raw signed
+ * transaction, holding no key material).
+ */
+public record SignedTransaction(String txHash, String payload, BigDecimal fee) {
+}
@@ -0,0 +1,8 @@
+package com.cryptowallet.service.crypto;
+
+/** What a node says about a txid: in its mempool or chain, absent from both, or it can't tell. */
+public enum TransactionPresence {
+    SEEN,
+    NOT_SEEN,
+    UNKNOWN
+}
@@ -0,0 +1,75 @@
+package com.cryptowallet.service.index;
+
+import org.bitcoinj.core.AddressFormatException;
+import org.bitcoinj.core.Base58;
+import org.bitcoinj.core.Bech32;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Address string → compact key bytes for {@link AddressIndex}. The first byte tags the form:
+ * <ul>
+ *   <li>Base58Check (Tron, legacy Bitcoin): version + payload, checksum dropped — 21 bytes for 34
+ *       characters.</li>
+ *   <li>Bech32/Bech32m (SegWit Bitcoin): human-readable part plus the 5-bit data groups packed
+ *       eight to five bytes, checksum dropped.</li>
+ *   <li>Anything else (placeholder and simulator addresses): UTF-8.</li>
+ * </ul>
+ * Distinct well-formed addresses map to distinct keys. Bech32 is case-insensitive, so an upper-case
+ * address shares its lower-case form's key; callers that need the exact string (the ingestor's
+ * {@code wallets} lookup) still compare it.
+ */
+public final class AddressCodec {
+
+    private static final byte RAW = 0;
+    private static final byte BASE58_CHECK = 1;
+    private static final byte BECH32 = 2;
+    private static final byte BECH32M = 3;
+
+    private AddressCodec() {
+    }
+
+    public static byte[] encode(String address) {
+        try {
+            return tagged(BASE58_CHECK, Base58.decodeChecked(address));
+        } catch (AddressFormatException notBase58) {
+            // fall through
+        }
+        try {
+            Bech32.Bech32Data bech32 = Bech32.decode(address);
+            byte[] hrp = bech32.hrp.getBytes(StandardCharsets.US_ASCII);
+            byte[] packed = pack5(bech32.data);
+            byte[] key = new byte[3 + hrp.length + packed.length];
+            key[0] = bech32.encoding == Bech32.Encoding.BECH32M ? BECH32M : BECH32;
+            key[1] = (byte) hrp.length;
+            key[2] = (byte) bech32.data.length;
+            System.arraycopy(hrp, 0, key, 3, hrp.length);
+            System.arraycopy(packed, 0, key, 3 + hrp.length, packed.length);
+            return key;
+        } catch (AddressFormatException notBech32) {
+            // fall through
+        }
+        return tagged(RAW, address.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] tagged(byte tag, byte[] body) {
+        byte[] key = new byte[body.length + 1];
+        key[0] = tag;
+        System.arraycopy(body, 0, key, 1, body.length);
+        return key;
+    }
+
+    /** 5-bit groups, most significant bit first, zero-padded to a whole byte. */
+    private static byte[] pack5(byte[] groups) {
+        byte[] packed = new byte[(groups.length * 5 + 7) / 8];
+        int bit = 0;
+        for (byte group : groups) {
+            for (int i = 4; i >= 0; i--, bit++) {
+                if ((group >> i & 1) != 0) {
+                    packed[bit >> 3] |= (byte) (0x80 >>> (bit & 7));
+                }
+            }
+        }
+        return packed;
+    }
+}
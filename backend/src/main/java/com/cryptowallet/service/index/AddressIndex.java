@@ -0,0 +1,246 @@
+package com.cryptowallet.service.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact address key → wallet id map (keys from {@link AddressCodec}).
+ *
+ * Open addressing with linear probing over three parallel arrays — a 64-bit key hash, the wallet
+ * id and an offset into one shared byte arena holding the length-prefixed keys — so an entry
+ * costs about 20 bytes of table plus its key, against well over 100 for a
+ * {@code HashMap<String, Long>} entry. A {@link BloomFilter} (10 bits per entry, 7 probes, ~1%
+ * false positives) answers most misses — the common case when matching a block's outputs — without
+ * touching the table. Removal leaves a tombstone; tombstones, dead arena bytes and stale Bloom bits
+ * are dropped whenever the table is rebuilt.
+ *
+ * Not thread-safe: {@code WatchedAddresses} guards it with a read/write lock.
+ */
+public final class AddressIndex {
+
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = 1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int SNAPSHOT_MAGIC = 0x43574149; // "CWAI"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private long[] hashes;
+    private long[] walletIds;
+    private int[] offsets;
+    private byte[] arena;
+    private int arenaUsed;
+    private int size;
+    private int tombstones;
+    private BloomFilter bloom;
+
+    public AddressIndex() {
+        this(0);
+    }
+
+    /** Pre-sized for {@code expected} entries. */
+    public AddressIndex(int expected) {
+        allocate(capacityFor(expected), Math.max(64, expected * 24));
+    }
+
+    private static int capacityFor(int entries) {
+        // Load factor <= 0.6 after a rebuild, so probes stay short until the next one at 0.75.
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < entries * 5L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity, int arenaBytes) {
+        hashes = new long[capacity];
+        walletIds = new long[capacity];
+        offsets = new int[capacity];
+        arena = new byte[arenaBytes];
+        arenaUsed = 0;
+        size = 0;
+        tombstones = 0;
+        bloom = new BloomFilter(capacity / 4 * 3, 10, 7);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Wallet id for {@code key}, or null. */
+    public Long get(byte[] key) {
+        long hash = hash(key);
+        if (!bloom.mightContain(hash)) {
+            return null;
+        }
+        int slot = find(key, hash);
+        return slot < 0 ? null : walletIds[slot];
+    }
+
+    /** Map {@code key} to {@code walletId}, replacing any previous id. */
+    public void put(byte[] key, long walletId) {
+        if (key.length > 255) {
+            throw new IllegalArgumentException("Address key longer than 255 bytes");
+        }
+        long hash = hash(key);
+        int existing = find(key, hash);
+        if (existing >= 0) {
+            walletIds[existing] = walletId;
+            return;
+        }
+        if ((size + tombstones + 1) * 4L > hashes.length * 3L) {
+            rebuild(capacityFor(size + 1));
+        }
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != EMPTY && hashes[slot] != TOMBSTONE) {
+            slot = (slot + 1) & mask;
+        }
+        if (hashes[slot] == TOMBSTONE) {
+            tombstones--;
+        }
+        hashes[slot] = hash;
+        walletIds[slot] = walletId;
+        offsets[slot] = append(key);
+        bloom.add(hash);
+        size++;
+    }
+
+    /** Remove {@code key} if it maps to {@code walletId}; true if it did. */
+    public boolean remove(byte[] key, long walletId) {
+        long hash = hash(key);
+        if (!bloom.mightContain(hash)) {
+            return false;
+        }
+        int slot = find(key, hash);
+        if (slot < 0 || walletIds[slot] != walletId) {
+            return false;
+        }
+        hashes[slot] = TOMBSTONE;
+        size--;
+        tombstones++;
+        return true;
+    }
+
+    /** Largest wallet id held, or 0 when empty. */
+    public long maxWalletId() {
+        long max = 0;
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] != EMPTY && hashes[slot] != TOMBSTONE) {
+                max = Math.max(max, walletIds[slot]);
+            }
+        }
+        return max;
+    }
+
+    /** Heap held by the table, arena and Bloom filter. */
+    public long footprintBytes() {
+        return (long) hashes.length * (Long.BYTES + Long.BYTES + Integer.BYTES) + arena.length
+                + bloom.footprintBytes();
+    }
+
+    /** Live entries as {@code count, (walletId, keyLength, key)*}, preceded by a magic and version. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(size);
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] != EMPTY && hashes[slot] != TOMBSTONE) {
+                int offset = offsets[slot];
+                int length = arena[offset] & 0xFF;
+                out.writeLong(walletIds[slot]);
+                out.writeByte(length);
+                out.write(arena, offset + 1, length);
+            }
+        }
+    }
+
+    public static AddressIndex readFrom(DataInput in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Not an address index snapshot (or an unsupported version)");
+        }
+        int count = in.readInt();
+        AddressIndex index = new AddressIndex(count);
+        for (int i = 0; i < count; i++) {
+            long walletId = in.readLong();
+            byte[] key = new byte[in.readUnsignedByte()];
+            in.readFully(key);
+            index.put(key, walletId);
+        }
+        return index;
+    }
+
+    private int find(byte[] key, long hash) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != EMPTY) {
+            if (hashes[slot] == hash && keyEquals(offsets[slot], key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        int length = arena[offset] & 0xFF;
+        return length == key.length
+                && Arrays.equals(arena, offset + 1, offset + 1 + length, key, 0, key.length);
+    }
+
+    private int append(byte[] key) {
+        int needed = arenaUsed + 1 + key.length;
+        if (needed > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(needed, arena.length + (arena.length >> 1)));
+        }
+        int offset = arenaUsed;
+        arena[offset] = (byte) key.length;
+        System.arraycopy(key, 0, arena, offset + 1, key.length);
+        arenaUsed = needed;
+        return offset;
+    }
+
+    /** Re-insert live entries into fresh arrays: drops tombstones, dead arena bytes and stale Bloom bits. */
+    private void rebuild(int capacity) {
+        long[] oldHashes = hashes;
+        long[] oldWalletIds = walletIds;
+        int[] oldOffsets = offsets;
+        byte[] oldArena = arena;
+        int live = size;
+        allocate(capacity, Math.max(64, arenaUsed - deadArenaBytes(oldHashes, oldOffsets, oldArena) + 64));
+        for (int slot = 0; slot < oldHashes.length; slot++) {
+            if (oldHashes[slot] != EMPTY && oldHashes[slot] != TOMBSTONE) {
+                int offset = oldOffsets[slot];
+                int length = oldArena[offset] & 0xFF;
+                put(Arrays.copyOfRange(oldArena, offset + 1, offset + 1 + length), oldWalletIds[slot]);
+            }
+        }
+        assert size == live;
+    }
+
+    private int deadArenaBytes(long[] oldHashes, int[] oldOffsets, byte[] oldArena) {
+        int dead = 0;
+        for (int slot = 0; slot < oldHashes.length; slot++) {
+            if (oldHashes[slot] == TOMBSTONE) {
+                dead += 1 + (oldArena[oldOffsets[slot]] & 0xFF);
+            }
+        }
+        return dead;
+    }
+
+    /** FNV-1a, then a 64-bit finalizer; never EMPTY or TOMBSTONE. */
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY || h == TOMBSTONE ? h + 2 : h;
+    }
+}
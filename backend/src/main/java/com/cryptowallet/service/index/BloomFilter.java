@@ -0,0 +1,45 @@
+package com.cryptowallet.service.index;
+
+/**
+ * Fixed-size Bloom filter over 64-bit hashes: {@code k} probes by double hashing on the two
+ * halves of the hash. No removal — callers rebuild it to shed stale bits.
+ */
+final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int probes;
+
+    /** Sized for {@code expected} entries at {@code bitsPerEntry} bits each. */
+    BloomFilter(int expected, int bitsPerEntry, int probes) {
+        long wanted = Math.max(64L, (long) expected * bitsPerEntry);
+        this.bits = new long[(int) ((wanted + 63) >>> 6)];
+        this.bitCount = (long) bits.length << 6;
+        this.probes = probes;
+    }
+
+    void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long footprintBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+}
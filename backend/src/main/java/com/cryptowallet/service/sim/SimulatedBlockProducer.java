@@ -0,0 +1,67 @@
+package com.cryptowallet.service.sim;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code sim} profile: mines a block on every {@link SimulatedCryptoProvider} at its
+ * {@code block-interval}; {@link com.cryptowallet.service.BlockScanner} picks deposits up from
+ * there like it would from a node. With {@code app.sim.auto-mine: false} blocks are only mined on
+ * demand via {@link SimulatedCryptoProvider#mineBlock()}.
+ */
+@Component
+@Profile("sim")
+@Slf4j
+public class SimulatedBlockProducer {
+
+    private final List<SimulatedCryptoProvider> chains;
+    private final boolean autoMine;
+
+    private ScheduledExecutorService miner;
+
+    public SimulatedBlockProducer(List<SimulatedCryptoProvider> chains,
+                                  @Value("${app.sim.auto-mine:true}") boolean autoMine) {
+        this.chains = chains;
+        this.autoMine = autoMine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!autoMine) {
+            log.info("SimulatedBlockProducer: auto-mine off — blocks are mined on demand");
+            return;
+        }
+        miner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sim-block-producer");
+            t.setDaemon(true);
+            return t;
+        });
+        for (SimulatedCryptoProvider chain : chains) {
+            long intervalMillis = chain.settings().blockInterval().toMillis();
+            miner.scheduleAtFixedRate(() -> {
+                try {
+                    chain.mineBlock();
+                } catch (RuntimeException e) {
+                    log.warn("SimulatedBlockProducer: {} block failed: {}", chain.supportedCurrency(), e.getMessage());
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("SimulatedBlockProducer: mining {} every {}", chain.supportedCurrency(),
+                    chain.settings().blockInterval());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (miner != null) miner.shutdownNow();
+    }
+}
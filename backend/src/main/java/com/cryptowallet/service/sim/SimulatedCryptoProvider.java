@@ -0,0 +1,410 @@
+package com.cryptowallet.service.sim;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.ChainBlock;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.KeyPair;
+import com.cryptowallet.service.crypto.SignedTransaction;
+import com.cryptowallet.service.crypto.TransactionPresence;
+import com.cryptowallet.service.crypto.TransactionResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in for one chain, for offline load tests ({@code sim} profile).
+ *
+ * Keeps a ledger of simulator-issued addresses, a mempool and a window of mined blocks. Every
+ * node call ({@code getBalance}, {@code getBalances}, {@code broadcastTransaction},
+ * {@code findTransaction}, {@code chainHeight}, {@code getBlock}) sleeps for a log-normal latency
+ * and fails at {@code failureRate}. A broadcast debits amount + fee immediately and waits in the
+ * mempool; broadcasting the same signed transaction again is a no-op. {@link #mineBlock()} includes
+ * the mempool plus a random number of external deposits to known addresses and credits recipients;
+ * the block scanner reads it back through {@link #getBlock}. {@link #reorg(int)} replaces the tip
+ * to exercise the block scanner's rollback.
+ * All randomness comes from one seeded {@link Random}, so a run is repeatable given the same seed
+ * and call order.
+ *
+ * The ledger doesn't enforce balances (the app's wallets may be funded outside the simulator);
+ * it can go negative.
+ */
+@Slf4j
+public class SimulatedCryptoProvider implements CryptoProvider {
+
+    private static final String BASE58 = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final int SCALE = 8;
+
+    /** A transfer as held in the mempool and in mined blocks. */
+    public record Transfer(String txHash, String fromAddress, String toAddress, BigDecimal amount, BigDecimal fee) {
+    }
+
+    public record Block(long height, String hash, String parentHash, Instant minedAt, List<Transfer> transfers) {
+    }
+
+    private static final String GENESIS_PARENT = "0".repeat(64);
+
+    private final Wallet.CryptoCurrency currency;
+    private final SimulationSettings settings;
+    private final Clock clock;
+    private final Random random;
+    private final double latencySigma;
+
+    private final Map<String, BigDecimal> ledger = new ConcurrentHashMap<>();
+    private final Map<String, String> addressByKey = new ConcurrentHashMap<>();
+    private final List<String> knownAddresses = new ArrayList<>();
+    private final List<Transfer> mempool = new ArrayList<>();
+    /** Signed, not yet broadcast, by txid. */
+    private final Map<String, Transfer> signed = new ConcurrentHashMap<>();
+    /** Txids in the mempool or on the current chain. */
+    private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private long height;
+    private String tipHash = GENESIS_PARENT;
+
+    public SimulatedCryptoProvider(Wallet.CryptoCurrency currency, SimulationSettings settings, Clock clock) {
+        this.currency = currency;
+        this.settings = settings;
+        this.clock = clock;
+        this.random = new Random(settings.seed() ^ currency.ordinal());
+        // p99 of a log-normal sits 2.326 standard deviations above its median in log space.
+        double median = Math.max(1, settings.latencyMedian().toNanos());
+        this.latencySigma = Math.log(Math.max(median, settings.latencyP99().toNanos()) / median) / 2.326;
+    }
+
+    @Override
+    public Wallet.CryptoCurrency supportedCurrency() {
+        return currency;
+    }
+
+    @Override
+    public KeyPair generateAddress() {
+        byte[] key = new byte[32];
+        String address;
+        synchronized (random) {
+            random.nextBytes(key);
+            address = newAddress();
+        }
+        return register(address, "sim:" + HexFormat.of().formatHex(key));
+    }
+
+    @Override
+    public List<String> deriveAddresses(byte[] seed, int fromIndex, int count) {
+        List<String> addresses = new ArrayList<>(count);
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            addresses.add(deriveKeyPair(seed, i).getAddress());
+        }
+        return addresses;
+    }
+
+    @Override
+    public String derivePrivateKey(byte[] seed, int index) {
+        return deriveKeyPair(seed, index).getPrivateKey();
+    }
+
+    /** HD stand-in: both halves are hashes of (seed, index), so derivation is a pure function. */
+    private KeyPair deriveKeyPair(byte[] seed, int index) {
+        byte[] digest = sha256(HexFormat.of().formatHex(seed) + "/" + index);
+        Random derived = new Random(new BigInteger(1, digest).longValue());
+        return register(addressFrom(derived), "sim:" + HexFormat.of().formatHex(digest));
+    }
+
+    private KeyPair register(String address, String privateKey) {
+        if (addressByKey.putIfAbsent(privateKey, address) == null) {
+            ledger.putIfAbsent(address, BigDecimal.ZERO.setScale(SCALE));
+            synchronized (knownAddresses) {
+                knownAddresses.add(address);
+            }
+        }
+        KeyPair keyPair = new KeyPair();
+        keyPair.setAddress(address);
+        keyPair.setPrivateKey(privateKey);
+        return keyPair;
+    }
+
+    @Override
+    public BigDecimal getBalance(String address) {
+        nodeCall("getBalance");
+        return ledger.getOrDefault(address, BigDecimal.ZERO.setScale(SCALE));
+    }
+
+    @Override
+    public int balanceBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(Collection<String> addresses) {
+        nodeCall("getBalances");
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (String address : addresses) {
+            balances.put(address, ledger.getOrDefault(address, BigDecimal.ZERO.setScale(SCALE)));
+        }
+        return balances;
+    }
+
+    @Override
+    public SignedTransaction signTransaction(String privateKey, String toAddress, BigDecimal amount) {
+        String from = addressByKey.get(privateKey);
+        if (from == null) {
+            throw new IllegalArgumentException("Unknown signing key for simulated " + currency);
+        }
+        Transfer transfer;
+        synchronized (random) {
+            transfer = new Transfer(newHash(), from, toAddress, amount, settings.fee());
+        }
+        signed.put(transfer.txHash(), transfer);
+        return new SignedTransaction(transfer.txHash(), transfer.txHash(), transfer.fee());
+    }
+
+    @Override
+    public TransactionResult broadcastTransaction(SignedTransaction transaction) {
+        nodeCall("broadcastTransaction");
+        if (accepted.add(transaction.txHash())) {
+            Transfer transfer = signed.remove(transaction.payload());
+            if (transfer == null) {
+                accepted.remove(transaction.txHash());
+                throw new IllegalArgumentException("Unknown signed transaction for simulated " + currency);
+            }
+            ledger.merge(transfer.fromAddress(), transfer.amount().add(transfer.fee()).negate(), BigDecimal::add);
+            synchronized (mempool) {
+                mempool.add(transfer);
+            }
+        }
+        TransactionResult result = new TransactionResult();
+        result.setTxHash(transaction.txHash());
+        result.setFee(transaction.fee());
+        return result;
+    }
+
+    @Override
+    public TransactionPresence findTransaction(String txHash) {
+        nodeCall("findTransaction");
+        return accepted.contains(txHash) ? TransactionPresence.SEEN : TransactionPresence.NOT_SEEN;
+    }
+
+    /** Queue an external deposit to {@code toAddress}; credited when the next block is mined. */
+    public String deposit(String toAddress, BigDecimal amount) {
+        Transfer transfer;
+        synchronized (random) {
+            transfer = new Transfer(newHash(), externalAddress(), toAddress, amount, BigDecimal.ZERO);
+        }
+        synchronized (mempool) {
+            mempool.add(transfer);
+        }
+        return transfer.txHash();
+    }
+
+    /**
+     * Mine one block: the mempool plus random external deposits to known addresses. Credits
+     * recipients the ledger knows.
+     */
+    public Block mineBlock() {
+        List<Transfer> included;
+        synchronized (mempool) {
+            included = new ArrayList<>(mempool);
+            mempool.clear();
+        }
+        String hash;
+        synchronized (random) {
+            hash = newHash();
+            int deposits = poisson(settings.depositsPerBlock());
+            for (int i = 0; i < deposits; i++) {
+                String to = randomKnownAddress();
+                if (to != null) {
+                    included.add(new Transfer(newHash(), externalAddress(), to, depositAmount(), BigDecimal.ZERO));
+                }
+            }
+        }
+
+        Block block;
+        synchronized (blocks) {
+            block = new Block(++height, hash, tipHash, clock.instant(), List.copyOf(included));
+            tipHash = hash;
+            blocks.addLast(block);
+            while (blocks.size() > settings.retainedBlocks()) {
+                blocks.removeFirst();
+            }
+        }
+        for (Transfer transfer : included) {
+            ledger.computeIfPresent(transfer.toAddress(), (address, balance) -> balance.add(transfer.amount()));
+        }
+        log.debug("Simulated {} block {} mined with {} transfer(s)", currency, block.height(), included.size());
+        return block;
+    }
+
+    /**
+     * Chain reorganisation: orphan the last {@code depth} blocks, undoing their ledger effects
+     * (their transfers are dropped, not re-mined), then mine {@code depth + 1} replacement blocks
+     * so the new branch is the longer one.
+     *
+     * @return the new tip
+     */
+    public Block reorg(int depth) {
+        List<Block> orphaned = new ArrayList<>();
+        synchronized (blocks) {
+            if (depth < 1 || depth >= blocks.size()) {
+                throw new IllegalArgumentException("Reorg depth must be 1.." + (blocks.size() - 1));
+            }
+            for (int i = 0; i < depth; i++) {
+                orphaned.add(blocks.removeLast());
+            }
+            height -= depth;
+            tipHash = blocks.getLast().hash();
+        }
+        for (Block block : orphaned) {
+            for (Transfer transfer : block.transfers()) {
+                accepted.remove(transfer.txHash());
+                ledger.computeIfPresent(transfer.toAddress(), (address, balance) -> balance.subtract(transfer.amount()));
+                ledger.computeIfPresent(transfer.fromAddress(),
+                        (address, balance) -> balance.add(transfer.amount()).add(transfer.fee()));
+            }
+        }
+        log.info("Simulated {} reorg: orphaned {} block(s) above {}", currency, depth, height());
+        Block tip = null;
+        for (int i = 0; i <= depth; i++) {
+            tip = mineBlock();
+        }
+        return tip;
+    }
+
+    @Override
+    public boolean supportsBlockScanning() {
+        return true;
+    }
+
+    @Override
+    public long chainHeight() {
+        nodeCall("chainHeight");
+        return height();
+    }
+
+    @Override
+    public ChainBlock getBlock(long blockHeight) {
+        nodeCall("getBlock");
+        Block block = block(blockHeight).orElseThrow(() -> new IllegalArgumentException(
+                "Simulated " + currency + " block " + blockHeight + " is not retained"));
+        return new ChainBlock(block.height(), block.hash(), block.parentHash(), block.transfers().stream()
+                .map(t -> new ChainBlock.Transfer(t.txHash(), t.fromAddress(), t.toAddress(), t.amount()))
+                .toList());
+    }
+
+    public SimulationSettings settings() {
+        return settings;
+    }
+
+    public long height() {
+        synchronized (blocks) {
+            return height;
+        }
+    }
+
+    /** A retained block, or empty if it hasn't been mined or has aged out of the window. */
+    public Optional<Block> block(long blockHeight) {
+        synchronized (blocks) {
+            return blocks.stream().filter(b -> b.height() == blockHeight).findFirst();
+        }
+    }
+
+    private void nodeCall(String operation) {
+        double u;
+        long sleepNanos;
+        synchronized (random) {
+            sleepNanos = (long) (settings.latencyMedian().toNanos() * Math.exp(latencySigma * random.nextGaussian()));
+            u = random.nextDouble();
+        }
+        if (sleepNanos > 0) {
+            try {
+                Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during simulated " + operation, e);
+            }
+        }
+        if (u < settings.failureRate()) {
+            throw new IllegalStateException("Simulated " + currency + " node failure in " + operation);
+        }
+    }
+
+    // Callers hold the random lock from here down.
+
+    private String newAddress() {
+        return addressFrom(random);
+    }
+
+    private String addressFrom(Random source) {
+        StringBuilder address = new StringBuilder();
+        if (currency == Wallet.CryptoCurrency.BITCOIN) {
+            address.append("bc1q");
+            for (int i = 0; i < 32; i++) {
+                address.append(Character.forDigit(source.nextInt(16), 16));
+            }
+        } else {
+            address.append('T');
+            for (int i = 0; i < 33; i++) {
+                address.append(BASE58.charAt(source.nextInt(BASE58.length())));
+            }
+        }
+        return address.toString();
+    }
+
+    private String externalAddress() {
+        return newAddress();
+    }
+
+    private String newHash() {
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        return HexFormat.of().formatHex(hash);
+    }
+
+    private String randomKnownAddress() {
+        synchronized (knownAddresses) {
+            return knownAddresses.isEmpty() ? null : knownAddresses.get(random.nextInt(knownAddresses.size()));
+        }
+    }
+
+    private BigDecimal depositAmount() {
+        BigDecimal span = settings.depositMax().subtract(settings.depositMin());
+        return settings.depositMin().add(span.multiply(BigDecimal.valueOf(random.nextDouble())))
+                .setScale(SCALE, RoundingMode.DOWN);
+    }
+
+    /** Knuth's method; fine for the small means used here. */
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    private static byte[] sha256(String input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
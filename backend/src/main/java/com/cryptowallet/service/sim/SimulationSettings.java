@@ -0,0 +1,39 @@
+package com.cryptowallet.service.sim;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Behaviour of one simulated chain ({@code app.sim.*}).
+ *
+ * @param seed              RNG seed: same seed and same call order give the same addresses,
+ *                          hashes, latencies, failures and deposits
+ * @param blockInterval     time between blocks when mining automatically
+ * @param latencyMedian     median node round trip; latencies are log-normal between this and
+ * @param latencyP99        the 99th percentile
+ * @param failureRate       share of node calls that fail with an exception, 0..1
+ * @param depositsPerBlock  mean number of external deposits to simulator addresses per block
+ * @param depositMin        smallest deposit
+ * @param depositMax        largest deposit
+ * @param fee               fee charged per send
+ * @param retainedBlocks    mined blocks kept in memory
+ */
+public record SimulationSettings(long seed,
+                                 Duration blockInterval,
+                                 Duration latencyMedian,
+                                 Duration latencyP99,
+                                 double failureRate,
+                                 double depositsPerBlock,
+                                 BigDecimal depositMin,
+                                 BigDecimal depositMax,
+                                 BigDecimal fee,
+                                 int retainedBlocks) {
+
+    public SimulationSettings {
+        if (failureRate < 0 || failureRate > 1 || depositsPerBlock < 0 || retainedBlocks < 1
+                || latencyP99.compareTo(latencyMedian) < 0 || depositMax.compareTo(depositMin) < 0) {
+            throw new IllegalArgumentException("app.sim requires 0 <= failure-rate <= 1, deposits-per-block >= 0, "
+                    + "retained-blocks >= 1, latency-p99 >= latency-median and deposit-max >= deposit-min");
+        }
+    }
+}
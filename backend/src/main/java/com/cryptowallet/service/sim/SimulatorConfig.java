@@ -0,0 +1,56 @@
+package com.cryptowallet.service.sim;
+
+import com.cryptowallet.entity.Wallet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * {@code sim} profile: replaces the Bitcoin and Tron providers with {@link SimulatedCryptoProvider}s
+ * so the send/receive pipeline can be load tested offline; the block scanner picks mined transfers
+ * up from their blocks. Settings are shared except block interval and fee.
+ */
+@Configuration
+@Profile("sim")
+public class SimulatorConfig {
+
+    @Value("${app.sim.seed:42}")
+    private long seed;
+    @Value("${app.sim.latency-median:50ms}")
+    private Duration latencyMedian;
+    @Value("${app.sim.latency-p99:500ms}")
+    private Duration latencyP99;
+    @Value("${app.sim.failure-rate:0.01}")
+    private double failureRate;
+    @Value("${app.sim.deposits-per-block:2}")
+    private double depositsPerBlock;
+    @Value("${app.sim.deposit-min:0.001}")
+    private BigDecimal depositMin;
+    @Value("${app.sim.deposit-max:0.5}")
+    private BigDecimal depositMax;
+    @Value("${app.sim.retained-blocks:1000}")
+    private int retainedBlocks;
+
+    @Bean
+    public SimulatedCryptoProvider simulatedBitcoin(@Value("${app.sim.bitcoin.block-interval:10s}") Duration blockInterval,
+                                                    @Value("${app.sim.bitcoin.fee:0.0001}") BigDecimal fee) {
+        return simulator(Wallet.CryptoCurrency.BITCOIN, blockInterval, fee);
+    }
+
+    @Bean
+    public SimulatedCryptoProvider simulatedTron(@Value("${app.sim.tron.block-interval:3s}") Duration blockInterval,
+                                                 @Value("${app.sim.tron.fee:1}") BigDecimal fee) {
+        return simulator(Wallet.CryptoCurrency.USDT_TRC20, blockInterval, fee);
+    }
+
+    private SimulatedCryptoProvider simulator(Wallet.CryptoCurrency currency, Duration blockInterval, BigDecimal fee) {
+        SimulationSettings settings = new SimulationSettings(seed, blockInterval, latencyMedian, latencyP99,
+                failureRate, depositsPerBlock, depositMin, depositMax, fee, retainedBlocks);
+        return new SimulatedCryptoProvider(currency, settings, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,55 @@
+package com.cryptowallet.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates a database whose wallets were numbered by the old IDENTITY column: a row far ahead
+ * of {@code wallets_seq} must push the sequence past it. Not transactional — ALTER SEQUENCE
+ * commits in H2 — so the seeded rows are removed explicitly.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class SequenceAlignmentRunnerTest {
+
+    @Autowired private SequenceAlignmentRunner runner;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void restartsSequencePastExistingIdsAndNeverMovesItBack() {
+        long legacyId = nextValue() + 10_000;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, active, created_at) "
+                + "VALUES (?, ?, 'x', 'USER', TRUE, ?)", "seq-" + legacyId, "seq-" + legacyId + "@example.com", now);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, "seq-" + legacyId);
+        try {
+            jdbcTemplate.update("INSERT INTO wallets (id, address, currency, balance, active, user_id, created_at) "
+                    + "VALUES (?, ?, 'BITCOIN', 0, TRUE, ?, ?)", legacyId, "seq-" + legacyId, userId, now);
+
+            runner.alignSequences();
+            long aligned = nextValue();
+            runner.alignSequences();
+
+            assertThat(aligned).isGreaterThanOrEqualTo(legacyId + 50);
+            assertThat(nextValue()).isEqualTo(aligned);
+        } finally {
+            jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    private long nextValue() {
+        Long next = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE LOWER(SEQUENCE_NAME) = 'wallets_seq'",
+                Long.class);
+        return next == null ? 0 : next;
+    }
+}
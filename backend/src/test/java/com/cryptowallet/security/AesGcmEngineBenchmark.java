@@ -0,0 +1,133 @@
+package com.cryptowallet.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of {@link AesGcmEngine} against the pre-engine CryptoService path
+ * ({@code Cipher.getInstance} per call, two {@code copyOfRange}s on decrypt, IV and
+ * ciphertext concatenated into a fresh buffer on encrypt).
+ *
+ * Not a unit test — surefire ignores it. Run from {@code backend/}:
+ * <pre>
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       com.cryptowallet.security.AesGcmEngineBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AesGcmEngineBenchmark {
+
+    /** 52 bytes ~ a WIF key; 66 bytes ~ a 0x-prefixed hex key; 1 KB for headroom. */
+    @Param({"52", "66", "1024"})
+    public int plaintextBytes;
+
+    private SecretKey key;
+    private byte[] plaintext;
+    private AesGcmEngine engine;
+    private SecureRandom secureRandom;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        byte[] raw = new byte[32];
+        for (int i = 0; i < raw.length; i++) raw[i] = (byte) i;
+        key = new SecretKeySpec(raw, "AES");
+        plaintext = new byte[plaintextBytes];
+        Arrays.fill(plaintext, (byte) 'k');
+        secureRandom = new SecureRandom();
+        engine = new AesGcmEngine(secureRandom);
+        payload = engine.encrypt(key, plaintext, null);
+    }
+
+    @Benchmark
+    public String encryptLegacy() {
+        return LegacyPath.encrypt(secureRandom, key, plaintext);
+    }
+
+    @Benchmark
+    public String encryptEngine() {
+        return engine.encrypt(key, plaintext, null);
+    }
+
+    @Benchmark
+    public byte[] decryptLegacy() {
+        return LegacyPath.decrypt(key, payload);
+    }
+
+    @Benchmark
+    public byte[] decryptEngine() {
+        return engine.decrypt(key, payload, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AesGcmEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /** Verbatim copy of CryptoService's encryptWith/decryptWithRaw before AesGcmEngine. */
+    static final class LegacyPath {
+
+        private LegacyPath() {
+        }
+
+        static String encrypt(SecureRandom secureRandom, SecretKey key, byte[] plaintext) {
+            try {
+                byte[] iv = new byte[12];
+                secureRandom.nextBytes(iv);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+                byte[] ctAndTag = cipher.doFinal(plaintext);
+                byte[] out = new byte[12 + ctAndTag.length];
+                System.arraycopy(iv, 0, out, 0, 12);
+                System.arraycopy(ctAndTag, 0, out, 12, ctAndTag.length);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static byte[] decrypt(SecretKey key, String payload) {
+            try {
+                byte[] in = Base64.getUrlDecoder().decode(payload);
+                byte[] iv = Arrays.copyOfRange(in, 0, 12);
+                byte[] ctAndTag = Arrays.copyOfRange(in, 12, in.length);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+                return cipher.doFinal(ctAndTag);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.cryptowallet.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmEngineTest {
+
+    private static final SecretKey KEY = new SecretKeySpec(new byte[32], "AES");
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final AesGcmEngine engine = new AesGcmEngine(secureRandom);
+
+    @Test
+    void engineOutputIsReadableByPreEngineDecryptPath() {
+        byte[] pt = "L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwS".getBytes(StandardCharsets.UTF_8);
+        String payload = engine.encrypt(KEY, pt, null);
+
+        // IV(12) || ct(len) || tag(16), base64url without padding.
+        assertThat(payload).doesNotContain("=", "+", "/");
+        assertThat(Base64.getUrlDecoder().decode(payload)).hasSize(12 + pt.length + 16);
+        assertThat(AesGcmEngineBenchmark.LegacyPath.decrypt(KEY, payload)).isEqualTo(pt);
+    }
+
+    @Test
+    void preEngineCiphertextIsReadableByEngine() {
+        byte[] pt = "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318"
+                .getBytes(StandardCharsets.UTF_8);
+        String legacy = AesGcmEngineBenchmark.LegacyPath.encrypt(secureRandom, KEY, pt);
+
+        assertThat(engine.decrypt(KEY, legacy, null)).isEqualTo(pt);
+    }
+
+    @Test
+    void cipherIsReusableAfterFailedAuthentication() {
+        String payload = engine.encrypt(KEY, "secret".getBytes(StandardCharsets.UTF_8), "aad-1".getBytes());
+
+        assertThatThrownBy(() -> engine.decrypt(KEY, payload, "aad-2".getBytes()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("AES-GCM decrypt failed");
+        assertThat(engine.decrypt(KEY, payload, "aad-1".getBytes()))
+            .isEqualTo("secret".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsTruncatedPayload() {
+        String tooShort = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[20]);
+        assertThatThrownBy(() -> engine.decrypt(KEY, tooShort, null))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("payload too short");
+    }
+
+    @Test
+    void concurrentRoundTripsUsePerThreadCiphers() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        byte[] pt = ("t" + thread + "-" + i).getBytes(StandardCharsets.UTF_8);
+                        byte[] back = engine.decrypt(KEY, engine.encrypt(KEY, pt, null), null);
+                        if (!java.util.Arrays.equals(pt, back)) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
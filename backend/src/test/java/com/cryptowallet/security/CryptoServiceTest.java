@@ -14,14 +14,17 @@ class CryptoServiceTest {
 
     private static CryptoService newService() {
         // Fixed 32-byte KEK for deterministic tests.
-        byte[] kek = new byte[32];
-        for (int i = 0; i < 32; i++) kek[i] = (byte) i;
-        String b64 = Base64.getEncoder().encodeToString(kek);
-        CryptoService svc = new CryptoService(new StandardEnvironment(), b64);
+        CryptoService svc = new CryptoService(new StandardEnvironment(), kekBase64(0));
         svc.init();
         return svc;
     }
 
+    private static String kekBase64(int seed) {
+        byte[] kek = new byte[32];
+        for (int i = 0; i < 32; i++) kek[i] = (byte) (i + seed);
+        return Base64.getEncoder().encodeToString(kek);
+    }
+
     @Test
     void roundTripEncryptDecrypt() {
         CryptoService svc = newService();
@@ -46,10 +49,11 @@ class CryptoServiceTest {
     void tamperedPayloadFailsAuthentication() {
         CryptoService svc = newService();
         String enc = svc.encrypt("sensitive");
-        byte[] raw = Base64.getUrlDecoder().decode(enc);
+        String prefix = enc.substring(0, enc.indexOf('.') + 1);
+        byte[] raw = Base64.getUrlDecoder().decode(enc.substring(prefix.length()));
         // Flip a bit in the auth tag (last byte).
         raw[raw.length - 1] ^= 0x01;
-        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        String tampered = prefix + Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
         assertThatThrownBy(() -> svc.decrypt(tampered))
             .isInstanceOf(IllegalStateException.class)
             .hasMessageContaining("AES-GCM decrypt failed");
@@ -76,4 +80,51 @@ class CryptoServiceTest {
         assertThatThrownBy(() -> svc.decryptWithDek(dek, enc, "user:99".getBytes()))
             .isInstanceOf(IllegalStateException.class);
     }
+
+    @Test
+    void payloadsCarryKeyVersionAndLegacyPayloadsReadAsVersionOne() {
+        CryptoService svc = newService();
+        String enc = svc.encrypt("pre-rotation");
+        assertThat(enc).startsWith("k1.");
+        assertThat(CryptoService.keyVersionOf(enc)).isEqualTo(1);
+
+        // Rows written before versioning have no prefix.
+        String legacy = enc.substring("k1.".length());
+        assertThat(CryptoService.keyVersionOf(legacy)).isEqualTo(1);
+        assertThat(svc.decrypt(legacy)).isEqualTo("pre-rotation");
+    }
+
+    @Test
+    void retiredKekKeepsOldPayloadsReadableUntilReencrypted() {
+        CryptoService old = newService();
+        String key = old.encrypt("wallet-key");
+        byte[] dek = old.generateDek();
+        String wrapped = old.wrapDek(dek);
+
+        CryptoService rotated = new CryptoService(new StandardEnvironment(), kekBase64(100), 2, "1:" + kekBase64(0));
+        rotated.init();
+
+        assertThat(rotated.hasRetiredKeys()).isTrue();
+        assertThat(rotated.decrypt(key)).isEqualTo("wallet-key");
+        assertThat(rotated.unwrapDek(wrapped)).isEqualTo(dek);
+
+        String reencrypted = rotated.reencrypt(key);
+        String rewrapped = rotated.rewrapDek(wrapped);
+        assertThat(reencrypted).startsWith("k2.");
+        assertThat(rewrapped).startsWith("k2.");
+        assertThat(rotated.reencrypt(reencrypted)).isSameAs(reencrypted);
+        assertThat(rotated.decrypt(reencrypted)).isEqualTo("wallet-key");
+        assertThat(rotated.unwrapDek(rewrapped)).isEqualTo(dek);
+    }
+
+    @Test
+    void payloadFromUnloadedKeyVersionFailsLoudly() {
+        CryptoService rotated = new CryptoService(new StandardEnvironment(), kekBase64(100), 2, "");
+        rotated.init();
+        String v1 = newService().encrypt("orphaned");
+
+        assertThatThrownBy(() -> rotated.decrypt(v1))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("No KEK loaded for key version 1");
+    }
 }
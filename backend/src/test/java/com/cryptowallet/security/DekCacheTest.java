@@ -0,0 +1,139 @@
+package com.cryptowallet.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DekCacheTest {
+
+    private CryptoService cryptoService;
+    private MutableClock clock;
+    private DekCache cache;
+
+    @BeforeEach
+    void setUp() {
+        byte[] kek = new byte[32];
+        for (int i = 0; i < 32; i++) kek[i] = (byte) i;
+        cryptoService = new CryptoService(new StandardEnvironment(), Base64.getEncoder().encodeToString(kek));
+        cryptoService.init();
+        clock = new MutableClock();
+        cache = new DekCache(cryptoService, 2, Duration.ofMinutes(10), clock);
+    }
+
+    @Test
+    void secondLookupIsAHitAndReusesTheKeyObject() {
+        String wrapped = cryptoService.wrapDek(cryptoService.generateDek());
+
+        SecretKey first = cache.withDek(1L, wrapped, k -> k);
+        SecretKey second = cache.withDek(1L, wrapped, k -> k);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedKeyRoundTripsWithByteArrayDekApi() {
+        byte[] dek = cryptoService.generateDek();
+        String wrapped = cryptoService.wrapDek(dek);
+
+        String enc = cache.withDek(7L, wrapped, k -> cryptoService.encryptWithDek(k, "mnemonic", "user:7".getBytes()));
+
+        assertThat(cryptoService.decryptWithDek(dek, enc, "user:7".getBytes())).isEqualTo("mnemonic");
+        String viaCache = cache.withDek(7L, wrapped, k -> cryptoService.decryptWithDek(k, enc, "user:7".getBytes()));
+        assertThat(viaCache).isEqualTo("mnemonic");
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedAndZeroedBeyondMaxSize() {
+        SecretKey user1 = cache.withDek(1L, wrappedFresh(), k -> k);
+        cache.withDek(2L, wrappedFresh(), k -> k);
+        cache.withDek(3L, wrappedFresh(), k -> k);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(user1.isDestroyed()).isTrue();
+        assertThatThrownBy(user1::getEncoded).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void idleEntriesExpireAfterTtl() {
+        String wrapped = wrappedFresh();
+        SecretKey key = cache.withDek(1L, wrapped, k -> k);
+
+        clock.advance(Duration.ofMinutes(11));
+        cache.evictExpired();
+
+        assertThat(cache.size()).isZero();
+        assertThat(key.isDestroyed()).isTrue();
+        cache.withDek(1L, wrapped, k -> k);
+        assertThat(cache.missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void evictionDuringUseIsDeferredUntilRelease() {
+        AtomicReference<SecretKey> seen = new AtomicReference<>();
+        cache.withDek(1L, wrappedFresh(), k -> {
+            seen.set(k);
+            cache.invalidate(1L);
+            assertThat(k.isDestroyed()).isFalse();
+            return k.getEncoded();
+        });
+
+        assertThat(seen.get().isDestroyed()).isTrue();
+    }
+
+    @Test
+    void countersArePublishedToMicrometer() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        String wrapped = wrappedFresh();
+        cache.withDek(1L, wrapped, k -> k);
+        cache.withDek(1L, wrapped, k -> k);
+
+        assertThat(registry.get("cryptowallet.dek.cache.requests").tag("result", "hit").functionCounter().count())
+            .isEqualTo(1.0);
+        assertThat(registry.get("cryptowallet.dek.cache.requests").tag("result", "miss").functionCounter().count())
+            .isEqualTo(1.0);
+        assertThat(registry.get("cryptowallet.dek.cache.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    private String wrappedFresh() {
+        return cryptoService.wrapDek(cryptoService.generateDek());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public java.time.ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
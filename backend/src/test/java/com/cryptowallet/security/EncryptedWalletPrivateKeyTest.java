@@ -17,9 +17,8 @@ import java.math.BigDecimal;
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * End-to-end check that {@link EncryptedStringConverter} encrypts the
- * Wallet.private_key column on disk but transparently exposes plaintext
- * on the JPA attribute.
+ * End-to-end check that the Wallet.private_key column is encrypted on disk,
+ * stays sealed on the loaded entity, and reveals the original plaintext.
  */
 @SpringBootTest
 @ActiveProfiles("h2")
@@ -45,7 +44,7 @@ class EncryptedWalletPrivateKeyTest {
 
         Wallet wallet = Wallet.builder()
                 .address("addr-" + System.nanoTime())
-                .privateKey(plaintextKey)
+                .privateKey(SealedPrivateKey.seal(plaintextKey))
                 .currency(Wallet.CryptoCurrency.BITCOIN)
                 .balance(BigDecimal.ZERO)
                 .user(user)
@@ -54,7 +53,7 @@ class EncryptedWalletPrivateKeyTest {
         wallet = walletRepository.save(wallet);
         Long id = wallet.getId();
 
-        // Force a clean read so the converter runs.
+        // Force a clean read from the database.
         entityManager.flush();
         entityManager.clear();
 
@@ -65,8 +64,11 @@ class EncryptedWalletPrivateKeyTest {
         assertThat(onDisk).doesNotContain(plaintextKey);
         assertThat(onDisk.length()).isGreaterThan(plaintextKey.length()); // base64url(IV||ct||tag)
 
-        // Through the converter we get the original plaintext back.
+        // Loaded entity holds the on-disk ciphertext; revealing it yields the original plaintext.
         Wallet reloaded = walletRepository.findById(id).orElseThrow();
-        assertThat(reloaded.getPrivateKey()).isEqualTo(plaintextKey);
+        assertThat(reloaded.getPrivateKey().ciphertext()).isEqualTo(onDisk);
+        String revealed = reloaded.getPrivateKey().reveal(key -> key);
+        assertThat(revealed).isEqualTo(plaintextKey);
+        assertThat(reloaded.getPrivateKey().toString()).doesNotContain(plaintextKey);
     }
 }
@@ -0,0 +1,159 @@
+package com.cryptowallet.security;
+
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.KeyRotationCheckpointRepository;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rotates the h2 database from the dev KEK (v1) to a new KEK (v2) and back.
+ *
+ * Not {@code @Transactional}: the job commits per chunk from its own worker threads, so the
+ * seeded rows are committed and removed in {@link #cleanUp()}. Rotating back to the context's
+ * KEK leaves every other row readable for the rest of the suite.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class KeyRotationJobTest {
+
+    private static final int WALLETS = 7;
+
+    @Autowired private CryptoService contextCrypto;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private KeyRotationCheckpointRepository checkpointRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+
+    private final List<Long> seededUsers = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        seededUsers.forEach(id -> jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", id));
+        seededUsers.forEach(id -> jdbcTemplate.update("DELETE FROM users WHERE id = ?", id));
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void reencryptsEveryRowUnderNewKekAndKeepsPayloadsReadable() throws Exception {
+        byte[] dek = contextCrypto.generateDek();
+        User user = userRepository.save(User.builder()
+                .username("rotation-" + System.nanoTime())
+                .email("rotation-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .wrappedDek(contextCrypto.wrapDek(dek))
+                .active(true)
+                .build());
+        seededUsers.add(user.getId());
+        for (int i = 0; i < WALLETS; i++) {
+            String payload = contextCrypto.encrypt("wif-" + i);
+            if (i % 2 == 0) {
+                payload = payload.substring(payload.indexOf('.') + 1); // pre-versioning row
+            }
+            walletRepository.save(Wallet.builder()
+                    .address("rotation-" + i + "-" + System.nanoTime())
+                    .privateKey(SealedPrivateKey.ofCiphertext(payload))
+                    .currency(Wallet.CryptoCurrency.BITCOIN)
+                    .balance(BigDecimal.ZERO)
+                    .user(user)
+                    .active(true)
+                    .build());
+        }
+
+        String devKek = devKekBase64();
+        String newKek = Base64.getEncoder().encodeToString(contextCrypto.generateDek());
+        CryptoService rotated = new CryptoService(new StandardEnvironment(), newKek, 2, "1:" + devKek);
+        rotated.init();
+
+        long rewritten = newJob(rotated).run();
+
+        assertThat(rewritten).isGreaterThanOrEqualTo(WALLETS + 1);
+        assertThat(rotated.unwrapDek(wrappedDekOf(user.getId()))).isEqualTo(dek);
+        List<String> keys = walletKeysOf(user.getId());
+        assertThat(keys).allSatisfy(k -> assertThat(k).startsWith("k2."));
+        for (int i = 0; i < WALLETS; i++) {
+            assertThat(rotated.decrypt(keys.get(i))).isEqualTo("wif-" + i);
+        }
+        assertThat(checkpointRepository.findByTableNameAndKeyVersionOrderById("wallets", 2))
+                .isNotEmpty()
+                .allSatisfy(cp -> assertThat(cp.getCompleted()).isTrue());
+
+        // Resuming a finished rotation is a no-op.
+        assertThat(newJob(rotated).run()).isZero();
+
+        // Rotate back so the context's CryptoService can read everything again. An unprefixed row
+        // reads as v1, so it is already current for this rotation and must not be counted as stale.
+        CryptoService back = new CryptoService(new StandardEnvironment(), devKek, 1, "2:" + newKek);
+        back.init();
+        String legacy = contextCrypto.encrypt("wif-legacy");
+        walletRepository.save(Wallet.builder()
+                .address("rotation-legacy-" + System.nanoTime())
+                .privateKey(SealedPrivateKey.ofCiphertext(legacy.substring(legacy.indexOf('.') + 1)))
+                .currency(Wallet.CryptoCurrency.BITCOIN)
+                .balance(BigDecimal.ZERO)
+                .user(user)
+                .active(true)
+                .build());
+        newJob(back).run();
+        assertThat(contextCrypto.decrypt(walletKeysOf(user.getId()).get(0))).isEqualTo("wif-0");
+        assertThat(contextCrypto.unwrapDek(wrappedDekOf(user.getId()))).isEqualTo(dek);
+    }
+
+    @Test
+    void rateLimiterPacesRowsAcrossCalls() {
+        KeyRotationJob.RateLimiter limiter = new KeyRotationJob.RateLimiter(1000);
+        long start = System.nanoTime();
+        limiter.acquire(100);
+        limiter.acquire(100);
+        limiter.acquire(100);
+        // First 100 are free, the next 200 wait ~200ms at 1000 rows/s.
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(180_000_000L);
+    }
+
+    private KeyRotationJob newJob(CryptoService crypto) {
+        KeyRotationJob job = new KeyRotationJob(crypto, jdbcTemplate, transactionTemplate, checkpointRepository);
+        ReflectionTestUtils.setField(job, "workers", 3);
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+        ReflectionTestUtils.setField(job, "maxRowsPerSecond", 0);
+        return job;
+    }
+
+    private String wrappedDekOf(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT wrapped_dek FROM users WHERE id = ?", String.class, userId);
+    }
+
+    /**
+     * In seeding order. Not by id: each new test context re-creates the H2 schema (and wallets_seq)
+     * under contexts still holding pooled id blocks, so ids aren't monotonic across the suite.
+     */
+    private List<String> walletKeysOf(Long userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT private_key FROM wallets WHERE user_id = ? ORDER BY address", String.class, userId);
+    }
+
+    /** Same derivation as CryptoService's h2 dev fallback. */
+    private static String devKekBase64() throws Exception {
+        byte[] kek = MessageDigest.getInstance("SHA-256")
+                .digest("cryptowallet-dev-kek-do-not-use-in-prod".getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(kek);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cryptowallet.security;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.TransactionOutboxDispatcher;
+import com.cryptowallet.service.TransactionService;
+import com.cryptowallet.service.WalletService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Decrypt-count benchmark for the wallet read paths.
+ *
+ * "Before" replays what the old {@code @Convert(EncryptedStringConverter)} mapping did for a
+ * page of wallets (one AES-GCM decrypt per loaded row); "after" loads the same page through
+ * the real services with the key kept sealed. Counts are logged and asserted.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+@Slf4j
+class WalletReadPathDecryptCountTest {
+
+    private static final int PAGE_SIZE = 25;
+
+    @SpyBean private CryptoService cryptoService;
+    @Autowired private WalletService walletService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher outboxDispatcher;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private Wallet funded;
+
+    @BeforeEach
+    void seedPage() {
+        owner = userRepository.save(User.builder()
+                .username("decrypt-count-" + System.nanoTime())
+                .email("decrypt-count-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Wallet wallet = walletRepository.save(Wallet.builder()
+                    .address("decrypt-count-" + i + "-" + System.nanoTime())
+                    .privateKey(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYw" + i))
+                    .currency(Wallet.CryptoCurrency.BITCOIN)
+                    .balance(new BigDecimal("1.00000000"))
+                    .user(owner)
+                    .active(true)
+                    .build());
+            if (i == 0) funded = wallet;
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Mockito.clearInvocations(cryptoService);
+    }
+
+    @Test
+    void walletPagesNoLongerDecryptAndSigningDecryptsOnce() {
+        // Before: the legacy converter ran once per row of the page.
+        List<String> column = jdbcTemplate.queryForList(
+                "select private_key from wallets where user_id = ? order by id", String.class, owner.getId());
+        EncryptedStringConverter legacyMapping = new EncryptedStringConverter();
+        column.forEach(legacyMapping::convertToEntityAttribute);
+        long before = decryptCalls();
+        Mockito.clearInvocations(cryptoService);
+
+        // After: admin page, user wallet list and the EAGER User.wallets collection.
+        walletService.getAllWalletsPaged(PageRequest.of(0, PAGE_SIZE));
+        walletService.getUserWallets(owner.getId());
+        userRepository.findById(owner.getId()).orElseThrow().getWallets().size();
+        long after = decryptCalls();
+
+        log.info("Decrypts per {}-wallet page: before={} after={}", PAGE_SIZE, before, after);
+        assertThat(before).isEqualTo(PAGE_SIZE);
+        assertThat(after).isZero();
+
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(funded.getId());
+        send.setToAddress("bc1qrecipient");
+        send.setAmount(new BigDecimal("0.01000000"));
+        transactionService.sendTransaction(send);
+        assertThat(decryptCalls()).isZero(); // queued only; the outbox dispatcher signs
+
+        outboxDispatcher.dispatchDue();
+        assertThat(decryptCalls()).isEqualTo(1);
+    }
+
+    private long decryptCalls() {
+        return Mockito.mockingDetails(cryptoService).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().startsWith("decrypt"))
+                .count();
+    }
+}
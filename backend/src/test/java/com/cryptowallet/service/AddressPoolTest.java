@@ -0,0 +1,98 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.WalletCreationDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claims run the dialect-specific DELETE … RETURNING against real H2 and hand the
+ * pre-sealed key straight to the new wallet.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class AddressPoolTest {
+
+    @Autowired private AddressPool addressPool;
+    @Autowired private WalletService walletService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Test
+    void createWalletClaimsOldestPooledKeyPair() {
+        addressPool.refill(Wallet.CryptoCurrency.BITCOIN, 3);
+        List<String> pooled = pooledAddresses();
+        String pooledCiphertext = jdbcTemplate.queryForObject(
+                "SELECT private_key FROM address_pool WHERE address = ?", String.class, pooled.get(0));
+
+        WalletCreationDto dto = new WalletCreationDto();
+        dto.setCurrency(Wallet.CryptoCurrency.BITCOIN);
+        WalletDto created = walletService.createWallet(newUser().getId(), dto);
+
+        assertThat(created.getAddress()).isEqualTo(pooled.get(0));
+        assertThat(pooledAddresses()).doesNotContain(created.getAddress());
+        Wallet wallet = walletRepository.findById(created.getId()).orElseThrow();
+        assertThat(wallet.getPrivateKey().ciphertext()).isEqualTo(pooledCiphertext);
+    }
+
+    @Test
+    void emptyPoolFallsBackToInlineKeygen() {
+        jdbcTemplate.update("DELETE FROM address_pool WHERE currency = 'USDT_TRC20'");
+        long emptyBefore = meterRegistry.get("cryptowallet.address.pool.claim")
+                .tags("currency", "USDT_TRC20", "result", "empty").timer().count();
+
+        WalletCreationDto dto = new WalletCreationDto();
+        dto.setCurrency(Wallet.CryptoCurrency.USDT_TRC20);
+        WalletDto created = walletService.createWallet(newUser().getId(), dto);
+
+        assertThat(created.getAddress()).startsWith("T");
+        assertThat(meterRegistry.get("cryptowallet.address.pool.claim")
+                .tags("currency", "USDT_TRC20", "result", "empty").timer().count()).isEqualTo(emptyBefore + 1);
+    }
+
+    @Test
+    void depthGeneratedAndClaimLatencyArePublished() {
+        double generatedBefore = meterRegistry.get("cryptowallet.address.pool.generated")
+                .tag("currency", "USDT_TRC20").counter().count();
+        addressPool.refill(Wallet.CryptoCurrency.USDT_TRC20, 2);
+
+        assertThat(addressPool.claim(Wallet.CryptoCurrency.USDT_TRC20)).isPresent();
+
+        assertThat(meterRegistry.get("cryptowallet.address.pool.generated")
+                .tag("currency", "USDT_TRC20").counter().count()).isEqualTo(generatedBefore + 2);
+        assertThat(meterRegistry.get("cryptowallet.address.pool.claim")
+                .tags("currency", "USDT_TRC20", "result", "hit").timer().count()).isPositive();
+        assertThat(meterRegistry.get("cryptowallet.address.pool.depth")
+                .tag("currency", "USDT_TRC20").gauge().value()).isGreaterThanOrEqualTo(1.0);
+    }
+
+    private User newUser() {
+        return userRepository.save(User.builder()
+                .username("pool-" + System.nanoTime())
+                .email("pool-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+    }
+
+    private List<String> pooledAddresses() {
+        return jdbcTemplate.queryForList(
+                "SELECT address FROM address_pool WHERE currency = 'BITCOIN' ORDER BY id", String.class);
+    }
+}
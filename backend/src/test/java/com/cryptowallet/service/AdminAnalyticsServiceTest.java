@@ -0,0 +1,231 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.AnalyticsSeriesDto;
+import com.cryptowallet.dto.AnalyticsSeriesDto.Granularity;
+import com.cryptowallet.dto.AnalyticsSeriesDto.Metric;
+import com.cryptowallet.dto.UserDto;
+import com.cryptowallet.dto.UserRegistrationDto;
+import com.cryptowallet.dto.WalletCreationDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Not {@code @Transactional} — cache eviction follows commits. Seeded rows are removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AdminAnalyticsServiceTest {
+
+    private static final Set<Metric> ALL = EnumSet.allOf(Metric.class);
+    private static final Set<Wallet.CryptoCurrency> CURRENCIES = EnumSet.allOf(Wallet.CryptoCurrency.class);
+
+    @Autowired private AdminAnalyticsService analytics;
+    @Autowired private StatsRollups rollups;
+    @Autowired private UserService userService;
+    @Autowired private WalletService walletService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private MeterRegistry meterRegistry;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final String run = "analytics-" + System.nanoTime();
+    private Long seededUser;
+    private WalletDto wallet;
+
+    /** A Monday, so a week of days lines up with one weekly bucket. */
+    private final LocalDate day = LocalDate.now().minusDays(400).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+    @BeforeEach
+    void seedWallet() {
+        UserRegistrationDto registration = new UserRegistrationDto();
+        registration.setUsername(run);
+        registration.setEmail(run + "@example.com");
+        registration.setPassword("password123");
+        registration.setFirstName("Ana");
+        registration.setLastName("Lytics");
+        UserDto user = userService.registerUser(registration);
+        seededUser = user.getId();
+        WalletCreationDto creation = new WalletCreationDto();
+        creation.setCurrency(Wallet.CryptoCurrency.BITCOIN);
+        wallet = walletService.createWallet(user.getId(), creation);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE wallet_id IN (SELECT id FROM wallets WHERE user_id = ?)", seededUser);
+        jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", seededUser);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", seededUser);
+    }
+
+    @Test
+    void everyGranularityMatchesTheBaseTables() {
+        seedTransaction("CONFIRMED", "1", day.atTime(9, 15));
+        seedTransaction("CONFIRMED", "2", day.atTime(9, 59, 59));
+        seedTransaction("FAILED", "4", day.plusDays(1).atStartOfDay());
+        seedTransaction("CONFIRMED", "8", day.plusDays(6).atTime(23, 30));
+        seedTransaction("CONFIRMED", "16", day.plusDays(7).atStartOfDay());
+        rollups.rebuild();
+
+        LocalDateTime start = day.minusDays(1).atTime(12, 0);
+        LocalDateTime end = day.plusDays(8).atTime(6, 0);
+        for (Granularity granularity : Granularity.values()) {
+            AnalyticsSeriesDto series = analytics.getSeries(start, end, granularity, ALL, CURRENCIES);
+            assertThat(series.getSeries()).hasSize(1 + 2 * CURRENCIES.size());
+            assertThat(series.getBuckets().get(0)).isBeforeOrEqualTo(start);
+            assertThat(series.getBuckets().get(series.getBuckets().size() - 1)).isBeforeOrEqualTo(end);
+            for (int i = 0; i < series.getBuckets().size(); i++) {
+                LocalDateTime from = series.getBuckets().get(i);
+                LocalDateTime to = switch (granularity) {
+                    case HOUR -> from.plusHours(1);
+                    case DAY -> from.plusDays(1);
+                    case WEEK -> from.plusWeeks(1);
+                };
+                for (AnalyticsSeriesDto.Series one : series.getSeries()) {
+                    assertThat(one.getValues().get(i))
+                            .as("%s %s %s at %s", granularity, one.getMetric(), one.getCurrency(), from)
+                            .isEqualByComparingTo(expected(one.getMetric(), one.getCurrency(), from, to));
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        AnalyticsSeriesDto today = analytics.getSeries(now.minusHours(2), now, Granularity.HOUR,
+                EnumSet.of(Metric.USERS), Set.of());
+        assertThat(today.getSeries()).hasSize(1);
+        LocalDateTime lastHour = today.getBuckets().get(today.getBuckets().size() - 1);
+        assertThat(today.getSeries().get(0).getValues().get(today.getBuckets().size() - 1))
+                .isEqualByComparingTo(expected(Metric.USERS, null, lastHour, lastHour.plusHours(1)))
+                .isGreaterThanOrEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void closedBucketsAreServedFromTheCacheUntilTheirDayChanges() {
+        String broadcast = seedTransaction("BROADCAST", "1", day.atTime(10, 0));
+        rollups.rebuild();
+        LocalDateTime start = day.atStartOfDay();
+
+        AnalyticsSeriesDto before = analytics.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES);
+        assertThat(volume(before)).isEqualByComparingTo("0");
+        double queried = queriedBuckets();
+        assertThat(analytics.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES)).isEqualTo(before);
+        assertThat(queriedBuckets()).isEqualTo(queried);
+
+        transactionService.updateTransactionStatus(broadcast, Transaction.TransactionStatus.CONFIRMED, 10L, 6);
+
+        AnalyticsSeriesDto after = analytics.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES);
+        assertThat(queriedBuckets()).isEqualTo(queried + 1);
+        assertThat(transactions(after)).isEqualByComparingTo(transactions(before));
+        assertThat(volume(after)).isEqualByComparingTo("1");
+    }
+
+    /** A second instance isn't a listener, so it stands in for a node that never hears about the change. */
+    @Test
+    void closedBucketsExpireForNodesThatMissTheChange() {
+        String broadcast = seedTransaction("BROADCAST", "1", day.atTime(10, 0));
+        rollups.rebuild();
+        LocalDateTime start = day.atStartOfDay();
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.systemDefault();
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        AdminAnalyticsService otherNode = new AdminAnalyticsService(rollups, jdbcTemplate, meterRegistry, 2000, 20000,
+                Duration.ofMinutes(5), clock);
+
+        assertThat(volume(otherNode.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES))).isEqualByComparingTo("0");
+        transactionService.updateTransactionStatus(broadcast, Transaction.TransactionStatus.CONFIRMED, 10L, 6);
+        assertThat(volume(otherNode.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES))).isEqualByComparingTo("0");
+
+        now.set(now.get().plus(Duration.ofMinutes(6)));
+        assertThat(volume(otherNode.getSeries(start, start, Granularity.DAY, ALL, CURRENCIES))).isEqualByComparingTo("1");
+    }
+
+    @Test
+    void rejectsReversedAndOversizedRanges() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThatThrownBy(() -> analytics.getSeries(now, now.minusDays(1), Granularity.DAY, ALL, CURRENCIES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> analytics.getSeries(now.minusYears(1), now, Granularity.HOUR, ALL, CURRENCIES))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BigDecimal expected(Metric metric, Wallet.CryptoCurrency currency, LocalDateTime from, LocalDateTime to) {
+        return switch (metric) {
+            case USERS -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE created_at >= ? AND created_at < ?",
+                    BigDecimal.class, ts(from), ts(to));
+            case TRANSACTIONS -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions t "
+                            + "JOIN wallets w ON w.id = t.wallet_id WHERE w.currency = ? "
+                            + "AND t.created_at >= ? AND t.created_at < ?",
+                    BigDecimal.class, currency.name(), ts(from), ts(to));
+            case VOLUME -> jdbcTemplate.queryForObject("SELECT COALESCE(SUM(t.amount), 0) FROM transactions t "
+                            + "JOIN wallets w ON w.id = t.wallet_id WHERE w.currency = ? AND t.status = 'CONFIRMED' "
+                            + "AND t.created_at >= ? AND t.created_at < ?",
+                    BigDecimal.class, currency.name(), ts(from), ts(to));
+        };
+    }
+
+    private static BigDecimal transactions(AnalyticsSeriesDto series) {
+        return value(series, Metric.TRANSACTIONS);
+    }
+
+    private static BigDecimal volume(AnalyticsSeriesDto series) {
+        return value(series, Metric.VOLUME);
+    }
+
+    private static BigDecimal value(AnalyticsSeriesDto series, Metric metric) {
+        return series.getSeries().stream()
+                .filter(one -> one.getMetric() == metric && one.getCurrency() == Wallet.CryptoCurrency.BITCOIN)
+                .findFirst().orElseThrow().getValues().get(0);
+    }
+
+    private double queriedBuckets() {
+        return meterRegistry.get("cryptowallet.admin.analytics.buckets").tag("source", "query").counter().count();
+    }
+
+    private String seedTransaction(String status, String amount, LocalDateTime createdAt) {
+        String txHash = run + "-" + System.nanoTime();
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                        + "wallet_id, created_at) VALUES (?, 'sender', ?, ?, 'RECEIVE', ?, ?, ?)",
+                txHash, wallet.getAddress(), new BigDecimal(amount), status, wallet.getId(), ts(createdAt));
+        return txHash;
+    }
+
+    private static Timestamp ts(LocalDateTime time) {
+        return Timestamp.valueOf(time);
+    }
+}
@@ -0,0 +1,138 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.dto.UserDto;
+import com.cryptowallet.dto.UserRegistrationDto;
+import com.cryptowallet.dto.WalletCreationDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Not {@code @Transactional} — search reads committed rows over JDBC. Seeded rows are removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AdminSearchTest {
+
+    @Autowired private UserService userService;
+    @Autowired private WalletService walletService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    /** Unique to this run, so matches from other tests' rows can't interfere. */
+    private final String run = "srch" + System.nanoTime();
+    private final List<Long> seededUsers = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Long user : seededUsers) {
+            jdbcTemplate.update("DELETE FROM transactions WHERE wallet_id IN (SELECT id FROM wallets WHERE user_id = ?)", user);
+            jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", user);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user);
+        }
+    }
+
+    @Test
+    void usersRankExactThenPrefixThenSubstringMatches() {
+        UserDto substring = seedUser("x" + run + "tail", "Ann");
+        UserDto exact = seedUser(run, "Bob");
+        UserDto prefix = seedUser(run + "more", "Cy");
+        UserDto byName = seedUser("other" + System.nanoTime(), run.toUpperCase() + "z");
+
+        Page<UserDto> page = userService.searchUsers(run.toUpperCase(), PageRequest.of(0, 10));
+        assertThat(page.getContent()).extracting(UserDto::getId)
+                .containsExactly(exact.getId(), byName.getId(), prefix.getId(), substring.getId());
+        assertThat(page.getTotalElements()).isEqualTo(4);
+
+        Page<UserDto> second = userService.searchUsers(run, PageRequest.of(1, 3));
+        assertThat(second.getContent()).extracting(UserDto::getId).containsExactly(substring.getId());
+        assertThat(second.getTotalElements()).isEqualTo(4);
+
+        assertThat(userService.searchByRole(User.Role.ADMIN, run, PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    void theCapKeepsTheBestRankedMatchesWhateverTheirAge() {
+        seedUser("x" + run + "tail", "Ann");
+        UserDto exact = seedUser(run, "Bob");
+        UserDto prefix = seedUser(run + "more", "Cy");
+        seedUser("y" + run + "tail", "Dee");
+        AdminSearch capped = new AdminSearch(jdbcTemplate, new SimpleMeterRegistry(), 2);
+
+        AdminSearch.Hits hits = capped.users(run, null, PageRequest.of(0, 10));
+        assertThat(hits.ids()).containsExactly(exact.getId(), prefix.getId());
+        assertThat(hits.total()).isEqualTo(2);
+    }
+
+    @Test
+    void likeWildcardsInTheTermMatchLiterally() {
+        seedUser(run + "a", "Dee");
+        assertThat(userService.searchUsers(run.substring(0, 4) + "%", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(userService.searchUsers(run.substring(0, 4) + "_" + run.substring(5), PageRequest.of(0, 10))
+                .getContent()).isEmpty();
+        assertThatThrownBy(() -> userService.searchUsers(" ab ", PageRequest.of(0, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void walletsAndTransactionsMatchWholeAddressesAndHashesExactly() {
+        UserDto owner = seedUser(run, "Eve");
+        WalletDto wallet = seedWallet(owner);
+        WalletDto other = seedWallet(seedUser(run + "2", "Fay"));
+        String hash = run + "f00d";
+        seedTransaction(wallet, hash, "sender" + run, wallet.getAddress());
+        seedTransaction(other, run + "beef", wallet.getAddress(), other.getAddress());
+        seedTransaction(other, run + "cafe", "elsewhere", other.getAddress());
+
+        assertThat(walletService.searchWallets(wallet.getAddress(), PageRequest.of(0, 10)).getContent())
+                .extracting(WalletDto::getId).containsExactly(wallet.getId());
+        assertThat(walletService.searchWallets(run, PageRequest.of(0, 10)).getContent())
+                .extracting(WalletDto::getId).containsExactlyInAnyOrder(wallet.getId(), other.getId());
+
+        assertThat(transactionService.searchTransactions(hash, PageRequest.of(0, 10)).getContent())
+                .extracting(TransactionDto::getTxHash).containsExactly(hash);
+        assertThat(transactionService.searchTransactions(wallet.getAddress(), PageRequest.of(0, 10)).getContent())
+                .extracting(TransactionDto::getTxHash).containsExactly(run + "beef", hash);
+        assertThat(transactionService.searchTransactions(run.toUpperCase() + "CA", PageRequest.of(0, 10)).getContent())
+                .extracting(TransactionDto::getTxHash).containsExactly(run + "cafe");
+    }
+
+    private UserDto seedUser(String username, String firstName) {
+        UserRegistrationDto registration = new UserRegistrationDto();
+        registration.setUsername(username);
+        registration.setEmail(username + "@example.com");
+        registration.setPassword("password123");
+        registration.setFirstName(firstName);
+        registration.setLastName("Search");
+        UserDto user = userService.registerUser(registration);
+        seededUsers.add(user.getId());
+        return user;
+    }
+
+    private WalletDto seedWallet(UserDto user) {
+        WalletCreationDto creation = new WalletCreationDto();
+        creation.setCurrency(Wallet.CryptoCurrency.BITCOIN);
+        return walletService.createWallet(user.getId(), creation);
+    }
+
+    private void seedTransaction(WalletDto wallet, String txHash, String from, String to) {
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                        + "wallet_id, created_at) VALUES (?, ?, ?, ?, 'RECEIVE', 'CONFIRMED', ?, CURRENT_TIMESTAMP)",
+                txHash, from, to, BigDecimal.ONE, wallet.getId());
+    }
+}
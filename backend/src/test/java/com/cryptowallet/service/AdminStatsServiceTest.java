@@ -0,0 +1,146 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SystemStatsDto;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.TransactionRepository;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Not {@code @Transactional} — rows are seeded over JDBC and removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class AdminStatsServiceTest {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private StatsRollups rollups;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("stats", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void rebuiltRollupsMatchThePerFigureQueries() {
+        Wallet wallet = seedWallet();
+        seedTransaction(wallet, "CONFIRMED", "1.5");
+        seedTransaction(wallet, "CONFIRMED", "0.25");
+        seedTransaction(wallet, "FAILED", "9");
+        rollups.rebuild(); // seeded behind the services' backs
+
+        SystemStatsDto stats = service(Duration.ofSeconds(30)).computeStatistics();
+
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        assertThat(stats.getTotalUsers()).isEqualTo(userRepository.count());
+        assertThat(stats.getActiveUsers()).isEqualTo(userRepository.countByActiveTrue());
+        assertThat(stats.getUsersRegisteredToday()).isEqualTo(userRepository.countByCreatedAtAfter(startOfDay));
+        assertThat(stats.getTotalWallets()).isEqualTo(walletRepository.count());
+        assertThat(stats.getBitcoinWallets()).isEqualTo(walletRepository.countByCurrency(Wallet.CryptoCurrency.BITCOIN));
+        assertThat(stats.getUsdtWallets()).isEqualTo(walletRepository.countByCurrency(Wallet.CryptoCurrency.USDT_TRC20));
+        assertThat(stats.getTotalTransactions()).isEqualTo(transactionRepository.count());
+        assertThat(stats.getTransactionsToday()).isEqualTo(transactionRepository.countByCreatedAtAfter(startOfDay));
+        assertThat(stats.getPendingTransactions())
+                .isEqualTo(transactionRepository.countByStatus(Transaction.TransactionStatus.PENDING));
+        assertThat(stats.getConfirmedTransactions())
+                .isEqualTo(transactionRepository.countByStatus(Transaction.TransactionStatus.CONFIRMED));
+        assertThat(stats.getFailedTransactions())
+                .isEqualTo(transactionRepository.countByStatus(Transaction.TransactionStatus.FAILED));
+        assertThat(stats.getTotalBitcoinVolume()).isEqualByComparingTo(transactionRepository
+                .sumAmountByWalletCurrencyAndStatus(Wallet.CryptoCurrency.BITCOIN, Transaction.TransactionStatus.CONFIRMED));
+        assertThat(stats.getTotalUsdtVolume()).isEqualByComparingTo(transactionRepository
+                .sumAmountByWalletCurrencyAndStatus(Wallet.CryptoCurrency.USDT_TRC20, Transaction.TransactionStatus.CONFIRMED));
+    }
+
+    @Test
+    void concurrentViewersShareOneRefreshAndStaleSnapshotsAreServedWhileItRuns() throws Exception {
+        rollups.rebuild();
+        AdminStatsService service = service(Duration.ofSeconds(30));
+        ExecutorService viewers = Executors.newFixedThreadPool(8);
+        List<Future<SystemStatsDto>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(viewers.submit(service::getSystemStatistics));
+        }
+        for (Future<SystemStatsDto> result : results) {
+            assertThat(result.get()).isNotNull();
+        }
+        viewers.shutdown();
+        assertThat(refreshes()).isEqualTo(1);
+
+        SystemStatsDto cached = service.getSystemStatistics();
+        assertThat(refreshes()).isEqualTo(1);
+
+        seedWallet();
+        rollups.rebuild();
+        now.addAndGet(Duration.ofSeconds(31).toMillis());
+
+        assertThat(service.getSystemStatistics()).isSameAs(cached); // stale, refresh started
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (refreshes() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.getSystemStatistics().getTotalWallets()).isEqualTo(cached.getTotalWallets() + 1);
+        service.shutdown();
+    }
+
+    private long refreshes() {
+        return meters.get("cryptowallet.admin.stats.refresh").timer().count();
+    }
+
+    private AdminStatsService service(Duration ttl) {
+        Clock clock = new Clock() {
+            @Override public ZoneId getZone() { return ZoneId.systemDefault(); }
+            @Override public Clock withZone(ZoneId zone) { return this; }
+            @Override public Instant instant() { return Instant.ofEpochMilli(now.get()); }
+        };
+        return new AdminStatsService(rollups, meters, ttl, clock);
+    }
+
+    private void seedTransaction(Wallet wallet, String status, String amount) {
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                        + "wallet_id, created_at) VALUES (?, 'sender', ?, ?, 'RECEIVE', ?, ?, ?)",
+                seeded.run() + "-" + System.nanoTime(), wallet.getAddress(), new BigDecimal(amount), status, wallet.getId(),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private Wallet seedWallet() {
+        return seeded.wallet(seeded.run() + "-" + System.nanoTime(), Wallet.CryptoCurrency.BITCOIN, BigDecimal.ZERO);
+    }
+}
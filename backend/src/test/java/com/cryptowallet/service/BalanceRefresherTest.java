@@ -0,0 +1,157 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives one sweep against the H2 schema with stubbed providers. Not {@code @Transactional}: the
+ * conflict case commits a concurrent debit from the provider call. Seeded rows are removed in
+ * {@link #cleanUp()}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BalanceRefresherTest {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("refresh", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void sweepWritesChangedBalancesAndSkipsFreshConflictingAndFailedWallets() {
+        Wallet changed = seedWallet(Wallet.CryptoCurrency.BITCOIN, "0", null);
+        Wallet unchanged = seedWallet(Wallet.CryptoCurrency.USDT_TRC20, "10", null);
+        Wallet fresh = seedWallet(Wallet.CryptoCurrency.BITCOIN, "1", LocalDateTime.now());
+        Wallet failing = seedWallet(Wallet.CryptoCurrency.BITCOIN, "2", LocalDateTime.now().minusHours(1));
+        Wallet debitedMidSweep = seedWallet(Wallet.CryptoCurrency.USDT_TRC20, "5", null);
+        Wallet sending = seedWallet(Wallet.CryptoCurrency.USDT_TRC20, "3", null);
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                + "wallet_id, created_at) VALUES (?, ?, 'elsewhere', 1, 'SEND', 'PENDING', ?, CURRENT_TIMESTAMP)",
+                seeded.run() + "-send", sending.getAddress(), sending.getId());
+
+        CryptoProvider bitcoin = mock(CryptoProvider.class);
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(bitcoin.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.BITCOIN);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        when(bitcoin.getBalances(any())).thenCallRealMethod();
+        when(tron.getBalances(any())).thenCallRealMethod();
+        when(bitcoin.getBalance(anyString())).thenAnswer(call -> {
+            if (call.getArgument(0).equals(changed.getAddress())) {
+                return new BigDecimal("0.50000000");
+            }
+            throw new IllegalStateException("node unavailable");
+        });
+        when(tron.getBalance(anyString())).thenAnswer(call -> {
+            if (call.getArgument(0).equals(unchanged.getAddress())) {
+                return new BigDecimal("10.00000000");
+            }
+            if (call.getArgument(0).equals(debitedMidSweep.getAddress())) {
+                // A send commits between the sweep's read and its write-back.
+                jdbcTemplate.update("UPDATE wallets SET balance = balance - 1, version = version + 1 WHERE id = ?",
+                        debitedMidSweep.getId());
+                return new BigDecimal("7.00000000");
+            }
+            throw new IllegalStateException("node unavailable");
+        });
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        BalanceRefresher refresher = new BalanceRefresher(new CryptoProviderRegistry(List.of(bitcoin, tron)),
+                jdbcTemplate, meters, false, false, Duration.ofMinutes(5), Duration.ofMinutes(10), 2, 2);
+
+        refresher.refreshStale();
+
+        assertThat(balanceOf(changed)).isEqualByComparingTo("0.5");
+        assertThat(refreshedAt(changed)).isNotNull();
+        assertThat(balanceOf(unchanged)).isEqualByComparingTo("10");
+        assertThat(refreshedAt(unchanged)).isNotNull();
+        verify(bitcoin, never()).getBalance(fresh.getAddress());
+        assertThat(balanceOf(failing)).isEqualByComparingTo("2");
+        assertThat(refreshedAt(failing)).isBefore(LocalDateTime.now().minusMinutes(30));
+        assertThat(balanceOf(debitedMidSweep)).isEqualByComparingTo("4"); // the debit survives
+        assertThat(refreshedAt(debitedMidSweep)).isNull();
+        verify(tron, never()).getBalance(sending.getAddress()); // its reserved 1 isn't on chain yet
+        assertThat(balanceOf(sending)).isEqualByComparingTo("3");
+        assertThat(refreshedAt(sending)).isNull();
+
+        assertThat(meters.get("cryptowallet.balance.refresh.wallets").tag("result", "changed").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meters.get("cryptowallet.balance.refresh.wallets").tag("result", "conflict").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meters.get("cryptowallet.balance.refresh.wallets").tag("result", "in-flight").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meters.get("cryptowallet.balance.refresh.sweep").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void currenciesTheBlockScannerFollowsAreNotSwept() {
+        Wallet scanned = seedWallet(Wallet.CryptoCurrency.BITCOIN, "1", null);
+        CryptoProvider bitcoin = mock(CryptoProvider.class);
+        when(bitcoin.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.supportsBlockScanning()).thenReturn(true);
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+
+        BalanceRefresher refresher = new BalanceRefresher(new CryptoProviderRegistry(List.of(bitcoin, tron)),
+                jdbcTemplate, new SimpleMeterRegistry(), false, true, Duration.ofMinutes(5), Duration.ofMinutes(10), 2, 2);
+
+        refresher.refreshStale();
+        verify(bitcoin, never()).getBalances(any());
+        verify(bitcoin, never()).getBalance(anyString());
+        assertThat(refreshedAt(scanned)).isNull();
+    }
+
+    private BigDecimal balanceOf(Wallet wallet) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, wallet.getId());
+    }
+
+    private LocalDateTime refreshedAt(Wallet wallet) {
+        Timestamp at = jdbcTemplate.queryForObject(
+                "SELECT balance_refreshed_at FROM wallets WHERE id = ?", Timestamp.class, wallet.getId());
+        return at == null ? null : at.toLocalDateTime();
+    }
+
+    private Wallet seedWallet(Wallet.CryptoCurrency currency, String balance, LocalDateTime refreshedAt) {
+        Wallet wallet = seeded.wallet(seeded.run() + "-" + System.nanoTime(), currency, new BigDecimal(balance));
+        if (refreshedAt != null) {
+            jdbcTemplate.update("UPDATE wallets SET balance_refreshed_at = ? WHERE id = ?", Timestamp.valueOf(refreshedAt),
+                    wallet.getId());
+        }
+        return wallet;
+    }
+}
@@ -4,10 +4,16 @@ import com.cryptowallet.entity.Wallet;
 import com.cryptowallet.service.crypto.KeyPair;
 import com.cryptowallet.service.crypto.TransactionResult;
 import org.bitcoinj.core.DumpedPrivateKey;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.crypto.HDPath;
 import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.wallet.DeterministicKeyChain;
+import org.bitcoinj.wallet.DeterministicSeed;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -83,6 +89,15 @@ class BitcoinWalletServiceTest {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    void getBalancesReturnsOneNonNegativeBalancePerAddress() {
+        Map<String, BigDecimal> balances = service.getBalances(List.of("bc1qa", "bc1qb"));
+
+        assertThat(service.balanceBatchSize()).isGreaterThan(1);
+        assertThat(balances).containsOnlyKeys("bc1qa", "bc1qb");
+        assertThat(balances.values()).allSatisfy(balance -> assertThat(balance).isNotNegative());
+    }
+
     @Test
     void sendTransactionReturnsResultWithTxHashAndFee() {
         TransactionResult result = service.sendTransaction(
@@ -104,4 +119,42 @@ class BitcoinWalletServiceTest {
         assertThat(result.getTxHash()).startsWith("bitcoin_tx_");
         assertThat(result.getFee()).isNotNull();
     }
+
+    @Test
+    void hdDerivationIsDeterministicAndBatchesMatchSingleDerivation() {
+        byte[] seed = new byte[64];
+        seed[0] = 7;
+
+        List<String> batch = service.deriveAddresses(seed, 0, 3);
+
+        assertThat(batch).doesNotHaveDuplicates().hasSize(3);
+        assertThat(service.deriveAddresses(seed, 0, 3)).isEqualTo(batch);
+        assertThat(service.deriveAddresses(seed, 1, 2)).isEqualTo(batch.subList(1, 3));
+    }
+
+    @Test
+    void hdPrivateKeyControlsTheDerivedAddress() {
+        byte[] seed = new byte[64];
+        seed[63] = 1;
+        String address = service.deriveAddresses(seed, 4, 1).get(0);
+
+        ECKey key = DumpedPrivateKey.fromBase58(TestNet3Params.get(), service.derivePrivateKey(seed, 4)).getKey();
+
+        assertThat("bc1q" + key.getPublicKeyAsHex().substring(0, 32)).isEqualTo(address);
+    }
+
+    @Test
+    void hdPathMatchesBitcoinjBip44DerivationOfTheSameEntropy() {
+        byte[] entropy = new byte[32];
+        entropy[3] = 5;
+        DeterministicSeed seed = new DeterministicSeed(entropy, "", 0);
+        DeterministicKeyChain chain = DeterministicKeyChain.builder()
+                .seed(seed)
+                .accountPath(HDPath.parsePath("M/44H/1H/0H"))
+                .build();
+
+        String expected = chain.getKeyByPath(HDPath.parsePath("M/44H/1H/0H/0/2"), true).getPrivateKeyAsWiF(TestNet3Params.get());
+
+        assertThat(service.derivePrivateKey(seed.getSeedBytes(), 2)).isEqualTo(expected);
+    }
 }
@@ -0,0 +1,207 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.WalletCreationDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import com.cryptowallet.service.sim.SimulatedCryptoProvider;
+import com.cryptowallet.service.sim.SimulationSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scans a {@link SimulatedCryptoProvider} chain into the H2 schema. Not {@code @Transactional} —
+ * every block commits; seeded rows are removed in {@link #cleanUp()}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class BlockScannerTest {
+
+    @Autowired private IncomingTransferIngestor ingestor;
+    @Autowired private ConfirmationTracker confirmations;
+    @Autowired private StatsRollups rollups;
+    @Autowired private WatchedAddresses watchedAddresses;
+    @Autowired private WalletService walletService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("scanner", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM scanned_blocks");
+        seeded.cleanUp();
+    }
+
+    @Test
+    void creditsDepositsAndRollsThemBackOnReorg() {
+        SimulatedCryptoProvider chain = new SimulatedCryptoProvider(Wallet.CryptoCurrency.BITCOIN,
+                new SimulationSettings(3, Duration.ofSeconds(1), Duration.ZERO, Duration.ZERO, 0, 0,
+                        BigDecimal.ONE, BigDecimal.ONE, new BigDecimal("0.0001"), 100),
+                Clock.systemUTC());
+        String address = chain.generateAddress().getAddress();
+        Wallet wallet = seedWallet(address);
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        BlockScanner scanner = new BlockScanner(new CryptoProviderRegistry(List.of(chain, tron)),
+                new WatchedAddresses(jdbcTemplate, meters, Duration.ofMinutes(10), ""), ingestor, confirmations, rollups,
+                jdbcTemplate, transactionTemplate, meters, false, Duration.ofSeconds(1), 100, 10, 100);
+
+        chain.mineBlock();
+        chain.deposit(address, new BigDecimal("0.3"));
+        chain.deposit("bc1qsomeoneelse", new BigDecimal("7"));
+        chain.mineBlock();
+        chain.deposit(address, new BigDecimal("0.2"));
+        chain.mineBlock();
+
+        assertThat(scanner.scan(Wallet.CryptoCurrency.BITCOIN)).isEqualTo(3);
+        assertThat(balance(wallet)).isEqualByComparingTo("0.5");
+        assertThat(scanner.cursor(Wallet.CryptoCurrency.BITCOIN))
+                .contains(new BlockScanner.Cursor(3, chain.block(3).orElseThrow().hash()));
+        assertThat(meters.get("cryptowallet.scanner.deposits").tag("currency", "BITCOIN").counter().count()).isEqualTo(2);
+        assertThat(meters.get("cryptowallet.scanner.lag").tag("currency", "BITCOIN").gauge().value()).isZero();
+        assertThat(scanner.scan(Wallet.CryptoCurrency.BITCOIN)).isZero();
+
+        // Blocks 2 and 3 are replaced by an empty branch 2'..4'.
+        chain.reorg(2);
+
+        assertThat(scanner.scan(Wallet.CryptoCurrency.BITCOIN)).isZero();
+        assertThat(balance(wallet)).isEqualByComparingTo("0");
+        assertThat(receives(wallet)).isZero();
+        assertThat(scanner.cursor(Wallet.CryptoCurrency.BITCOIN).orElseThrow().height()).isEqualTo(1);
+        assertThat(meters.get("cryptowallet.scanner.reorgs").tag("currency", "BITCOIN").counter().count()).isEqualTo(1);
+
+        assertThat(scanner.scan(Wallet.CryptoCurrency.BITCOIN)).isEqualTo(3);
+        assertThat(balance(wallet)).isEqualByComparingTo("0");
+        assertThat(scanner.cursor(Wallet.CryptoCurrency.BITCOIN))
+                .contains(new BlockScanner.Cursor(4, chain.block(4).orElseThrow().hash()));
+    }
+
+    @Test
+    void rollingBackASpentDepositStopsAtZeroAndCountsTheShortfall() {
+        SimulatedCryptoProvider chain = new SimulatedCryptoProvider(Wallet.CryptoCurrency.BITCOIN,
+                new SimulationSettings(3, Duration.ofSeconds(1), Duration.ZERO, Duration.ZERO, 0, 0,
+                        BigDecimal.ONE, BigDecimal.ONE, new BigDecimal("0.0001"), 100),
+                Clock.systemUTC());
+        String address = chain.generateAddress().getAddress();
+        Wallet wallet = seedWallet(address);
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        BlockScanner scanner = new BlockScanner(new CryptoProviderRegistry(List.of(chain, tron)),
+                new WatchedAddresses(jdbcTemplate, meters, Duration.ofMinutes(10), ""), ingestor, confirmations, rollups,
+                jdbcTemplate, transactionTemplate, meters, false, Duration.ofSeconds(1), 100, 10, 100);
+
+        chain.mineBlock();
+        chain.deposit(address, new BigDecimal("0.5"));
+        chain.mineBlock();
+        scanner.scan(Wallet.CryptoCurrency.BITCOIN);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance - 0.4 WHERE id = ?", wallet.getId()); // spent
+
+        chain.reorg(1);
+        scanner.scan(Wallet.CryptoCurrency.BITCOIN);
+
+        assertThat(balance(wallet)).isEqualByComparingTo("0");
+        assertThat(meters.get("cryptowallet.scanner.shortfalls").tag("currency", "BITCOIN").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void creditsWalletsCreatedAfterTheWatchedSetWasLoaded() {
+        SimulatedCryptoProvider chain = new SimulatedCryptoProvider(Wallet.CryptoCurrency.BITCOIN,
+                new SimulationSettings(3, Duration.ofSeconds(1), Duration.ZERO, Duration.ZERO, 0, 0,
+                        BigDecimal.ONE, BigDecimal.ONE, new BigDecimal("0.0001"), 100),
+                Clock.systemUTC());
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        WatchedAddresses watched = new WatchedAddresses(jdbcTemplate, meters, Duration.ofMinutes(10), "");
+        BlockScanner scanner = new BlockScanner(new CryptoProviderRegistry(List.of(chain, tron)), watched, ingestor,
+                confirmations, rollups, jdbcTemplate, transactionTemplate, meters, false, Duration.ofSeconds(1),
+                100, 10, 100);
+        chain.mineBlock();
+        scanner.scan(Wallet.CryptoCurrency.BITCOIN);
+
+        // Written straight to the table, as another node or a migration would: no Added event here.
+        String address = chain.generateAddress().getAddress();
+        Wallet wallet = seedWallet(address);
+        chain.deposit(address, new BigDecimal("0.4"));
+        chain.mineBlock();
+
+        assertThat(scanner.scan(Wallet.CryptoCurrency.BITCOIN)).isEqualTo(1);
+        assertThat(balance(wallet)).isEqualByComparingTo("0.4");
+    }
+
+    @Test
+    void snapshotIsCaughtUpBeforeTheFirstLookup(@TempDir Path dir) {
+        String snapshot = dir.resolve("watched.bin").toString();
+        WatchedAddresses writer = new WatchedAddresses(jdbcTemplate, meters, Duration.ofMinutes(10), snapshot);
+        writer.size(Wallet.CryptoCurrency.BITCOIN); // loads from the table and writes the snapshot
+        writer.shutdown();
+
+        Wallet wallet = seedWallet("bc1qaftersnapshot" + System.nanoTime());
+        WatchedAddresses restored = new WatchedAddresses(jdbcTemplate, meters, Duration.ofMinutes(10), snapshot);
+
+        assertThat(restored.walletId(Wallet.CryptoCurrency.BITCOIN, wallet.getAddress())).isEqualTo(wallet.getId());
+        restored.shutdown();
+    }
+
+    @Test
+    void watchedAddressesFollowWalletCreationAndDeactivation() {
+        Long userId = seeded.user().getId();
+        watchedAddresses.size(Wallet.CryptoCurrency.BITCOIN);
+
+        WalletCreationDto creation = new WalletCreationDto();
+        creation.setCurrency(Wallet.CryptoCurrency.BITCOIN);
+        WalletDto created = walletService.createWallet(userId, creation);
+
+        assertThat(watchedAddresses.walletId(Wallet.CryptoCurrency.BITCOIN, created.getAddress()))
+                .isEqualTo(created.getId());
+        assertThat(watchedAddresses.walletId(Wallet.CryptoCurrency.USDT_TRC20, created.getAddress())).isNull();
+
+        walletService.deactivateWallet(created.getId());
+
+        assertThat(watchedAddresses.walletId(Wallet.CryptoCurrency.BITCOIN, created.getAddress())).isNull();
+    }
+
+    private BigDecimal balance(Wallet wallet) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, wallet.getId());
+    }
+
+    private long receives(Wallet wallet) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE wallet_id = ? AND type = 'RECEIVE'",
+                Long.class, wallet.getId());
+    }
+
+    private Wallet seedWallet(String address) {
+        return seeded.wallet(address, Wallet.CryptoCurrency.BITCOIN, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,74 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.BulkWalletProvisionDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class BulkWalletProvisioningTest {
+
+    @Autowired private WalletService walletService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void provisionsWalletsAcrossUsersInBatches() {
+        User alice = newUser();
+        User bob = newUser();
+
+        // 63 BITCOIN wallets: more than one JDBC batch, and more than the h2 pool holds.
+        List<WalletDto> wallets = walletService.provisionWallets(List.of(
+                new BulkWalletProvisionDto.Item(alice.getId(), Wallet.CryptoCurrency.BITCOIN, 60),
+                new BulkWalletProvisionDto.Item(bob.getId(), Wallet.CryptoCurrency.USDT_TRC20, 2),
+                new BulkWalletProvisionDto.Item(bob.getId(), Wallet.CryptoCurrency.BITCOIN, 3)));
+
+        assertThat(wallets).hasSize(65);
+        assertThat(wallets).extracting(WalletDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(wallets).extracting(WalletDto::getAddress).doesNotHaveDuplicates();
+        assertThat(walletCount(alice)).isEqualTo(60L);
+        assertThat(walletCount(bob)).isEqualTo(5L);
+        Long sealedKeys = jdbcTemplate.queryForObject(
+                "SELECT COUNT(private_key) FROM wallets WHERE user_id IN (?, ?)", Long.class, alice.getId(), bob.getId());
+        assertThat(sealedKeys).isEqualTo(65L);
+    }
+
+    @Test
+    void unknownUserRejectsTheWholeRequest() {
+        User alice = newUser();
+
+        assertThatThrownBy(() -> walletService.provisionWallets(List.of(
+                new BulkWalletProvisionDto.Item(alice.getId(), Wallet.CryptoCurrency.BITCOIN, 1),
+                new BulkWalletProvisionDto.Item(-42L, Wallet.CryptoCurrency.BITCOIN, 1))))
+                .hasMessageContaining("-42");
+        assertThat(walletCount(alice)).isZero();
+    }
+
+    private long walletCount(User user) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallets WHERE user_id = ?", Long.class, user.getId());
+        return count == null ? 0 : count;
+    }
+
+    private User newUser() {
+        return userRepository.save(User.builder()
+                .username("bulk-" + System.nanoTime())
+                .email("bulk-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+    }
+}
@@ -0,0 +1,117 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoalescingBalanceLookupTest {
+
+    private final CryptoProvider bitcoin = mock(CryptoProvider.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CoalescingBalanceLookup lookup;
+
+    CoalescingBalanceLookupTest() {
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(bitcoin.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.BITCOIN);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        Clock clock = new Clock() {
+            @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+            @Override public Clock withZone(ZoneId zone) { return this; }
+            @Override public Instant instant() { return Instant.ofEpochMilli(now.get()); }
+        };
+        lookup = new CoalescingBalanceLookup(new CryptoProviderRegistry(List.of(bitcoin, tron)), meters,
+                Duration.ofSeconds(2), 100, clock);
+    }
+
+    @Test
+    void concurrentLookupsOfOneAddressShareASingleNodeCall() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bitcoin.getBalance("bc1qhot")).thenAnswer(call -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new BigDecimal("0.25");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CoalescingBalanceLookup.Lookup>> results = new ArrayList<>();
+        results.add(pool.submit(() -> lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qhot")));
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 7; i++) {
+            results.add(pool.submit(() -> lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qhot")));
+        }
+        while (counter("joined") < 7) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        int fromNode = 0;
+        for (Future<CoalescingBalanceLookup.Lookup> result : results) {
+            CoalescingBalanceLookup.Lookup balance = result.get(10, TimeUnit.SECONDS);
+            assertThat(balance.balance()).isEqualByComparingTo("0.25");
+            fromNode += balance.fromNode() ? 1 : 0;
+        }
+        pool.shutdown();
+
+        assertThat(fromNode).isEqualTo(1);
+        verify(bitcoin, times(1)).getBalance("bc1qhot");
+        assertThat(lookup.coalesceRatio()).isEqualTo(7.0 / 8);
+    }
+
+    @Test
+    void resultIsReusedUntilTheCacheTtlLapses() {
+        when(bitcoin.getBalance("bc1qcached")).thenReturn(new BigDecimal("1"), new BigDecimal("2"));
+
+        assertThat(lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qcached").fromNode()).isTrue();
+        now.addAndGet(1_500);
+        CoalescingBalanceLookup.Lookup cached = lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qcached");
+        now.addAndGet(1_000);
+        CoalescingBalanceLookup.Lookup refreshed = lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qcached");
+
+        assertThat(cached.fromNode()).isFalse();
+        assertThat(cached.balance()).isEqualByComparingTo("1");
+        assertThat(refreshed.fromNode()).isTrue();
+        assertThat(refreshed.balance()).isEqualByComparingTo("2");
+        assertThat(counter("cached")).isEqualTo(1);
+    }
+
+    @Test
+    void failedLookupIsNotCached() {
+        when(bitcoin.getBalance("bc1qdown"))
+                .thenThrow(new IllegalStateException("node unavailable"))
+                .thenReturn(new BigDecimal("3"));
+
+        assertThatThrownBy(() -> lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qdown"))
+                .hasMessage("Balance lookup failed");
+        assertThat(lookup.getBalance(Wallet.CryptoCurrency.BITCOIN, "bc1qdown").balance()).isEqualByComparingTo("3");
+    }
+
+    private double counter(String result) {
+        return meters.get("cryptowallet.balance.lookup").tag("result", result).counter().count();
+    }
+}
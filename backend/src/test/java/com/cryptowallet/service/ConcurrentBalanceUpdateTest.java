@@ -0,0 +1,151 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers one wallet with concurrent sends, incoming credits and the background outbox
+ * dispatcher, then checks the ledger: the balance must equal the opening balance plus every
+ * credit minus every settled debit, and no send may be accepted without funds. Not
+ * {@code @Transactional} — every write commits; seeded rows are removed in {@link #cleanUp()}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ConcurrentBalanceUpdateTest {
+
+    private static final BigDecimal OPENING = new BigDecimal("1.00000000");
+    private static final BigDecimal SEND = new BigDecimal("0.01000000");
+    private static final BigDecimal CREDIT = new BigDecimal("0.00500000");
+    private static final int SENDERS = 16;
+    private static final int SENDS_PER_THREAD = 10;
+    private static final int CREDITORS = 4;
+    private static final int CREDITS_PER_THREAD = 10;
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher dispatcher;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("stress", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void concurrentSendsAndCreditsLoseNoUpdates() throws Exception {
+        Wallet wallet = fundedWallet();
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(SENDERS + CREDITORS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < SENDERS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < SENDS_PER_THREAD; i++) {
+                    try {
+                        transactionService.sendTransaction(send(wallet), null);
+                        accepted.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertThat(e).hasMessage("Insufficient balance");
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < CREDITORS; t++) {
+            int creditor = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < CREDITS_PER_THREAD; i++) {
+                    transactionService.processIncomingTransaction("stress-" + wallet.getId() + "-" + creditor + "-" + i,
+                            wallet.getAddress(), CREDIT, "bc1qsender", 1L);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        awaitSettled(wallet);
+
+        BigDecimal credits = sum("SELECT SUM(amount) FROM transactions WHERE wallet_id = ? AND type = 'RECEIVE'", wallet);
+        BigDecimal settled = sum("SELECT SUM(amount + COALESCE(fee, 0)) FROM transactions "
+                + "WHERE wallet_id = ? AND type = 'SEND' AND status = 'BROADCAST'", wallet);
+        BigDecimal reserved = sum("SELECT SUM(amount) FROM transactions WHERE wallet_id = ? AND type = 'SEND'", wallet);
+        BigDecimal balance = walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+
+        assertThat(credits).isEqualByComparingTo(CREDIT.multiply(BigDecimal.valueOf(CREDITORS * CREDITS_PER_THREAD)));
+        assertThat(accepted.get() + rejected.get()).isEqualTo(SENDERS * SENDS_PER_THREAD);
+        assertThat(rejected.get()).isPositive(); // more was asked for than the wallet could ever hold
+        assertThat(reserved).isEqualByComparingTo(SEND.multiply(BigDecimal.valueOf(accepted.get())));
+        assertThat(reserved).isLessThanOrEqualTo(OPENING.add(credits));
+        // Fees are charged on broadcast, on top of the reservation, so only the ledger is exact here.
+        assertThat(balance).isEqualByComparingTo(OPENING.add(credits).subtract(settled));
+    }
+
+    /** Drain the outbox here and wait out any broadcast the background poller is still recording. */
+    private void awaitSettled(Wallet wallet) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            dispatcher.dispatchDue();
+            Long pending = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM transactions WHERE wallet_id = ? AND status = 'PENDING'", Long.class, wallet.getId());
+            if (pending == null || pending == 0) {
+                return;
+            }
+            assertThat(System.nanoTime()).as("sends still pending").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private BigDecimal sum(String sql, Wallet wallet) {
+        BigDecimal total = jdbcTemplate.queryForObject(sql, BigDecimal.class, wallet.getId());
+        return total == null ? BigDecimal.ZERO : total;
+    }
+
+    private SendTransactionDto send(Wallet wallet) {
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(wallet.getId());
+        send.setToAddress("bc1qrecipient");
+        send.setAmount(SEND);
+        return send;
+    }
+
+    private Wallet fundedWallet() {
+        return seeded.wallet(seeded.run(), Wallet.CryptoCurrency.BITCOIN, OPENING);
+    }
+}
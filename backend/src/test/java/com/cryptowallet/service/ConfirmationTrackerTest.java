@@ -0,0 +1,128 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.crypto.ChainBlock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Not {@code @Transactional} — every block commits; seeded rows are removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ConfirmationTrackerTest {
+
+    @Autowired private WatchedAddresses watchedAddresses;
+    @Autowired private TransactionStateMachine stateMachine;
+    @Autowired private StatsRollups rollups;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("confirm", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void confirmsMinedSendsFailsDroppedOnesAndFollowsReorgs() {
+        Wallet wallet = seedWallet();
+        Long a = seedBroadcast(wallet, seeded.run() + "-a", "0.1");
+        Long b = seedBroadcast(wallet, seeded.run() + "-b", "0.2");
+        ConfirmationTracker tracker = new ConfirmationTracker(watchedAddresses, stateMachine, jdbcTemplate, rollups, meters,
+                3, 4, 19, 28800);
+
+        tracker.reconcile(Wallet.CryptoCurrency.BITCOIN);
+        block(tracker, 10);
+        Long c = seedBroadcast(wallet, seeded.run() + "-c", "0.3");
+        tracker.onBroadcast(new ConfirmationTracker.Broadcast(c, wallet.getId(), Wallet.CryptoCurrency.BITCOIN,
+                seeded.run() + "-c", new BigDecimal("0.3"), new BigDecimal("0.01"), LocalDateTime.now()));
+        // Broadcast by another node: no event here, only the row.
+        Long d = seedBroadcast(wallet, seeded.run() + "-d", "0.4");
+        tracker.reconcile(Wallet.CryptoCurrency.BITCOIN); // the next poll picks it up
+        block(tracker, 11, seeded.run() + "-a", seeded.run() + "-d");
+        block(tracker, 12, seeded.run() + "-c");
+
+        assertThat(row(a)).containsEntry("STATUS", "BROADCAST").containsEntry("BLOCK_NUMBER", 11L)
+                .containsEntry("CONFIRMATIONS", 2);
+        assertThat(row(c)).containsEntry("BLOCK_NUMBER", 12L).containsEntry("CONFIRMATIONS", 1);
+
+        block(tracker, 13);
+
+        assertThat(row(a)).containsEntry("STATUS", "CONFIRMED").containsEntry("CONFIRMATIONS", 3);
+        assertThat(row(d)).containsEntry("STATUS", "CONFIRMED").containsEntry("BLOCK_NUMBER", 11L);
+
+        // Blocks 12 and 13 are replaced; c is re-mined in 13'.
+        transactionTemplate.executeWithoutResult(status -> tracker.onRollback(Wallet.CryptoCurrency.BITCOIN, 11));
+
+        assertThat(row(c)).containsEntry("STATUS", "BROADCAST").containsEntry("BLOCK_NUMBER", null)
+                .containsEntry("CONFIRMATIONS", 0);
+
+        block(tracker, 12);
+        block(tracker, 13, seeded.run() + "-c");
+        block(tracker, 14);
+
+        assertThat(row(b)).containsEntry("STATUS", "FAILED").containsEntry("BLOCK_NUMBER", null);
+        assertThat(row(c)).containsEntry("STATUS", "BROADCAST").containsEntry("BLOCK_NUMBER", 13L)
+                .containsEntry("CONFIRMATIONS", 2);
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class,
+                wallet.getId())).isEqualByComparingTo("1.21");
+        assertThat(tracker.size(Wallet.CryptoCurrency.BITCOIN)).isEqualTo(1);
+        assertThat(meters.get("cryptowallet.confirmations.settled").tags("currency", "BITCOIN", "result", "confirmed")
+                .counter().count()).isEqualTo(2);
+        assertThat(meters.get("cryptowallet.confirmations.settled").tags("currency", "BITCOIN", "result", "failed")
+                .counter().count()).isEqualTo(1);
+    }
+
+    private void block(ConfirmationTracker tracker, long height, String... txHashes) {
+        List<ChainBlock.Transfer> transfers = Arrays.stream(txHashes)
+                .map(hash -> new ChainBlock.Transfer(hash, seeded.run() + "-wallet", "bc1qrecipient", BigDecimal.ONE))
+                .toList();
+        ChainBlock block = new ChainBlock(height, seeded.run() + "-" + height, seeded.run() + "-" + (height - 1), transfers);
+        transactionTemplate.executeWithoutResult(status -> tracker.onBlock(Wallet.CryptoCurrency.BITCOIN, block));
+    }
+
+    private Map<String, Object> row(Long transactionId) {
+        return jdbcTemplate.queryForMap("SELECT status, block_number, confirmations FROM transactions WHERE id = ?",
+                transactionId);
+    }
+
+    private Long seedBroadcast(Wallet wallet, String txHash, String amount) {
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, fee, type, status, "
+                        + "wallet_id, confirmations, created_at) VALUES (?, ?, 'bc1qrecipient', ?, 0.01, 'SEND', "
+                        + "'BROADCAST', ?, 0, ?)",
+                txHash, wallet.getAddress(), new BigDecimal(amount), wallet.getId(),
+                Timestamp.valueOf(LocalDateTime.now()));
+        return jdbcTemplate.queryForObject("SELECT id FROM transactions WHERE tx_hash = ?", Long.class, txHash);
+    }
+
+    private Wallet seedWallet() {
+        return seeded.wallet(seeded.run() + "-wallet", Wallet.CryptoCurrency.BITCOIN, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.TransactionRepository;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class HdWalletProvisioningTest {
+
+    @Autowired private WalletService walletService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher outboxDispatcher;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchDerivesConsecutiveIndexesAndStoresNoPrivateKey() {
+        User user = newUser();
+
+        List<WalletDto> first = walletService.provisionHdWallets(user.getId(), Wallet.CryptoCurrency.BITCOIN, 5);
+        List<WalletDto> next = walletService.provisionHdWallets(user.getId(), Wallet.CryptoCurrency.BITCOIN, 2);
+        entityManager.flush();
+
+        assertThat(first).hasSize(5);
+        assertThat(next).hasSize(2);
+        List<Integer> indexes = jdbcTemplate.queryForList(
+                "SELECT derivation_index FROM wallets WHERE user_id = ? ORDER BY derivation_index",
+                Integer.class, user.getId());
+        assertThat(indexes).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        Long keysStored = jdbcTemplate.queryForObject(
+                "SELECT COUNT(private_key) FROM wallets WHERE user_id = ?", Long.class, user.getId());
+        assertThat(keysStored).isZero();
+        String seed = jdbcTemplate.queryForObject("SELECT hd_seed FROM users WHERE id = ?", String.class, user.getId());
+        assertThat(seed).isNotBlank();
+    }
+
+    @Test
+    void cachedSeedsStayPerUser() {
+        User first = newUser();
+        User second = newUser();
+
+        WalletDto a = walletService.provisionHdWallets(first.getId(), Wallet.CryptoCurrency.BITCOIN, 1).get(0);
+        WalletDto b = walletService.provisionHdWallets(second.getId(), Wallet.CryptoCurrency.BITCOIN, 1).get(0);
+        WalletDto again = walletService.provisionHdWallets(first.getId(), Wallet.CryptoCurrency.USDT_TRC20, 1).get(0);
+
+        assertThat(a.getAddress()).isNotEqualTo(b.getAddress());
+        assertThat(again.getAddress()).isNotEqualTo(b.getAddress());
+    }
+
+    @Test
+    void hdWalletSignsWithReDerivedKey() {
+        User user = newUser();
+        WalletDto dto = walletService.provisionHdWallets(user.getId(), Wallet.CryptoCurrency.USDT_TRC20, 1).get(0);
+        Wallet wallet = walletRepository.findById(dto.getId()).orElseThrow();
+        wallet.setBalance(new BigDecimal("100.00000000"));
+        entityManager.flush();
+
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(wallet.getId());
+        send.setToAddress("Trecipient");
+        send.setAmount(new BigDecimal("10.00000000"));
+        TransactionDto sent = transactionService.sendTransaction(send);
+        assertThat(outboxDispatcher.dispatchDue()).isEqualTo(1);
+
+        assertThat(transactionRepository.findById(sent.getId()).orElseThrow().getStatus())
+                .isEqualTo(Transaction.TransactionStatus.BROADCAST);
+    }
+
+    private User newUser() {
+        return userRepository.save(User.builder()
+                .username("hd-" + System.nanoTime())
+                .email("hd-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+    }
+}
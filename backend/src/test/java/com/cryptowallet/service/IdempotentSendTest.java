@@ -0,0 +1,151 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.security.SealedPrivateKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Not {@code @Transactional}: keyed sends run in their own transaction so conflicts can be
+ * resolved after rollback. Seeded rows are removed in {@link #cleanUp()}.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class IdempotentSendTest {
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher dispatcher;
+    @Autowired private IdempotencyKeys idempotencyKeys;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> seededUsers = new ArrayList<>();
+    private final List<String> seededKeys = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        dispatcher.dispatchDue();
+        seededKeys.forEach(key -> jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idem_key = ?", key));
+        for (Long userId : seededUsers) {
+            jdbcTemplate.update("DELETE FROM transaction_outbox WHERE transaction_id IN (SELECT t.id FROM transactions t "
+                    + "JOIN wallets w ON t.wallet_id = w.id WHERE w.user_id = ?)", userId);
+            jdbcTemplate.update("DELETE FROM transactions WHERE wallet_id IN (SELECT id FROM wallets WHERE user_id = ?)", userId);
+            jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    @Test
+    void replayReturnsOriginalTransactionAndQueuesNothing() {
+        Wallet wallet = fundedWallet();
+        String key = newKey();
+
+        TransactionDto first = transactionService.sendTransaction(send(wallet, "0.10000000"), key);
+        TransactionDto cachedReplay = transactionService.sendTransaction(send(wallet, "0.1"), key);
+
+        assertThat(cachedReplay.getId()).isEqualTo(first.getId());
+        assertThat(sendsFrom(wallet)).isEqualTo(1L);
+    }
+
+    @Test
+    void replayMissingFromCacheIsResolvedFromTheTable() {
+        Wallet wallet = fundedWallet();
+        String key = newKey();
+        TransactionDto first = transactionService.sendTransaction(send(wallet, "0.20000000"), key);
+
+        // As if the retry landed on another node: only the insert conflict reveals the key.
+        idempotencyKeys.clearRecent();
+        TransactionDto replay = transactionService.sendTransaction(send(wallet, "0.20000000"), key);
+
+        assertThat(replay.getId()).isEqualTo(first.getId());
+        assertThat(sendsFrom(wallet)).isEqualTo(1L);
+    }
+
+    @Test
+    void reusingKeyForDifferentRequestIsRejected() {
+        Wallet wallet = fundedWallet();
+        String key = newKey();
+        transactionService.sendTransaction(send(wallet, "0.10000000"), key);
+
+        assertThatThrownBy(() -> transactionService.sendTransaction(send(wallet, "0.30000000"), key))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+        assertThat(sendsFrom(wallet)).isEqualTo(1L);
+    }
+
+    @Test
+    void expiredKeysArePurgedInBatches() {
+        Timestamp past = Timestamp.valueOf(LocalDateTime.now().minusDays(2));
+        for (int i = 0; i < 5; i++) {
+            String key = newKey();
+            jdbcTemplate.update("INSERT INTO idempotency_keys (idem_key, request_hash, transaction_id, created_at, expires_at) "
+                    + "VALUES (?, 'h', ?, ?, ?)", key, -1L - i, past, past);
+        }
+        IdempotencyKeys keys = new IdempotencyKeys(jdbcTemplate, Duration.ofHours(1), 10,
+                Duration.ofMinutes(1), 2, Clock.systemDefaultZone());
+
+        assertThat(keys.purgeExpired()).isGreaterThanOrEqualTo(5);
+        Long left = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM idempotency_keys WHERE expires_at < CURRENT_TIMESTAMP", Long.class);
+        assertThat(left).isZero();
+    }
+
+    private long sendsFrom(Wallet wallet) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE wallet_id = ?", Long.class, wallet.getId());
+        return count == null ? 0 : count;
+    }
+
+    private String newKey() {
+        String key = "idem-" + UUID.randomUUID();
+        seededKeys.add(key);
+        return key;
+    }
+
+    private SendTransactionDto send(Wallet wallet, String amount) {
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(wallet.getId());
+        send.setToAddress("bc1qrecipient");
+        send.setAmount(new BigDecimal(amount));
+        return send;
+    }
+
+    private Wallet fundedWallet() {
+        User user = userRepository.save(User.builder()
+                .username("idem-" + System.nanoTime())
+                .email("idem-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+        seededUsers.add(user.getId());
+        return walletRepository.save(Wallet.builder()
+                .address("idem-" + System.nanoTime())
+                .privateKey(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwIdem"))
+                .currency(Wallet.CryptoCurrency.BITCOIN)
+                .balance(new BigDecimal("1.00000000"))
+                .user(user)
+                .active(true)
+                .build());
+    }
+}
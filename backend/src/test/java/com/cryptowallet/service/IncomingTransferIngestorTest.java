@@ -0,0 +1,105 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.service.IncomingTransferIngestor.IncomingTransfer;
+import com.cryptowallet.service.IncomingTransferIngestor.IngestResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Not {@code @Transactional} — batches commit; seeded rows are removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "app.transactions.ingest.in-chunk-size=7")
+class IncomingTransferIngestorTest {
+
+    @Autowired private IncomingTransferIngestor ingestor;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("ingest", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void blockIsCreditedOncePerWalletAndReplaysAreNoOps() {
+        List<Wallet> wallets = seedWallets(3);
+        List<IncomingTransfer> block = new ArrayList<>();
+        // 30 transfers spread over three wallets (more than one IN chunk), one repeated hash and two strangers.
+        for (int i = 0; i < 30; i++) {
+            block.add(transfer(seeded.run() + "-" + i, wallets.get(i % 3).getAddress(), "0.1"));
+        }
+        block.add(transfer(seeded.run() + "-0", wallets.get(0).getAddress(), "0.1"));
+        block.add(transfer(seeded.run() + "-x1", "bc1qnotours", "5"));
+        block.add(transfer(seeded.run() + "-x2", "bc1qnotourseither", "5"));
+
+        IngestResult first = ingestor.ingest(block);
+
+        assertThat(first).isEqualTo(new IngestResult(30, 1, 2));
+        for (Wallet wallet : wallets) {
+            assertThat(balance(wallet)).isEqualByComparingTo("2.0");
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE wallet_id = ? "
+                    + "AND type = 'RECEIVE' AND status = 'CONFIRMED'", Long.class, wallet.getId())).isEqualTo(10);
+        }
+
+        IngestResult replay = ingestor.ingest(block);
+
+        assertThat(replay).isEqualTo(new IngestResult(0, 31, 2));
+        for (Wallet wallet : wallets) {
+            assertThat(balance(wallet)).isEqualByComparingTo("2.0");
+        }
+    }
+
+    @Test
+    void overlappingBatchOnlyCreditsTheNewTransfers() {
+        Wallet wallet = seedWallets(1).get(0);
+        ingestor.ingest(List.of(transfer(seeded.run() + "-a", wallet.getAddress(), "0.25")));
+
+        IngestResult result = ingestor.ingest(List.of(
+                transfer(seeded.run() + "-a", wallet.getAddress(), "0.25"),
+                transfer(seeded.run() + "-b", wallet.getAddress(), "0.5")));
+
+        assertThat(result).isEqualTo(new IngestResult(1, 1, 0));
+        assertThat(balance(wallet)).isEqualByComparingTo("1.75");
+        assertThat(jdbcTemplate.queryForObject("SELECT block_number FROM transactions WHERE tx_hash = ?",
+                Long.class, seeded.run() + "-b")).isEqualTo(900L);
+    }
+
+    private IncomingTransfer transfer(String txHash, String to, String amount) {
+        return new IncomingTransfer(txHash, "bc1qsender", to, new BigDecimal(amount), 900L);
+    }
+
+    private BigDecimal balance(Wallet wallet) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, wallet.getId());
+    }
+
+    private List<Wallet> seedWallets(int count) {
+        List<Wallet> wallets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            wallets.add(seeded.wallet(seeded.run() + "-wallet-" + i, Wallet.CryptoCurrency.BITCOIN, BigDecimal.ONE));
+        }
+        return wallets;
+    }
+}
@@ -0,0 +1,129 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.dto.UserDto;
+import com.cryptowallet.dto.UserRegistrationDto;
+import com.cryptowallet.dto.WalletCreationDto;
+import com.cryptowallet.dto.WalletDto;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Not {@code @Transactional} — the rollups are written at commit. Seeded rows are removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class StatsRollupsTest {
+
+    @Autowired private StatsRollups rollups;
+    @Autowired private UserService userService;
+    @Autowired private WalletService walletService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher dispatcher;
+    @Autowired private IncomingTransferIngestor ingestor;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final String run = "rollup-" + System.nanoTime();
+    private Long seededUser;
+
+    @AfterEach
+    void cleanUp() {
+        if (seededUser == null) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM transaction_outbox WHERE transaction_id IN (SELECT t.id FROM transactions t "
+                + "JOIN wallets w ON t.wallet_id = w.id WHERE w.user_id = ?)", seededUser);
+        jdbcTemplate.update("DELETE FROM transactions WHERE wallet_id IN (SELECT id FROM wallets WHERE user_id = ?)", seededUser);
+        jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", seededUser);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", seededUser);
+    }
+
+    @Test
+    void everyWriterKeepsTheCountersEqualToARebuild() throws Exception {
+        rollups.rebuild();
+        Map<String, String> before = totals();
+
+        UserDto user = userService.registerUser(registration());
+        seededUser = user.getId();
+        WalletCreationDto creation = new WalletCreationDto();
+        creation.setCurrency(Wallet.CryptoCurrency.BITCOIN);
+        WalletDto wallet = walletService.createWallet(user.getId(), creation);
+        jdbcTemplate.update("UPDATE wallets SET balance = 1 WHERE id = ?", wallet.getId());
+
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(wallet.getId());
+        send.setToAddress("bc1qrollupdestination");
+        send.setAmount(new BigDecimal("0.25"));
+        TransactionDto sent = transactionService.sendTransaction(send);
+        Transaction.TransactionStatus settled = awaitSettled(sent.getId());
+        if (settled == Transaction.TransactionStatus.BROADCAST) {
+            String txHash = jdbcTemplate.queryForObject("SELECT tx_hash FROM transactions WHERE id = ?",
+                    String.class, sent.getId());
+            transactionService.updateTransactionStatus(txHash, Transaction.TransactionStatus.CONFIRMED, 10L, 6);
+        }
+        ingestor.ingest(List.of(new IncomingTransferIngestor.IncomingTransfer(run + "-in", "sender",
+                wallet.getAddress(), new BigDecimal("0.5"), 11L)));
+        userService.deactivateUser(user.getId());
+
+        Map<String, String> incremental = totals();
+        assertThat(incremental).isNotEqualTo(before);
+        rollups.rebuild();
+        assertThat(incremental).isEqualTo(totals());
+
+        userService.deleteUser(user.getId());
+        seededUser = null;
+
+        incremental = totals();
+        assertThat(incremental).isEqualTo(before);
+        rollups.rebuild();
+        assertThat(incremental).isEqualTo(totals());
+    }
+
+    /** Non-zero counters by metric/currency/status. */
+    private Map<String, String> totals() {
+        Map<String, String> totals = new TreeMap<>();
+        for (StatsRollups.Total total : rollups.totals(LocalDate.now())) {
+            if (total.all().count() != 0 || total.all().amount().signum() != 0) {
+                totals.put(total.metric() + "/" + total.currency() + "/" + total.status(), total.all().count() + "/"
+                        + total.all().amount().stripTrailingZeros().toPlainString() + "/" + total.today());
+            }
+        }
+        return totals;
+    }
+
+    private Transaction.TransactionStatus awaitSettled(Long transactionId) throws InterruptedException {
+        dispatcher.dispatchDue();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Transaction.TransactionStatus status = Transaction.TransactionStatus.valueOf(jdbcTemplate.queryForObject(
+                    "SELECT status FROM transactions WHERE id = ?", String.class, transactionId));
+            if (status != Transaction.TransactionStatus.PENDING || System.currentTimeMillis() > deadline) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private UserRegistrationDto registration() {
+        UserRegistrationDto registration = new UserRegistrationDto();
+        registration.setUsername(run);
+        registration.setEmail(run + "@example.com");
+        registration.setPassword("password123");
+        registration.setFirstName("Roll");
+        registration.setLastName("Up");
+        return registration;
+    }
+}
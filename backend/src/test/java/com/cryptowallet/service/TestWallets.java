@@ -0,0 +1,76 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.security.SealedPrivateKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+/**
+ * One test's seeded user and wallets, for tests that commit (not {@code @Transactional}). Names are
+ * tagged with {@link #run()}, unique per instance, so other tests' rows can't match; {@link #cleanUp()}
+ * deletes the user with its wallets, their transactions and outbox entries. Create one in
+ * {@code @BeforeEach}, clean it up in {@code @AfterEach}.
+ */
+final class TestWallets {
+
+    private static final String PRIVATE_KEY = "L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwStrs";
+
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String run;
+    private User user;
+
+    TestWallets(String prefix, UserRepository userRepository, WalletRepository walletRepository,
+                JdbcTemplate jdbcTemplate) {
+        this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.run = prefix + "-" + System.nanoTime();
+    }
+
+    String run() {
+        return run;
+    }
+
+    /** The test's user, saved on first use. */
+    User user() {
+        if (user == null) {
+            user = userRepository.save(User.builder()
+                    .username(run)
+                    .email(run + "@example.com")
+                    .password("bcrypt-placeholder")
+                    .active(true)
+                    .build());
+        }
+        return user;
+    }
+
+    /** An active wallet of the test's user. */
+    Wallet wallet(String address, Wallet.CryptoCurrency currency, BigDecimal balance) {
+        return walletRepository.save(Wallet.builder()
+                .address(address)
+                .privateKey(SealedPrivateKey.seal(PRIVATE_KEY))
+                .currency(currency)
+                .balance(balance)
+                .user(user())
+                .active(true)
+                .build());
+    }
+
+    void cleanUp() {
+        if (user == null) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM transaction_outbox WHERE transaction_id IN (SELECT t.id FROM transactions t "
+                + "JOIN wallets w ON t.wallet_id = w.id WHERE w.user_id = ?)", user.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE wallet_id IN (SELECT id FROM wallets WHERE user_id = ?)",
+                user.getId());
+        jdbcTemplate.update("DELETE FROM wallets WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+}
@@ -0,0 +1,112 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Not {@code @Transactional} — rows are seeded over JDBC and removed in {@link #cleanUp()}. */
+@SpringBootTest
+@ActiveProfiles("h2")
+class TransactionHistoryPagingTest {
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private TestWallets seeded;
+
+    @BeforeEach
+    void seed() {
+        seeded = new TestWallets("history", userRepository, walletRepository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        seeded.cleanUp();
+    }
+
+    @Test
+    void cursorWalksWalletAndUserHistoryNewestFirstWithoutGapsOrRepeats() {
+        Wallet first = seedWallet(Wallet.CryptoCurrency.BITCOIN);
+        Wallet second = seedWallet(Wallet.CryptoCurrency.USDT_TRC20);
+        // Pairs of rows share a created_at, so pages have to break ties on id.
+        for (int i = 0; i < 7; i++) {
+            seedTransaction(first, base.plusMinutes(i / 2));
+        }
+        for (int i = 0; i < 5; i++) {
+            seedTransaction(second, base.plusMinutes(i));
+        }
+
+        List<TransactionDto> walletHistory = walkAll((cursor, limit) ->
+                transactionService.getWalletTransactions(first.getId(), cursor, limit), 3);
+        List<TransactionDto> userHistory = walkAll((cursor, limit) ->
+                transactionService.getUserTransactions(seeded.user().getId(), cursor, limit), 4);
+
+        assertThat(walletHistory).hasSize(7).isSortedAccordingTo(newestFirst());
+        assertThat(userHistory).hasSize(12).isSortedAccordingTo(newestFirst());
+        assertThat(userHistory).extracting(TransactionDto::getId).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void rejectsMalformedCursorsAndClampsTheLimit() {
+        Wallet wallet = seedWallet(Wallet.CryptoCurrency.BITCOIN);
+        seedTransaction(wallet, base);
+
+        assertThatThrownBy(() -> transactionService.getWalletTransactions(wallet.getId(), "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionService.getWalletTransactions(wallet.getId(), null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        TransactionService.HistoryPage page =
+                transactionService.getWalletTransactions(wallet.getId(), null, TransactionService.MAX_PAGE_SIZE * 10);
+        assertThat(page.transactions()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    private List<TransactionDto> walkAll(BiFunction<String, Integer, TransactionService.HistoryPage> fetch, int limit) {
+        List<TransactionDto> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionService.HistoryPage page = fetch.apply(cursor, limit);
+            assertThat(page.transactions()).hasSizeLessThanOrEqualTo(limit);
+            all.addAll(page.transactions());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static Comparator<TransactionDto> newestFirst() {
+        return Comparator.comparing(TransactionDto::getCreatedAt).thenComparing(TransactionDto::getId).reversed();
+    }
+
+    private void seedTransaction(Wallet wallet, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO transactions (tx_hash, from_address, to_address, amount, type, status, "
+                        + "wallet_id, created_at) VALUES (?, 'sender', ?, 1, 'RECEIVE', 'CONFIRMED', ?, ?)",
+                seeded.run() + "-" + System.nanoTime(), wallet.getAddress(), wallet.getId(), Timestamp.valueOf(createdAt));
+    }
+
+    private Wallet seedWallet(Wallet.CryptoCurrency currency) {
+        return seeded.wallet(seeded.run() + "-" + currency, currency, BigDecimal.ZERO);
+    }
+}
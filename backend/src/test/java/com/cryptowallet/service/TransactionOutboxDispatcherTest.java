@@ -0,0 +1,176 @@
+package com.cryptowallet.service;
+
+import com.cryptowallet.dto.SendTransactionDto;
+import com.cryptowallet.dto.TransactionDto;
+import com.cryptowallet.entity.Transaction;
+import com.cryptowallet.entity.User;
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.repository.TransactionOutboxRepository;
+import com.cryptowallet.repository.TransactionRepository;
+import com.cryptowallet.repository.UserRepository;
+import com.cryptowallet.repository.WalletRepository;
+import com.cryptowallet.security.SealedPrivateKey;
+import com.cryptowallet.service.crypto.CryptoProvider;
+import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import com.cryptowallet.service.crypto.ProviderRejectedException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class TransactionOutboxDispatcherTest {
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionOutboxDispatcher dispatcher;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionOutboxRepository outboxRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @SpyBean private CryptoProviderRegistry providers;
+
+    @Test
+    void sendIsQueuedThenBroadcastWithFeeCharged() {
+        Wallet wallet = fundedWallet(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwOutbox"));
+
+        TransactionDto queued = transactionService.sendTransaction(send(wallet, "0.25000000"));
+
+        assertThat(queued.getStatus()).isEqualTo(Transaction.TransactionStatus.PENDING);
+        assertThat(queued.getTxHash()).startsWith(TransactionService.PENDING_TX_HASH_PREFIX);
+        assertThat(outboxRepository.findByTransactionId(queued.getId())).isPresent();
+        assertThat(balanceOf(wallet)).isEqualByComparingTo("0.75000000");
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(1);
+
+        Transaction sent = transactionRepository.findById(queued.getId()).orElseThrow();
+        assertThat(sent.getStatus()).isEqualTo(Transaction.TransactionStatus.BROADCAST);
+        assertThat(sent.getTxHash()).startsWith("bitcoin_tx_");
+        assertThat(balanceOf(wallet)).isEqualByComparingTo(new BigDecimal("0.75000000").subtract(sent.getFee()));
+        assertThat(outboxRepository.findByTransactionId(queued.getId())).isEmpty();
+        assertThat(dispatcher.dispatchDue()).isZero();
+    }
+
+    @Test
+    void failedBroadcastRefundsTheReservedAmount() {
+        // Unreadable ciphertext: signing throws before the node is reached.
+        Wallet wallet = fundedWallet(SealedPrivateKey.ofCiphertext("k1.bm90LWEtdmFsaWQtcGF5bG9hZA"));
+
+        TransactionDto queued = transactionService.sendTransaction(send(wallet, "0.40000000"));
+        dispatcher.dispatchDue();
+
+        Transaction failed = transactionRepository.findById(queued.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(Transaction.TransactionStatus.FAILED);
+        assertThat(balanceOf(wallet)).isEqualByComparingTo("1.00000000");
+        assertThat(outboxRepository.findByTransactionId(queued.getId())).isEmpty();
+    }
+
+    @Test
+    void reclaimedSignedSendRebroadcastsTheSameTransaction() {
+        Wallet wallet = fundedWallet(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwResend"));
+        TransactionDto queued = transactionService.sendTransaction(send(wallet, "0.25000000"));
+        // An earlier claim signed and committed, then died before recording the outcome.
+        markSigned(queued, "bitcoin_tx_presigned-" + System.nanoTime(), 1);
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(1);
+
+        Transaction sent = transactionRepository.findById(queued.getId()).orElseThrow();
+        assertThat(sent.getStatus()).isEqualTo(Transaction.TransactionStatus.BROADCAST);
+        assertThat(sent.getTxHash()).startsWith("bitcoin_tx_presigned-");
+        assertThat(balanceOf(wallet)).isEqualByComparingTo("0.74990000");
+    }
+
+    @Test
+    void signedSendIsNotRefundedWhileTheChainCannotBeChecked() {
+        Wallet wallet = fundedWallet(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwNoRefund"));
+        TransactionDto queued = transactionService.sendTransaction(send(wallet, "0.25000000"));
+        // Out of attempts, and the placeholder Bitcoin backend can't look txids up.
+        markSigned(queued, "bitcoin_tx_unknown-" + System.nanoTime(), 3);
+
+        dispatcher.dispatchDue();
+
+        assertThat(transactionRepository.findById(queued.getId()).orElseThrow().getStatus())
+                .isEqualTo(Transaction.TransactionStatus.PENDING);
+        assertThat(balanceOf(wallet)).isEqualByComparingTo("0.75000000");
+        assertThat(outboxRepository.findByTransactionId(queued.getId())).isPresent();
+    }
+
+    @Test
+    void sendRefusedByTheProviderIsNotCountedAsAnAttempt() {
+        Wallet wallet = fundedWallet(SealedPrivateKey.seal("L1aW4aHbjJh1pP2Lv9qJ8fH3bR7tK5cN6mE0vYwRefused"));
+        TransactionDto queued = transactionService.sendTransaction(send(wallet, "0.25000000"));
+        markSigned(queued, "bitcoin_tx_refused-" + System.nanoTime(), 1);
+        CryptoProvider open = mock(CryptoProvider.class);
+        when(open.findTransaction(anyString())).thenThrow(new ProviderRejectedException("BITCOIN provider circuit is open"));
+        doReturn(open).when(providers).get(Wallet.CryptoCurrency.BITCOIN);
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(1);
+
+        verify(open, never()).broadcastTransaction(any());
+        assertThat(transactionRepository.findById(queued.getId()).orElseThrow().getStatus())
+                .isEqualTo(Transaction.TransactionStatus.PENDING);
+        assertThat(balanceOf(wallet)).isEqualByComparingTo("0.75000000");
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM transaction_outbox WHERE transaction_id = ?",
+                Integer.class, queued.getId())).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT locked_until FROM transaction_outbox WHERE transaction_id = ?",
+                Timestamp.class, queued.getId())).isBefore(Timestamp.valueOf(LocalDateTime.now().plusSeconds(30)));
+    }
+
+    private void markSigned(TransactionDto queued, String txHash, int attempts) {
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE transaction_outbox SET signed_tx_hash = ?, signed_payload = ?, signed_fee = 0.0001, "
+                + "attempts = ? WHERE transaction_id = ?", txHash, txHash, attempts, queued.getId());
+        entityManager.clear();
+    }
+
+    private BigDecimal balanceOf(Wallet wallet) {
+        entityManager.flush();
+        entityManager.clear();
+        return walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+    }
+
+    private SendTransactionDto send(Wallet wallet, String amount) {
+        SendTransactionDto send = new SendTransactionDto();
+        send.setWalletId(wallet.getId());
+        send.setToAddress("bc1qrecipient");
+        send.setAmount(new BigDecimal(amount));
+        return send;
+    }
+
+    private Wallet fundedWallet(SealedPrivateKey key) {
+        User user = userRepository.save(User.builder()
+                .username("outbox-" + System.nanoTime())
+                .email("outbox-" + System.nanoTime() + "@example.com")
+                .password("bcrypt-placeholder")
+                .active(true)
+                .build());
+        return walletRepository.save(Wallet.builder()
+                .address("outbox-" + System.nanoTime())
+                .privateKey(key)
+                .currency(Wallet.CryptoCurrency.BITCOIN)
+                .balance(new BigDecimal("1.00000000"))
+                .user(user)
+                .active(true)
+                .build());
+    }
+}
@@ -3,10 +3,17 @@ package com.cryptowallet.service;
 import com.cryptowallet.entity.Wallet;
 import com.cryptowallet.service.crypto.KeyPair;
 import com.cryptowallet.service.crypto.TransactionResult;
+import org.bitcoinj.crypto.HDPath;
+import org.bitcoinj.wallet.DeterministicKeyChain;
+import org.bitcoinj.wallet.DeterministicSeed;
 import org.junit.jupiter.api.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -84,6 +91,15 @@ class TronWalletServiceTest {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    void getBalancesReturnsOneNonNegativeBalancePerAddress() {
+        Map<String, BigDecimal> balances = service.getBalances(List.of("Ta", "Tb"));
+
+        assertThat(service.balanceBatchSize()).isGreaterThan(1);
+        assertThat(balances).containsOnlyKeys("Ta", "Tb");
+        assertThat(balances.values()).allSatisfy(balance -> assertThat(balance).isNotNegative());
+    }
+
     @Test
     void sendTransactionReturnsResultWithTxHashAndFee() {
         TransactionResult result = service.sendTransaction(
@@ -120,4 +136,33 @@ class TronWalletServiceTest {
             assertThat(balance).isNotNull();
         }).doesNotThrowAnyException();
     }
+
+    @Test
+    void hdDerivationIsDeterministicAndPrivateKeyControlsAddress() {
+        byte[] seed = new byte[64];
+        seed[0] = 42;
+
+        List<String> batch = service.deriveAddresses(seed, 0, 3);
+        ECKeyPair key = ECKeyPair.create(Numeric.toBigInt(service.derivePrivateKey(seed, 2)));
+
+        assertThat(batch).doesNotHaveDuplicates().hasSize(3);
+        assertThat(service.deriveAddresses(seed, 2, 1)).containsExactly(batch.get(2));
+        assertThat("T" + Numeric.toHexStringWithPrefix(key.getPublicKey()).substring(2, 36)).isEqualTo(batch.get(2));
+    }
+
+    @Test
+    void hdPathMatchesBitcoinjBip44DerivationOfTheSameEntropy() {
+        byte[] entropy = new byte[32];
+        entropy[5] = 9;
+        HDPath tronAccount = HDPath.parsePath("M/44H/195H/0H");
+        DeterministicSeed seed = new DeterministicSeed(entropy, "", 0);
+        DeterministicKeyChain chain = DeterministicKeyChain.builder()
+                .seed(seed)
+                .accountPath(tronAccount)
+                .build();
+
+        BigInteger expected = chain.getKeyByPath(HDPath.parsePath("M/44H/195H/0H/0/3"), true).getPrivKey();
+
+        assertThat(Numeric.toBigInt(service.derivePrivateKey(seed.getSeedBytes(), 3))).isEqualTo(expected);
+    }
 }
@@ -34,7 +34,8 @@ class UserServiceTest {
         userRepository = mock(UserRepository.class);
         passwordEncoder = mock(PasswordEncoder.class);
         cryptoService = mock(CryptoService.class);
-        userService = new UserService(userRepository, passwordEncoder, cryptoService);
+        userService = new UserService(userRepository, passwordEncoder, cryptoService, mock(StatsRollups.class),
+                mock(AdminSearch.class));
 
         when(passwordEncoder.encode(anyString())).thenReturn("encoded");
         when(cryptoService.generateDek()).thenReturn(new byte[32]);
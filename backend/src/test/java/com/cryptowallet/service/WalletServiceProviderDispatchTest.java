@@ -5,16 +5,19 @@ import com.cryptowallet.repository.UserRepository;
 import com.cryptowallet.repository.WalletRepository;
 import com.cryptowallet.service.crypto.CryptoProvider;
 import com.cryptowallet.service.crypto.CryptoProviderRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -29,6 +32,12 @@ class WalletServiceProviderDispatchTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AddressPool addressPool;
+
+    @Mock
+    private HdKeyService hdKeyService;
+
     @Mock(name = "bitcoin")
     private CryptoProvider bitcoinProvider;
 
@@ -41,7 +50,11 @@ class WalletServiceProviderDispatchTest {
         when(tronProvider.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
         CryptoProviderRegistry registry = new CryptoProviderRegistry(List.of(bitcoinProvider, tronProvider));
 
-        WalletService walletService = new WalletService(walletRepository, userRepository, registry);
+        CoalescingBalanceLookup balanceLookup = new CoalescingBalanceLookup(registry, new SimpleMeterRegistry(),
+                Duration.ofSeconds(2), 100);
+        WalletService walletService = new WalletService(walletRepository, userRepository, registry, addressPool,
+                hdKeyService, balanceLookup, event -> { }, mock(StatsRollups.class),
+                mock(AdminSearch.class));
 
         Wallet wallet = Wallet.builder()
                 .id(7L)
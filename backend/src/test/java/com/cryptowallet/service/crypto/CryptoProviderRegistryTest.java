@@ -3,11 +3,23 @@ package com.cryptowallet.service.crypto;
 import com.cryptowallet.entity.Wallet;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.answer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CryptoProviderRegistryTest {
@@ -48,4 +60,51 @@ class CryptoProviderRegistryTest {
                 .hasMessageContaining("No CryptoProvider")
                 .hasMessageContaining("USDT_TRC20");
     }
+
+    @Test
+    void batchingProviderGetsOneGetBalancesCallPerBatch() {
+        CryptoProvider bitcoin = mock(CryptoProvider.class);
+        when(bitcoin.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.balanceBatchSize()).thenReturn(2);
+        when(bitcoin.getBalances(any())).thenAnswer(answer((Collection<String> addresses) -> addresses.stream()
+                .collect(Collectors.toMap(Function.identity(), address -> BigDecimal.ONE))));
+        CryptoProviderRegistry registry = new CryptoProviderRegistry(List.of(bitcoin, tronStub()));
+
+        Map<String, BigDecimal> balances = registry.getBalances(Wallet.CryptoCurrency.BITCOIN, addresses(5));
+
+        assertThat(balances).hasSize(5).containsKeys("a0", "a4");
+        verify(bitcoin, times(3)).getBalances(any());
+        verify(bitcoin, never()).getBalance(anyString());
+    }
+
+    @Test
+    void providerWithoutBatchingIsFannedOutAndFailuresAreLeftOut() {
+        CryptoProvider bitcoin = mock(CryptoProvider.class);
+        when(bitcoin.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.balanceBatchSize()).thenReturn(1);
+        when(bitcoin.getBalances(any())).thenCallRealMethod(); // the default: one getBalance per address
+        when(bitcoin.getBalance(anyString())).thenAnswer(call -> {
+            if (call.getArgument(0).equals("a3")) {
+                throw new IllegalStateException("node unavailable");
+            }
+            return BigDecimal.TEN;
+        });
+        CryptoProviderRegistry registry = new CryptoProviderRegistry(List.of(bitcoin, tronStub()));
+
+        Map<String, BigDecimal> balances = registry.getBalances(Wallet.CryptoCurrency.BITCOIN, addresses(6), 2);
+
+        assertThat(balances).hasSize(5).doesNotContainKey("a3");
+        verify(bitcoin, times(6)).getBalances(any());
+        verify(bitcoin, times(6)).getBalance(anyString());
+    }
+
+    private static CryptoProvider tronStub() {
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        return tron;
+    }
+
+    private static List<String> addresses(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "a" + i).toList();
+    }
 }
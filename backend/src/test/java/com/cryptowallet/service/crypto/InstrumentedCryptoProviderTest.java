@@ -0,0 +1,52 @@
+package com.cryptowallet.service.crypto;
+
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InstrumentedCryptoProviderTest {
+
+    private final PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    @Test
+    void operationsAreTimedByCurrencyAndOutcomeAndScrapedAsHistograms() {
+        CryptoProvider tron = mock(CryptoProvider.class);
+        when(tron.supportedCurrency()).thenReturn(Wallet.CryptoCurrency.USDT_TRC20);
+        when(tron.generateAddress()).thenReturn(new KeyPair());
+        when(tron.getBalance(anyString())).thenReturn(BigDecimal.ONE);
+        when(tron.sendTransaction(anyString(), anyString(), any())).thenThrow(new IllegalStateException("rejected"));
+        InstrumentedCryptoProvider instrumented = new InstrumentedCryptoProvider(tron, prometheus);
+
+        instrumented.generateAddress();
+        instrumented.getBalance("T1");
+        instrumented.getBalance("T2");
+        assertThatThrownBy(() -> instrumented.sendTransaction("key", "T3", BigDecimal.ONE)).hasMessage("rejected");
+
+        assertThat(timerCount("getBalance", "success")).isEqualTo(2);
+        assertThat(timerCount("generateAddress", "success")).isEqualTo(1);
+        assertThat(timerCount("sendTransaction", "error")).isEqualTo(1);
+        assertThat(prometheus.get("cryptowallet.provider.errors")
+                .tags("operation", "sendTransaction", "exception", "IllegalStateException").counter().count())
+                .isEqualTo(1.0);
+
+        String scrape = prometheus.scrape();
+        assertThat(scrape).contains("cryptowallet_provider_operation_seconds_bucket{currency=\"USDT_TRC20\","
+                + "operation=\"sendTransaction\",outcome=\"error\",le=");
+        assertThat(scrape).contains("cryptowallet_provider_errors_total{");
+    }
+
+    private long timerCount(String operation, String outcome) {
+        return prometheus.get("cryptowallet.provider.operation")
+                .tags("operation", operation, "outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,195 @@
+package com.cryptowallet.service.crypto;
+
+import com.cryptowallet.entity.Wallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientCryptoProviderTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final Clock clock = new Clock() {
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(now.get()); }
+    };
+
+    @Test
+    void slowCallTimesOutAndReturnsItsBulkheadPermit() throws Exception {
+        CryptoProvider tron = provider(Wallet.CryptoCurrency.USDT_TRC20);
+        when(tron.getBalance(anyString())).thenAnswer(call -> {
+            Thread.sleep(10_000);
+            return BigDecimal.ONE;
+        });
+        ResilientCryptoProvider resilient = decorate(tron, 1, Duration.ofMillis(100), 5, Duration.ZERO);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> resilient.getBalance("Thung"))
+                .isInstanceOf(ProviderUnavailableException.class)
+                .hasMessageContaining("timed out");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+
+        // The interrupted call gives its permit back; the next one is allowed in.
+        doReturn(BigDecimal.TEN).when(tron).getBalance("Tok");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        BigDecimal balance = null;
+        while (balance == null) {
+            try {
+                balance = resilient.getBalance("Tok");
+            } catch (ProviderUnavailableException rejected) {
+                assertThat(System.nanoTime()).isLessThan(deadline);
+                Thread.sleep(10);
+            }
+        }
+        assertThat(balance).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailuresAndClosesAfterASuccessfulTrial() {
+        CryptoProvider bitcoin = provider(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.getBalance(anyString())).thenThrow(new IllegalStateException("node down"));
+        ResilientCryptoProvider resilient = decorate(bitcoin, 4, Duration.ofSeconds(5), 3, Duration.ZERO);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> resilient.getBalance("bc1q")).hasMessage("node down");
+        }
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> resilient.getBalance("bc1q"))
+                .isInstanceOf(ProviderRejectedException.class)
+                .hasMessageContaining("circuit is open");
+        verify(bitcoin, times(3)).getBalance(anyString());
+
+        now.addAndGet(30_000);
+        doReturn(BigDecimal.ONE).when(bitcoin).getBalance("bc1qback");
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(resilient.getBalance("bc1qback")).isEqualByComparingTo("1");
+        assertThat(resilient.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void fullBulkheadRejectsImmediatelyWithoutAffectingOtherCurrenciesOrSends() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CryptoProvider bitcoin = provider(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.getBalance(anyString())).thenAnswer(call -> {
+            release.await(10, TimeUnit.SECONDS);
+            return BigDecimal.ONE;
+        });
+        CryptoProvider tron = provider(Wallet.CryptoCurrency.USDT_TRC20);
+        when(tron.getBalance(anyString())).thenReturn(BigDecimal.TEN);
+        SignedTransaction signed = new SignedTransaction("0xabc", "0xabc", BigDecimal.ZERO);
+        TransactionResult sent = new TransactionResult();
+        sent.setTxHash("0xabc");
+        when(bitcoin.broadcastTransaction(signed)).thenReturn(sent);
+        ResilientCryptoProvider resilientBitcoin = decorate(bitcoin, 1, Duration.ofSeconds(10), 5, Duration.ZERO);
+        ResilientCryptoProvider resilientTron = decorate(tron, 1, Duration.ofSeconds(10), 5, Duration.ZERO);
+
+        CompletableFuture<BigDecimal> stuck = CompletableFuture.supplyAsync(() -> resilientBitcoin.getBalance("bc1q"));
+        while (meters.get("cryptowallet.provider.bulkhead.in.use").tag("currency", "BITCOIN")
+                .tag("bulkhead", "reads").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> resilientBitcoin.getBalance("bc1q2"))
+                .isInstanceOf(ProviderRejectedException.class)
+                .hasMessageContaining("concurrent reads");
+        assertThat(resilientTron.getBalance("T1")).isEqualByComparingTo("10");
+        assertThat(resilientBitcoin.broadcastTransaction(signed).getTxHash()).isEqualTo("0xabc");
+
+        release.countDown();
+        assertThat(stuck.get(10, TimeUnit.SECONDS)).isEqualByComparingTo("1");
+        assertThat(resilientBitcoin.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void slowBalanceReadIsHedgedAndTheLoserIsCancelled() throws Exception {
+        CountDownLatch loserInterrupted = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        CryptoProvider bitcoin = provider(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.getBalance(anyString())).thenAnswer(call -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    loserInterrupted.countDown();
+                }
+                return BigDecimal.ONE;
+            }
+            return BigDecimal.TEN;
+        });
+        ResilientCryptoProvider resilient = decorate(bitcoin, 4, Duration.ofSeconds(5), 5, Duration.ofMillis(50));
+
+        assertThat(resilient.getBalance("bc1q")).isEqualByComparingTo("10");
+        assertThat(meters.get("cryptowallet.provider.hedged").counter().count()).isEqualTo(1.0);
+        assertThat(loserInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void hedgedReadFailsOnlyWhenBothLegsFail() {
+        AtomicInteger attempts = new AtomicInteger();
+        CryptoProvider bitcoin = provider(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.getBalance("bc1q")).thenAnswer(call -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(100);
+                throw new IllegalStateException("endpoint one down");
+            }
+            Thread.sleep(300);
+            return BigDecimal.TEN;
+        });
+        when(bitcoin.getBalance("bc1qgone")).thenAnswer(call -> {
+            Thread.sleep(100);
+            throw new IllegalStateException("all endpoints down");
+        });
+        ResilientCryptoProvider resilient = decorate(bitcoin, 4, Duration.ofSeconds(5), 5, Duration.ofMillis(50));
+
+        assertThat(resilient.getBalance("bc1q")).isEqualByComparingTo("10");
+        assertThatThrownBy(() -> resilient.getBalance("bc1qgone")).hasMessage("all endpoints down");
+        verify(bitcoin, times(2)).getBalance("bc1qgone");
+    }
+
+    @Test
+    void hedgeIsSkippedWhenTheBulkheadIsFull() {
+        CryptoProvider bitcoin = provider(Wallet.CryptoCurrency.BITCOIN);
+        when(bitcoin.getBalance(anyString())).thenAnswer(call -> {
+            Thread.sleep(200);
+            return BigDecimal.ONE;
+        });
+        ResilientCryptoProvider resilient = decorate(bitcoin, 1, Duration.ofSeconds(5), 5, Duration.ofMillis(50));
+
+        assertThat(resilient.getBalance("bc1q")).isEqualByComparingTo("1");
+        verify(bitcoin, times(1)).getBalance("bc1q");
+        assertThat(meters.get("cryptowallet.provider.hedged").counter().count()).isZero();
+    }
+
+    private static CryptoProvider provider(Wallet.CryptoCurrency currency) {
+        CryptoProvider provider = mock(CryptoProvider.class);
+        when(provider.supportedCurrency()).thenReturn(currency);
+        return provider;
+    }
+
+    private ResilientCryptoProvider decorate(CryptoProvider provider, int maxConcurrentCalls, Duration timeout,
+                                             int failureThreshold, Duration hedgeDelay) {
+        return new ResilientCryptoProvider(provider, maxConcurrentCalls, 1, timeout, failureThreshold,
+                Duration.ofSeconds(30), hedgeDelay, meters, clock);
+    }
+}
@@ -0,0 +1,75 @@
+package com.cryptowallet.service.index;
+
+import org.bitcoinj.core.Base58;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heap held by {@link AddressIndex} against a {@code HashMap<String, Long>} of the same Tron-style
+ * addresses. Opt-in — needs a large heap:
+ * {@code mvn test -Dtest=AddressIndexFootprintBenchmark -Dbenchmark=true -DargLine=-Xmx4g}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AddressIndexFootprintBenchmark {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000_000, 10_000_000})
+    void footprint(int count) throws NoSuchAlgorithmException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] payload = new byte[21];
+        payload[0] = 0x41;
+
+        long before = usedHeap();
+        AddressIndex index = new AddressIndex();
+        for (int i = 0; i < count; i++) {
+            index.put(AddressCodec.encode(address(sha256, payload, i)), i);
+        }
+        long indexHeap = usedHeap() - before;
+
+        long probeStart = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (index.get(AddressCodec.encode(address(sha256, payload, count + i))) != null) hits++;
+        }
+        long missNanos = (System.nanoTime() - probeStart) / 1_000_000;
+        System.out.printf("AddressIndex %,d entries: footprint %,d B (%.1f B/entry), measured %,d B, "
+                        + "%d wrong hit(s) in 1M misses, %d ns/miss incl. generating the address%n",
+                count, index.footprintBytes(), index.footprintBytes() / (double) count, indexHeap, hits, missNanos);
+        index = null;
+
+        before = usedHeap();
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put(address(sha256, payload, i), (long) i);
+        }
+        long mapHeap = usedHeap() - before;
+        System.out.printf("HashMap<String, Long> %,d entries: measured %,d B (%.1f B/entry)%n",
+                count, mapHeap, mapHeap / (double) count);
+        map.clear();
+    }
+
+    private static String address(MessageDigest sha256, byte[] payload, int i) {
+        byte[] seed = sha256.digest(Integer.toString(i).getBytes(StandardCharsets.US_ASCII));
+        System.arraycopy(seed, 0, payload, 1, 20);
+        byte[] check = sha256.digest(sha256.digest(payload));
+        byte[] full = new byte[25];
+        System.arraycopy(payload, 0, full, 0, 21);
+        System.arraycopy(check, 0, full, 21, 4);
+        return Base58.encode(full);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,77 @@
+package com.cryptowallet.service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AddressIndexTest {
+
+    private static final String LEGACY = "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa";
+    private static final String SEGWIT = "bc1qar0srrr7xfkvy5l643lydnw9re59gtzzwf5mdq";
+    private static final String TRON = "TLa2f6VPqDgRE67v1736s7bJ8Ray5wYjU7";
+
+    @Test
+    void codecDropsChecksumsAndKeepsAddressesDistinct() {
+        assertThat(AddressCodec.encode(LEGACY)).hasSize(22).startsWith(1);
+        assertThat(AddressCodec.encode(TRON)).hasSize(22).startsWith(1);
+        assertThat(AddressCodec.encode(SEGWIT)).startsWith(2).hasSizeLessThan(SEGWIT.length());
+        assertThat(AddressCodec.encode(SEGWIT.toUpperCase())).isEqualTo(AddressCodec.encode(SEGWIT));
+        // A broken checksum is not a Base58Check address: kept verbatim, so it can't alias a real one.
+        assertThat(AddressCodec.encode(LEGACY.substring(0, 33) + "b")).startsWith(0);
+        assertThat(AddressCodec.encode("sim-btc-00001")).startsWith(0);
+    }
+
+    @Test
+    void putGetRemoveAcrossRebuilds() {
+        AddressIndex index = new AddressIndex();
+        for (int i = 0; i < 10_000; i++) {
+            index.put(AddressCodec.encode("addr-" + i), i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            assertThat(index.remove(AddressCodec.encode("addr-" + i), i)).isTrue();
+        }
+        assertThat(index.remove(AddressCodec.encode("addr-1"), 99)).as("other wallet's id").isFalse();
+        for (int i = 10_000; i < 20_000; i++) {
+            index.put(AddressCodec.encode("addr-" + i), i);
+        }
+
+        assertThat(index.size()).isEqualTo(15_000);
+        assertThat(index.get(AddressCodec.encode("addr-1"))).isEqualTo(1L);
+        assertThat(index.get(AddressCodec.encode("addr-2"))).isNull();
+        assertThat(index.get(AddressCodec.encode("addr-19999"))).isEqualTo(19_999L);
+        assertThat(index.get(AddressCodec.encode("addr-20000"))).isNull();
+
+        index.put(AddressCodec.encode("addr-1"), 42);
+        assertThat(index.get(AddressCodec.encode("addr-1"))).isEqualTo(42L);
+        assertThat(index.size()).isEqualTo(15_000);
+        assertThatThrownBy(() -> index.put(new byte[256], 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        AddressIndex index = new AddressIndex();
+        index.put(AddressCodec.encode(LEGACY), 1);
+        index.put(AddressCodec.encode(SEGWIT), 2);
+        index.put(AddressCodec.encode(TRON), 3);
+        index.remove(AddressCodec.encode(TRON), 3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        AddressIndex restored = AddressIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.size()).isEqualTo(2);
+        assertThat(restored.get(AddressCodec.encode(LEGACY))).isEqualTo(1L);
+        assertThat(restored.get(AddressCodec.encode(SEGWIT))).isEqualTo(2L);
+        assertThat(restored.get(AddressCodec.encode(TRON))).isNull();
+        assertThat(restored.maxWalletId()).isEqualTo(2L);
+        assertThatThrownBy(() -> AddressIndex.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[8]))))
+                .isInstanceOf(IOException.class);
+    }
+}
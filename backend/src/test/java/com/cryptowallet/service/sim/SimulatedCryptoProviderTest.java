@@ -0,0 +1,99 @@
+package com.cryptowallet.service.sim;
+
+import com.cryptowallet.entity.Wallet;
+import com.cryptowallet.service.crypto.KeyPair;
+import com.cryptowallet.service.crypto.SignedTransaction;
+import com.cryptowallet.service.crypto.TransactionPresence;
+import com.cryptowallet.service.crypto.TransactionResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SimulatedCryptoProviderTest {
+
+    private SimulatedCryptoProvider simulator(long seed, double failureRate, double depositsPerBlock) {
+        SimulationSettings settings = new SimulationSettings(seed, Duration.ofSeconds(1), Duration.ZERO,
+                Duration.ZERO, failureRate, depositsPerBlock, new BigDecimal("0.01"), new BigDecimal("1"),
+                new BigDecimal("0.0001"), 10);
+        return new SimulatedCryptoProvider(Wallet.CryptoCurrency.BITCOIN, settings, Clock.systemUTC());
+    }
+
+    @Test
+    void sameSeedReplaysTheSameChain() {
+        SimulatedCryptoProvider first = simulator(7, 0, 3);
+        SimulatedCryptoProvider second = simulator(7, 0, 3);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(first.generateAddress().getAddress()).isEqualTo(second.generateAddress().getAddress());
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(first.mineBlock().transfers()).isEqualTo(second.mineBlock().transfers());
+        }
+        assertThat(simulator(8, 0, 3).generateAddress().getAddress())
+                .isNotEqualTo(simulator(7, 0, 3).generateAddress().getAddress());
+    }
+
+    @Test
+    void sendDebitsSenderAndCreditsRecipientWhenMined() {
+        SimulatedCryptoProvider chain = simulator(1, 0, 0);
+        KeyPair alice = chain.generateAddress();
+        KeyPair bob = chain.generateAddress();
+        chain.deposit(alice.getAddress(), new BigDecimal("2"));
+        chain.mineBlock();
+
+        TransactionResult result = chain.sendTransaction(alice.getPrivateKey(), bob.getAddress(), new BigDecimal("0.5"));
+        assertThat(chain.getBalance(alice.getAddress())).isEqualByComparingTo("1.4999");
+        assertThat(chain.getBalance(bob.getAddress())).isEqualByComparingTo("0");
+
+        SimulatedCryptoProvider.Block block = chain.mineBlock();
+        assertThat(block.height()).isEqualTo(2);
+        assertThat(chain.getBalances(List.of(alice.getAddress(), bob.getAddress())))
+                .containsEntry(bob.getAddress(), new BigDecimal("0.50000000"));
+        assertThat(block.transfers()).singleElement().satisfies(transfer -> {
+            assertThat(transfer.txHash()).isEqualTo(result.getTxHash());
+            assertThat(transfer.toAddress()).isEqualTo(bob.getAddress());
+        });
+        assertThat(chain.block(2)).contains(block);
+    }
+
+    @Test
+    void derivedKeysSignForDerivedAddresses() {
+        SimulatedCryptoProvider chain = simulator(1, 0, 0);
+        byte[] seed = new byte[]{1, 2, 3};
+        List<String> addresses = chain.deriveAddresses(seed, 0, 3);
+
+        assertThat(addresses).doesNotHaveDuplicates().isEqualTo(simulator(99, 0, 0).deriveAddresses(seed, 0, 3));
+        chain.sendTransaction(chain.derivePrivateKey(seed, 1), "bc1qexternal", BigDecimal.ONE);
+        assertThat(chain.getBalance(addresses.get(1))).isEqualByComparingTo("-1.0001");
+    }
+
+    @Test
+    void rebroadcastingASignedTransactionIsANoOp() {
+        SimulatedCryptoProvider chain = simulator(5, 0, 0);
+        KeyPair alice = chain.generateAddress();
+        SignedTransaction signed = chain.signTransaction(alice.getPrivateKey(), "bc1qexternal", BigDecimal.ONE);
+
+        assertThat(chain.findTransaction(signed.txHash())).isEqualTo(TransactionPresence.NOT_SEEN);
+        chain.broadcastTransaction(signed);
+        chain.broadcastTransaction(signed);
+
+        assertThat(chain.findTransaction(signed.txHash())).isEqualTo(TransactionPresence.SEEN);
+        assertThat(chain.getBalance(alice.getAddress())).isEqualByComparingTo("-1.0001");
+    }
+
+    @Test
+    void failureRateOneFailsEveryNodeCall() {
+        SimulatedCryptoProvider chain = simulator(1, 1, 0);
+        KeyPair keyPair = chain.generateAddress();
+
+        assertThatThrownBy(() -> chain.getBalance(keyPair.getAddress())).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> chain.sendTransaction(keyPair.getPrivateKey(), "bc1qx", BigDecimal.ONE))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -11,7 +11,7 @@ const TransactionHistory: React.FC<TransactionHistoryProps> = ({ walletId, userI
   const walletQuery = useWalletTransactions(walletId);
   const userQuery = useUserTransactions(walletId ? undefined : userId);
   const activeQuery = walletId ? walletQuery : userQuery;
-  const transactions: Transaction[] = activeQuery.data ?? [];
+  const transactions: Transaction[] = activeQuery.data?.pages.flatMap(page => page.transactions) ?? [];
   const loading = (walletId || userId) ? activeQuery.isPending : false;
   const error = activeQuery.error
     ? ((activeQuery.error as any).response?.data?.message || 'Failed to load transactions')
@@ -142,6 +142,16 @@ const TransactionHistory: React.FC<TransactionHistoryProps> = ({ walletId, userI
       )}
       
       <div className="text-center mt-4">
+        {activeQuery.hasNextPage && (
+          <button
+            onClick={() => activeQuery.fetchNextPage()}
+            className="btn btn-secondary"
+            disabled={activeQuery.isFetchingNextPage}
+            style={{ marginRight: '0.5rem' }}
+          >
+            {activeQuery.isFetchingNextPage ? 'Loading...' : '⬇️ Load More'}
+          </button>
+        )}
         <button
           onClick={loadTransactions}
           className="btn btn-secondary"
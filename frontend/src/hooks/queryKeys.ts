@@ -22,10 +22,7 @@ export const qk = {
   adminTransactionsSearch: (params: object) => ['admin', 'transactions', 'search', params] as const,
   adminTransactionsPending: (params: object) => ['admin', 'transactions', 'pending', params] as const,
   adminStats: ['admin', 'stats'] as const,
-  adminAnalyticsUsers: (start: string, end: string) => ['admin', 'analytics', 'users', start, end] as const,
-  adminAnalyticsTx: (start: string, end: string) => ['admin', 'analytics', 'tx', start, end] as const,
-  adminAnalyticsVolume: (start: string, end: string, currency: string) =>
-    ['admin', 'analytics', 'volume', start, end, currency] as const,
+  adminAnalyticsSeries: (params: object) => ['admin', 'analytics', 'series', params] as const,
   // admin auth
   adminsRoot: ['admins'] as const,
   admin: (id: number) => ['admins', id] as const,
@@ -1,6 +1,8 @@
 import { useQuery, useMutation, useQueryClient } from '@tanstack/react-query';
 import { adminDashboardApi } from '../services/api';
 import type {
+  AnalyticsSeries,
+  AnalyticsSeriesParams,
   PageResponse,
   SystemStats,
   Transaction,
@@ -133,26 +135,10 @@ export function useAdminPendingTransactions(page = 0, size = 10) {
   });
 }
 
-export function useAdminUsersRegisteredInPeriod(start: string, end: string, enabled = true) {
-  return useQuery<number>({
-    queryKey: qk.adminAnalyticsUsers(start, end),
-    queryFn: () => adminDashboardApi.getUsersRegisteredInPeriod(start, end),
-    enabled: enabled && start.length > 0 && end.length > 0,
-  });
-}
-
-export function useAdminTransactionsInPeriod(start: string, end: string, enabled = true) {
-  return useQuery<number>({
-    queryKey: qk.adminAnalyticsTx(start, end),
-    queryFn: () => adminDashboardApi.getTransactionsInPeriod(start, end),
-    enabled: enabled && start.length > 0 && end.length > 0,
-  });
-}
-
-export function useAdminVolumeInPeriod(start: string, end: string, currency: string, enabled = true) {
-  return useQuery<number>({
-    queryKey: qk.adminAnalyticsVolume(start, end, currency),
-    queryFn: () => adminDashboardApi.getVolumeInPeriod(start, end, currency),
-    enabled: enabled && start.length > 0 && end.length > 0 && currency.length > 0,
+export function useAdminAnalyticsSeries(params: AnalyticsSeriesParams, enabled = true) {
+  return useQuery<AnalyticsSeries>({
+    queryKey: qk.adminAnalyticsSeries(params),
+    queryFn: () => adminDashboardApi.getAnalyticsSeries(params),
+    enabled: enabled && params.start.length > 0 && params.end.length > 0,
   });
 }
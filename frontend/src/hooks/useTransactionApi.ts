@@ -1,20 +1,28 @@
-import { useQuery, useMutation, useQueryClient } from '@tanstack/react-query';
+import { useQuery, useInfiniteQuery, useMutation, useQueryClient } from '@tanstack/react-query';
 import { transactionApi } from '../services/api';
-import type { Transaction, SendTransaction } from '../types';
+import type { Transaction, TransactionPage, SendTransaction } from '../types';
 import { qk } from './queryKeys';
 
+// History pages follow X-Next-Cursor: fetchNextPage() loads the next one, hasNextPage says
+// whether there is one. Flatten data.pages for the list.
 export function useWalletTransactions(walletId: number | undefined) {
-  return useQuery<Transaction[]>({
+  return useInfiniteQuery({
     queryKey: qk.transactionsByWallet(walletId ?? -1),
-    queryFn: () => transactionApi.getWalletTransactions(walletId as number),
+    queryFn: ({ pageParam }): Promise<TransactionPage> =>
+      transactionApi.getWalletTransactions(walletId as number, pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage: TransactionPage) => lastPage.nextCursor,
     enabled: typeof walletId === 'number',
   });
 }
 
 export function useUserTransactions(userId: number | undefined) {
-  return useQuery<Transaction[]>({
+  return useInfiniteQuery({
     queryKey: qk.transactionsByUser(userId ?? -1),
-    queryFn: () => transactionApi.getUserTransactions(userId as number),
+    queryFn: ({ pageParam }): Promise<TransactionPage> =>
+      transactionApi.getUserTransactions(userId as number, pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage: TransactionPage) => lastPage.nextCursor,
     enabled: typeof userId === 'number',
   });
 }
@@ -8,6 +8,7 @@ import {
   Wallet,
   WalletCreation,
   Transaction,
+  TransactionPage,
   SendTransaction,
   Admin,
   AdminRegistration,
@@ -15,6 +16,8 @@ import {
   ChangePassword,
   PageResponse,
   SystemStats,
+  AnalyticsSeries,
+  AnalyticsSeriesParams,
 } from '../types';
 
 const API_BASE_URL = '/api';
@@ -124,14 +127,15 @@ export const transactionApi = {
     return response.data;
   },
 
-  getWalletTransactions: async (walletId: number): Promise<Transaction[]> => {
-    const response = await api.get<Transaction[]>(`/transactions/wallet/${walletId}`);
-    return response.data;
+  // History is keyset-paged: pass the previous page's nextCursor to get the next one.
+  getWalletTransactions: async (walletId: number, cursor?: string, limit?: number): Promise<TransactionPage> => {
+    const response = await api.get<Transaction[]>(`/transactions/wallet/${walletId}`, { params: { cursor, limit } });
+    return { transactions: response.data, nextCursor: response.headers['x-next-cursor'] || undefined };
   },
 
-  getUserTransactions: async (userId: number): Promise<Transaction[]> => {
-    const response = await api.get<Transaction[]>(`/transactions/user/${userId}`);
-    return response.data;
+  getUserTransactions: async (userId: number, cursor?: string, limit?: number): Promise<TransactionPage> => {
+    const response = await api.get<Transaction[]>(`/transactions/user/${userId}`, { params: { cursor, limit } });
+    return { transactions: response.data, nextCursor: response.headers['x-next-cursor'] || undefined };
   },
 
   getByHash: async (txHash: string): Promise<Transaction> => {
@@ -271,23 +275,11 @@ export const adminDashboardApi = {
     return response.data;
   },
 
-  getUsersRegisteredInPeriod: async (start: string, end: string): Promise<number> => {
-    const response = await adminAxios.get<number>('/dashboard/analytics/users-registered', {
-      params: { start, end },
-    });
-    return response.data;
-  },
-
-  getTransactionsInPeriod: async (start: string, end: string): Promise<number> => {
-    const response = await adminAxios.get<number>('/dashboard/analytics/transactions', {
-      params: { start, end },
-    });
-    return response.data;
-  },
-
-  getVolumeInPeriod: async (start: string, end: string, currency: string): Promise<number> => {
-    const response = await adminAxios.get<number>('/dashboard/analytics/volume', {
-      params: { start, end, currency },
+  getAnalyticsSeries: async (params: AnalyticsSeriesParams): Promise<AnalyticsSeries> => {
+    const { metrics, currencies, ...rest } = params;
+    const response = await adminAxios.get<AnalyticsSeries>('/dashboard/analytics/series', {
+      // Comma-joined: the backend binds `metrics=A,B`, not axios' default `metrics[]=A&metrics[]=B`.
+      params: { ...rest, metrics: metrics?.join(','), currencies: currencies?.join(',') },
     });
     return response.data;
   },
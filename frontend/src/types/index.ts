@@ -73,6 +73,13 @@ export interface Transaction {
   createdAt: string;
 }
 
+// One page of a wallet's or user's history, newest first. `nextCursor` comes from the
+// X-Next-Cursor response header and is undefined on the last page.
+export interface TransactionPage {
+  transactions: Transaction[];
+  nextCursor?: string;
+}
+
 export interface SendTransaction {
   walletId: number;
   toAddress: string;
@@ -123,6 +130,31 @@ export interface SystemStats {
   lastUpdated: string;
 }
 
+export type AnalyticsGranularity = 'HOUR' | 'DAY' | 'WEEK';
+
+export type AnalyticsMetric = 'USERS' | 'TRANSACTIONS' | 'VOLUME';
+
+export interface AnalyticsSeriesParams {
+  start: string;
+  end: string;
+  granularity?: AnalyticsGranularity;
+  metrics?: AnalyticsMetric[];
+  currencies?: CryptoCurrency[];
+}
+
+/** One value per bucket for each metric; TRANSACTIONS and VOLUME come per currency. */
+export interface AnalyticsSeries {
+  granularity: AnalyticsGranularity;
+  /** Bucket start times, oldest first. */
+  buckets: string[];
+  series: {
+    metric: AnalyticsMetric;
+    /** Null for USERS. */
+    currency: CryptoCurrency | null;
+    values: number[];
+  }[];
+}
+
 export interface PageResponse<T> {
   content: T[];
   totalElements: number;